@@ -91,6 +91,17 @@ public interface V3JobOperations {
      */
     Completable recordTaskPlacement(String taskId, Function<Task, Task> changeFunction);
 
+    /**
+     * Bulk version of {@link #recordTaskPlacement(String, Function)}. Placements are grouped by job, and all placements
+     * of a job are recorded in a single job update, with the store writes executed concurrently. Jobs are updated
+     * independently of each other.
+     *
+     * @param taskChangeFunctions list of task id and change function pairs
+     * @return an outcome for each requested task placement, with an empty value if the placement was successfully
+     * recorded, or an error otherwise. The observable completes when outcomes for all tasks are emitted.
+     */
+    Observable<Pair<String, Optional<Throwable>>> recordTaskPlacements(List<Pair<String, Function<Task, Task>>> taskChangeFunctions);
+
     Observable<JobManagerEvent<?>> observeJobs();
 
     Observable<JobManagerEvent<?>> observeJob(String jobId);
@@ -16,6 +16,7 @@
 
 package com.netflix.titus.api.jobmanager.store;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import com.netflix.titus.api.jobmanager.model.job.Job;
@@ -64,6 +65,20 @@ public interface JobStore {
      */
     Completable updateJob(Job job);
 
+    /**
+     * Update a group of existing jobs and tasks. The default implementation issues an independent update for each
+     * of them. Stores that can write multiple records in a single request should override it.
+     *
+     * @param jobs
+     * @param tasks
+     */
+    default Completable updateJobsAndTasks(List<Job<?>> jobs, List<Task> tasks) {
+        List<Completable> updates = new ArrayList<>(jobs.size() + tasks.size());
+        jobs.forEach(job -> updates.add(updateJob(job)));
+        tasks.forEach(task -> updates.add(updateTask(task)));
+        return Completable.merge(updates);
+    }
+
     /**
      * Delete a job
      *
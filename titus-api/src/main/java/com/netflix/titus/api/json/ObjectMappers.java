@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.util.Collection;
 
 import com.fasterxml.jackson.annotation.JsonView;
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.JsonStreamContext;
@@ -171,6 +172,14 @@ public class ObjectMappers {
         return STORE;
     }
 
+    /**
+     * Creates a new object mapper with the same configuration as {@link #storeMapper()}, but backed by the given
+     * factory. Use it to serialize store records in a non-JSON data format (for example Smile).
+     */
+    public static ObjectMapper storeMapper(JsonFactory jsonFactory) {
+        return configureStoreMapper(new ObjectMapper(jsonFactory));
+    }
+
     public static ObjectMapper appScalePolicyMapper() {
         return APP_SCALE_STORE;
     }
@@ -312,8 +321,10 @@ public class ObjectMappers {
     }
 
     private static ObjectMapper createStoreMapper() {
-        ObjectMapper objectMapper = new ObjectMapper();
+        return configureStoreMapper(new ObjectMapper());
+    }
 
+    private static ObjectMapper configureStoreMapper(ObjectMapper objectMapper) {
         objectMapper.registerModule(new Jdk8Module());
 
         // Common
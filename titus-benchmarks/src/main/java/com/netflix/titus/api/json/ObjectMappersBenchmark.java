@@ -0,0 +1,86 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.api.json;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.benchmark.BenchmarkJobModels;
+import com.netflix.titus.common.util.tuple.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serialization cost of jobs and tasks with {@link ObjectMappers#storeMapper()}, which is used to persist them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObjectMappersBenchmark {
+
+    private final ObjectMapper storeMapper = ObjectMappers.storeMapper();
+
+    private Job<?> job;
+    private Task task;
+    private byte[] serializedJob;
+    private byte[] serializedTask;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Pair<Job<?>, List<Task>> jobAndTasks = BenchmarkJobModels.newServiceJobsWithTasks(1, 1).get(0);
+        this.job = jobAndTasks.getLeft();
+        this.task = jobAndTasks.getRight().get(0);
+        this.serializedJob = storeMapper.writeValueAsBytes(job);
+        this.serializedTask = storeMapper.writeValueAsBytes(task);
+    }
+
+    @Benchmark
+    public byte[] writeJob() throws IOException {
+        return storeMapper.writeValueAsBytes(job);
+    }
+
+    @Benchmark
+    public byte[] writeTask() throws IOException {
+        return storeMapper.writeValueAsBytes(task);
+    }
+
+    @Benchmark
+    public Job<?> readJob() throws IOException {
+        return storeMapper.readValue(serializedJob, Job.class);
+    }
+
+    @Benchmark
+    public Task readTask() throws IOException {
+        return storeMapper.readValue(serializedTask, Task.class);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.JobDescriptor;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.ext.ServiceJobExt;
+import com.netflix.titus.common.util.tuple.Pair;
+
+import static com.netflix.titus.api.jobmanager.model.job.JobFunctions.changeServiceJobCapacity;
+import static com.netflix.titus.api.jobmanager.model.job.JobFunctions.changeTaskStatus;
+import static com.netflix.titus.testkit.model.job.JobDescriptorGenerator.serviceJobDescriptors;
+import static com.netflix.titus.testkit.model.job.JobGenerator.serviceJobs;
+import static com.netflix.titus.testkit.model.job.JobGenerator.serviceTasks;
+
+/**
+ * Job models of a configurable size, built with the titus-testkit data generators.
+ */
+public final class BenchmarkJobModels {
+
+    /**
+     * Number of distinct job descriptors (application names, images, capacity groups, etc) in a generated model.
+     */
+    private static final int JOB_DESCRIPTOR_COUNT = 100;
+
+    private static final TaskState[] ACTIVE_TASK_STATES = {
+            TaskState.Accepted, TaskState.Launched, TaskState.StartInitiated, TaskState.Started, TaskState.KillInitiated
+    };
+
+    private BenchmarkJobModels() {
+    }
+
+    /**
+     * Generates service jobs with {@code tasksPerJob} tasks each, and {@code taskCount} tasks in total. Task states
+     * are evenly spread across the active task states.
+     */
+    public static List<Pair<Job<?>, List<Task>>> newServiceJobsWithTasks(int taskCount, int tasksPerJob) {
+        List<JobDescriptor<ServiceJobExt>> descriptors = serviceJobDescriptors().toList(JOB_DESCRIPTOR_COUNT);
+
+        int jobCount = Math.max(1, taskCount / tasksPerJob);
+        List<Pair<Job<?>, List<Task>>> jobsAndTasks = new ArrayList<>(jobCount);
+        for (int i = 0; i < jobCount; i++) {
+            JobDescriptor<ServiceJobExt> descriptor = changeServiceJobCapacity(descriptors.get(i % descriptors.size()), tasksPerJob);
+            Job<ServiceJobExt> job = serviceJobs(descriptor).getValue();
+
+            List<Task> tasks = new ArrayList<>(tasksPerJob);
+            serviceTasks(job).toList(tasksPerJob).forEach(task ->
+                    tasks.add(changeTaskStatus(task, ACTIVE_TASK_STATES[tasks.size() % ACTIVE_TASK_STATES.length], "normal", "benchmark"))
+            );
+            jobsAndTasks.add(Pair.of(job, tasks));
+        }
+        return jobsAndTasks;
+    }
+
+    public static List<Task> allTasks(List<Pair<Job<?>, List<Task>>> jobsAndTasks) {
+        List<Task> tasks = new ArrayList<>();
+        jobsAndTasks.forEach(jobAndTasks -> tasks.addAll(jobAndTasks.getRight()));
+        return tasks;
+    }
+}
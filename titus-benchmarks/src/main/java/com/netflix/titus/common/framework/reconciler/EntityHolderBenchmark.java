@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.framework.reconciler;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.benchmark.BenchmarkJobModels;
+import com.netflix.titus.common.util.tuple.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of task updates and lookups in a job {@link EntityHolder} (a single job with many tasks).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityHolderBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int taskCount;
+
+    private EntityHolder jobHolder;
+    private List<Task> tasks;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Pair<Job<?>, List<Task>> jobAndTasks = BenchmarkJobModels.newServiceJobsWithTasks(taskCount, taskCount).get(0);
+        this.tasks = jobAndTasks.getRight();
+
+        EntityHolder holder = EntityHolder.newRoot(jobAndTasks.getLeft().getId(), jobAndTasks.getLeft());
+        for (Task task : tasks) {
+            holder = holder.addChild(EntityHolder.newRoot(task.getId(), task));
+        }
+        this.jobHolder = holder;
+    }
+
+    @Benchmark
+    public EntityHolder updateChild() {
+        Task task = nextTask();
+        return jobHolder.addChild(EntityHolder.newRoot(task.getId(), task));
+    }
+
+    @Benchmark
+    public Optional<EntityHolder> findById() {
+        return jobHolder.findById(nextTask().getId());
+    }
+
+    @Benchmark
+    public Pair<EntityHolder, Optional<EntityHolder>> removeChild() {
+        return jobHolder.removeChild(nextTask().getId());
+    }
+
+    private Task nextTask() {
+        next = (next + 1) % tasks.size();
+        return tasks.get(next);
+    }
+}
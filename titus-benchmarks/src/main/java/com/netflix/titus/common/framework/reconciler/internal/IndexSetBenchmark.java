@@ -0,0 +1,97 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.framework.reconciler.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.benchmark.BenchmarkJobModels;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static com.netflix.titus.api.jobmanager.model.job.JobFunctions.changeTaskStatus;
+
+/**
+ * Cost of incremental updates of an {@link IndexSet} holding all tasks, with two indexes (by id, and by state
+ * and id), which mirrors how the reconciliation framework keeps ordered task views.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndexSetBenchmark {
+
+    private static final String BY_ID = "byId";
+    private static final String BY_STATE = "byState";
+
+    @Param({"1000", "100000", "500000"})
+    public int taskCount;
+
+    private IndexSet<Task> indexSet;
+    private List<Task> tasks;
+    private List<Task> updatedTasks;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.tasks = BenchmarkJobModels.allTasks(BenchmarkJobModels.newServiceJobsWithTasks(taskCount, 100));
+        this.updatedTasks = new ArrayList<>(tasks.size());
+        tasks.forEach(task -> updatedTasks.add(changeTaskStatus(task, TaskState.Started, "normal", "updated")));
+
+        Map<Object, Comparator<Task>> comparators = new HashMap<>();
+        comparators.put(BY_ID, Comparator.comparing(Task::getId));
+        comparators.put(BY_STATE, Comparator.comparing(task -> task.getStatus().getState()));
+        this.indexSet = IndexSet.newIndexSet(comparators, Task::getId).add(tasks);
+    }
+
+    @Benchmark
+    public IndexSet<Task> updateOne() {
+        next = (next + 1) % tasks.size();
+        return indexSet.add(Collections.singletonList(updatedTasks.get(next)));
+    }
+
+    @Benchmark
+    public IndexSet<Task> removeOne() {
+        next = (next + 1) % tasks.size();
+        return indexSet.remove(Collections.singletonList(tasks.get(next).getId()));
+    }
+
+    @Benchmark
+    public List<Task> getOrdered() {
+        return indexSet.getOrdered(BY_STATE);
+    }
+}
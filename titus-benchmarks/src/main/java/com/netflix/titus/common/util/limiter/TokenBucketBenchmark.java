@@ -0,0 +1,148 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.limiter;
+
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.titus.common.util.limiter.tokenbucket.RefillStrategy;
+import com.netflix.titus.common.util.limiter.tokenbucket.TokenBucket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of {@link TokenBucket#tryTake()} on a single bucket shared by many threads. The 'synchronized'
+ * implementation serializes all calls with a mutex, like the token bucket did before it was made lock-free, and is
+ * the baseline for the other two. Run with -PjmhArgs='-t N' to change the number of threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class TokenBucketBenchmark {
+
+    private static final long CAPACITY = 1_000_000_000_000_000L;
+
+    @Param({"synchronized", "default", "striped"})
+    public String implementation;
+
+    /**
+     * Tokens added every millisecond. Zero keeps the bucket full (so each call is a successful take), a small value
+     * keeps it drained (so most calls are rejected).
+     */
+    @Param({"0", "1000"})
+    public long tokensPerMs;
+
+    private TokenBucket tokenBucket;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        long initialNumberOfTokens = tokensPerMs == 0 ? CAPACITY : 0;
+        switch (implementation) {
+            case "synchronized":
+                tokenBucket = new SynchronizedTokenBucket(Limiters.createFixedIntervalTokenBucket(
+                        "benchmark", CAPACITY, initialNumberOfTokens, tokensPerMs, 1, TimeUnit.MILLISECONDS
+                ));
+                break;
+            case "default":
+                tokenBucket = Limiters.createFixedIntervalTokenBucket(
+                        "benchmark", CAPACITY, initialNumberOfTokens, tokensPerMs, 1, TimeUnit.MILLISECONDS
+                );
+                break;
+            case "striped":
+                tokenBucket = Limiters.createStripedFixedIntervalTokenBucket(
+                        "benchmark", CAPACITY, initialNumberOfTokens, tokensPerMs, 1, TimeUnit.MILLISECONDS,
+                        Runtime.getRuntime().availableProcessors()
+                );
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown token bucket implementation: " + implementation);
+        }
+    }
+
+    @Benchmark
+    public boolean tryTake() {
+        return tokenBucket.tryTake();
+    }
+
+    private static class SynchronizedTokenBucket implements TokenBucket {
+
+        private final TokenBucket delegate;
+
+        private SynchronizedTokenBucket(TokenBucket delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public String getName() {
+            return delegate.getName();
+        }
+
+        @Override
+        public long getCapacity() {
+            return delegate.getCapacity();
+        }
+
+        @Override
+        public synchronized long getNumberOfTokens() {
+            return delegate.getNumberOfTokens();
+        }
+
+        @Override
+        public synchronized boolean tryTake() {
+            return delegate.tryTake();
+        }
+
+        @Override
+        public synchronized boolean tryTake(long numberOfTokens) {
+            return delegate.tryTake(numberOfTokens);
+        }
+
+        @Override
+        public void take() {
+            delegate.take();
+        }
+
+        @Override
+        public void take(long numberOfTokens) {
+            delegate.take(numberOfTokens);
+        }
+
+        @Override
+        public synchronized void refill(long numberOfTokens) {
+            delegate.refill(numberOfTokens);
+        }
+
+        @Override
+        public RefillStrategy getRefillStrategy() {
+            return delegate.getRefillStrategy();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.rx.batch;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.netflix.spectator.api.NoopRegistry;
+import com.netflix.titus.common.util.limiter.Limiters;
+import com.netflix.titus.common.util.limiter.tokenbucket.TokenBucket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import rx.Subscription;
+import rx.schedulers.Schedulers;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
+
+/**
+ * Cost of queueing, deduplicating and flushing a burst of updates through {@link RateLimitedBatcher}, with an
+ * unbounded token bucket, so only the batching overhead is measured. Time is driven by a test scheduler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RateLimitedBatcherBenchmark {
+
+    private static final long INITIAL_DELAY_MS = 1_000;
+    private static final long MAX_DELAY_MS = 10_000;
+    private static final long TIME_WINDOW_BUCKET_MS = 1_000;
+
+    private static final long TOKENS = 1_000_000_000;
+
+    @Param({"1000", "100000"})
+    public int updateCount;
+
+    @Param({"10", "1000"})
+    public int indexCount;
+
+    private List<Update> updates;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Instant now = Instant.ofEpochMilli(0);
+        this.updates = new ArrayList<>(updateCount);
+        for (int i = 0; i < updateCount; i++) {
+            // Every other update replaces the previous one for the same target, to exercise deduplication.
+            updates.add(new Update("index#" + ((i / 2) % indexCount), "target#" + (i / 2), i % 10 == 0 ? Priority.High : Priority.Low, now));
+        }
+    }
+
+    @Benchmark
+    public int batchUpdates() {
+        TestScheduler testScheduler = Schedulers.test();
+        TokenBucket tokenBucket = Limiters.createFixedIntervalTokenBucket("benchmark", TOKENS, TOKENS, TOKENS, 1, TimeUnit.SECONDS);
+        RateLimitedBatcher<Update, String> batcher = RateLimitedBatcher.create(
+                tokenBucket,
+                INITIAL_DELAY_MS,
+                MAX_DELAY_MS,
+                Update::getIndex,
+                new LargestPerTimeBucket(INITIAL_DELAY_MS, TIME_WINDOW_BUCKET_MS, testScheduler),
+                "benchmark",
+                new NoopRegistry(),
+                testScheduler
+        );
+
+        PublishSubject<Update> source = PublishSubject.create();
+        AtomicInteger emitted = new AtomicInteger();
+        Subscription subscription = source.lift(batcher).subscribe(batch -> emitted.addAndGet(batch.getItems().size()));
+        try {
+            updates.forEach(source::onNext);
+            testScheduler.advanceTimeBy(MAX_DELAY_MS, TimeUnit.MILLISECONDS);
+            return emitted.get();
+        } finally {
+            subscription.unsubscribe();
+        }
+    }
+
+    private static class Update implements Batchable<String> {
+
+        private final String index;
+        private final String identifier;
+        private final Priority priority;
+        private final Instant timestamp;
+
+        private Update(String index, String identifier, Priority priority, Instant timestamp) {
+            this.index = index;
+            this.identifier = identifier;
+            this.priority = priority;
+            this.timestamp = timestamp;
+        }
+
+        private String getIndex() {
+            return index;
+        }
+
+        @Override
+        public String getIdentifier() {
+            return identifier;
+        }
+
+        @Override
+        public Priority getPriority() {
+            return priority;
+        }
+
+        @Override
+        public Instant getTimestamp() {
+            return timestamp;
+        }
+
+        @Override
+        public boolean isEquivalent(Batchable<?> other) {
+            if (!(other instanceof Update)) {
+                return false;
+            }
+            Update otherUpdate = (Update) other;
+            return identifier.equals(otherUpdate.identifier) && priority == otherUpdate.priority;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.agent.service.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.titus.api.agent.model.AgentInstance;
+import com.netflix.titus.api.agent.model.AgentInstanceGroup;
+import com.netflix.titus.api.model.Tier;
+import com.netflix.titus.common.aws.AwsInstanceType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static com.netflix.titus.testkit.model.agent.AgentGenerator.agentInstances;
+import static com.netflix.titus.testkit.model.agent.AgentGenerator.agentServerGroups;
+
+/**
+ * Cost of a single agent instance update in an {@link AgentDataSnapshot}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AgentDataSnapshotBenchmark {
+
+    private static final int INSTANCE_GROUP_COUNT = 50;
+
+    @Param({"100", "1000"})
+    public int instancesPerGroup;
+
+    private AgentDataSnapshot snapshot;
+    private List<AgentInstance> updatedInstances;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<AgentInstanceGroup> instanceGroups = agentServerGroups(Tier.Flex, instancesPerGroup, AwsInstanceType.M4_4XLarge).toList(INSTANCE_GROUP_COUNT);
+        List<AgentInstance> instances = new ArrayList<>();
+        instanceGroups.forEach(instanceGroup -> instances.addAll(agentInstances(instanceGroup).toList(instancesPerGroup)));
+
+        this.snapshot = AgentDataSnapshot.initWithStaleDataSnapshot(instanceGroups, instances);
+        this.updatedInstances = new ArrayList<>(instances.size());
+        instances.forEach(instance -> updatedInstances.add(instance.toBuilder().withTimestamp(updatedInstances.size()).build()));
+    }
+
+    @Benchmark
+    public AgentDataSnapshot updateAgentInstance() {
+        next = (next + 1) % updatedInstances.size();
+        return snapshot.updateAgentInstance(updatedInstances.get(next));
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.scheduler.fitness;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.fenzo.TaskRequest;
+import com.netflix.fenzo.VMTaskFitnessCalculator;
+import com.netflix.fenzo.VirtualMachineCurrentState;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.model.Tier;
+import com.netflix.titus.benchmark.BenchmarkJobModels;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.master.jobmanager.service.common.V3QueueableTask;
+import com.netflix.titus.master.scheduler.constraint.ConstraintEvaluatorTransformer;
+import com.netflix.titus.master.scheduler.constraint.SystemHardConstraint;
+import com.netflix.titus.master.scheduler.constraint.SystemSoftConstraint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Cost of evaluating the placement fitness calculators for a batch of task requests against all agents, which
+ * is what Fenzo does in each scheduling iteration. Agents are Mockito mocks, so the absolute numbers include a
+ * small constant overhead of the mock invocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FitnessCalculatorBenchmark {
+
+    private static final int TASKS_PER_AGENT = 20;
+    private static final int TASK_REQUEST_COUNT = 50;
+
+    @Param({"100", "1000"})
+    public int agentCount;
+
+    private final ConstraintEvaluatorTransformer constraintEvaluatorTransformer = mock(ConstraintEvaluatorTransformer.class);
+    private final SystemSoftConstraint systemSoftConstraint = mock(SystemSoftConstraint.class);
+    private final SystemHardConstraint systemHardConstraint = mock(SystemHardConstraint.class);
+
+    private final AgentPlacementSummaries placementSummaries = new AgentPlacementSummaries();
+    private final List<VMTaskFitnessCalculator> calculators = new ArrayList<>();
+
+    private List<VirtualMachineCurrentState> agents;
+    private List<TaskRequest> taskRequests;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        calculators.add(new JobTypeFitnessCalculator(placementSummaries));
+        calculators.add(new ImageSpreadingFitnessCalculator(placementSummaries));
+        calculators.add(new SecurityGroupSpreadingFitnessCalculator(placementSummaries));
+
+        List<TaskRequest> runningTasks = toTaskRequests(BenchmarkJobModels.newServiceJobsWithTasks(agentCount * TASKS_PER_AGENT, TASKS_PER_AGENT));
+        this.agents = new ArrayList<>(agentCount);
+        for (int i = 0; i < agentCount; i++) {
+            VirtualMachineCurrentState agent = mock(VirtualMachineCurrentState.class);
+            when(agent.getHostname()).thenReturn("agent#" + i);
+            when(agent.getRunningTasks()).thenReturn(new ArrayList<>(runningTasks.subList(i * TASKS_PER_AGENT, (i + 1) * TASKS_PER_AGENT)));
+            when(agent.getTasksCurrentlyAssigned()).thenReturn(Collections.emptyList());
+            agents.add(agent);
+        }
+        this.taskRequests = toTaskRequests(BenchmarkJobModels.newServiceJobsWithTasks(TASK_REQUEST_COUNT, 1));
+    }
+
+    @Benchmark
+    public double schedulingIteration() {
+        placementSummaries.prepare();
+        double total = 0;
+        for (TaskRequest taskRequest : taskRequests) {
+            for (VirtualMachineCurrentState agent : agents) {
+                for (VMTaskFitnessCalculator calculator : calculators) {
+                    total += calculator.calculateFitness(taskRequest, agent, null);
+                }
+            }
+        }
+        return total;
+    }
+
+    private List<TaskRequest> toTaskRequests(List<Pair<Job<?>, List<Task>>> jobsAndTasks) {
+        List<TaskRequest> requests = new ArrayList<>();
+        jobsAndTasks.forEach(jobAndTasks -> jobAndTasks.getRight().forEach(task -> requests.add(new V3QueueableTask(
+                Tier.Flex,
+                "default",
+                jobAndTasks.getLeft(),
+                task,
+                Collections::emptySet,
+                constraintEvaluatorTransformer,
+                systemSoftConstraint,
+                systemHardConstraint
+        ))));
+        return requests;
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.scheduler.systemselector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.fenzo.VirtualMachineCurrentState;
+import com.netflix.fenzo.VirtualMachineLease;
+import com.netflix.titus.api.agent.model.AgentInstance;
+import com.netflix.titus.api.agent.model.AgentInstanceGroup;
+import com.netflix.titus.api.agent.service.AgentManagementService;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.model.Tier;
+import com.netflix.titus.benchmark.BenchmarkJobModels;
+import com.netflix.titus.common.aws.AwsInstanceType;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.master.jobmanager.service.common.V3QueueableTask;
+import com.netflix.titus.master.scheduler.SchedulerConfiguration;
+import org.apache.mesos.Protos;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static com.netflix.titus.testkit.model.agent.AgentGenerator.agentInstances;
+import static com.netflix.titus.testkit.model.agent.AgentGenerator.agentServerGroups;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Cost of evaluating a system selector (a select and a match expression) for a batch of task requests against all
+ * agents, as done in a scheduling iteration, with the JavaScript engine and with the compiled SpEL expressions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SystemSelectorEvaluatorBenchmark {
+
+    private static final int INSTANCE_GROUP_COUNT = 10;
+    private static final int AGENTS_PER_INSTANCE_GROUP = 100;
+    private static final int TASK_REQUEST_COUNT = 50;
+
+    private static final String SELECT_EXPRESSION = "job.jobDescriptor.applicationName == 'app0'";
+    private static final String MATCH_EXPRESSION = "instanceGroup.instanceType == 'm4.4xlarge'";
+
+    private static final String INSTANCE_GROUP_ATTRIBUTE = "asg";
+    private static final String INSTANCE_ATTRIBUTE = "id";
+
+    @Param({"false", "true"})
+    public boolean spelEnabled;
+
+    private final SchedulerConfiguration configuration = mock(SchedulerConfiguration.class);
+    private final AgentManagementService agentManagementService = mock(AgentManagementService.class);
+
+    private SystemSelectorEvaluator evaluator;
+    private List<VirtualMachineCurrentState> agents;
+    private List<V3QueueableTask> taskRequests;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        when(configuration.getInstanceGroupAttributeName()).thenReturn(INSTANCE_GROUP_ATTRIBUTE);
+        when(configuration.getInstanceAttributeName()).thenReturn(INSTANCE_ATTRIBUTE);
+        when(configuration.isSystemSelectorSpelEnabled()).thenReturn(spelEnabled);
+        this.evaluator = new SystemSelectorEvaluator(configuration, TitusRuntimes.internal());
+
+        this.agents = new ArrayList<>();
+        List<AgentInstanceGroup> instanceGroups = agentServerGroups(Tier.Flex, AGENTS_PER_INSTANCE_GROUP, AwsInstanceType.M4_4XLarge)
+                .toList(INSTANCE_GROUP_COUNT);
+        for (AgentInstanceGroup instanceGroup : instanceGroups) {
+            when(agentManagementService.getInstanceGroup(instanceGroup.getId())).thenReturn(instanceGroup);
+            for (AgentInstance instance : agentInstances(instanceGroup).toList(AGENTS_PER_INSTANCE_GROUP)) {
+                when(agentManagementService.getAgentInstance(instance.getId())).thenReturn(instance);
+                agents.add(newAgent(instanceGroup.getId(), instance.getId()));
+            }
+        }
+
+        this.taskRequests = new ArrayList<>();
+        for (Pair<Job<?>, List<Task>> jobAndTasks : BenchmarkJobModels.newServiceJobsWithTasks(TASK_REQUEST_COUNT, 1)) {
+            for (Task task : jobAndTasks.getRight()) {
+                V3QueueableTask taskRequest = mock(V3QueueableTask.class);
+                when(taskRequest.getId()).thenReturn(task.getId());
+                when(taskRequest.getJob()).thenReturn(jobAndTasks.getLeft());
+                when(taskRequest.getTask()).thenReturn(task);
+                taskRequests.add(taskRequest);
+            }
+        }
+    }
+
+    @Benchmark
+    public int schedulingIteration() {
+        evaluator.prepare();
+        int matches = 0;
+        for (V3QueueableTask taskRequest : taskRequests) {
+            for (VirtualMachineCurrentState agent : agents) {
+                SystemSelectorContext context = new SystemSelectorContext(taskRequest, agent, agentManagementService, configuration);
+                if (evaluator.evaluate(SELECT_EXPRESSION, context) && evaluator.evaluate(MATCH_EXPRESSION, context)) {
+                    matches++;
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static VirtualMachineCurrentState newAgent(String instanceGroupId, String instanceId) {
+        Map<String, Protos.Attribute> attributes = new HashMap<>();
+        attributes.put(INSTANCE_GROUP_ATTRIBUTE, textAttribute(INSTANCE_GROUP_ATTRIBUTE, instanceGroupId));
+        attributes.put(INSTANCE_ATTRIBUTE, textAttribute(INSTANCE_ATTRIBUTE, instanceId));
+
+        VirtualMachineLease lease = mock(VirtualMachineLease.class);
+        when(lease.getAttributeMap()).thenReturn(Collections.unmodifiableMap(attributes));
+
+        VirtualMachineCurrentState agent = mock(VirtualMachineCurrentState.class);
+        when(agent.getCurrAvailableResources()).thenReturn(lease);
+        return agent;
+    }
+
+    private static Protos.Attribute textAttribute(String name, String value) {
+        return Protos.Attribute.newBuilder()
+                .setName(name)
+                .setType(Protos.Value.Type.TEXT)
+                .setText(Protos.Value.Text.newBuilder().setValue(value))
+                .build();
+    }
+}
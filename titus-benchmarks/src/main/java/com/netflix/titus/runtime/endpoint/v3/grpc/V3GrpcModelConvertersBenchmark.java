@@ -0,0 +1,118 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.runtime.endpoint.v3.grpc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.benchmark.BenchmarkJobModels;
+import com.netflix.titus.common.util.ProtobufCopy;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.runtime.endpoint.common.EmptyLogStorageInfo;
+import com.netflix.titus.runtime.endpoint.common.LogStorageInfo;
+import com.netflix.titus.runtime.jobmanager.JobManagerCursors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static com.netflix.titus.common.util.CollectionsExt.asSet;
+
+/**
+ * Per entity cost of the core to GRPC model conversions (and back), which dominate the findJobs/findTasks and
+ * observeJobs call paths. The field projection benchmarks compare converting a task in full and copying the requested
+ * fields (what a query with a field list used to do), with the projected conversion.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class V3GrpcModelConvertersBenchmark {
+
+    private static final int TASK_COUNT = 1_000;
+
+    private static final Set<String> FIELDS = asSet("id", "status");
+
+    private static final LogStorageInfo<Task> LOG_STORAGE_INFO = EmptyLogStorageInfo.INSTANCE;
+
+    private List<Pair<Job<?>, List<Task>>> jobsAndTasks;
+    private List<Task> tasks;
+    private List<com.netflix.titus.grpc.protogen.Job> grpcJobs;
+    private List<com.netflix.titus.grpc.protogen.Task> grpcTasks;
+    private GrpcFieldProjection projection;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.jobsAndTasks = BenchmarkJobModels.newServiceJobsWithTasks(TASK_COUNT, 10);
+        this.tasks = BenchmarkJobModels.allTasks(jobsAndTasks);
+        this.grpcJobs = new ArrayList<>();
+        jobsAndTasks.forEach(jobAndTasks -> grpcJobs.add(V3GrpcModelConverters.toGrpcJob(jobAndTasks.getLeft())));
+        this.grpcTasks = new ArrayList<>();
+        tasks.forEach(task -> grpcTasks.add(V3GrpcModelConverters.toGrpcTask(task, LOG_STORAGE_INFO)));
+        this.projection = GrpcFieldProjection.of(FIELDS, JobManagerCursors.TASK_CURSOR_FIELDS);
+    }
+
+    @Benchmark
+    public com.netflix.titus.grpc.protogen.Job toGrpcJob() {
+        return V3GrpcModelConverters.toGrpcJob(jobsAndTasks.get(nextIndex(jobsAndTasks.size())).getLeft());
+    }
+
+    @Benchmark
+    public com.netflix.titus.grpc.protogen.Task toGrpcTask() {
+        return V3GrpcModelConverters.toGrpcTask(tasks.get(nextIndex(tasks.size())), LOG_STORAGE_INFO);
+    }
+
+    @Benchmark
+    public com.netflix.titus.grpc.protogen.Task toGrpcTaskThenCopyFields() {
+        return ProtobufCopy.copy(V3GrpcModelConverters.toGrpcTask(tasks.get(nextIndex(tasks.size())), LOG_STORAGE_INFO), FIELDS);
+    }
+
+    @Benchmark
+    public com.netflix.titus.grpc.protogen.Task toGrpcTaskWithProjection() {
+        return V3GrpcModelConverters.toGrpcTask(tasks.get(nextIndex(tasks.size())), LOG_STORAGE_INFO, projection);
+    }
+
+    @Benchmark
+    public Job toCoreJob() {
+        return V3GrpcModelConverters.toCoreJob(grpcJobs.get(nextIndex(grpcJobs.size())));
+    }
+
+    @Benchmark
+    public Task toCoreTask() {
+        return V3GrpcModelConverters.toCoreTask(grpcTasks.get(nextIndex(grpcTasks.size())));
+    }
+
+    private int nextIndex(int size) {
+        next = (next + 1) % size;
+        return next;
+    }
+}
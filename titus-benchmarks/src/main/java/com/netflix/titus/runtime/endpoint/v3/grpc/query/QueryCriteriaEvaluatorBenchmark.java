@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.runtime.endpoint.v3.grpc.query;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.benchmark.BenchmarkJobModels;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.grpc.protogen.JobQuery;
+import com.netflix.titus.grpc.protogen.Page;
+import com.netflix.titus.grpc.protogen.TaskQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static com.netflix.titus.runtime.endpoint.common.grpc.CommonGrpcModelConverters.toJobQueryCriteria;
+
+/**
+ * Cost of evaluating a findJobs/findTasks query (application name and task state filters) over the whole active job
+ * model, as done by TitusMaster for each query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryCriteriaEvaluatorBenchmark {
+
+    private static final int TASKS_PER_JOB = 100;
+
+    @Param({"1000", "100000", "500000"})
+    public int taskCount;
+
+    private final TitusRuntime titusRuntime = TitusRuntimes.internal();
+
+    private List<Pair<Job<?>, List<Task>>> jobsAndTasks;
+    private V3JobQueryCriteriaEvaluator jobEvaluator;
+    private V3TaskQueryCriteriaEvaluator taskEvaluator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.jobsAndTasks = BenchmarkJobModels.newServiceJobsWithTasks(taskCount, TASKS_PER_JOB);
+
+        String appName = jobsAndTasks.get(0).getLeft().getJobDescriptor().getApplicationName();
+        Page page = Page.newBuilder().setPageSize(100).build();
+        this.jobEvaluator = new V3JobQueryCriteriaEvaluator(toJobQueryCriteria(JobQuery.newBuilder()
+                .setPage(page)
+                .putFilteringCriteria("appName", appName)
+                .putFilteringCriteria("taskStates", "Launched,Started")
+                .build()
+        ), titusRuntime);
+        this.taskEvaluator = new V3TaskQueryCriteriaEvaluator(toJobQueryCriteria(TaskQuery.newBuilder()
+                .setPage(page)
+                .putFilteringCriteria("appName", appName)
+                .putFilteringCriteria("taskStates", "Launched,Started")
+                .build()
+        ), titusRuntime);
+    }
+
+    @Benchmark
+    public int findJobs() {
+        int matches = 0;
+        for (Pair<Job<?>, List<Task>> jobAndTasks : jobsAndTasks) {
+            if (jobEvaluator.test(jobAndTasks)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int findTasks() {
+        int matches = 0;
+        for (Pair<Job<?>, List<Task>> jobAndTasks : jobsAndTasks) {
+            Job<?> job = jobAndTasks.getLeft();
+            for (Task task : jobAndTasks.getRight()) {
+                if (taskEvaluator.test(Pair.of(job, task))) {
+                    matches++;
+                }
+            }
+        }
+        return matches;
+    }
+}
@@ -16,6 +16,7 @@
 
 package com.netflix.titus.common.framework.reconciler;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -86,6 +87,23 @@ public class EntityHolder {
         return new EntityHolder(id, entity, newChildren, attributes);
     }
 
+    /**
+     * Adds all children at once, copying the children set only one time. Existing children with the same ids
+     * are replaced.
+     */
+    public EntityHolder addChildren(Collection<EntityHolder> newChildren) {
+        if (newChildren.isEmpty()) {
+            return this;
+        }
+        SortedSet<EntityHolder> allChildren = new TreeSet<>(Comparator.comparing(EntityHolder::getId));
+        allChildren.addAll(children);
+        newChildren.forEach(child -> {
+            allChildren.remove(child);
+            allChildren.add(child);
+        });
+        return new EntityHolder(id, entity, allChildren, attributes);
+    }
+
     public Pair<EntityHolder, Optional<EntityHolder>> removeChild(String id) {
         return children.stream().filter(c -> c.getId().equals(id)).findFirst().map(removedChild -> {
                     SortedSet<EntityHolder> filteredChildren = new TreeSet<>(Comparator.comparing(EntityHolder::getId));
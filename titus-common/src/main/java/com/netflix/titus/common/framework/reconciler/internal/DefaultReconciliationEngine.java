@@ -76,6 +76,9 @@ public class DefaultReconciliationEngine<EVENT> implements ReconciliationEngine<
 
     private boolean firstTrigger;
 
+    private volatile Runnable wakeUpListener = () -> {
+    };
+
     public DefaultReconciliationEngine(EntityHolder bootstrapModel,
                                        boolean newlyCreated,
                                        DifferenceResolver<EVENT> runningDifferenceResolver,
@@ -85,14 +88,14 @@ public class DefaultReconciliationEngine<EVENT> implements ReconciliationEngine<
                                        Function<EVENT, List<Tag>> extraModelActionTags,
                                        TitusRuntime titusRuntime) {
         this.eventFactory = eventFactory;
-        this.indexSet = IndexSet.newIndexSet(indexComparators);
+        this.indexSet = IndexSet.newIndexSet(indexComparators, EntityHolder::getId);
         this.titusRuntime = titusRuntime;
         this.clock = titusRuntime.getClock();
         this.eventObservable = ObservableExt.protectFromMissingExceptionHandlers(eventSubject, logger);
         this.modelHolder = new ModelHolder<>(this, bootstrapModel, runningDifferenceResolver);
         this.firstTrigger = newlyCreated;
         this.metrics = new ReconciliationEngineMetrics<>(bootstrapModel.getId(), extraChangeActionTags, extraModelActionTags, titusRuntime.getRegistry(), clock);
-        indexEntityHolder(bootstrapModel);
+        this.indexSet = indexSet.add(bootstrapModel.getChildren());
     }
 
     @Override
@@ -197,6 +200,7 @@ public class DefaultReconciliationEngine<EVENT> implements ReconciliationEngine<
             long transactionId = nextTransactionId.getAndIncrement();
             changeActionEventQueue.add(eventFactory.newBeforeChangeEvent(this, referenceUpdate, transactionId));
             referenceChangeActions.add(Pair.of(new ChangeActionHolder(referenceUpdate, transactionId, clock.wallTime()), (Subscriber<Void>) subscriber));
+            wakeUp();
         });
     }
 
@@ -225,6 +229,14 @@ public class DefaultReconciliationEngine<EVENT> implements ReconciliationEngine<
         return eventObservable;
     }
 
+    /**
+     * Registers a callback invoked each time new work is queued in this engine (a change action, a model update or
+     * an event), so the reconciliation loop can process it without waiting for the next scheduled iteration.
+     */
+    void setWakeUpListener(Runnable wakeUpListener) {
+        this.wakeUpListener = wakeUpListener;
+    }
+
     void shutdown() {
         startedReferenceChangeActionSubscription.ifPresent(Subscription::unsubscribe);
         startedReferenceChangeActionSubscription = Optional.empty();
@@ -265,9 +277,7 @@ public class DefaultReconciliationEngine<EVENT> implements ReconciliationEngine<
                             case Reference:
                                 previousHolder = getPrevious(modelHolder.getReference(), changedItem);
                                 modelHolder.setReference(newRoot);
-                                if (changedItem != newRoot || rootHolder.getChildren().size() != newRoot.getChildren().size()) {
-                                    indexEntityHolder(newRoot);
-                                }
+                                updateIndex(rootHolder, newRoot, changedItem);
                                 break;
                             case Running:
                                 previousHolder = getPrevious(modelHolder.getRunning(), changedItem);
@@ -332,6 +342,7 @@ public class DefaultReconciliationEngine<EVENT> implements ReconciliationEngine<
                                     }
                                     changeActionEventQueue.add(eventFactory.newChangeErrorEvent(this, actionHolder.getChangeAction(), e, passedMs(startTimeNs), actionHolder.getTransactionId()));
                                     subscriber.onError(e);
+                                    wakeUp();
                                 },
                                 // TODO Make sure always one element is emitted
                                 () -> {
@@ -339,6 +350,7 @@ public class DefaultReconciliationEngine<EVENT> implements ReconciliationEngine<
                                         metrics.changeActionFinished(actionHolder, clock.nanoTime() - startTimeNs);
                                     }
                                     subscriber.onCompleted();
+                                    wakeUp();
                                 }
                         );
                 subscriber.add(Subscriptions.create(subscription::unsubscribe));
@@ -351,6 +363,7 @@ public class DefaultReconciliationEngine<EVENT> implements ReconciliationEngine<
 
     private void registerModelUpdateRequest(ChangeActionHolder changeActionHolder, List<ModelActionHolder> stateChange) {
         modelActionHolders.add(Pair.of(changeActionHolder, stateChange));
+        wakeUp();
     }
 
     private boolean hasRunningReconciliationActions() {
@@ -392,11 +405,13 @@ public class DefaultReconciliationEngine<EVENT> implements ReconciliationEngine<
                                 }
                                 changeActionEventQueue.add(eventFactory.newChangeErrorEvent(this, action, e, passedMs(startTimeNs), transactionId));
                                 logger.debug("Action execution error", e);
+                                wakeUp();
                             },
                             () -> {
                                 if (metricsNotUpdated.getAndSet(false)) {
                                     metrics.reconcileActionFinished(changeActionHolder, clock.nanoTime() - startTimeNs);
                                 }
+                                wakeUp();
                             }
                     );
             subscriptions.add(subscription);
@@ -404,8 +419,30 @@ public class DefaultReconciliationEngine<EVENT> implements ReconciliationEngine<
         this.startedReconciliationActionSubscriptions = subscriptions;
     }
 
-    private void indexEntityHolder(EntityHolder entityHolder) {
-        indexSet = indexSet.apply(entityHolder.getChildren());
+    /**
+     * Model actions change a single child (add, update, or removal), or the root itself. In the former case only
+     * the changed child is re-indexed. In the latter case, if the children collection was replaced as well, all children
+     * are re-evaluated, but only those with a new holder instance or removed ones modify the index.
+     */
+    private void updateIndex(EntityHolder previousRoot, EntityHolder newRoot, EntityHolder changedItem) {
+        if (changedItem != newRoot) {
+            if (newRoot.getChildren().contains(changedItem)) {
+                indexSet = indexSet.add(Collections.singletonList(changedItem));
+            } else {
+                indexSet = indexSet.remove(Collections.singletonList(changedItem.getId()));
+            }
+            return;
+        }
+        if (previousRoot.getChildren() == newRoot.getChildren()) {
+            return;
+        }
+        List<String> removedIds = new ArrayList<>();
+        previousRoot.getChildren().forEach(child -> {
+            if (!newRoot.getChildren().contains(child)) {
+                removedIds.add(child.getId());
+            }
+        });
+        indexSet = indexSet.remove(removedIds).add(newRoot.getChildren());
     }
 
     private void emitEvent(EVENT event) {
@@ -419,6 +456,14 @@ public class DefaultReconciliationEngine<EVENT> implements ReconciliationEngine<
         }
     }
 
+    private void wakeUp() {
+        try {
+            wakeUpListener.run();
+        } catch (Exception e) {
+            logger.warn("Wake up listener failure", e);
+        }
+    }
+
     private long passedMs(long startTimeNs) {
         return TimeUnit.NANOSECONDS.toMillis(clock.nanoTime() - startTimeNs);
     }
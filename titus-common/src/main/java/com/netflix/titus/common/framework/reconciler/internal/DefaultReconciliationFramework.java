@@ -17,18 +17,25 @@
 package com.netflix.titus.common.framework.reconciler.internal;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
 import com.google.common.base.Preconditions;
@@ -49,6 +56,7 @@ import rx.Scheduler;
 import rx.Subscriber;
 import rx.Subscription;
 import rx.subjects.PublishSubject;
+import rx.subjects.Subject;
 
 public class DefaultReconciliationFramework<EVENT> implements ReconciliationFramework<EVENT> {
 
@@ -57,66 +65,115 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
     private static final String ROOT_METRIC_NAME = "titus.reconciliation.framework.";
     private static final String LOOP_EXECUTION_TIME_METRIC = ROOT_METRIC_NAME + "executionTime";
     private static final String LAST_EXECUTION_TIME_METRIC = ROOT_METRIC_NAME + "lastExecutionTime";
+    private static final String SHARD_ENGINES_METRIC = ROOT_METRIC_NAME + "engines";
+    private static final String SHARD_TAG = "shard";
 
     private final Function<EntityHolder, ReconciliationEngine<EVENT>> engineFactory;
     private final long idleTimeoutMs;
     private final long activeTimeoutMs;
-
-    private final Set<ReconciliationEngine<EVENT>> engines = Collections.newSetFromMap(new ConcurrentHashMap<>());
-
-    private final BlockingQueue<Pair<ReconciliationEngine<EVENT>, Subscriber<ReconciliationEngine>>> enginesAdded = new LinkedBlockingQueue<>();
-    private final BlockingQueue<Pair<ReconciliationEngine<EVENT>, Subscriber<Void>>> enginesToRemove = new LinkedBlockingQueue<>();
-
-    private IndexSet<EntityHolder> indexSet;
-
-    private final Scheduler.Worker worker;
+    private final boolean signalingEnabled;
+
+    /**
+     * Engines are partitioned by their root id. Each shard runs its own reconciliation loop on a separate worker.
+     */
+    private final List<ReconciliationShard> shards;
+
+    /**
+     * Root id to engine, and child id to engine/child holder indexes for constant time lookups. Both are updated
+     * only from within the event loops (or the constructor), and read concurrently from any thread.
+     */
+    private final ConcurrentMap<String, ReconciliationEngine<EVENT>> idToRootEngineMap = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Pair<ReconciliationEngine<EVENT>, EntityHolder>> idToChildMap = new ConcurrentHashMap<>();
+
+    /**
+     * Reference model roots as seen when the engine was indexed last time. Used to compute the child index delta.
+     */
+    private final ConcurrentMap<ReconciliationEngine<EVENT>, EntityHolder> indexedRoots = new ConcurrentHashMap<>();
+
+    /**
+     * Global index of all engine roots. Shards update it concurrently, so each update is a compare-and-set of a new
+     * immutable {@link IndexSet} version.
+     */
+    private final AtomicReference<IndexSet<EntityHolder>> indexSetRef;
 
     private volatile boolean runnable = true;
     private volatile boolean started = false;
 
-    private final PublishSubject<Observable<EVENT>> eventsMergeSubject = PublishSubject.create();
+    private final Subject<Observable<EVENT>, Observable<EVENT>> eventsMergeSubject = PublishSubject.<Observable<EVENT>>create().toSerialized();
     private final Observable<EVENT> eventsObservable;
     private final Subscription internalEventSubscription;
 
-    private final Timer loopExecutionTime;
-    private volatile long lastExecutionTimeMs;
+    public DefaultReconciliationFramework(List<ReconciliationEngine<EVENT>> bootstrapEngines,
+                                          Function<EntityHolder, ReconciliationEngine<EVENT>> engineFactory,
+                                          long idleTimeoutMs,
+                                          long activeTimeoutMs,
+                                          Map<Object, Comparator<EntityHolder>> indexComparators,
+                                          Registry registry,
+                                          Scheduler scheduler) {
+        this(bootstrapEngines, engineFactory, idleTimeoutMs, activeTimeoutMs, indexComparators, 1, false, registry, scheduler);
+    }
 
     public DefaultReconciliationFramework(List<ReconciliationEngine<EVENT>> bootstrapEngines,
                                           Function<EntityHolder, ReconciliationEngine<EVENT>> engineFactory,
                                           long idleTimeoutMs,
                                           long activeTimeoutMs,
                                           Map<Object, Comparator<EntityHolder>> indexComparators,
+                                          int shardCount,
+                                          Registry registry,
+                                          Scheduler scheduler) {
+        this(bootstrapEngines, engineFactory, idleTimeoutMs, activeTimeoutMs, indexComparators, shardCount, false, registry, scheduler);
+    }
+
+    /**
+     * @param signalingEnabled if true, a reconciliation loop is run immediately after an engine is added/removed, or
+     *                         a change action or a model update is queued in an engine. Each loop run evaluates only
+     *                         engines with pending work, and all engines are evaluated at least once every idle timeout period.
+     *                         If false, all engines are evaluated on each run, which happens every active/idle timeout period.
+     */
+    public DefaultReconciliationFramework(List<ReconciliationEngine<EVENT>> bootstrapEngines,
+                                          Function<EntityHolder, ReconciliationEngine<EVENT>> engineFactory,
+                                          long idleTimeoutMs,
+                                          long activeTimeoutMs,
+                                          Map<Object, Comparator<EntityHolder>> indexComparators,
+                                          int shardCount,
+                                          boolean signalingEnabled,
                                           Registry registry,
                                           Scheduler scheduler) {
         Preconditions.checkArgument(idleTimeoutMs > 0, "idleTimeout <= 0 (%s)", idleTimeoutMs);
         Preconditions.checkArgument(activeTimeoutMs <= idleTimeoutMs, "activeTimeout(%s) > idleTimeout(%s)", activeTimeoutMs, idleTimeoutMs);
+        Preconditions.checkArgument(shardCount > 0, "shardCount <= 0 (%s)", shardCount);
 
         this.engineFactory = engineFactory;
-        this.indexSet = IndexSet.newIndexSet(indexComparators);
+        this.indexSetRef = new AtomicReference<>(IndexSet.newIndexSet(indexComparators, EntityHolder::getId));
 
         this.idleTimeoutMs = idleTimeoutMs;
         this.activeTimeoutMs = activeTimeoutMs;
-        this.worker = scheduler.createWorker();
+        this.signalingEnabled = signalingEnabled;
         this.eventsObservable = Observable.merge(eventsMergeSubject).share();
 
         // To keep eventsObservable permanently active.
         this.internalEventSubscription = eventsObservable.subscribe(ObservableExt.silentSubscriber());
 
-        this.loopExecutionTime = registry.timer(LOOP_EXECUTION_TIME_METRIC);
-        this.lastExecutionTimeMs = scheduler.now();
-        PolledMeter.using(registry).withName(LAST_EXECUTION_TIME_METRIC).monitorValue(this, self -> scheduler.now() - self.lastExecutionTimeMs);
+        List<ReconciliationShard> shards = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new ReconciliationShard(i, registry, scheduler));
+        }
+        this.shards = Collections.unmodifiableList(shards);
 
-        engines.addAll(bootstrapEngines);
-        bootstrapEngines.forEach(engine -> eventsMergeSubject.onNext(engine.events()));
+        bootstrapEngines.forEach(engine -> {
+            shardOf(engine.getReferenceView().getId()).addEngine(engine);
+            addToIdIndex(engine);
+            eventsMergeSubject.onNext(engine.events());
+        });
 
-        updateIndexSet();
+        updateIndexSet(indexSet -> indexSet.add(bootstrapEngines.stream().map(ReconciliationEngine::getReferenceView).collect(Collectors.toList())));
     }
 
     @Override
     public void start() {
         Preconditions.checkArgument(!started, "Framework already started");
         started = true;
-        doSchedule(0);
+        shards.forEach(shard -> shard.doSchedule(0));
     }
 
     @Override
@@ -126,33 +183,26 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
         // In the test code when we use the TestScheduler we would always block here. One way to solve this is to return
         // Completable as a result, but this makes the API inconvenient. Instead we chose to look at the worker type,
         // and handle this differently for TestScheduler.
-        if (worker.getClass().getName().contains("TestScheduler")) {
-            stopEngines();
+        if (shards.get(0).worker.getClass().getName().contains("TestScheduler")) {
+            shards.forEach(ReconciliationShard::stopEngines);
+            clearIdIndex();
             return true;
         }
 
-        // Run this on internal thread, just like other actions.
-        CountDownLatch latch = new CountDownLatch(1);
-        worker.schedule(() -> {
-            stopEngines();
+        // Run this on internal threads, just like other actions.
+        CountDownLatch latch = new CountDownLatch(shards.size());
+        shards.forEach(shard -> shard.worker.schedule(() -> {
+            shard.stopEngines();
             latch.countDown();
-        });
+        }));
         ExceptionExt.silent(() -> latch.await(timeoutMs, TimeUnit.MILLISECONDS));
 
         internalEventSubscription.unsubscribe();
+        clearIdIndex();
 
         return latch.getCount() == 0;
     }
 
-    private void stopEngines() {
-        engines.forEach(e -> {
-            if (e instanceof DefaultReconciliationEngine) {
-                ((DefaultReconciliationEngine) e).shutdown();
-            }
-        });
-        engines.clear();
-    }
-
     @Override
     public Observable<ReconciliationEngine<EVENT>> newEngine(EntityHolder bootstrapModel) {
         return Observable.unsafeCreate(subscriber -> {
@@ -161,7 +211,9 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
                 return;
             }
             ReconciliationEngine newEngine = engineFactory.apply(bootstrapModel);
-            enginesAdded.add(Pair.of(newEngine, (Subscriber<ReconciliationEngine>) subscriber));
+            ReconciliationShard shard = shardOf(bootstrapModel.getId());
+            shard.enginesAdded.add(Pair.of(newEngine, (Subscriber<ReconciliationEngine>) subscriber));
+            shard.signal();
         });
     }
 
@@ -172,7 +224,9 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
                 subscriber.onError(new IllegalStateException("Reconciliation engine is stopped"));
                 return;
             }
-            enginesToRemove.add(Pair.of(engine, (Subscriber<Void>) subscriber));
+            ReconciliationShard shard = shardOf(engine.getReferenceView().getId());
+            shard.enginesToRemove.add(Pair.of(engine, (Subscriber<Void>) subscriber));
+            shard.signal();
         }).toCompletable();
     }
 
@@ -183,30 +237,188 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
 
     @Override
     public Optional<ReconciliationEngine<EVENT>> findEngineByRootId(String id) {
-        return engines.stream().filter(e -> e.getReferenceView().getId().equals(id)).findFirst();
+        return Optional.ofNullable(idToRootEngineMap.get(id));
     }
 
     @Override
     public Optional<Pair<ReconciliationEngine<EVENT>, EntityHolder>> findEngineByChildId(String childId) {
-        for (ReconciliationEngine engine : engines) {
-            Optional<EntityHolder> childHolder = engine.getReferenceView().getChildren().stream().filter(c -> c.getId().equals(childId)).findFirst();
-            if (childHolder.isPresent()) {
-                return Optional.of(Pair.of(engine, childHolder.get()));
-            }
-        }
-        return Optional.empty();
+        return Optional.ofNullable(idToChildMap.get(childId));
     }
 
     @Override
     public <ORDER_BY> List<EntityHolder> orderedView(ORDER_BY orderingCriteria) {
-        return indexSet.getOrdered(orderingCriteria);
+        return indexSetRef.get().getOrdered(orderingCriteria);
+    }
+
+    private ReconciliationShard shardOf(String rootId) {
+        if (shards.size() == 1) {
+            return shards.get(0);
+        }
+        return shards.get(Math.floorMod(rootId.hashCode(), shards.size()));
+    }
+
+    private void updateIndexSet(UnaryOperator<IndexSet<EntityHolder>> updater) {
+        indexSetRef.updateAndGet(updater);
+    }
+
+    private void addToIdIndex(ReconciliationEngine<EVENT> engine) {
+        EntityHolder root = engine.getReferenceView();
+        idToRootEngineMap.put(root.getId(), engine);
+        root.getChildren().forEach(child -> idToChildMap.put(child.getId(), Pair.of(engine, child)));
+        indexedRoots.put(engine, root);
     }
 
-    private void doSchedule(long delayMs) {
-        if (!runnable) {
+    private void removeFromIdIndex(ReconciliationEngine<EVENT> engine) {
+        EntityHolder root = indexedRoots.remove(engine);
+        if (root == null) {
             return;
         }
-        worker.schedule(() -> {
+        idToRootEngineMap.remove(root.getId(), engine);
+        root.getChildren().forEach(child -> {
+            Pair<ReconciliationEngine<EVENT>, EntityHolder> current = idToChildMap.get(child.getId());
+            if (current != null && current.getLeft() == engine) {
+                idToChildMap.remove(child.getId());
+            }
+        });
+    }
+
+    /**
+     * Applies the difference between the last indexed reference model of an engine and its current version. Children
+     * that did not change keep their holder instance, so only modified, added or removed ones touch the index.
+     *
+     * @return true if the reference model root changed since the last update
+     */
+    private boolean updateIdIndex(ReconciliationEngine<EVENT> engine) {
+        EntityHolder previousRoot = indexedRoots.get(engine);
+        EntityHolder newRoot = engine.getReferenceView();
+        if (previousRoot == null) {
+            addToIdIndex(engine);
+            return true;
+        }
+        if (previousRoot == newRoot) {
+            return false;
+        }
+        indexedRoots.put(engine, newRoot);
+
+        // Only the root entity was changed.
+        if (previousRoot.getChildren() == newRoot.getChildren()) {
+            return true;
+        }
+
+        for (EntityHolder child : newRoot.getChildren()) {
+            Pair<ReconciliationEngine<EVENT>, EntityHolder> current = idToChildMap.get(child.getId());
+            if (current == null || current.getRight() != child) {
+                idToChildMap.put(child.getId(), Pair.of(engine, child));
+            }
+        }
+        for (EntityHolder previousChild : previousRoot.getChildren()) {
+            if (!newRoot.getChildren().contains(previousChild)) {
+                idToChildMap.remove(previousChild.getId());
+            }
+        }
+        return true;
+    }
+
+    private void clearIdIndex() {
+        idToRootEngineMap.clear();
+        idToChildMap.clear();
+        indexedRoots.clear();
+    }
+
+    /**
+     * A subset of engines with its own reconciliation loop, and engine add/remove queues.
+     */
+    private class ReconciliationShard {
+
+        private final Set<ReconciliationEngine<EVENT>> engines = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+        private final BlockingQueue<Pair<ReconciliationEngine<EVENT>, Subscriber<ReconciliationEngine>>> enginesAdded = new LinkedBlockingQueue<>();
+        private final BlockingQueue<Pair<ReconciliationEngine<EVENT>, Subscriber<Void>>> enginesToRemove = new LinkedBlockingQueue<>();
+
+        /**
+         * Engines with pending work (queued change actions or model updates), that should be evaluated in the next
+         * loop iteration. Used only if signaling is enabled.
+         */
+        private final Set<ReconciliationEngine<EVENT>> dirtyEngines = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+        /**
+         * Engines that had running actions at the end of the last loop iteration. Accessed from the loop thread only.
+         */
+        private Set<ReconciliationEngine<EVENT>> activeEngines = Collections.emptySet();
+
+        private final AtomicBoolean signalPending = new AtomicBoolean();
+        private Subscription nextRunSubscription;
+        private long lastFullPassMs;
+
+        private final Scheduler.Worker worker;
+
+        private final Timer loopExecutionTime;
+        private volatile long lastExecutionTimeMs;
+
+        private ReconciliationShard(int shardId, Registry registry, Scheduler scheduler) {
+            this.worker = scheduler.createWorker();
+
+            String shardTagValue = Integer.toString(shardId);
+            this.loopExecutionTime = registry.timer(LOOP_EXECUTION_TIME_METRIC, SHARD_TAG, shardTagValue);
+            this.lastExecutionTimeMs = scheduler.now();
+            PolledMeter.using(registry)
+                    .withId(registry.createId(LAST_EXECUTION_TIME_METRIC, SHARD_TAG, shardTagValue))
+                    .monitorValue(this, self -> scheduler.now() - self.lastExecutionTimeMs);
+            PolledMeter.using(registry)
+                    .withId(registry.createId(SHARD_ENGINES_METRIC, SHARD_TAG, shardTagValue))
+                    .monitorSize(engines);
+        }
+
+        private void addEngine(ReconciliationEngine<EVENT> engine) {
+            engines.add(engine);
+            if (signalingEnabled) {
+                // Newly added engines must be evaluated at least once.
+                dirtyEngines.add(engine);
+                if (engine instanceof DefaultReconciliationEngine) {
+                    ((DefaultReconciliationEngine<EVENT>) engine).setWakeUpListener(() -> signal(engine));
+                }
+            }
+        }
+
+        private void signal() {
+            if (signalingEnabled && runnable && started && signalPending.compareAndSet(false, true)) {
+                worker.schedule(this::runLoop);
+            }
+        }
+
+        private void signal(ReconciliationEngine<EVENT> engine) {
+            dirtyEngines.add(engine);
+            signal();
+        }
+
+        private void stopEngines() {
+            engines.forEach(e -> {
+                if (e instanceof DefaultReconciliationEngine) {
+                    ((DefaultReconciliationEngine) e).shutdown();
+                }
+            });
+            engines.clear();
+        }
+
+        private void doSchedule(long delayMs) {
+            if (!runnable) {
+                return;
+            }
+            nextRunSubscription = worker.schedule(this::runLoop, delayMs, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Executed on the worker thread only, either by the timer, or when signaled. As there is always at most one
+         * pending timer run, the timer is cancelled and re-scheduled after each iteration. Concurrent signals are coalesced
+         * into a single run.
+         */
+        private void runLoop() {
+            signalPending.set(false);
+            if (nextRunSubscription != null) {
+                nextRunSubscription.unsubscribe();
+                nextRunSubscription = null;
+            }
+
             long startTimeMs = worker.now();
             try {
                 long nextDelayMs = doLoop();
@@ -219,81 +431,116 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
                 lastExecutionTimeMs = now;
                 loopExecutionTime.record(now - startTimeMs, TimeUnit.MILLISECONDS);
             }
-        }, delayMs, TimeUnit.MILLISECONDS);
-    }
-
-    private long doLoop() {
-        // Add new engines.
-        List<Pair<ReconciliationEngine<EVENT>, Subscriber<ReconciliationEngine>>> recentlyAdded = new ArrayList<>();
-        enginesAdded.drainTo(recentlyAdded);
-        recentlyAdded.forEach(pair -> engines.add(pair.getLeft()));
-
-        // Remove engines.
-        List<Pair<ReconciliationEngine<EVENT>, Subscriber<Void>>> recentlyRemoved = new ArrayList<>();
-        enginesToRemove.drainTo(recentlyRemoved);
-        shutdownEnginesToRemove(recentlyRemoved);
-
-        boolean engineSetUpdate = !recentlyAdded.isEmpty() || !recentlyRemoved.isEmpty();
-
-        // Update indexes to reflect engine collection update, before completing engine add/remove subscribers.
-        if (engines.isEmpty()) {
-            indexSet = indexSet.apply(Collections.emptyList());
-        } else if (engineSetUpdate) {
-            updateIndexSet();
         }
 
-        // Complete engine add/remove subscribers.
-        recentlyAdded.forEach(pair -> {
-            Subscriber<ReconciliationEngine> subscriber = pair.getRight();
-            if (!subscriber.isUnsubscribed()) {
-                ReconciliationEngine newEngine = pair.getLeft();
-                eventsMergeSubject.onNext(newEngine.events());
-                subscriber.onNext(newEngine);
-                subscriber.onCompleted();
+        private long doLoop() {
+            // Add new engines.
+            List<Pair<ReconciliationEngine<EVENT>, Subscriber<ReconciliationEngine>>> recentlyAdded = new ArrayList<>();
+            enginesAdded.drainTo(recentlyAdded);
+            recentlyAdded.forEach(pair -> {
+                addEngine(pair.getLeft());
+                addToIdIndex(pair.getLeft());
+            });
+
+            // Remove engines.
+            List<Pair<ReconciliationEngine<EVENT>, Subscriber<Void>>> recentlyRemoved = new ArrayList<>();
+            enginesToRemove.drainTo(recentlyRemoved);
+            shutdownEnginesToRemove(recentlyRemoved);
+
+            // Update indexes to reflect engine collection update, before completing engine add/remove subscribers.
+            if (!recentlyAdded.isEmpty()) {
+                List<EntityHolder> addedRoots = recentlyAdded.stream().map(pair -> pair.getLeft().getReferenceView()).collect(Collectors.toList());
+                updateIndexSet(indexSet -> indexSet.add(addedRoots));
+            }
+            if (!recentlyRemoved.isEmpty()) {
+                List<String> removedIds = recentlyRemoved.stream().map(pair -> pair.getLeft().getReferenceView().getId()).collect(Collectors.toList());
+                updateIndexSet(indexSet -> indexSet.remove(removedIds));
             }
-        });
-        recentlyRemoved.forEach(pair -> pair.getRight().onCompleted());
 
-        // Apply pending model updates/send events
-        boolean modelUpdates = false;
-        for (ReconciliationEngine engine : engines) {
-            try {
-                boolean anyChange = engine.applyModelUpdates();
-                modelUpdates = modelUpdates || anyChange;
-            } catch (Exception e) {
-                logger.warn("Unexpected error from reconciliation engine 'triggerEvents' method", e);
+            // Complete engine add/remove subscribers.
+            recentlyAdded.forEach(pair -> {
+                Subscriber<ReconciliationEngine> subscriber = pair.getRight();
+                if (!subscriber.isUnsubscribed()) {
+                    ReconciliationEngine newEngine = pair.getLeft();
+                    eventsMergeSubject.onNext(newEngine.events());
+                    subscriber.onNext(newEngine);
+                    subscriber.onCompleted();
+                }
+            });
+            recentlyRemoved.forEach(pair -> pair.getRight().onCompleted());
+
+            long now = worker.now();
+            Collection<ReconciliationEngine<EVENT>> toEvaluate = selectEnginesToEvaluate(now);
+
+            // Apply pending model updates/send events
+            List<EntityHolder> updatedRoots = new ArrayList<>();
+            for (ReconciliationEngine<EVENT> engine : toEvaluate) {
+                try {
+                    boolean anyChange = engine.applyModelUpdates();
+                    if (anyChange && updateIdIndex(engine)) {
+                        updatedRoots.add(engine.getReferenceView());
+                    }
+                } catch (Exception e) {
+                    logger.warn("Unexpected error from reconciliation engine 'triggerEvents' method", e);
+                }
             }
-        }
 
-        // Update indexes if there are model changes.
-        if (modelUpdates) {
-            updateIndexSet();
-        }
+            // Update indexes if there are reference model changes.
+            if (!updatedRoots.isEmpty()) {
+                updateIndexSet(indexSet -> indexSet.add(updatedRoots));
+            }
 
-        // Trigger events on engines.
-        boolean pendingChangeActions = false;
-        for (ReconciliationEngine engine : engines) {
-            try {
-                boolean anythingRunning = engine.triggerEvents();
-                pendingChangeActions = pendingChangeActions || anythingRunning;
-            } catch (Exception e) {
-                logger.warn("Unexpected error from reconciliation engine 'triggerEvents' method", e);
+            // Trigger events on engines.
+            Set<ReconciliationEngine<EVENT>> nowActive = new HashSet<>();
+            for (ReconciliationEngine<EVENT> engine : toEvaluate) {
+                try {
+                    if (engine.triggerEvents()) {
+                        nowActive.add(engine);
+                    }
+                } catch (Exception e) {
+                    logger.warn("Unexpected error from reconciliation engine 'triggerEvents' method", e);
+                }
             }
+            this.activeEngines = nowActive;
+
+            if (!nowActive.isEmpty()) {
+                return activeTimeoutMs;
+            }
+            return signalingEnabled ? Math.max(0, idleTimeoutMs - (now - lastFullPassMs)) : idleTimeoutMs;
         }
-        return pendingChangeActions ? activeTimeoutMs : idleTimeoutMs;
-    }
 
-    private void shutdownEnginesToRemove(List<Pair<ReconciliationEngine<EVENT>, Subscriber<Void>>> toRemove) {
-        toRemove.forEach(pair -> {
-            ReconciliationEngine e = pair.getLeft();
-            if (e instanceof DefaultReconciliationEngine) {
-                ((DefaultReconciliationEngine) e).shutdown();
+        /**
+         * Without signaling all engines are evaluated in each iteration. With signaling, only engines with pending
+         * work, or those with running actions are evaluated, unless a full pass is due.
+         */
+        private Collection<ReconciliationEngine<EVENT>> selectEnginesToEvaluate(long now) {
+            if (!signalingEnabled) {
+                return engines;
             }
-            engines.remove(e);
-        });
-    }
+            if (now - lastFullPassMs >= idleTimeoutMs) {
+                lastFullPassMs = now;
+                dirtyEngines.clear();
+                return engines;
+            }
+            Set<ReconciliationEngine<EVENT>> selected = new HashSet<>(activeEngines);
+            for (Iterator<ReconciliationEngine<EVENT>> it = dirtyEngines.iterator(); it.hasNext(); ) {
+                selected.add(it.next());
+                it.remove();
+            }
+            selected.retainAll(engines);
+            return selected;
+        }
 
-    private void updateIndexSet() {
-        indexSet = indexSet.apply(engines.stream().map(ReconciliationEngine::getReferenceView).collect(Collectors.toList()));
+        private void shutdownEnginesToRemove(List<Pair<ReconciliationEngine<EVENT>, Subscriber<Void>>> toRemove) {
+            toRemove.forEach(pair -> {
+                ReconciliationEngine<EVENT> e = pair.getLeft();
+                if (e instanceof DefaultReconciliationEngine) {
+                    ((DefaultReconciliationEngine) e).shutdown();
+                }
+                engines.remove(e);
+                dirtyEngines.remove(e);
+                removeFromIdIndex(e);
+            });
+        }
     }
 }
@@ -16,31 +16,71 @@
 
 package com.netflix.titus.common.framework.reconciler.internal;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
+
+import com.netflix.titus.common.util.collections.PersistentSortedMap;
 
 /**
- * TODO Optimize. This is expensive and inefficient implementation.
+ * A collection of sorted views over the same set of elements. Elements are identified by an id, and each update
+ * is applied incrementally (O(log n) per element and index). All versions are immutable, and share most of their
+ * internal state, so the ordered views returned to readers are consistent snapshots that never need to be copied.
  */
 public class IndexSet<T> {
 
-    private static final IndexSet<?> EMPTY = new IndexSet<>(Collections.emptyMap());
-
+    private final Function<T, String> idExtractor;
+    private final PersistentSortedMap<String, T> byId;
     private final Map<Object, Index<T>> indexes;
 
-    private IndexSet(Map<Object, Index<T>> indexes) {
+    private IndexSet(Function<T, String> idExtractor, PersistentSortedMap<String, T> byId, Map<Object, Index<T>> indexes) {
+        this.idExtractor = idExtractor;
+        this.byId = byId;
         this.indexes = indexes;
     }
 
-    public IndexSet<T> apply(Collection<T> added) {
-        Map<Object, Index<T>> copy = new HashMap<>();
-        indexes.forEach((k, v) -> copy.put(k, v.apply(added)));
-        return new IndexSet<>(copy);
+    /**
+     * Adds new elements or replaces existing ones with the same id. Elements identical to the ones already
+     * in the set are ignored.
+     */
+    public IndexSet<T> add(Collection<T> addedOrUpdated) {
+        if (addedOrUpdated.isEmpty()) {
+            return this;
+        }
+        PersistentSortedMap<String, T> newById = byId;
+        Map<Object, Index<T>> newIndexes = new HashMap<>(indexes);
+        for (T element : addedOrUpdated) {
+            String id = idExtractor.apply(element);
+            T previous = newById.get(id);
+            if (previous == element) {
+                continue;
+            }
+            newById = newById.put(id, element);
+            newIndexes.replaceAll((indexId, index) -> index.replace(previous, element));
+        }
+        return newById == byId ? this : new IndexSet<>(idExtractor, newById, newIndexes);
+    }
+
+    /**
+     * Removes elements with the given ids. Ids of elements not present in the set are ignored.
+     */
+    public IndexSet<T> remove(Collection<String> removedIds) {
+        if (removedIds.isEmpty()) {
+            return this;
+        }
+        PersistentSortedMap<String, T> newById = byId;
+        Map<Object, Index<T>> newIndexes = new HashMap<>(indexes);
+        for (String id : removedIds) {
+            T previous = newById.get(id);
+            if (previous != null) {
+                newById = newById.remove(id);
+                newIndexes.replaceAll((indexId, index) -> index.replace(previous, null));
+            }
+        }
+        return newById == byId ? this : new IndexSet<>(idExtractor, newById, newIndexes);
     }
 
     public List<T> getOrdered(Object indexId) {
@@ -51,38 +91,43 @@ public class IndexSet<T> {
         return result.getOrdered();
     }
 
-    public static <T> IndexSet<T> empty() {
-        return (IndexSet<T>) EMPTY;
-    }
-
-    public static <T> IndexSet<T> newIndexSet(Map<Object, Comparator<T>> comparators) {
+    public static <T> IndexSet<T> newIndexSet(Map<Object, Comparator<T>> comparators, Function<T, String> idExtractor) {
         Map<Object, Index<T>> indexes = new HashMap<>();
-        comparators.forEach((k, v) -> indexes.put(k, Index.newIndex(v)));
-        return new IndexSet<>(indexes);
+        comparators.forEach((k, v) -> indexes.put(k, Index.newIndex(v, idExtractor)));
+        return new IndexSet<>(idExtractor, PersistentSortedMap.empty(Comparator.<String>naturalOrder()), indexes);
     }
 
     static class Index<T> {
 
-        private final Comparator<T> comparator;
-        private final List<T> ordered;
+        private final PersistentSortedMap<T, T> ordered;
 
-        private Index(Comparator<T> comparator, List<T> ordered) {
-            this.comparator = comparator;
+        private Index(PersistentSortedMap<T, T> ordered) {
             this.ordered = ordered;
         }
 
-        Index<T> apply(Collection<T> added) {
-            List<T> copy = new ArrayList<>(added);
-            copy.sort(comparator);
-            return new Index<>(comparator, copy);
+        /**
+         * Removes the previous version of an element (if not null), and adds its new version (if not null).
+         */
+        Index<T> replace(T previous, T element) {
+            PersistentSortedMap<T, T> result = ordered;
+            if (previous != null) {
+                result = result.remove(previous);
+            }
+            if (element != null) {
+                result = result.put(element, element);
+            }
+            return new Index<>(result);
         }
 
         List<T> getOrdered() {
-            return ordered;
+            return ordered.values();
         }
 
-        static <T> Index<T> newIndex(Comparator<T> comparator) {
-            return new Index<>(comparator, Collections.emptyList());
+        /**
+         * Elements equal according to the provided comparator are ordered by their id, which makes the order total.
+         */
+        static <T> Index<T> newIndex(Comparator<T> comparator, Function<T, String> idExtractor) {
+            return new Index<>(PersistentSortedMap.empty(comparator.thenComparing(idExtractor)));
         }
     }
 }
@@ -16,6 +16,9 @@
 
 package com.netflix.titus.common.util.cache;
 
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.netflix.spectator.api.Registry;
 import com.netflix.titus.common.util.cache.internal.InstrumentedCache;
@@ -28,4 +31,13 @@ public class Caches {
                 .build();
         return new InstrumentedCache<>(metricNameRoot, cache, registry);
     }
+
+    public static <K, V> Cache<K, V> instrumentedCacheWithMaxSize(long maxSize, Duration timeToLive, String metricNameRoot, Registry registry) {
+        com.github.benmanes.caffeine.cache.Cache<K, V> cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(timeToLive.toMillis(), TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+        return new InstrumentedCache<>(metricNameRoot, cache, registry);
+    }
 }
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.collections;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import javax.annotation.Nullable;
+
+/**
+ * Immutable, sorted map backed by a persistent AVL tree. Each modification returns a new map instance, which shares
+ * all but O(log n) nodes with its predecessor, so keeping multiple versions around is cheap. Instances are safe to
+ * read from any thread without synchronization.
+ * <p>
+ * The comparator must define a total order on the keys (two distinct keys must never compare as equal), as equal
+ * keys are treated as the same map entry.
+ */
+public final class PersistentSortedMap<K, V> {
+
+    private final Comparator<K> comparator;
+    private final Node<K, V> root;
+    private final List<V> values;
+
+    private PersistentSortedMap(Comparator<K> comparator, Node<K, V> root) {
+        this.comparator = comparator;
+        this.root = root;
+        this.values = new ValueList<>(root);
+    }
+
+    public int size() {
+        return sizeOf(root);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    @Nullable
+    public V get(K key) {
+        Node<K, V> node = root;
+        while (node != null) {
+            int result = comparator.compare(key, node.key);
+            if (result == 0) {
+                return node.value;
+            }
+            node = result < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    public PersistentSortedMap<K, V> put(K key, V value) {
+        return new PersistentSortedMap<>(comparator, put(root, key, value));
+    }
+
+    public PersistentSortedMap<K, V> remove(K key) {
+        Node<K, V> newRoot = remove(root, key);
+        return newRoot == root ? this : new PersistentSortedMap<>(comparator, newRoot);
+    }
+
+    /**
+     * Returns an immutable list view of the map values in the key order. Indexed access costs O(log n), and
+     * iteration O(n).
+     */
+    public List<V> values() {
+        return values;
+    }
+
+    public static <K, V> PersistentSortedMap<K, V> empty(Comparator<K> comparator) {
+        return new PersistentSortedMap<>(comparator, null);
+    }
+
+    private Node<K, V> put(Node<K, V> node, K key, V value) {
+        if (node == null) {
+            return new Node<>(key, value, null, null);
+        }
+        int result = comparator.compare(key, node.key);
+        if (result < 0) {
+            return balance(node.withChildren(put(node.left, key, value), node.right));
+        }
+        if (result > 0) {
+            return balance(node.withChildren(node.left, put(node.right, key, value)));
+        }
+        return new Node<>(key, value, node.left, node.right);
+    }
+
+    private Node<K, V> remove(Node<K, V> node, K key) {
+        if (node == null) {
+            return null;
+        }
+        int result = comparator.compare(key, node.key);
+        if (result < 0) {
+            Node<K, V> newLeft = remove(node.left, key);
+            return newLeft == node.left ? node : balance(node.withChildren(newLeft, node.right));
+        }
+        if (result > 0) {
+            Node<K, V> newRight = remove(node.right, key);
+            return newRight == node.right ? node : balance(node.withChildren(node.left, newRight));
+        }
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+        Node<K, V> successor = node.right;
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+        return balance(new Node<>(successor.key, successor.value, node.left, removeMin(node.right)));
+    }
+
+    private static <K, V> Node<K, V> removeMin(Node<K, V> node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        return balance(node.withChildren(removeMin(node.left), node.right));
+    }
+
+    private static <K, V> Node<K, V> balance(Node<K, V> node) {
+        int balanceFactor = heightOf(node.left) - heightOf(node.right);
+        if (balanceFactor > 1) {
+            Node<K, V> left = node.left;
+            if (heightOf(left.left) < heightOf(left.right)) {
+                left = rotateLeft(left);
+            }
+            return rotateRight(node.withChildren(left, node.right));
+        }
+        if (balanceFactor < -1) {
+            Node<K, V> right = node.right;
+            if (heightOf(right.right) < heightOf(right.left)) {
+                right = rotateRight(right);
+            }
+            return rotateLeft(node.withChildren(node.left, right));
+        }
+        return node;
+    }
+
+    private static <K, V> Node<K, V> rotateRight(Node<K, V> node) {
+        Node<K, V> left = node.left;
+        return left.withChildren(left.left, node.withChildren(left.right, node.right));
+    }
+
+    private static <K, V> Node<K, V> rotateLeft(Node<K, V> node) {
+        Node<K, V> right = node.right;
+        return right.withChildren(node.withChildren(node.left, right.left), right.right);
+    }
+
+    private static int heightOf(Node<?, ?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static int sizeOf(Node<?, ?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static final class Node<K, V> {
+
+        private final K key;
+        private final V value;
+        private final Node<K, V> left;
+        private final Node<K, V> right;
+        private final int height;
+        private final int size;
+
+        private Node(K key, V value, Node<K, V> left, Node<K, V> right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(heightOf(left), heightOf(right)) + 1;
+            this.size = sizeOf(left) + sizeOf(right) + 1;
+        }
+
+        private Node<K, V> withChildren(Node<K, V> newLeft, Node<K, V> newRight) {
+            if (newLeft == left && newRight == right) {
+                return this;
+            }
+            return new Node<>(key, value, newLeft, newRight);
+        }
+    }
+
+    private static final class ValueList<K, V> extends AbstractList<V> {
+
+        private final Node<K, V> root;
+
+        private ValueList(Node<K, V> root) {
+            this.root = root;
+        }
+
+        @Override
+        public V get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds [0, " + size() + ')');
+            }
+            Node<K, V> node = root;
+            int position = index;
+            while (true) {
+                int leftSize = sizeOf(node.left);
+                if (position < leftSize) {
+                    node = node.left;
+                } else if (position == leftSize) {
+                    return node.value;
+                } else {
+                    position -= leftSize + 1;
+                    node = node.right;
+                }
+            }
+        }
+
+        @Override
+        public int size() {
+            return sizeOf(root);
+        }
+
+        @Override
+        public Iterator<V> iterator() {
+            return new Iterator<V>() {
+                private final Deque<Node<K, V>> stack = new ArrayDeque<>();
+
+                {
+                    pushLeft(root);
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return !stack.isEmpty();
+                }
+
+                @Override
+                public V next() {
+                    if (stack.isEmpty()) {
+                        throw new NoSuchElementException();
+                    }
+                    Node<K, V> next = stack.pop();
+                    pushLeft(next.right);
+                    return next.value;
+                }
+
+                private void pushLeft(Node<K, V> node) {
+                    while (node != null) {
+                        stack.push(node);
+                        node = node.left;
+                    }
+                }
+            };
+        }
+    }
+}
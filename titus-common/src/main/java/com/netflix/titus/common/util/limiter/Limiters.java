@@ -23,6 +23,7 @@ import com.netflix.titus.common.util.limiter.tokenbucket.RefillStrategy;
 import com.netflix.titus.common.util.limiter.tokenbucket.TokenBucket;
 import com.netflix.titus.common.util.limiter.tokenbucket.internal.DefaultTokenBucket;
 import com.netflix.titus.common.util.limiter.tokenbucket.internal.FixedIntervalRefillStrategy;
+import com.netflix.titus.common.util.limiter.tokenbucket.internal.StripedTokenBucket;
 
 public class Limiters {
 
@@ -41,4 +42,16 @@ public class Limiters {
         return tokenBucket;
     }
 
+    /**
+     * Create a striped {@link TokenBucket} with a fixed interval {@link RefillStrategy}, for buckets under heavy
+     * contention. See {@link StripedTokenBucket} for the precision it gives up in exchange.
+     */
+    public static TokenBucket createStripedFixedIntervalTokenBucket(String name, long capacity, long initialNumberOfTokens,
+                                                                    long numberOfTokensPerInterval, long interval, TimeUnit unit,
+                                                                    int numberOfStripes) {
+        RefillStrategy refillStrategy = new FixedIntervalRefillStrategy(Stopwatch.createStarted(),
+                numberOfTokensPerInterval, interval, unit);
+        return new StripedTokenBucket(name, capacity, refillStrategy, initialNumberOfTokens, numberOfStripes);
+    }
+
 }
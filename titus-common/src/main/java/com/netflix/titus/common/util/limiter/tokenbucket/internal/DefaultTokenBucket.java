@@ -17,6 +17,7 @@
 package com.netflix.titus.common.util.limiter.tokenbucket.internal;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
@@ -24,14 +25,16 @@ import com.google.common.util.concurrent.Uninterruptibles;
 import com.netflix.titus.common.util.limiter.tokenbucket.RefillStrategy;
 import com.netflix.titus.common.util.limiter.tokenbucket.TokenBucket;
 
+/**
+ * Lock-free {@link TokenBucket}. The number of tokens is kept in a single atomic word, which is updated with
+ * compare-and-set, so concurrent callers never block each other.
+ */
 public class DefaultTokenBucket implements TokenBucket {
 
-    private final Object mutex = new Object();
-
     private final String name;
     private final long capacity;
     private final RefillStrategy refillStrategy;
-    private volatile long numberOfTokens;
+    private final AtomicLong numberOfTokens;
 
     public DefaultTokenBucket(String name, long capacity, RefillStrategy refillStrategy, long initialNumberOfTokens) {
 
@@ -43,7 +46,7 @@ public class DefaultTokenBucket implements TokenBucket {
         this.name = name;
         this.capacity = capacity;
         this.refillStrategy = refillStrategy;
-        this.numberOfTokens = initialNumberOfTokens;
+        this.numberOfTokens = new AtomicLong(initialNumberOfTokens);
     }
 
     @Override
@@ -59,7 +62,7 @@ public class DefaultTokenBucket implements TokenBucket {
     @Override
     public long getNumberOfTokens() {
         refill(refillStrategy.refill());
-        return numberOfTokens;
+        return numberOfTokens.get();
     }
 
     @Override
@@ -73,15 +76,16 @@ public class DefaultTokenBucket implements TokenBucket {
         Preconditions.checkArgument(numberOfTokens > 0, "Number of tokens must be greater than 0.");
         Preconditions.checkArgument(numberOfTokens <= capacity, "Number of tokens must not be greater than the capacity.");
 
-        synchronized (mutex) {
-            refill(refillStrategy.refill());
+        refill(refillStrategy.refill());
 
-            if (numberOfTokens <= this.numberOfTokens) {
-                this.numberOfTokens -= numberOfTokens;
+        while (true) {
+            long current = this.numberOfTokens.get();
+            if (current < numberOfTokens) {
+                return false;
+            }
+            if (this.numberOfTokens.compareAndSet(current, current - numberOfTokens)) {
                 return true;
             }
-
-            return false;
         }
     }
 
@@ -109,8 +113,8 @@ public class DefaultTokenBucket implements TokenBucket {
 
     @Override
     public void refill(long numberOfTokens) {
-        synchronized (mutex) {
-            this.numberOfTokens = Math.min(capacity, Math.max(0, this.numberOfTokens + numberOfTokens));
+        if (numberOfTokens != 0) {
+            this.numberOfTokens.getAndUpdate(current -> Math.min(capacity, Math.max(0, current + numberOfTokens)));
         }
     }
 
@@ -17,26 +17,28 @@
 package com.netflix.titus.common.util.limiter.tokenbucket.internal;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.google.common.base.Stopwatch;
 import com.netflix.titus.common.util.limiter.tokenbucket.RefillStrategy;
 
+/**
+ * Lock-free fixed interval refill strategy. Its only state is the time of the last refill, which is advanced with
+ * compare-and-set, so each interval's tokens are handed out to exactly one caller.
+ */
 public class FixedIntervalRefillStrategy implements RefillStrategy {
-    private final Object mutex = new Object();
 
     private final Stopwatch stopwatch;
     private final long numberOfTokensPerInterval;
     private final long intervalInNanos;
-    private long lastRefillTime;
-    private long nextRefillTime;
+    private final AtomicLong lastRefillTime;
 
     public FixedIntervalRefillStrategy(Stopwatch stopwatch, long numberOfTokensPerInterval, long interval, TimeUnit unit) {
         this.stopwatch = stopwatch;
         this.numberOfTokensPerInterval = numberOfTokensPerInterval;
         this.intervalInNanos = unit.toNanos(interval);
 
-        this.lastRefillTime = -intervalInNanos;
-        this.nextRefillTime = -intervalInNanos;
+        this.lastRefillTime = new AtomicLong(-intervalInNanos);
 
         if (!this.stopwatch.isRunning()) {
             this.stopwatch.start();
@@ -45,22 +47,22 @@ public class FixedIntervalRefillStrategy implements RefillStrategy {
 
     @Override
     public long refill() {
-        synchronized (mutex) {
-            long elapsed = stopwatch.elapsed(TimeUnit.NANOSECONDS);
-            if (elapsed < nextRefillTime) {
+        long elapsed = stopwatch.elapsed(TimeUnit.NANOSECONDS);
+        while (true) {
+            long last = lastRefillTime.get();
+            long numberOfIntervals = (elapsed - last) / intervalInNanos;
+            if (numberOfIntervals <= 0) {
                 return 0;
             }
-            long numberOfIntervals = Math.max(0, (elapsed - lastRefillTime) / intervalInNanos);
-            lastRefillTime += numberOfIntervals * intervalInNanos;
-            nextRefillTime = lastRefillTime + intervalInNanos;
-
-            return numberOfIntervals * numberOfTokensPerInterval;
+            if (lastRefillTime.compareAndSet(last, last + numberOfIntervals * intervalInNanos)) {
+                return numberOfIntervals * numberOfTokensPerInterval;
+            }
         }
     }
 
     @Override
     public long getTimeUntilNextRefill(TimeUnit unit) {
         long elapsed = stopwatch.elapsed(TimeUnit.NANOSECONDS);
-        return unit.convert(Math.max(0, nextRefillTime - elapsed), TimeUnit.NANOSECONDS);
+        return unit.convert(Math.max(0, lastRefillTime.get() + intervalInNanos - elapsed), TimeUnit.NANOSECONDS);
     }
 }
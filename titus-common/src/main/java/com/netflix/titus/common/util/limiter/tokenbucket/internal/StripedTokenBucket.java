@@ -0,0 +1,217 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.limiter.tokenbucket.internal;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.netflix.titus.common.util.limiter.tokenbucket.RefillStrategy;
+import com.netflix.titus.common.util.limiter.tokenbucket.TokenBucket;
+
+/**
+ * Lock-free {@link TokenBucket} for buckets shared by many threads, with the capacity and tokens split across
+ * stripes. A thread takes tokens from its own stripe, and only reaches out to the other stripes when its stripe
+ * runs out, so in the common case threads do not contend on the same memory word. The price is precision:
+ * <ul>
+ *     <li>a request may be rejected while the tokens it needs are moved around between stripes by other requests</li>
+ *     <li>a stripe holds at most its share of the capacity, so refilled tokens above that share are dropped even if
+ *     other stripes have room for them</li>
+ * </ul>
+ * Use {@link DefaultTokenBucket} unless the bucket is hot enough for contention to matter.
+ */
+public class StripedTokenBucket implements TokenBucket {
+
+    /**
+     * Stripes are spaced by a cache line (8 longs), to avoid false sharing between them.
+     */
+    private static final int STRIPE_SPACING = 8;
+
+    private final String name;
+    private final long capacity;
+    private final RefillStrategy refillStrategy;
+    private final int numberOfStripes;
+    private final long[] stripeCapacities;
+    private final AtomicLongArray stripes;
+
+    public StripedTokenBucket(String name, long capacity, RefillStrategy refillStrategy, long initialNumberOfTokens, int numberOfStripes) {
+
+        Preconditions.checkArgument(!Strings.isNullOrEmpty(name), "Name must not be null or empty.");
+        Preconditions.checkArgument(capacity > 0, "Capacity must be greater than 0.");
+        Preconditions.checkNotNull(refillStrategy);
+        Preconditions.checkArgument(initialNumberOfTokens >= 0, "Capacity must not be negative.");
+        Preconditions.checkArgument(numberOfStripes > 0, "Number of stripes must be greater than 0.");
+        Preconditions.checkArgument(numberOfStripes <= capacity, "Number of stripes must not be greater than the capacity.");
+
+        this.name = name;
+        this.capacity = capacity;
+        this.refillStrategy = refillStrategy;
+        this.numberOfStripes = numberOfStripes;
+        this.stripeCapacities = new long[numberOfStripes];
+        this.stripes = new AtomicLongArray(numberOfStripes * STRIPE_SPACING);
+
+        for (int i = 0; i < numberOfStripes; i++) {
+            stripeCapacities[i] = share(capacity, i, 0);
+            stripes.set(i * STRIPE_SPACING, Math.min(stripeCapacities[i], share(initialNumberOfTokens, i, 0)));
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public long getNumberOfTokens() {
+        refill(refillStrategy.refill());
+
+        long total = 0;
+        for (int i = 0; i < numberOfStripes; i++) {
+            total += stripes.get(i * STRIPE_SPACING);
+        }
+        return total;
+    }
+
+    @Override
+    public boolean tryTake() {
+        return tryTake(1);
+    }
+
+    @Override
+    public boolean tryTake(long numberOfTokens) {
+
+        Preconditions.checkArgument(numberOfTokens > 0, "Number of tokens must be greater than 0.");
+        Preconditions.checkArgument(numberOfTokens <= capacity, "Number of tokens must not be greater than the capacity.");
+
+        refill(refillStrategy.refill());
+
+        int home = homeStripe();
+        if (tryTakeFromStripe(home, numberOfTokens)) {
+            return true;
+        }
+
+        // Not enough tokens in the home stripe. Collect them from all stripes, and give them back if there are not enough.
+        long[] taken = new long[numberOfStripes];
+        long remaining = numberOfTokens;
+        for (int n = 0; n < numberOfStripes && remaining > 0; n++) {
+            int stripe = (home + n) % numberOfStripes;
+            taken[stripe] = takeAtMostFromStripe(stripe, remaining);
+            remaining -= taken[stripe];
+        }
+        if (remaining == 0) {
+            return true;
+        }
+        for (int stripe = 0; stripe < numberOfStripes; stripe++) {
+            if (taken[stripe] > 0) {
+                addToStripe(stripe, taken[stripe]);
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void take() {
+        take(1);
+    }
+
+    @Override
+    public void take(long numberOfTokens) {
+
+        Preconditions.checkArgument(numberOfTokens > 0, "Number of tokens must be greater than 0.");
+        Preconditions.checkArgument(numberOfTokens <= capacity, "Number of tokens must not be greater than the capacity.");
+
+        while (true) {
+            if (tryTake(numberOfTokens)) {
+                break;
+            }
+            long timeUntilNextRefill = refillStrategy.getTimeUntilNextRefill(TimeUnit.NANOSECONDS);
+            if (timeUntilNextRefill > 0) {
+                Uninterruptibles.sleepUninterruptibly(timeUntilNextRefill, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * Tokens are split evenly between the stripes, with the remainder going to the stripes following the caller's
+     * home stripe, so that small refills are not always credited to the same stripes.
+     */
+    @Override
+    public void refill(long numberOfTokens) {
+        if (numberOfTokens == 0) {
+            return;
+        }
+        int home = homeStripe();
+        for (int stripe = 0; stripe < numberOfStripes; stripe++) {
+            long share = share(numberOfTokens, stripe, home);
+            if (share != 0) {
+                addToStripe(stripe, share);
+            }
+        }
+    }
+
+    @Override
+    public RefillStrategy getRefillStrategy() {
+        return refillStrategy;
+    }
+
+    private long share(long numberOfTokens, int stripe, int firstStripe) {
+        long share = numberOfTokens / numberOfStripes;
+        long remainder = numberOfTokens % numberOfStripes;
+        int position = (stripe - firstStripe + numberOfStripes) % numberOfStripes;
+        return position < Math.abs(remainder) ? share + Long.signum(remainder) : share;
+    }
+
+    private int homeStripe() {
+        return (int) (Thread.currentThread().getId() % numberOfStripes);
+    }
+
+    private boolean tryTakeFromStripe(int stripe, long numberOfTokens) {
+        int index = stripe * STRIPE_SPACING;
+        while (true) {
+            long current = stripes.get(index);
+            if (current < numberOfTokens) {
+                return false;
+            }
+            if (stripes.compareAndSet(index, current, current - numberOfTokens)) {
+                return true;
+            }
+        }
+    }
+
+    private long takeAtMostFromStripe(int stripe, long numberOfTokens) {
+        int index = stripe * STRIPE_SPACING;
+        while (true) {
+            long current = stripes.get(index);
+            long taken = Math.min(current, numberOfTokens);
+            if (taken <= 0 || stripes.compareAndSet(index, current, current - taken)) {
+                return Math.max(0, taken);
+            }
+        }
+    }
+
+    private void addToStripe(int stripe, long numberOfTokens) {
+        long stripeCapacity = stripeCapacities[stripe];
+        stripes.getAndUpdate(stripe * STRIPE_SPACING, current -> Math.min(stripeCapacity, Math.max(0, current + numberOfTokens)));
+    }
+}
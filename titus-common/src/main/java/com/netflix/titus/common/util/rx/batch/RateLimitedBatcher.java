@@ -19,10 +19,14 @@ package com.netflix.titus.common.util.rx.batch;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import com.google.common.base.Preconditions;
@@ -40,6 +44,7 @@ import rx.Observable;
 import rx.Scheduler;
 import rx.Subscriber;
 import rx.exceptions.Exceptions;
+import rx.internal.operators.BackpressureUtils;
 import rx.plugins.RxJavaHooks;
 
 
@@ -59,6 +64,12 @@ import rx.plugins.RxJavaHooks;
  * <tt>equals</tt> in a way that two {@link Batchable} causing the system to be in the same final state are considered
  * equal.
  * <p>
+ * Downstream backpressure is respected: when downstream subscribers have not requested more batches, items stay in the
+ * pending buffer, where they keep being replaced by newer items with the same identifier, until more are requested.
+ * Nothing is dropped, and the pending buffer is bounded by the number of distinct identifiers. Batches can also be
+ * capped to a maximum size (<tt>maxBatchSize</tt>), in which case items for the same index are emitted in multiple
+ * batches, oldest first, each taking a token from the {@link TokenBucket}.
+ * <p>
  * A single instance of this operator can be used in multiple different rxJava streams, in which case the same
  * {@link TokenBucket} will be shared across all of them, and all work will be scheduled on the same {@link Scheduler.Worker}.
  * <p>
@@ -93,11 +104,13 @@ public class RateLimitedBatcher<T extends Batchable<?>, I> implements Observable
     private final TokenBucket tokenBucket;
     private final long initialDelayMs;
     private final long maxDelayMs;
+    private final int maxBatchSize;
     private final IndexExtractor<T, I> indexExtractor;
     private final EmissionStrategy emissionStrategy;
     private final String metricsRoot;
     private final Registry registry;
     private final Counter rateLimitCounter;
+    private final Counter backpressureCounter;
     private final Clock clock;
 
     /**
@@ -112,12 +125,29 @@ public class RateLimitedBatcher<T extends Batchable<?>, I> implements Observable
                                                                               String metricsRoot,
                                                                               Registry registry,
                                                                               Scheduler scheduler) {
-        return new RateLimitedBatcher<T, I>(tokenBucket, initialDelay, maxDelay, indexExtractor, emissionStrategy, metricsRoot, registry, scheduler);
+        return new RateLimitedBatcher<T, I>(tokenBucket, initialDelay, maxDelay, Integer.MAX_VALUE, indexExtractor, emissionStrategy, metricsRoot, registry, scheduler);
+    }
+
+    /**
+     * @param maxBatchSize max number of items in each emitted batch
+     * @see #create(TokenBucket, long, long, IndexExtractor, EmissionStrategy, String, Registry, Scheduler)
+     */
+    public static <T extends Batchable<?>, I> RateLimitedBatcher<T, I> create(TokenBucket tokenBucket,
+                                                                              long initialDelay,
+                                                                              long maxDelay,
+                                                                              int maxBatchSize,
+                                                                              IndexExtractor<T, I> indexExtractor,
+                                                                              EmissionStrategy emissionStrategy,
+                                                                              String metricsRoot,
+                                                                              Registry registry,
+                                                                              Scheduler scheduler) {
+        return new RateLimitedBatcher<T, I>(tokenBucket, initialDelay, maxDelay, maxBatchSize, indexExtractor, emissionStrategy, metricsRoot, registry, scheduler);
     }
 
     private RateLimitedBatcher(TokenBucket tokenBucket,
                                long initialDelay,
                                long maxDelay,
+                               int maxBatchSize,
                                IndexExtractor<T, I> indexExtractor,
                                EmissionStrategy emissionStrategy,
                                String metricsRoot,
@@ -125,15 +155,18 @@ public class RateLimitedBatcher<T extends Batchable<?>, I> implements Observable
                                Scheduler scheduler) {
         Preconditions.checkArgument(initialDelay > 0, "initialDelayMs must be > 0");
         Preconditions.checkArgument(maxDelay >= initialDelay, "maxDelayMs must be >= initialDelayMs");
+        Preconditions.checkArgument(maxBatchSize > 0, "maxBatchSize must be > 0");
         Preconditions.checkArgument(!metricsRoot.endsWith("."), "metricsRoot must not end with a '.' (dot)");
         this.tokenBucket = tokenBucket;
         this.initialDelayMs = initialDelay;
         this.maxDelayMs = maxDelay;
+        this.maxBatchSize = maxBatchSize;
         this.indexExtractor = indexExtractor;
         this.emissionStrategy = emissionStrategy;
         this.metricsRoot = metricsRoot;
         this.registry = registry;
         this.rateLimitCounter = registry.counter(metricsRoot + ".rateLimit");
+        this.backpressureCounter = registry.counter(metricsRoot + ".backpressure");
         this.clock = Clocks.scheduler(scheduler);
         this.worker = new InstrumentedEventLoop(metricsRoot, registry, scheduler);
     }
@@ -199,6 +232,14 @@ public class RateLimitedBatcher<T extends Batchable<?>, I> implements Observable
          * limited by the {@link TokenBucket}.
          */
         private final AtomicLong currentDelayMs = new AtomicLong(initialDelayMs);
+        /**
+         * number of batches requested by downstream subscribers and not emitted yet
+         */
+        private final AtomicLong requested = new AtomicLong();
+        /**
+         * timestamp of the oldest pending item, as of the last scan, or <tt>-1</tt> when nothing is pending
+         */
+        private volatile long oldestPendingTimestampMs = -1;
         /**
          * tracks when upstream has completed emitting, so we can terminate after flushing what is currently pending
          */
@@ -246,10 +287,18 @@ public class RateLimitedBatcher<T extends Batchable<?>, I> implements Observable
          * start the continuous loop
          */
         public void run() {
+            downstream.setProducer(n -> {
+                if (n > 0) {
+                    BackpressureUtils.getAndAddRequest(requested, n);
+                }
+            });
             PolledMeter.using(registry)
                     .withName(metricsRoot + ".pending")
                     // TODO: size() does a O(N) scan, optimize it
                     .monitorValue(pending, ConcurrentHashMultimap::size);
+            PolledMeter.using(registry)
+                    .withName(metricsRoot + ".pendingAgeMs")
+                    .monitorValue(this, Flusher::getOldestPendingAgeMs);
             worker.schedule(ACTION_FLUSH, this::flushPending, currentDelayMs.get(), TimeUnit.MILLISECONDS);
         }
 
@@ -274,6 +323,11 @@ public class RateLimitedBatcher<T extends Batchable<?>, I> implements Observable
                     return;
                 }
 
+                if (requested.get() == 0) {
+                    scheduleNextWhenBackpressured();
+                    return;
+                }
+
                 final Batch<T, I> next = ordered.poll();
                 if (next == null) {
                     break;
@@ -285,6 +339,7 @@ public class RateLimitedBatcher<T extends Batchable<?>, I> implements Observable
                 }
                 resetCurrentDelay();
 
+                BackpressureUtils.produced(requested, 1);
                 onNextSafe(next);
                 /*
                  * Only remove sent items if they have not been modified in the pending data structure to avoid losing
@@ -322,6 +377,16 @@ public class RateLimitedBatcher<T extends Batchable<?>, I> implements Observable
             worker.schedule(ACTION_FLUSH, this::flushPending, delayForNext, TimeUnit.MILLISECONDS);
         }
 
+        /**
+         * Items are kept (and coalesced) in the pending buffer until downstream subscribers request more. There is no
+         * callback on new requests, so the buffer is scanned again after the initial delay.
+         */
+        private void scheduleNextWhenBackpressured() {
+            logger.debug("No batches requested by downstream subscribers, retry in {} ms", initialDelayMs);
+            backpressureCounter.increment();
+            worker.schedule(ACTION_FLUSH, this::flushPending, initialDelayMs, TimeUnit.MILLISECONDS);
+        }
+
         private void scheduleNextIfNotDone() {
             if (done && pending.isEmpty()) {
                 logger.info("Ending the flush loop, all pending items were flushed after onComplete from upstream");
@@ -347,10 +412,36 @@ public class RateLimitedBatcher<T extends Batchable<?>, I> implements Observable
          * Let batches accumulate in pending for at least initialDelayMs
          */
         private Stream<Batch<T, I>> readyBatchesStream() {
-            return pending.asMap().entrySet().stream()
+            final List<Batch<T, I>> batches = pending.asMap().entrySet().stream()
                     // TODO: Batch.of() iterates on all values to find oldestTimestamp. Consider precomputing as they are added
-                    .map(entry -> Batch.of(entry.getKey(), new ArrayList<>(entry.getValue())))
-                    .filter(batch -> isWaitingForAtLeast(batch, initialDelayMs));
+                    .flatMap(this::toBatches)
+                    .collect(Collectors.toList());
+            oldestPendingTimestampMs = batches.stream()
+                    .mapToLong(batch -> batch.getOldestItemTimestamp().toEpochMilli())
+                    .min()
+                    .orElse(-1);
+            return batches.stream().filter(batch -> isWaitingForAtLeast(batch, initialDelayMs));
+        }
+
+        /**
+         * Split items for an index in batches of at most maxBatchSize, oldest first
+         */
+        private Stream<Batch<T, I>> toBatches(Map.Entry<I, Collection<T>> entry) {
+            final List<T> items = new ArrayList<>(entry.getValue());
+            if (items.size() <= maxBatchSize) {
+                return Stream.of(Batch.of(entry.getKey(), items));
+            }
+            items.sort(Comparator.comparing(Batchable::getTimestamp));
+            final List<Batch<T, I>> batches = new ArrayList<>();
+            for (int from = 0; from < items.size(); from += maxBatchSize) {
+                batches.add(Batch.of(entry.getKey(), new ArrayList<>(items.subList(from, Math.min(items.size(), from + maxBatchSize)))));
+            }
+            return batches.stream();
+        }
+
+        private long getOldestPendingAgeMs() {
+            final long oldest = oldestPendingTimestampMs;
+            return oldest < 0 ? 0 : Math.max(0, clock.wallTime() - oldest);
         }
 
         private boolean isWaitingForAtLeast(Batch<T, I> batch, long ms) {
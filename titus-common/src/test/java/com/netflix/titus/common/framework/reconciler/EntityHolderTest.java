@@ -22,6 +22,7 @@ import com.netflix.titus.common.util.tuple.Pair;
 import org.junit.Test;
 
 import static com.netflix.titus.common.framework.reconciler.EntityHolder.newRoot;
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class EntityHolderTest {
@@ -50,6 +51,16 @@ public class EntityHolderTest {
         assertThat((String) rootV2.getChildren().first().getEntity()).isEqualTo("a1_v2");
     }
 
+    @Test
+    public void testAddManyChildren() throws Exception {
+        EntityHolder rootV1 = newRoot("myRoot", "as").addChild(newRoot("myChild1", "a1"));
+        EntityHolder rootV2 = rootV1.addChildren(asList(newRoot("myChild1", "a1_v2"), newRoot("myChild2", "a2")));
+
+        assertThat(rootV2.getChildren()).hasSize(2);
+        assertThat((String) rootV2.getChildren().first().getEntity()).isEqualTo("a1_v2");
+        assertThat(rootV2.getChildren().last().getId()).isEqualTo("myChild2");
+    }
+
     @Test
     public void testRemoveFromParent() throws Exception {
         EntityHolder rootV1 = newRoot("myRoot", "as")
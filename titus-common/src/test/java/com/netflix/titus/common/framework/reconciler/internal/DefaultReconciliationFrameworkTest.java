@@ -28,6 +28,7 @@ import com.netflix.spectator.api.DefaultRegistry;
 import com.netflix.titus.common.framework.reconciler.EntityHolder;
 import com.netflix.titus.common.framework.reconciler.ReconciliationEngine;
 import com.netflix.titus.common.framework.reconciler.internal.SimpleReconcilerEvent.EventType;
+import com.netflix.titus.common.util.tuple.Pair;
 import com.netflix.titus.testkit.rx.ExtTestSubscriber;
 import org.junit.After;
 import org.junit.Before;
@@ -97,6 +98,7 @@ public class DefaultReconciliationFrameworkTest {
         ReconciliationEngine<SimpleReconcilerEvent> bootstrapEngine = mock(ReconciliationEngine.class);
         PublishSubject<SimpleReconcilerEvent> eventSubject = PublishSubject.create();
         when(bootstrapEngine.events()).thenReturn(eventSubject);
+        when(bootstrapEngine.getReferenceView()).thenReturn(EntityHolder.newRoot("myRoot", "myEntity"));
         when(bootstrapEngine.triggerEvents()).thenReturn(true);
 
         DefaultReconciliationFramework<SimpleReconcilerEvent> framework = new DefaultReconciliationFramework<>(
@@ -140,6 +142,101 @@ public class DefaultReconciliationFrameworkTest {
         assertThat(framework.orderedView("descending").stream().map(EntityHolder::getEntity)).containsExactly("myEntity2", "myEntity1");
     }
 
+    @Test
+    public void testIdIndexes() {
+        framework.newEngine(EntityHolder.newRoot("myRoot1", "myEntity1")).subscribe();
+        testScheduler.triggerActions();
+
+        assertThat(framework.findEngineByRootId("myRoot1")).contains(engine1);
+        assertThat(framework.findEngineByChildId("myChild1")).isEmpty();
+
+        // Add child
+        EntityHolder child = EntityHolder.newRoot("myChild1", "myChildEntity1");
+        when(engine1.getReferenceView()).thenReturn(EntityHolder.newRoot("myRoot1", "myEntity1").addChild(child));
+        when(engine1.applyModelUpdates()).thenReturn(true);
+        testScheduler.advanceTimeBy(ACTIVE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+        Optional<Pair<ReconciliationEngine<SimpleReconcilerEvent>, EntityHolder>> engineChildPair = framework.findEngineByChildId("myChild1");
+        assertThat(engineChildPair).isPresent();
+        assertThat(engineChildPair.get().getLeft()).isEqualTo(engine1);
+        assertThat(engineChildPair.get().getRight()).isEqualTo(child);
+
+        // Remove child
+        when(engine1.getReferenceView()).thenReturn(EntityHolder.newRoot("myRoot1", "myEntity1"));
+        testScheduler.advanceTimeBy(ACTIVE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertThat(framework.findEngineByChildId("myChild1")).isEmpty();
+
+        // Remove engine
+        framework.removeEngine(engine1).subscribe();
+        testScheduler.advanceTimeBy(ACTIVE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertThat(framework.findEngineByRootId("myRoot1")).isEmpty();
+    }
+
+    @Test
+    public void testShardedFramework() {
+        DefaultReconciliationFramework<SimpleReconcilerEvent> shardedFramework = new DefaultReconciliationFramework<>(
+                Collections.emptyList(),
+                engineFactory,
+                IDLE_TIMEOUT_MS,
+                ACTIVE_TIMEOUT_MS,
+                indexComparators,
+                4,
+                new DefaultRegistry(),
+                testScheduler
+        );
+        shardedFramework.start();
+
+        shardedFramework.newEngine(EntityHolder.newRoot("myRoot1", "myEntity1")).subscribe();
+        shardedFramework.newEngine(EntityHolder.newRoot("myRoot2", "myEntity2")).subscribe();
+        testScheduler.triggerActions();
+
+        // Indexes are global, irrespective of the shard an engine belongs to.
+        assertThat(shardedFramework.orderedView("ascending").stream().map(EntityHolder::getEntity)).containsExactly("myEntity1", "myEntity2");
+        assertThat(shardedFramework.findEngineByRootId("myRoot1")).contains(engine1);
+        assertThat(shardedFramework.findEngineByRootId("myRoot2")).contains(engine2);
+        verify(engine1, times(1)).triggerEvents();
+        verify(engine2, times(1)).triggerEvents();
+
+        shardedFramework.removeEngine(engine1).subscribe();
+        testScheduler.advanceTimeBy(ACTIVE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertThat(shardedFramework.orderedView("ascending").stream().map(EntityHolder::getEntity)).containsExactly("myEntity2");
+
+        shardedFramework.stop(STOP_TIMEOUT_MS);
+    }
+
+    @Test
+    public void testSignalingFramework() {
+        DefaultReconciliationFramework<SimpleReconcilerEvent> signalingFramework = new DefaultReconciliationFramework<>(
+                Collections.emptyList(),
+                engineFactory,
+                IDLE_TIMEOUT_MS,
+                ACTIVE_TIMEOUT_MS,
+                indexComparators,
+                1,
+                true,
+                new DefaultRegistry(),
+                testScheduler
+        );
+        signalingFramework.start();
+        testScheduler.triggerActions();
+
+        when(engine1.triggerEvents()).thenReturn(false);
+
+        // Adding an engine triggers the loop immediately.
+        signalingFramework.newEngine(EntityHolder.newRoot("myRoot1", "myEntity1")).subscribe();
+        testScheduler.triggerActions();
+        verify(engine1, times(1)).triggerEvents();
+
+        // Engine without pending work is not evaluated until the next full pass.
+        testScheduler.advanceTimeBy(ACTIVE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        verify(engine1, times(1)).triggerEvents();
+
+        testScheduler.advanceTimeBy(IDLE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        verify(engine1, times(2)).triggerEvents();
+
+        signalingFramework.stop(STOP_TIMEOUT_MS);
+    }
+
     @Test
     public void testEventsPublishing() {
         framework.newEngine(EntityHolder.newRoot("myRoot1", "myEntity1")).subscribe();
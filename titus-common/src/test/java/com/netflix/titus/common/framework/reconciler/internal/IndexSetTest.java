@@ -0,0 +1,83 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.framework.reconciler.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import com.google.common.collect.ImmutableMap;
+import com.netflix.titus.common.framework.reconciler.EntityHolder;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IndexSetTest {
+
+    private final Map<Object, Comparator<EntityHolder>> indexComparators = ImmutableMap.<Object, Comparator<EntityHolder>>builder()
+            .put("ascending", Comparator.comparing(EntityHolder::getEntity))
+            .put("descending", Comparator.<EntityHolder, String>comparing(EntityHolder::getEntity).reversed())
+            .build();
+
+    @Test
+    public void testAddUpdateRemove() {
+        IndexSet<EntityHolder> indexSet = IndexSet.newIndexSet(indexComparators, EntityHolder::getId);
+
+        IndexSet<EntityHolder> withTwo = indexSet.add(Arrays.asList(
+                EntityHolder.newRoot("id1", "b"),
+                EntityHolder.newRoot("id2", "a")
+        ));
+        assertThat(entitiesOf(withTwo, "ascending")).containsExactly("a", "b");
+        assertThat(entitiesOf(withTwo, "descending")).containsExactly("b", "a");
+
+        // Update reorders the element
+        IndexSet<EntityHolder> updated = withTwo.add(Collections.singletonList(EntityHolder.newRoot("id2", "c")));
+        assertThat(entitiesOf(updated, "ascending")).containsExactly("b", "c");
+
+        IndexSet<EntityHolder> removed = updated.remove(Collections.singletonList("id1"));
+        assertThat(entitiesOf(removed, "ascending")).containsExactly("c");
+
+        // Previous versions are not affected
+        assertThat(entitiesOf(withTwo, "ascending")).containsExactly("a", "b");
+    }
+
+    @Test
+    public void testElementsWithEqualOrderAreKept() {
+        IndexSet<EntityHolder> indexSet = IndexSet.newIndexSet(indexComparators, EntityHolder::getId).add(Arrays.asList(
+                EntityHolder.newRoot("id1", "a"),
+                EntityHolder.newRoot("id2", "a")
+        ));
+        assertThat(indexSet.getOrdered("ascending").stream().map(EntityHolder::getId)).containsExactly("id1", "id2");
+
+        IndexSet<EntityHolder> removed = indexSet.remove(Collections.singletonList("id2"));
+        assertThat(removed.getOrdered("ascending").stream().map(EntityHolder::getId)).containsExactly("id1");
+    }
+
+    @Test
+    public void testIdenticalElementUpdateIsIgnored() {
+        EntityHolder holder = EntityHolder.newRoot("id1", "a");
+        IndexSet<EntityHolder> indexSet = IndexSet.newIndexSet(indexComparators, EntityHolder::getId).add(Collections.singletonList(holder));
+        assertThat(indexSet.add(Collections.singletonList(holder))).isSameAs(indexSet);
+    }
+
+    private List<String> entitiesOf(IndexSet<EntityHolder> indexSet, String indexId) {
+        return indexSet.getOrdered(indexId).stream().map(h -> (String) h.getEntity()).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.collections;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PersistentSortedMapTest {
+
+    private static final int OPERATIONS = 20_000;
+    private static final int KEY_RANGE = 1_000;
+
+    @Test
+    public void testPutGetRemove() {
+        PersistentSortedMap<String, Integer> map = PersistentSortedMap.empty(Comparator.<String>naturalOrder());
+        map = map.put("b", 2).put("a", 1).put("c", 3);
+
+        assertThat(map.size()).isEqualTo(3);
+        assertThat(map.get("a")).isEqualTo(1);
+        assertThat(map.get("d")).isNull();
+        assertThat(map.values()).containsExactly(1, 2, 3);
+
+        PersistentSortedMap<String, Integer> updated = map.put("b", 20).remove("a");
+        assertThat(updated.values()).containsExactly(20, 3);
+        assertThat(updated.remove("x")).isSameAs(updated);
+    }
+
+    @Test
+    public void testPreviousVersionsAreNotModified() {
+        PersistentSortedMap<Integer, Integer> first = PersistentSortedMap.empty(Comparator.<Integer>naturalOrder());
+        for (int i = 0; i < 100; i++) {
+            first = first.put(i, i);
+        }
+        PersistentSortedMap<Integer, Integer> second = first.remove(50).put(200, 200);
+
+        assertThat(first.size()).isEqualTo(100);
+        assertThat(first.get(50)).isEqualTo(50);
+        assertThat(first.get(200)).isNull();
+        assertThat(second.size()).isEqualTo(100);
+        assertThat(second.get(50)).isNull();
+        assertThat(second.get(200)).isEqualTo(200);
+    }
+
+    @Test
+    public void testRandomOperationsAgainstTreeMap() {
+        Random random = new Random(123);
+        PersistentSortedMap<Integer, Integer> map = PersistentSortedMap.empty(Comparator.<Integer>naturalOrder());
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+
+        for (int i = 0; i < OPERATIONS; i++) {
+            int key = random.nextInt(KEY_RANGE);
+            if (random.nextBoolean()) {
+                map = map.put(key, i);
+                expected.put(key, i);
+            } else {
+                map = map.remove(key);
+                expected.remove(key);
+            }
+        }
+
+        List<Integer> expectedValues = new ArrayList<>(expected.values());
+        assertThat(map.size()).isEqualTo(expected.size());
+        assertThat(map.values()).containsExactlyElementsOf(expectedValues);
+        for (int i = 0; i < expectedValues.size(); i++) {
+            assertThat(map.values().get(i)).isEqualTo(expectedValues.get(i));
+        }
+    }
+}
@@ -16,12 +16,18 @@
 
 package com.netflix.titus.common.util.limiter.tokenbucket.internal;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.netflix.titus.common.util.limiter.tokenbucket.RefillStrategy;
 import com.netflix.titus.common.util.limiter.tokenbucket.TokenBucket;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -63,7 +69,43 @@ public class DefaultTokenBucketTest {
         tokenBucket.take(10);
     }
 
-    private static class TestRefillStrategy implements RefillStrategy {
+    @Test
+    public void concurrentTryTakeShouldNotOverdraw() throws Exception {
+        TokenBucket tokenBucket = createTokenBucket(100_000, createTestRefillStrategy(), 100_000);
+        assertEquals(100_000, takeConcurrently(tokenBucket, 8, 50_000));
+        assertEquals(0, tokenBucket.getNumberOfTokens());
+    }
+
+    /**
+     * Runs {@code numberOfThreads} threads calling {@link TokenBucket#tryTake()} {@code attemptsPerThread} times each,
+     * and returns the number of tokens taken.
+     */
+    static long takeConcurrently(TokenBucket tokenBucket, int numberOfThreads, int attemptsPerThread) throws InterruptedException {
+        CountDownLatch startLatch = new CountDownLatch(1);
+        AtomicLong taken = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < numberOfThreads; i++) {
+            Thread thread = new Thread(() -> {
+                Uninterruptibles.awaitUninterruptibly(startLatch);
+                long takenByThread = 0;
+                for (int n = 0; n < attemptsPerThread; n++) {
+                    if (tokenBucket.tryTake()) {
+                        takenByThread++;
+                    }
+                }
+                taken.addAndGet(takenByThread);
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        startLatch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return taken.get();
+    }
+
+    static class TestRefillStrategy implements RefillStrategy {
 
         private final Object mutex = new Object();
 
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.limiter.tokenbucket.internal;
+
+import com.netflix.titus.common.util.limiter.tokenbucket.TokenBucket;
+import com.netflix.titus.common.util.limiter.tokenbucket.internal.DefaultTokenBucketTest.TestRefillStrategy;
+import org.junit.Test;
+
+import static com.netflix.titus.common.util.limiter.tokenbucket.internal.DefaultTokenBucketTest.takeConcurrently;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StripedTokenBucketTest {
+
+    private final TestRefillStrategy testRefillStrategy = new TestRefillStrategy();
+
+    @Test
+    public void tokensAreSplitBetweenStripes() {
+        TokenBucket tokenBucket = new StripedTokenBucket("TestTokenBucket", 8, testRefillStrategy, 0, 4);
+
+        testRefillStrategy.setAmountToRefill(6);
+        assertEquals(6, tokenBucket.getNumberOfTokens());
+
+        // Refills above the per stripe capacity are dropped
+        assertEquals(8, tokenBucket.getNumberOfTokens());
+    }
+
+    @Test
+    public void tryTakeShouldCollectTokensFromAllStripes() {
+        TokenBucket tokenBucket = new StripedTokenBucket("TestTokenBucket", 10, testRefillStrategy, 10, 4);
+
+        assertTrue(tokenBucket.tryTake(8));
+        assertEquals(2, tokenBucket.getNumberOfTokens());
+
+        assertFalse(tokenBucket.tryTake(3));
+        assertEquals(2, tokenBucket.getNumberOfTokens());
+
+        assertTrue(tokenBucket.tryTake(2));
+        assertEquals(0, tokenBucket.getNumberOfTokens());
+    }
+
+    @Test
+    public void concurrentTryTakeShouldNotOverdraw() throws Exception {
+        TokenBucket tokenBucket = new StripedTokenBucket("TestTokenBucket", 100_000, testRefillStrategy, 100_000, 8);
+        assertEquals(100_000, takeConcurrently(tokenBucket, 8, 50_000));
+        assertEquals(0, tokenBucket.getNumberOfTokens());
+    }
+}
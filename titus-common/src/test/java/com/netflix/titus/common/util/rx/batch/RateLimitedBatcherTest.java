@@ -191,6 +191,61 @@ public class RateLimitedBatcherTest {
                 .assertCompleted();
     }
 
+    @Test
+    public void itemsAreKeptAndReplacedWhileDownstreamIsBackpressured() {
+        final RateLimitedBatcher<BatchableOperationMock, String> batcher = buildBatcher(minimumTimeInQueueMs);
+        final Subject<BatchableOperationMock, BatchableOperationMock> updates = PublishSubject.<BatchableOperationMock>create().toSerialized();
+        final AssertableSubscriber<Batch<BatchableOperationMock, String>> subscriber = updates.lift(batcher).test(1);
+
+        final Instant now = Instant.ofEpochMilli(testScheduler.now());
+        final BatchableOperationMock first = new BatchableOperationMock(Low, now.minus(ofSeconds(5)), "resource1", "sub1", "create");
+        final BatchableOperationMock second = new BatchableOperationMock(Low, now.minus(ofSeconds(3)), "resource2", "sub1", "create");
+        updates.onNext(first);
+        updates.onNext(second);
+
+        testScheduler.advanceTimeBy(minimumTimeInQueueMs, TimeUnit.MILLISECONDS);
+        //noinspection unchecked
+        subscriber.assertNoErrors().assertValuesAndClear(Batch.of("resource1", first));
+
+        // nothing else requested, newer items replace what is pending
+        final BatchableOperationMock secondReplacement = new BatchableOperationMock(Low, now.minus(ofSeconds(1)), "resource2", "sub1", "delete");
+        updates.onNext(secondReplacement);
+        testScheduler.advanceTimeBy(10 * minimumTimeInQueueMs, TimeUnit.MILLISECONDS);
+        subscriber.assertNoErrors().assertNoValues();
+
+        subscriber.requestMore(1);
+        testScheduler.advanceTimeBy(minimumTimeInQueueMs, TimeUnit.MILLISECONDS);
+        //noinspection unchecked
+        subscriber.assertNoErrors().assertValuesAndClear(Batch.of("resource2", secondReplacement));
+    }
+
+    @Test
+    public void batchesAreSplitWhenLargerThanMaxSize() {
+        final RateLimitedBatcher<BatchableOperationMock, String> batcher = RateLimitedBatcher.create(tokenBucket,
+                minimumTimeInQueueMs, Long.MAX_VALUE, 2, BatchableOperationMock::getResourceId, strategy, "testBatcher",
+                new NoopRegistry(), testScheduler);
+
+        final Instant now = Instant.ofEpochMilli(testScheduler.now());
+        final List<BatchableOperationMock> items = Arrays.asList(
+                new BatchableOperationMock(Low, now.minus(ofSeconds(5)), "resource1", "sub1", "create"),
+                new BatchableOperationMock(Low, now.minus(ofSeconds(4)), "resource1", "sub2", "create"),
+                new BatchableOperationMock(Low, now.minus(ofSeconds(3)), "resource1", "sub3", "create")
+        );
+        final AssertableSubscriber<Batch<BatchableOperationMock, String>> subscriber = Observable.from(items)
+                .lift(batcher)
+                .test();
+
+        testScheduler.advanceTimeBy(minimumTimeInQueueMs, TimeUnit.MILLISECONDS);
+        subscriber.assertNoErrors().assertValueCount(2).assertCompleted();
+        // oldest first
+        assertThat(subscriber.getOnNextEvents()).extracting(Batch::size).containsExactly(2, 1);
+        final List<BatchableOperationMock> emitted = subscriber.getOnNextEvents().stream()
+                .flatMap(batch -> batch.getItems().stream())
+                .collect(Collectors.toList());
+        assertThat(emitted).containsExactlyInAnyOrder(items.toArray(new BatchableOperationMock[0]));
+        verify(tokenBucket, times(2)).tryTake();
+    }
+
     @Test
     public void pendingItemsAreFlushedAfterUpstreamCompletes() {
         final RateLimitedBatcher<BatchableOperationMock, String> batcher = buildBatcher(minimumTimeInQueueMs);
@@ -65,6 +65,26 @@ public class EmbeddedCassandraStoreFactory {
         public int getConcurrencyLimit() {
             return 10;
         }
+
+        @Override
+        public boolean isJobStoreWriteCoalescingEnabled() {
+            return false;
+        }
+
+        @Override
+        public long getJobStoreWriteCoalescingWindowMs() {
+            return 10;
+        }
+
+        @Override
+        public int getJobStoreWriteCoalescingMaxBatchSize() {
+            return 100;
+        }
+
+        @Override
+        public String getJobRecordFormat() {
+            return "json";
+        }
     };
 
     private final Session session;
@@ -16,10 +16,14 @@
 
 package com.netflix.titus.ext.cassandra.store;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -29,7 +33,12 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.CodecRegistry;
+import com.datastax.driver.core.Configuration;
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.Metadata;
 import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ProtocolVersion;
 import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
@@ -72,6 +81,7 @@ public class CassandraJobStore implements JobStore {
 
     private static final int INITIAL_BUCKET_COUNT = 100;
     private static final int MAX_BUCKET_SIZE = 2_000;
+    private static final int MAX_UNLOGGED_BATCH_SIZE = 20;
     private static final String METRIC_NAME_ROOT = "titusMaster.jobManager.cassandra";
 
     // SELECT Queries
@@ -123,7 +133,7 @@ public class CassandraJobStore implements JobStore {
 
     private final TitusRuntime titusRuntime;
     private final Session session;
-    private final ObjectMapper mapper;
+    private final JobRecordCodec codec;
     private final BalancedBucketManager<String> activeJobIdsBucketManager;
     private final CassandraStoreConfiguration configuration;
     private final Optional<FitInjection> fitDriverInjection;
@@ -164,7 +174,7 @@ public class CassandraJobStore implements JobStore {
             this.fitBadDataInjection = Optional.empty();
         }
 
-        this.mapper = mapper;
+        this.codec = new JobRecordCodec(mapper, JobRecordCodec.parseFormat(configuration.getJobRecordFormat()));
         this.activeJobIdsBucketManager = new BalancedBucketManager<>(initialBucketCount, maxBucketSize, METRIC_NAME_ROOT, titusRuntime.getRegistry());
 
         retrieveActiveJobIdBucketsStatement = session.prepare(RETRIEVE_ACTIVE_JOB_ID_BUCKETS_STRING);
@@ -249,7 +259,7 @@ public class CassandraJobStore implements JobStore {
 
                         Job<?> job;
                         try {
-                            job = ObjectMappers.readValue(mapper, effectiveValue, Job.class);
+                            job = codec.decode(effectiveValue, Job.class);
                         } catch (Exception e) {
                             logger.error("Cannot map serialized job data to Job class: {}", effectiveValue, e);
                             return Either.ofError(e);
@@ -297,7 +307,7 @@ public class CassandraJobStore implements JobStore {
                 throw JobStoreException.jobDoesNotExist(jobId);
             }
             String value = row.getString(0);
-            return (Job<?>) ObjectMappers.readValue(mapper, value, Job.class);
+            return (Job<?>) codec.decode(value, Job.class);
         }));
     }
 
@@ -306,10 +316,10 @@ public class CassandraJobStore implements JobStore {
         return Observable.fromCallable((Callable<Statement>) () -> {
             String jobId = job.getId();
             checkIfJobAlreadyExists(jobId);
-            String jobJsonString = ObjectMappers.writeValueAsString(mapper, job);
+            String jobRecord = codec.encode(job);
             int bucket = activeJobIdsBucketManager.getNextBucket();
             activeJobIdsBucketManager.addItem(bucket, jobId);
-            Statement jobStatement = insertActiveJobStatement.bind(jobId, jobJsonString);
+            Statement jobStatement = insertActiveJobStatement.bind(jobId, jobRecord);
             Statement jobIdStatement = insertActiveJobIdStatement.bind(bucket, jobId);
 
             BatchStatement batchStatement = new BatchStatement();
@@ -325,8 +335,8 @@ public class CassandraJobStore implements JobStore {
         return Observable.fromCallable((Callable<Statement>) () -> {
             String jobId = job.getId();
             checkIfJobIsActive(jobId);
-            String jobJsonString = ObjectMappers.writeValueAsString(mapper, job);
-            return insertActiveJobStatement.bind(jobId, jobJsonString);
+            String jobRecord = codec.encode(job);
+            return insertActiveJobStatement.bind(jobId, jobRecord);
         }).flatMap(this::execute).toCompletable();
     }
 
@@ -396,7 +406,7 @@ public class CassandraJobStore implements JobStore {
 
                     Task task;
                     try {
-                        task = ObjectMappers.readValue(mapper, effectiveValue, Task.class);
+                        task = codec.decode(effectiveValue, Task.class);
 
                         if (!fitBadDataInjection.isPresent()) {
                             tasks.add(Either.ofValue(task));
@@ -427,7 +437,7 @@ public class CassandraJobStore implements JobStore {
                     Row row = resultSet.one();
                     if (row != null) {
                         String value = row.getString(0);
-                        Task task = ObjectMappers.readValue(mapper, value, Task.class);
+                        Task task = codec.decode(value, Task.class);
                         return Observable.just(task);
                     } else {
                         return Observable.error(JobStoreException.taskDoesNotExist(taskId));
@@ -441,8 +451,8 @@ public class CassandraJobStore implements JobStore {
             String jobId = task.getJobId();
             String taskId = task.getId();
             checkIfJobIsActive(jobId);
-            String taskJsonString = ObjectMappers.writeValueAsString(mapper, task);
-            Statement taskStatement = insertActiveTaskStatement.bind(taskId, taskJsonString);
+            String taskRecord = codec.encode(task);
+            Statement taskStatement = insertActiveTaskStatement.bind(taskId, taskRecord);
             Statement taskIdStatement = insertActiveTaskIdStatement.bind(jobId, taskId);
 
             BatchStatement batchStatement = new BatchStatement();
@@ -459,22 +469,45 @@ public class CassandraJobStore implements JobStore {
             String jobId = task.getJobId();
             String taskId = task.getId();
             checkIfJobIsActive(jobId);
-            String taskJsonString = ObjectMappers.writeValueAsString(mapper, task);
-            return insertActiveTaskStatement.bind(taskId, taskJsonString);
+            String taskRecord = codec.encode(task);
+            return insertActiveTaskStatement.bind(taskId, taskRecord);
         }).flatMap(this::execute).toCompletable();
     }
 
+    /**
+     * Writes all records with unlogged batches. Statements are grouped by the set of replicas owning their partition
+     * keys, so each batch is handled by a single replica set, and the coordinator does not have to fan it out.
+     */
+    @Override
+    public Completable updateJobsAndTasks(List<Job<?>> jobs, List<Task> tasks) {
+        return Observable.fromCallable(() -> {
+            List<Statement> statements = new ArrayList<>(jobs.size() + tasks.size());
+            for (Job<?> job : jobs) {
+                checkIfJobIsActive(job.getId());
+                statements.add(insertActiveJobStatement.bind(job.getId(), codec.encode(job)));
+            }
+            for (Task task : tasks) {
+                checkIfJobIsActive(task.getJobId());
+                statements.add(insertActiveTaskStatement.bind(task.getId(), codec.encode(task)));
+            }
+            return toReplicaAlignedBatches(statements);
+        }).flatMap(batches -> Observable.merge(
+                batches.stream().map(this::execute).collect(Collectors.toList()),
+                getConcurrencyLimit()
+        )).toCompletable();
+    }
+
     @Override
     public Completable replaceTask(Task oldTask, Task newTask) {
         return Observable.fromCallable((Callable<Statement>) () -> {
             String jobId = newTask.getJobId();
             checkIfJobIsActive(jobId);
             String taskId = newTask.getId();
-            String taskJsonString = ObjectMappers.writeValueAsString(mapper, newTask);
+            String taskRecord = codec.encode(newTask);
 
             BatchStatement batchStatement = getArchiveTaskBatchStatement(oldTask);
 
-            Statement insertTaskStatement = insertActiveTaskStatement.bind(taskId, taskJsonString);
+            Statement insertTaskStatement = insertActiveTaskStatement.bind(taskId, taskRecord);
             Statement insertTaskIdStatement = insertActiveTaskIdStatement.bind(jobId, taskId);
 
             batchStatement.add(insertTaskStatement);
@@ -502,7 +535,7 @@ public class CassandraJobStore implements JobStore {
                         throw JobStoreException.jobDoesNotExist(jobId);
                     }
                     String value = row.getString(0);
-                    return (Job<?>) ObjectMappers.readValue(mapper, value, Job.class);
+                    return (Job<?>) codec.decode(value, Job.class);
                 }));
     }
 
@@ -514,7 +547,7 @@ public class CassandraJobStore implements JobStore {
                     List<Observable<ResultSet>> observables = taskIds.stream().map(retrieveArchivedTaskStatement::bind).map(this::execute).collect(Collectors.toList());
                     return Observable.merge(observables, getConcurrencyLimit()).flatMapIterable(tasksResultSet -> tasksResultSet.all().stream()
                             .map(row -> row.getString(0))
-                            .map(value -> ObjectMappers.readValue(mapper, value, Task.class))
+                            .map(value -> codec.decode(value, Task.class))
                             .collect(Collectors.toList()));
                 }));
     }
@@ -526,7 +559,7 @@ public class CassandraJobStore implements JobStore {
                     Row row = resultSet.one();
                     if (row != null) {
                         String value = row.getString(0);
-                        Task task = ObjectMappers.readValue(mapper, value, Task.class);
+                        Task task = codec.decode(value, Task.class);
                         return Observable.just(task);
                     } else {
                         return Observable.error(JobStoreException.taskDoesNotExist(taskId));
@@ -541,11 +574,11 @@ public class CassandraJobStore implements JobStore {
     private BatchStatement getArchiveJobBatchStatement(Job job) {
         String jobId = job.getId();
         int bucket = activeJobIdsBucketManager.getItemBucket(jobId);
-        String jobJsonString = ObjectMappers.writeValueAsString(mapper, job);
+        String jobRecord = codec.encode(job);
 
         Statement deleteJobStatement = deleteActiveJobStatement.bind(jobId);
         Statement deleteJobIdStatement = deleteActiveJobIdStatement.bind(bucket, jobId);
-        Statement insertJobStatement = insertArchivedJobStatement.bind(jobId, jobJsonString);
+        Statement insertJobStatement = insertArchivedJobStatement.bind(jobId, jobRecord);
 
         BatchStatement statement = new BatchStatement();
         statement.add(deleteJobStatement);
@@ -558,11 +591,11 @@ public class CassandraJobStore implements JobStore {
     private BatchStatement getArchiveTaskBatchStatement(Task task) {
         String jobId = task.getJobId();
         String taskId = task.getId();
-        String taskJsonString = ObjectMappers.writeValueAsString(mapper, task);
+        String taskRecord = codec.encode(task);
 
         Statement deleteTaskStatement = deleteActiveTaskStatement.bind(taskId);
         Statement deleteTaskIdStatement = deleteActiveTaskIdStatement.bind(jobId, taskId);
-        Statement insertTaskStatement = insertArchivedTaskStatement.bind(taskId, taskJsonString);
+        Statement insertTaskStatement = insertArchivedTaskStatement.bind(taskId, taskRecord);
         Statement insertTaskIdStatement = insertArchivedTaskIdStatement.bind(jobId, taskId);
 
         BatchStatement batchStatement = new BatchStatement();
@@ -574,6 +607,38 @@ public class CassandraJobStore implements JobStore {
         return batchStatement;
     }
 
+    private List<Statement> toReplicaAlignedBatches(List<Statement> statements) {
+        Configuration driverConfiguration = session.getCluster().getConfiguration();
+        ProtocolVersion protocolVersion = driverConfiguration.getProtocolOptions().getProtocolVersion();
+        CodecRegistry codecRegistry = driverConfiguration.getCodecRegistry();
+        Metadata metadata = session.getCluster().getMetadata();
+
+        Map<Set<Host>, List<Statement>> statementsByReplicas = new HashMap<>();
+        for (Statement statement : statements) {
+            String keyspace = statement.getKeyspace() != null ? statement.getKeyspace() : session.getLoggedKeyspace();
+            ByteBuffer routingKey = statement.getRoutingKey(protocolVersion, codecRegistry);
+            Set<Host> replicas = keyspace == null || routingKey == null
+                    ? Collections.emptySet()
+                    : metadata.getReplicas(keyspace, routingKey);
+            statementsByReplicas.computeIfAbsent(replicas, r -> new ArrayList<>()).add(statement);
+        }
+
+        List<Statement> batches = new ArrayList<>();
+        statementsByReplicas.values().forEach(group -> {
+            for (int from = 0; from < group.size(); from += MAX_UNLOGGED_BATCH_SIZE) {
+                List<Statement> chunk = group.subList(from, Math.min(group.size(), from + MAX_UNLOGGED_BATCH_SIZE));
+                if (chunk.size() == 1) {
+                    batches.add(chunk.get(0));
+                } else {
+                    BatchStatement batchStatement = new BatchStatement(BatchStatement.Type.UNLOGGED);
+                    batchStatement.addAll(chunk);
+                    batches.add(batchStatement);
+                }
+            }
+        });
+        return batches;
+    }
+
     private Observable<ResultSet> execute(Statement statement) {
         return Observable.<ResultSet>create(
                 emitter -> {
@@ -41,4 +41,28 @@ public interface CassandraStoreConfiguration {
      */
     @DefaultValue("10")
     int getConcurrencyLimit();
+
+    /**
+     * If enabled, job and task updates are coalesced within a short time window, and written in batches
+     * (see {@link CoalescingJobStore}).
+     */
+    @DefaultValue("false")
+    boolean isJobStoreWriteCoalescingEnabled();
+
+    @DefaultValue("10")
+    long getJobStoreWriteCoalescingWindowMs();
+
+    /**
+     * Maximum number of records written by the coalescing job store in a single batch update.
+     */
+    @DefaultValue("100")
+    int getJobStoreWriteCoalescingMaxBatchSize();
+
+    /**
+     * Format in which job and task records are written (one of 'json', 'smile', 'smileSnappy'). Records in any of
+     * these formats can be read back, so the writer format should be changed only after all readers are upgraded.
+     * See {@link JobRecordCodec}.
+     */
+    @DefaultValue("json")
+    String getJobRecordFormat();
 }
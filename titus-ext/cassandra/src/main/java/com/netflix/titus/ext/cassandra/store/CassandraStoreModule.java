@@ -16,6 +16,10 @@
 
 package com.netflix.titus.ext.cassandra.store;
 
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Provider;
+
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
@@ -25,13 +29,15 @@ import com.netflix.titus.api.appscale.store.AppScalePolicyStore;
 import com.netflix.titus.api.jobmanager.store.JobStore;
 import com.netflix.titus.api.loadbalancer.store.LoadBalancerStore;
 import com.netflix.titus.api.scheduler.store.SchedulerStore;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import rx.schedulers.Schedulers;
 
 public class CassandraStoreModule extends AbstractModule {
     @Override
     protected void configure() {
         bind(AgentStore.class).to(CassandraAgentStore.class);
         bind(AppScalePolicyStore.class).to(CassAppScalePolicyStore.class);
-        bind(JobStore.class).to(CassandraJobStore.class);
+        bind(JobStore.class).toProvider(JobStoreProvider.class);
         bind(LoadBalancerStore.class).to(CassandraLoadBalancerStore.class);
         bind(SchedulerStore.class).to(CassandraSchedulerStore.class);
     }
@@ -41,4 +47,38 @@ public class CassandraStoreModule extends AbstractModule {
     CassandraStoreConfiguration getCassandraStoreConfiguration(ConfigProxyFactory factory) {
         return factory.newProxy(CassandraStoreConfiguration.class);
     }
+
+    @Singleton
+    private static class JobStoreProvider implements Provider<JobStore> {
+
+        private final JobStore jobStore;
+
+        @Inject
+        public JobStoreProvider(CassandraStoreConfiguration configuration, CassandraJobStore cassandraJobStore, TitusRuntime titusRuntime) {
+            if (!configuration.isJobStoreWriteCoalescingEnabled()) {
+                this.jobStore = cassandraJobStore;
+            } else {
+                this.jobStore = new CoalescingJobStore(
+                        cassandraJobStore,
+                        configuration.getJobStoreWriteCoalescingWindowMs(),
+                        configuration.getJobStoreWriteCoalescingMaxBatchSize(),
+                        configuration.getConcurrencyLimit(),
+                        titusRuntime.getRegistry(),
+                        Schedulers.computation()
+                );
+            }
+        }
+
+        @PreDestroy
+        public void shutdown() {
+            if (jobStore instanceof CoalescingJobStore) {
+                ((CoalescingJobStore) jobStore).shutdown();
+            }
+        }
+
+        @Override
+        public JobStore get() {
+            return jobStore;
+        }
+    }
 }
@@ -0,0 +1,437 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.ext.cassandra.store;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.Timer;
+import com.netflix.spectator.api.patterns.PolledMeter;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.store.JobStore;
+import com.netflix.titus.common.util.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Completable;
+import rx.CompletableEmitter;
+import rx.Observable;
+import rx.Scheduler;
+import rx.subjects.AsyncSubject;
+
+/**
+ * {@link JobStore} decorator, which coalesces job and task updates. An update is kept in memory for a short time
+ * window, during which newer versions of the same job or task replace it. When the window expires, only the latest
+ * versions are written with {@link JobStore#updateJobsAndTasks(List, List)}, in batches of a bounded size, and with
+ * a bounded concurrency. The completable returned by an update operation completes when the version it carried, or
+ * a newer one, is persisted. If a batch update fails, its records are written again one by one, so each caller gets
+ * the outcome of its own update.
+ * <p>
+ * Other write operations (store, replace, delete) are not coalesced. They supersede pending updates of the entities
+ * they touch, and are executed only after in-flight updates of these entities complete, so a late update never
+ * overrides a newer state. The superseded updates complete with the outcome of the operation that replaced them.
+ * A job delete archives the task records of the job, so the pending updates of its tasks are written first.
+ */
+public class CoalescingJobStore implements JobStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(CoalescingJobStore.class);
+
+    private static final String METRIC_ROOT = "titusMaster.jobManager.coalescingJobStore.";
+
+    private final JobStore delegate;
+    private final long windowMs;
+    private final int maxBatchSize;
+    private final int concurrencyLimit;
+    private final Scheduler.Worker worker;
+
+    private final Object lock = new Object();
+    private final Map<String, PendingWrite> pendingWrites = new LinkedHashMap<>();
+    private final Map<String, PendingWrite> inFlightWrites = new LinkedHashMap<>();
+    private boolean flushScheduled;
+
+    private final Counter updateRequestsCounter;
+    private final Counter coalescedUpdatesCounter;
+    private final Counter writtenRecordsCounter;
+    private final Counter failedBatchesCounter;
+    private final Timer flushLatencyTimer;
+
+    public CoalescingJobStore(JobStore delegate,
+                              long windowMs,
+                              int maxBatchSize,
+                              int concurrencyLimit,
+                              Registry registry,
+                              Scheduler scheduler) {
+        Preconditions.checkArgument(windowMs >= 0, "Negative coalescing window: %s", windowMs);
+        Preconditions.checkArgument(maxBatchSize > 0, "Batch size must be greater than zero: %s", maxBatchSize);
+        Preconditions.checkArgument(concurrencyLimit > 0, "Concurrency limit must be greater than zero: %s", concurrencyLimit);
+
+        this.delegate = delegate;
+        this.windowMs = windowMs;
+        this.maxBatchSize = maxBatchSize;
+        this.concurrencyLimit = concurrencyLimit;
+        this.worker = scheduler.createWorker();
+
+        this.updateRequestsCounter = registry.counter(METRIC_ROOT + "updateRequests");
+        this.coalescedUpdatesCounter = registry.counter(METRIC_ROOT + "coalescedUpdates");
+        this.writtenRecordsCounter = registry.counter(METRIC_ROOT + "writtenRecords");
+        this.failedBatchesCounter = registry.counter(METRIC_ROOT + "failedBatches");
+        this.flushLatencyTimer = registry.timer(METRIC_ROOT + "flushLatency");
+
+        PolledMeter.using(registry)
+                .withName(METRIC_ROOT + "coalescedUpdatesRatio")
+                .monitorValue(this, self -> {
+                    long requests = self.updateRequestsCounter.count();
+                    return requests == 0 ? 0 : ((double) self.coalescedUpdatesCounter.count()) / requests;
+                });
+        PolledMeter.using(registry)
+                .withName(METRIC_ROOT + "pendingUpdates")
+                .monitorValue(this, CoalescingJobStore::getPendingUpdateCount);
+    }
+
+    public void shutdown() {
+        worker.unsubscribe();
+    }
+
+    @Override
+    public Completable init() {
+        return delegate.init();
+    }
+
+    @Override
+    public Observable<Pair<List<Job<?>>, Integer>> retrieveJobs() {
+        return delegate.retrieveJobs();
+    }
+
+    @Override
+    public Observable<Job<?>> retrieveJob(String jobId) {
+        return delegate.retrieveJob(jobId);
+    }
+
+    @Override
+    public Completable storeJob(Job job) {
+        return afterPendingWrites(write -> write.getId().equals(job.getId()), () -> delegate.storeJob(job));
+    }
+
+    @Override
+    public Completable updateJob(Job job) {
+        return enqueueUpdate(job.getId(), job.getId(), job, null);
+    }
+
+    @Override
+    public Completable deleteJob(Job job) {
+        return afterPendingWrites(
+                write -> write.getId().equals(job.getId()),
+                write -> write.getJobId().equals(job.getId()),
+                () -> delegate.deleteJob(job)
+        );
+    }
+
+    @Override
+    public Observable<Pair<List<Task>, Integer>> retrieveTasksForJob(String jobId) {
+        return delegate.retrieveTasksForJob(jobId);
+    }
+
+    @Override
+    public Observable<Task> retrieveTask(String taskId) {
+        return delegate.retrieveTask(taskId);
+    }
+
+    @Override
+    public Completable storeTask(Task task) {
+        return afterPendingWrites(write -> write.getId().equals(task.getId()), () -> delegate.storeTask(task));
+    }
+
+    @Override
+    public Completable updateTask(Task task) {
+        return enqueueUpdate(task.getId(), task.getJobId(), null, task);
+    }
+
+    @Override
+    public Completable replaceTask(Task oldTask, Task newTask) {
+        return afterPendingWrites(
+                write -> write.getId().equals(oldTask.getId()) || write.getId().equals(newTask.getId()),
+                () -> delegate.replaceTask(oldTask, newTask)
+        );
+    }
+
+    @Override
+    public Completable deleteTask(Task task) {
+        return afterPendingWrites(write -> write.getId().equals(task.getId()), () -> delegate.deleteTask(task));
+    }
+
+    @Override
+    public Observable<Job<?>> retrieveArchivedJob(String jobId) {
+        return delegate.retrieveArchivedJob(jobId);
+    }
+
+    @Override
+    public Observable<Task> retrieveArchivedTasksForJob(String jobId) {
+        return delegate.retrieveArchivedTasksForJob(jobId);
+    }
+
+    @Override
+    public Observable<Task> retrieveArchivedTask(String taskId) {
+        return delegate.retrieveArchivedTask(taskId);
+    }
+
+    private int getPendingUpdateCount() {
+        synchronized (lock) {
+            return pendingWrites.size();
+        }
+    }
+
+    private Completable enqueueUpdate(String id, String jobId, @Nullable Job<?> job, @Nullable Task task) {
+        return Completable.fromEmitter(emitter -> {
+            synchronized (lock) {
+                updateRequestsCounter.increment();
+                PendingWrite pending = pendingWrites.get(id);
+                if (pending == null) {
+                    pendingWrites.put(id, new PendingWrite(id, jobId, job, task, emitter));
+                } else {
+                    pending.replace(job, task, emitter);
+                    coalescedUpdatesCounter.increment();
+                }
+                scheduleFlushIfNeeded();
+            }
+        });
+    }
+
+    private Completable afterPendingWrites(Predicate<PendingWrite> superseded, Supplier<Completable> operation) {
+        return afterPendingWrites(superseded, write -> false, operation);
+    }
+
+    /**
+     * Runs a non-coalesced write operation once the in-flight updates of the affected entities complete. Pending
+     * updates superseded by the operation are dropped, and their callers are notified with the outcome of the
+     * operation. Updates that must be persisted before the operation are written first, and if any of them fails, the
+     * operation fails without being executed.
+     */
+    private Completable afterPendingWrites(Predicate<PendingWrite> superseded,
+                                           Predicate<PendingWrite> writtenFirst,
+                                           Supplier<Completable> operation) {
+        return Completable.defer(() -> {
+            List<PendingWrite> dropped = new ArrayList<>();
+            Set<AsyncSubject<Void>> awaited = new HashSet<>();
+            synchronized (lock) {
+                Iterator<PendingWrite> it = pendingWrites.values().iterator();
+                while (it.hasNext()) {
+                    PendingWrite write = it.next();
+                    if (superseded.test(write)) {
+                        it.remove();
+                        dropped.add(write);
+                    } else if (writtenFirst.test(write)) {
+                        awaited.add(write.getWritten());
+                    }
+                }
+                inFlightWrites.values().forEach(write -> {
+                    if (superseded.test(write)) {
+                        awaited.add(write.getBatchCompleted());
+                    } else if (writtenFirst.test(write)) {
+                        awaited.add(write.getWritten());
+                        awaited.add(write.getBatchCompleted());
+                    }
+                });
+            }
+
+            Completable writesCompleted = Completable.merge(
+                    awaited.stream().map(Observable::toCompletable).collect(Collectors.toList())
+            );
+            return writesCompleted
+                    .andThen(Completable.defer(operation::get))
+                    .doOnCompleted(() -> dropped.forEach(PendingWrite::complete))
+                    .doOnError(error -> dropped.forEach(write -> write.fail(error)));
+        });
+    }
+
+    private void scheduleFlushIfNeeded() {
+        if (!flushScheduled && !pendingWrites.isEmpty()) {
+            flushScheduled = true;
+            worker.schedule(this::flush, windowMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush() {
+        List<List<PendingWrite>> batches;
+        synchronized (lock) {
+            flushScheduled = false;
+
+            List<PendingWrite> writes = new ArrayList<>();
+            Iterator<PendingWrite> it = pendingWrites.values().iterator();
+            while (it.hasNext()) {
+                PendingWrite write = it.next();
+                // Updates of records that are still being written wait for the next flush.
+                if (!inFlightWrites.containsKey(write.getId())) {
+                    it.remove();
+                    writes.add(write);
+                }
+            }
+
+            batches = Lists.partition(writes, maxBatchSize);
+            batches.forEach(batch -> {
+                AsyncSubject<Void> batchCompleted = AsyncSubject.create();
+                batch.forEach(write -> {
+                    write.markInFlight(batchCompleted);
+                    inFlightWrites.put(write.getId(), write);
+                });
+            });
+        }
+
+        if (batches.isEmpty()) {
+            return;
+        }
+        Observable.from(batches)
+                .flatMap(batch -> writeBatch(batch).toObservable(), concurrencyLimit)
+                .subscribe(
+                        next -> {
+                        },
+                        e -> logger.error("Unexpected error in the job store update flush", e)
+                );
+    }
+
+    private Completable writeBatch(List<PendingWrite> batch) {
+        return Completable.defer(() -> {
+            long startTime = worker.now();
+
+            List<Job<?>> jobs = new ArrayList<>();
+            List<Task> tasks = new ArrayList<>();
+            batch.forEach(write -> {
+                if (write.getJob() != null) {
+                    jobs.add(write.getJob());
+                } else {
+                    tasks.add(write.getTask());
+                }
+            });
+
+            return Completable.defer(() -> delegate.updateJobsAndTasks(jobs, tasks))
+                    .doOnCompleted(() -> {
+                        writtenRecordsCounter.increment(batch.size());
+                        batch.forEach(PendingWrite::complete);
+                    })
+                    .onErrorResumeNext(error -> {
+                        failedBatchesCounter.increment();
+                        logger.warn("Batch update of {} records failed. Retrying them one by one: {}", batch.size(), error.getMessage());
+                        return Completable.merge(batch.stream().map(this::writeOne).collect(Collectors.toList()));
+                    })
+                    .doAfterTerminate(() -> {
+                        flushLatencyTimer.record(worker.now() - startTime, TimeUnit.MILLISECONDS);
+                        releaseInFlight(batch);
+                    });
+        });
+    }
+
+    private Completable writeOne(PendingWrite write) {
+        Completable update = write.getJob() != null ? delegate.updateJob(write.getJob()) : delegate.updateTask(write.getTask());
+        return update
+                .doOnCompleted(() -> {
+                    writtenRecordsCounter.increment();
+                    write.complete();
+                })
+                .doOnError(write::fail)
+                .onErrorComplete();
+    }
+
+    private void releaseInFlight(List<PendingWrite> batch) {
+        synchronized (lock) {
+            batch.forEach(write -> inFlightWrites.remove(write.getId()));
+            scheduleFlushIfNeeded();
+        }
+        batch.get(0).getBatchCompleted().onCompleted();
+    }
+
+    private static class PendingWrite {
+
+        private final String id;
+        private final String jobId;
+        private final List<CompletableEmitter> waiters = new ArrayList<>();
+        private final AsyncSubject<Void> written = AsyncSubject.create();
+
+        private Job<?> job;
+        private Task task;
+        private AsyncSubject<Void> batchCompleted;
+
+        private PendingWrite(String id, String jobId, @Nullable Job<?> job, @Nullable Task task, CompletableEmitter waiter) {
+            this.id = id;
+            this.jobId = jobId;
+            this.job = job;
+            this.task = task;
+            this.waiters.add(waiter);
+        }
+
+        private String getId() {
+            return id;
+        }
+
+        private String getJobId() {
+            return jobId;
+        }
+
+        @Nullable
+        private Job<?> getJob() {
+            return job;
+        }
+
+        @Nullable
+        private Task getTask() {
+            return task;
+        }
+
+        private AsyncSubject<Void> getBatchCompleted() {
+            return batchCompleted;
+        }
+
+        /**
+         * Completes when the latest version of this record is persisted, or fails with the write error.
+         */
+        private AsyncSubject<Void> getWritten() {
+            return written;
+        }
+
+        private void replace(@Nullable Job<?> newJob, @Nullable Task newTask, CompletableEmitter waiter) {
+            this.job = newJob;
+            this.task = newTask;
+            this.waiters.add(waiter);
+        }
+
+        private void markInFlight(AsyncSubject<Void> batchCompleted) {
+            this.batchCompleted = batchCompleted;
+        }
+
+        private void complete() {
+            waiters.forEach(CompletableEmitter::onCompleted);
+            written.onCompleted();
+        }
+
+        private void fail(Throwable error) {
+            waiters.forEach(waiter -> waiter.onError(error));
+            written.onError(error);
+        }
+    }
+}
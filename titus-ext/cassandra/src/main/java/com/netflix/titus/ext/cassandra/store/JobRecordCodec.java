@@ -0,0 +1,115 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.ext.cassandra.store;
+
+import java.io.IOException;
+import java.util.Base64;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.netflix.titus.api.json.ObjectMappers;
+import org.xerial.snappy.Snappy;
+import rx.exceptions.Exceptions;
+
+/**
+ * Serializes job and task records kept in Cassandra. A record is written either as plain JSON (the legacy format), or
+ * in a compact binary form: Smile encoded, optionally Snappy compressed, and Base64 encoded, as the value columns are
+ * of the text type. Binary records start with a format header, which never appears at the beginning of a JSON
+ * document, so records in any format can be read irrespective of the format used for writing.
+ */
+public class JobRecordCodec {
+
+    public enum Format {
+        Json(""),
+        Smile("#S1:"),
+        SmileSnappy("#Z1:");
+
+        private final String header;
+
+        Format(String header) {
+            this.header = header;
+        }
+
+        public String getHeader() {
+            return header;
+        }
+    }
+
+    private static final ObjectMapper SMILE_MAPPER = ObjectMappers.storeMapper(new SmileFactory());
+
+    private final ObjectMapper jsonMapper;
+    private final Format writeFormat;
+
+    public JobRecordCodec(ObjectMapper jsonMapper, Format writeFormat) {
+        this.jsonMapper = jsonMapper;
+        this.writeFormat = writeFormat;
+    }
+
+    public Format getWriteFormat() {
+        return writeFormat;
+    }
+
+    public String encode(Object value) {
+        if (writeFormat == Format.Json) {
+            return ObjectMappers.writeValueAsString(jsonMapper, value);
+        }
+        try {
+            byte[] bytes = SMILE_MAPPER.writeValueAsBytes(value);
+            if (writeFormat == Format.SmileSnappy) {
+                bytes = Snappy.compress(bytes);
+            }
+            return writeFormat.getHeader() + Base64.getEncoder().encodeToString(bytes);
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    public <T> T decode(String record, Class<T> type) {
+        Format format = formatOf(record);
+        if (format == Format.Json) {
+            return ObjectMappers.readValue(jsonMapper, record, type);
+        }
+        try {
+            byte[] bytes = Base64.getDecoder().decode(record.substring(format.getHeader().length()));
+            if (format == Format.SmileSnappy) {
+                bytes = Snappy.uncompress(bytes);
+            }
+            return SMILE_MAPPER.readValue(bytes, type);
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    public static Format formatOf(String record) {
+        if (record.startsWith(Format.SmileSnappy.getHeader())) {
+            return Format.SmileSnappy;
+        }
+        if (record.startsWith(Format.Smile.getHeader())) {
+            return Format.Smile;
+        }
+        return Format.Json;
+    }
+
+    public static Format parseFormat(String name) {
+        for (Format format : Format.values()) {
+            if (format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown job record format: " + name);
+    }
+}
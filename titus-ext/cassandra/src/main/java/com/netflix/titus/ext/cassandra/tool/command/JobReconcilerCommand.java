@@ -14,6 +14,7 @@ import com.netflix.titus.api.jobmanager.model.job.Task;
 import com.netflix.titus.api.json.ObjectMappers;
 import com.netflix.titus.common.util.CollectionsExt;
 import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.ext.cassandra.store.JobRecordCodec;
 import com.netflix.titus.ext.cassandra.tool.CassandraUtils;
 import com.netflix.titus.ext.cassandra.tool.Command;
 import com.netflix.titus.ext.cassandra.tool.CommandContext;
@@ -26,6 +27,11 @@ import static com.netflix.titus.ext.cassandra.tool.CassandraSchemas.ACTIVE_TASK_
 
 public class JobReconcilerCommand implements Command {
 
+    /**
+     * Records are decoded in whichever format they were written, so the write format of this codec is not relevant.
+     */
+    private static final JobRecordCodec CODEC = new JobRecordCodec(ObjectMappers.storeMapper(), JobRecordCodec.Format.Json);
+
     @Override
     public String getDescription() {
         return "Report inconsistencies between V3 job/task tables";
@@ -49,6 +55,14 @@ public class JobReconcilerCommand implements Command {
         reconciler.printReport();
     }
 
+    static Job<?> decodeJob(String record) {
+        return CODEC.decode(record, Job.class);
+    }
+
+    static Task decodeTask(String record) {
+        return CODEC.decode(record, Task.class);
+    }
+
     private class Reconciler {
 
         private final CommandContext context;
@@ -114,7 +128,7 @@ public class JobReconcilerCommand implements Command {
                         String jobId = (String) pair.getLeft();
                         String value = (String) pair.getRight();
                         try {
-                            return (Job<?>) ObjectMappers.storeMapper().readValue(value, Job.class);
+                            return decodeJob(value);
                         } catch (Exception e) {
                             recordViolation("badJobRecord", String.format("Job %s cannot be mapped to Job object: %s", jobId, e.getMessage()), 1);
                             return null;
@@ -153,7 +167,7 @@ public class JobReconcilerCommand implements Command {
                         String taskId = (String) pair.getLeft();
                         String value = (String) pair.getRight();
                         try {
-                            return ObjectMappers.storeMapper().readValue(value, Task.class);
+                            return decodeTask(value);
                         } catch (Exception e) {
                             recordViolation("badTaskRecord", String.format("Task %s cannot be mapped to Task object: %s", taskId, e.getMessage()), 1);
                             return null;
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.ext.cassandra.tool.command;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.json.ObjectMappers;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.ext.cassandra.store.JobRecordCodec;
+import com.netflix.titus.ext.cassandra.tool.CassandraSchemas;
+import com.netflix.titus.ext.cassandra.tool.CassandraUtils;
+import com.netflix.titus.ext.cassandra.tool.Command;
+import com.netflix.titus.ext.cassandra.tool.CommandContext;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Observable;
+
+/**
+ * Rewrites job and task records in the requested format (see {@link JobRecordCodec}), and reports the record size
+ * and decode time before and after the migration. Records are read and written back without any coordination with
+ * the job store, so the command must be run when no Titus master is active.
+ */
+public class JobRecordFormatMigrateCommand implements Command {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobRecordFormatMigrateCommand.class);
+
+    @Override
+    public String getDescription() {
+        return "Rewrite job and task records in the given format (json, smile, smileSnappy). Run it with Titus master stopped";
+    }
+
+    @Override
+    public CommandType getCommandType() {
+        return CommandType.TargetKeySpace;
+    }
+
+    @Override
+    public Options getOptions() {
+        Options options = new Options();
+        options.addOption(Option.builder("f").longOpt("format").desc("Target record format").hasArg().required().build());
+        options.addOption(Option.builder("a").longOpt("archive").desc("Migrate archive tables").build());
+        return options;
+    }
+
+    @Override
+    public void execute(CommandContext context) {
+        JobRecordCodec codec = new JobRecordCodec(
+                ObjectMappers.storeMapper(),
+                JobRecordCodec.parseFormat(context.getCommandLine().getOptionValue('f'))
+        );
+        boolean includeArchive = context.getCommandLine().hasOption('a');
+
+        Map<String, Class<?>> tables = new LinkedHashMap<>();
+        tables.put(CassandraSchemas.ACTIVE_JOBS_TABLE, Job.class);
+        tables.put(CassandraSchemas.ACTIVE_TASKS_TABLE, Task.class);
+        if (includeArchive) {
+            tables.put(CassandraSchemas.ARCHIVED_JOBS_TABLE, Job.class);
+            tables.put(CassandraSchemas.ARCHIVED_TASKS_TABLE, Task.class);
+        }
+        tables.forEach((table, type) -> migrateTable(context, table, type, codec));
+    }
+
+    private void migrateTable(CommandContext context, String table, Class<?> type, JobRecordCodec codec) {
+        MigrationStatistics statistics = new MigrationStatistics();
+
+        Observable<Pair<Object, Object>> migrated = CassandraUtils.readTwoColumnTable(context.getTargetSession(), table)
+                .flatMap(pair -> {
+                    String record = (String) pair.getRight();
+                    if (JobRecordCodec.formatOf(record) == codec.getWriteFormat()) {
+                        statistics.skipped++;
+                        return Observable.empty();
+                    }
+
+                    long startTime = System.nanoTime();
+                    Object value = codec.decode(record, type);
+                    long oldDecodeTime = System.nanoTime() - startTime;
+
+                    String newRecord = codec.encode(value);
+
+                    startTime = System.nanoTime();
+                    codec.decode(newRecord, type);
+                    long newDecodeTime = System.nanoTime() - startTime;
+
+                    statistics.add(record.length(), newRecord.length(), oldDecodeTime, newDecodeTime);
+                    return Observable.just(Pair.<Object, Object>of(pair.getLeft(), newRecord));
+                });
+
+        long recordCount = CassandraUtils.writeIntoTwoColumnTable(context.getTargetSession(), table, migrated);
+        logger.info("Migrated {} records in table {}.{} to format {} ({} records were already in this format)",
+                recordCount, context.getTargetKeySpace(), table, codec.getWriteFormat(), statistics.skipped
+        );
+        statistics.report(table);
+    }
+
+    private static class MigrationStatistics {
+
+        private long migrated;
+        private long skipped;
+        private long oldSize;
+        private long newSize;
+        private long oldDecodeTimeNs;
+        private long newDecodeTimeNs;
+
+        private void add(int oldRecordSize, int newRecordSize, long oldDecodeTime, long newDecodeTime) {
+            migrated++;
+            oldSize += oldRecordSize;
+            newSize += newRecordSize;
+            oldDecodeTimeNs += oldDecodeTime;
+            newDecodeTimeNs += newDecodeTime;
+        }
+
+        private void report(String table) {
+            if (migrated == 0) {
+                return;
+            }
+            logger.info("Table {}: total record size {} -> {} bytes ({}%), average record size {} -> {} bytes, average decode time {} -> {} us",
+                    table,
+                    oldSize, newSize, newSize * 100 / oldSize,
+                    oldSize / migrated, newSize / migrated,
+                    oldDecodeTimeNs / migrated / 1_000, newDecodeTimeNs / migrated / 1_000
+            );
+        }
+    }
+}
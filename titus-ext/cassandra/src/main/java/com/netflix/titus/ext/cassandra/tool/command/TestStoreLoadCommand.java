@@ -68,6 +68,26 @@ public class TestStoreLoadCommand implements Command {
         public int getConcurrencyLimit() {
             return MAX_RETRIEVE_TASK_CONCURRENCY;
         }
+
+        @Override
+        public boolean isJobStoreWriteCoalescingEnabled() {
+            return false;
+        }
+
+        @Override
+        public long getJobStoreWriteCoalescingWindowMs() {
+            return 10;
+        }
+
+        @Override
+        public int getJobStoreWriteCoalescingMaxBatchSize() {
+            return 100;
+        }
+
+        @Override
+        public String getJobRecordFormat() {
+            return "json";
+        }
     };
 
     @Override
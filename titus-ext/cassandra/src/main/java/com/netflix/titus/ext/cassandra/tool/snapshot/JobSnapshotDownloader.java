@@ -29,10 +29,11 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.google.common.base.Preconditions;
+import com.netflix.titus.api.json.ObjectMappers;
 import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.ext.cassandra.store.JobRecordCodec;
 import com.netflix.titus.ext.cassandra.tool.CassandraSchemas;
 import com.netflix.titus.ext.cassandra.tool.CassandraUtils;
-import rx.Observable;
 
 /**
  * Downloads jobs active data from Cassandra database into set of files. A snapshot can be loaded back into
@@ -47,6 +48,11 @@ public class JobSnapshotDownloader {
         MAPPER.enable(SerializationFeature.INDENT_OUTPUT);
     }
 
+    /**
+     * Records are decoded in whichever format they were written, and saved in the snapshot as JSON.
+     */
+    private static final JobRecordCodec CODEC = new JobRecordCodec(ObjectMappers.storeMapper(), JobRecordCodec.Format.Json);
+
     private final Session session;
     private final boolean includeArchived;
     private final File outputFolder;
@@ -78,13 +84,7 @@ public class JobSnapshotDownloader {
         File output = new File(outputFolder, table + ".json");
 
         List<JsonNode> allItems = CassandraUtils.readTwoColumnTable(session, table)
-                .flatMap(p -> {
-                    try {
-                        return Observable.just(MAPPER.readTree((String) p.getRight()));
-                    } catch (IOException e) {
-                        return Observable.error(e);
-                    }
-                })
+                .map(p -> decodeRecord((String) p.getRight()))
                 .toList()
                 .toBlocking().first();
 
@@ -96,6 +96,10 @@ public class JobSnapshotDownloader {
         }
     }
 
+    static JsonNode decodeRecord(String record) {
+        return CODEC.decode(record, JsonNode.class);
+    }
+
     /**
      * A table holding buckets, where a key is bucket id of type int, and the value is a string.
      */
@@ -92,6 +92,26 @@ public class CassandraJobStoreTest {
         public int getConcurrencyLimit() {
             return 10;
         }
+
+        @Override
+        public boolean isJobStoreWriteCoalescingEnabled() {
+            return false;
+        }
+
+        @Override
+        public long getJobStoreWriteCoalescingWindowMs() {
+            return 10;
+        }
+
+        @Override
+        public int getJobStoreWriteCoalescingMaxBatchSize() {
+            return 100;
+        }
+
+        @Override
+        public String getJobRecordFormat() {
+            return "json";
+        }
     };
 
     @Test
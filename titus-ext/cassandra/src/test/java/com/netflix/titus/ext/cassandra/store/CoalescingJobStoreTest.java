@@ -0,0 +1,209 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.ext.cassandra.store;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.titus.api.jobmanager.model.job.BatchJobTask;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.runtime.store.v3.memory.InMemoryJobStore;
+import org.junit.Test;
+import rx.Completable;
+import rx.observers.AssertableSubscriber;
+import rx.schedulers.Schedulers;
+import rx.schedulers.TestScheduler;
+
+import static com.netflix.titus.testkit.model.job.JobDescriptorGenerator.batchJobDescriptors;
+import static com.netflix.titus.testkit.model.job.JobGenerator.batchJobs;
+import static com.netflix.titus.testkit.model.job.JobGenerator.batchTasks;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CoalescingJobStoreTest {
+
+    private static final long WINDOW_MS = 10;
+    private static final int MAX_BATCH_SIZE = 2;
+
+    private final TestScheduler testScheduler = Schedulers.test();
+
+    private final RecordingJobStore delegate = new RecordingJobStore();
+
+    private final CoalescingJobStore store = new CoalescingJobStore(delegate, WINDOW_MS, MAX_BATCH_SIZE, 1, new DefaultRegistry(), testScheduler);
+
+    private final Job<BatchJobExt> job = batchJobs(batchJobDescriptors().getValue()).getValue();
+
+    @Test
+    public void testUpdatesOfTheSameTaskAreCoalesced() {
+        BatchJobTask task = batchTasks(job).getValue();
+        Task version1 = withVersion(task, "1");
+        Task version2 = withVersion(task, "2");
+
+        AssertableSubscriber<Void> subscriber1 = store.updateTask(version1).test();
+        AssertableSubscriber<Void> subscriber2 = store.updateTask(version2).test();
+        subscriber1.assertNotCompleted();
+        subscriber2.assertNotCompleted();
+
+        testScheduler.advanceTimeBy(WINDOW_MS, TimeUnit.MILLISECONDS);
+
+        subscriber1.assertCompleted();
+        subscriber2.assertCompleted();
+        assertThat(delegate.batches).hasSize(1);
+        assertThat(delegate.batches.get(0)).containsExactly(version2);
+        assertThat(delegate.retrieveTask(task.getId()).toBlocking().first()).isEqualTo(version2);
+    }
+
+    @Test
+    public void testUpdatesAreWrittenInBatches() {
+        List<BatchJobTask> tasks = batchTasks(job).toList(5);
+
+        List<AssertableSubscriber<Void>> subscribers = new ArrayList<>();
+        tasks.forEach(task -> subscribers.add(store.updateTask(task).test()));
+        AssertableSubscriber<Void> jobSubscriber = store.updateJob(job).test();
+
+        testScheduler.advanceTimeBy(WINDOW_MS, TimeUnit.MILLISECONDS);
+
+        subscribers.forEach(AssertableSubscriber::assertCompleted);
+        jobSubscriber.assertCompleted();
+        assertThat(delegate.batches).hasSize(3);
+        delegate.batches.forEach(batch -> assertThat(batch.size()).isLessThanOrEqualTo(MAX_BATCH_SIZE));
+    }
+
+    @Test
+    public void testFailedBatchIsWrittenRecordByRecord() {
+        List<BatchJobTask> tasks = batchTasks(job).toList(2);
+        delegate.failingTaskId = tasks.get(0).getId();
+
+        AssertableSubscriber<Void> failingSubscriber = store.updateTask(tasks.get(0)).test();
+        AssertableSubscriber<Void> okSubscriber = store.updateTask(tasks.get(1)).test();
+
+        testScheduler.advanceTimeBy(WINDOW_MS, TimeUnit.MILLISECONDS);
+
+        failingSubscriber.assertError(IllegalStateException.class);
+        okSubscriber.assertCompleted();
+        assertThat(delegate.retrieveTask(tasks.get(1).getId()).toBlocking().first()).isEqualTo(tasks.get(1));
+    }
+
+    @Test
+    public void testDeleteSupersedesPendingUpdate() {
+        BatchJobTask task = batchTasks(job).getValue();
+        delegate.storeTask(task).await();
+
+        AssertableSubscriber<Void> updateSubscriber = store.updateTask(withVersion(task, "1")).test();
+        AssertableSubscriber<Void> deleteSubscriber = store.deleteTask(task).test();
+
+        deleteSubscriber.assertCompleted();
+        updateSubscriber.assertCompleted();
+
+        testScheduler.advanceTimeBy(WINDOW_MS, TimeUnit.MILLISECONDS);
+
+        assertThat(delegate.batches).isEmpty();
+        assertThat(delegate.retrieveTasksForJob(job.getId()).toBlocking().first().getLeft()).isEmpty();
+        assertThat(delegate.retrieveArchivedTask(task.getId()).toBlocking().first()).isEqualTo(task);
+    }
+
+    @Test
+    public void testSupersededUpdateFailsWhenSupersedingOperationFails() {
+        BatchJobTask task = batchTasks(job).getValue();
+        delegate.storeTask(task).await();
+        delegate.failingTaskId = task.getId();
+
+        AssertableSubscriber<Void> updateSubscriber = store.updateTask(withVersion(task, "1")).test();
+        AssertableSubscriber<Void> deleteSubscriber = store.deleteTask(task).test();
+
+        deleteSubscriber.assertError(IllegalStateException.class);
+        updateSubscriber.assertError(IllegalStateException.class);
+    }
+
+    @Test
+    public void testDeleteJobWritesPendingTaskUpdatesFirst() {
+        BatchJobTask task = batchTasks(job).getValue();
+        delegate.storeJob(job).await();
+        delegate.storeTask(task).await();
+        Task version1 = withVersion(task, "1");
+
+        AssertableSubscriber<Void> updateSubscriber = store.updateTask(version1).test();
+        AssertableSubscriber<Void> deleteSubscriber = store.deleteJob(job).test();
+        deleteSubscriber.assertNotCompleted();
+
+        testScheduler.advanceTimeBy(WINDOW_MS, TimeUnit.MILLISECONDS);
+
+        updateSubscriber.assertCompleted();
+        deleteSubscriber.assertCompleted();
+        assertThat(delegate.retrieveArchivedTask(task.getId()).toBlocking().first()).isEqualTo(version1);
+    }
+
+    @Test
+    public void testDeleteJobFailsIfPendingTaskUpdateFails() {
+        BatchJobTask task = batchTasks(job).getValue();
+        delegate.storeJob(job).await();
+        delegate.storeTask(task).await();
+        delegate.failingTaskId = task.getId();
+
+        AssertableSubscriber<Void> updateSubscriber = store.updateTask(withVersion(task, "1")).test();
+        AssertableSubscriber<Void> deleteSubscriber = store.deleteJob(job).test();
+
+        testScheduler.advanceTimeBy(WINDOW_MS, TimeUnit.MILLISECONDS);
+
+        updateSubscriber.assertError(IllegalStateException.class);
+        deleteSubscriber.assertError(IllegalStateException.class);
+        assertThat(delegate.retrieveTasksForJob(job.getId()).toBlocking().first().getLeft()).containsExactly(task);
+    }
+
+    private static Task withVersion(BatchJobTask task, String version) {
+        return task.toBuilder().withTaskContext(Collections.singletonMap("version", version)).build();
+    }
+
+    private static class RecordingJobStore extends InMemoryJobStore {
+
+        private final List<List<Object>> batches = new ArrayList<>();
+        private volatile String failingTaskId;
+
+        @Override
+        public Completable updateJobsAndTasks(List<Job<?>> jobs, List<Task> tasks) {
+            return Completable.defer(() -> {
+                List<Object> batch = new ArrayList<>(jobs);
+                batch.addAll(tasks);
+                batches.add(batch);
+                if (tasks.stream().anyMatch(task -> task.getId().equals(failingTaskId))) {
+                    return Completable.error(new IllegalStateException("Simulated batch update error"));
+                }
+                return super.updateJobsAndTasks(jobs, tasks);
+            });
+        }
+
+        @Override
+        public Completable updateTask(Task task) {
+            if (task.getId().equals(failingTaskId)) {
+                return Completable.error(new IllegalStateException("Simulated task update error"));
+            }
+            return super.updateTask(task);
+        }
+
+        @Override
+        public Completable deleteTask(Task task) {
+            if (task.getId().equals(failingTaskId)) {
+                return Completable.error(new IllegalStateException("Simulated task delete error"));
+            }
+            return super.deleteTask(task);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.ext.cassandra.store;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.netflix.titus.api.jobmanager.model.job.BatchJobTask;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.TaskStatus;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.api.json.ObjectMappers;
+import com.netflix.titus.ext.cassandra.store.JobRecordCodec.Format;
+import org.junit.Test;
+
+import static com.netflix.titus.testkit.model.job.JobDescriptorGenerator.batchJobDescriptors;
+import static com.netflix.titus.testkit.model.job.JobGenerator.batchJobs;
+import static com.netflix.titus.testkit.model.job.JobGenerator.batchTasks;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JobRecordCodecTest {
+
+    private final Job<BatchJobExt> job = batchJobs(batchJobDescriptors().getValue()).getValue();
+
+    private final Task task = withLongStatusHistory(batchTasks(job).getValue());
+
+    @Test
+    public void testEncodeDecodeInAllFormats() {
+        for (Format format : Format.values()) {
+            JobRecordCodec codec = new JobRecordCodec(ObjectMappers.storeMapper(), format);
+
+            String jobRecord = codec.encode(job);
+            assertThat(JobRecordCodec.formatOf(jobRecord)).isEqualTo(format);
+            assertThat(codec.decode(jobRecord, Job.class)).isEqualTo(job);
+
+            String taskRecord = codec.encode(task);
+            assertThat(JobRecordCodec.formatOf(taskRecord)).isEqualTo(format);
+            assertThat(codec.decode(taskRecord, Task.class)).isEqualTo(task);
+        }
+    }
+
+    @Test
+    public void testRecordsInAnyFormatCanBeRead() {
+        JobRecordCodec jsonCodec = new JobRecordCodec(ObjectMappers.storeMapper(), Format.Json);
+        JobRecordCodec smileCodec = new JobRecordCodec(ObjectMappers.storeMapper(), Format.Smile);
+        JobRecordCodec snappyCodec = new JobRecordCodec(ObjectMappers.storeMapper(), Format.SmileSnappy);
+
+        // Legacy records are written with the plain store mapper.
+        String legacyRecord = ObjectMappers.writeValueAsString(ObjectMappers.storeMapper(), task);
+        assertThat(snappyCodec.decode(legacyRecord, Task.class)).isEqualTo(task);
+
+        assertThat(jsonCodec.decode(snappyCodec.encode(task), Task.class)).isEqualTo(task);
+        assertThat(snappyCodec.decode(smileCodec.encode(task), Task.class)).isEqualTo(task);
+    }
+
+    @Test
+    public void testCompressedRecordIsSmallerThanJson() {
+        String jsonRecord = new JobRecordCodec(ObjectMappers.storeMapper(), Format.Json).encode(task);
+        String snappyRecord = new JobRecordCodec(ObjectMappers.storeMapper(), Format.SmileSnappy).encode(task);
+        assertThat(snappyRecord.length()).isLessThan(jsonRecord.length());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownFormat() {
+        JobRecordCodec.parseFormat("xml");
+    }
+
+    private static Task withLongStatusHistory(BatchJobTask task) {
+        List<TaskStatus> statusHistory = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            statusHistory.add(TaskStatus.newBuilder()
+                    .withState(TaskState.Started)
+                    .withReasonCode(TaskStatus.REASON_NORMAL)
+                    .withReasonMessage("Status update #" + i)
+                    .withTimestamp(1_000L * i)
+                    .build()
+            );
+        }
+        return task.toBuilder().withStatusHistory(statusHistory).build();
+    }
+}
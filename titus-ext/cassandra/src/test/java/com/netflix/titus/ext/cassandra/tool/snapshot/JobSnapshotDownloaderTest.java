@@ -0,0 +1,51 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.ext.cassandra.tool.snapshot;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.api.json.ObjectMappers;
+import com.netflix.titus.ext.cassandra.store.JobRecordCodec;
+import com.netflix.titus.ext.cassandra.store.JobRecordCodec.Format;
+import org.junit.Test;
+
+import static com.netflix.titus.testkit.model.job.JobDescriptorGenerator.batchJobDescriptors;
+import static com.netflix.titus.testkit.model.job.JobGenerator.batchJobs;
+import static com.netflix.titus.testkit.model.job.JobGenerator.batchTasks;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JobSnapshotDownloaderTest {
+
+    private final Job<BatchJobExt> job = batchJobs(batchJobDescriptors().getValue()).getValue();
+
+    private final Task task = batchTasks(job).getValue();
+
+    @Test
+    public void testRecordsInAllFormatsAreDownloadedAsJson() throws Exception {
+        for (Format format : Format.values()) {
+            JobRecordCodec codec = new JobRecordCodec(ObjectMappers.storeMapper(), format);
+
+            JsonNode taskNode = JobSnapshotDownloader.decodeRecord(codec.encode(task));
+            assertThat(ObjectMappers.storeMapper().treeToValue(taskNode, Task.class)).isEqualTo(task);
+
+            JsonNode jobNode = JobSnapshotDownloader.decodeRecord(codec.encode(job));
+            assertThat(ObjectMappers.storeMapper().treeToValue(jobNode, Job.class)).isEqualTo(job);
+        }
+    }
+}
@@ -22,6 +22,7 @@ import java.util.Optional;
 import java.util.concurrent.CountDownLatch;
 import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -57,6 +58,7 @@ import com.netflix.titus.grpc.protogen.TaskQuery;
 import com.netflix.titus.grpc.protogen.TaskQueryResult;
 import com.netflix.titus.runtime.jobmanager.JobManagerCursors;
 import com.netflix.titus.runtime.service.JobManagementService;
+import io.grpc.Status;
 import io.grpc.stub.StreamObserver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -69,8 +71,7 @@ import static com.netflix.titus.api.jobmanager.TaskAttributes.TASK_ATTRIBUTES_ST
 import static com.netflix.titus.runtime.endpoint.common.grpc.GrpcUtil.createRequestObservable;
 import static com.netflix.titus.runtime.endpoint.common.grpc.GrpcUtil.createWrappedStub;
 import static com.netflix.titus.federation.service.CellConnectorUtil.callToCell;
-import static com.netflix.titus.federation.service.PageAggregationUtil.combinePagination;
-import static com.netflix.titus.federation.service.PageAggregationUtil.takeCombinedPage;
+import static com.netflix.titus.federation.service.PageAggregationUtil.takeMergedPage;
 import static com.netflix.titus.runtime.endpoint.common.grpc.CommonGrpcModelConverters.emptyGrpcPagination;
 
 @Singleton
@@ -83,6 +84,7 @@ public class AggregatingJobManagementService implements JobManagementService {
     private AggregatingJobManagementServiceHelper jobManagementServiceHelper;
     private final CellRouter router;
     private final CallMetadataResolver callMetadataResolver;
+    private final CellLocationCache locationCache;
 
     @Inject
     public AggregatingJobManagementService(GrpcConfiguration grpcConfiguration,
@@ -91,7 +93,8 @@ public class AggregatingJobManagementService implements JobManagementService {
                                            CellRouter router,
                                            CallMetadataResolver callMetadataResolver,
                                            AggregatingCellClient aggregatingClient,
-                                           AggregatingJobManagementServiceHelper jobManagementServiceHelper) {
+                                           AggregatingJobManagementServiceHelper jobManagementServiceHelper,
+                                           CellLocationCache locationCache) {
 
         this.grpcConfiguration = grpcConfiguration;
         this.federationConfiguration = federationConfiguration;
@@ -100,6 +103,7 @@ public class AggregatingJobManagementService implements JobManagementService {
         this.callMetadataResolver = callMetadataResolver;
         this.aggregatingClient = aggregatingClient;
         this.jobManagementServiceHelper = jobManagementServiceHelper;
+        this.locationCache = locationCache;
     }
 
     @Override
@@ -117,7 +121,10 @@ public class AggregatingJobManagementService implements JobManagementService {
         return createRequestObservable(emitter -> {
             StreamObserver<JobId> streamObserver = GrpcUtil.createClientResponseObserver(
                     emitter,
-                    jobId -> emitter.onNext(jobId.getId()),
+                    jobId -> {
+                        locationCache.putJobCell(jobId.getId(), cell);
+                        emitter.onNext(jobId.getId());
+                    },
                     emitter::onError,
                     emitter::onCompleted
             );
@@ -127,34 +134,32 @@ public class AggregatingJobManagementService implements JobManagementService {
 
     @Override
     public Completable updateJobCapacity(JobCapacityUpdate request) {
-        Observable<Empty> result = jobManagementServiceHelper.findJobInAllCells(request.getJobId())
-                .flatMap(response -> singleCellCall(response.getCell(),
-                        (client, streamObserver) -> client.updateJobCapacity(request, streamObserver))
-                );
+        Observable<Empty> result = callJobCell(request.getJobId(),
+                (client, streamObserver) -> client.updateJobCapacity(request, streamObserver));
         return result.toCompletable();
     }
 
     @Override
     public Completable updateJobProcesses(JobProcessesUpdate request) {
-        Observable<Empty> result = jobManagementServiceHelper.findJobInAllCells(request.getJobId())
-                .flatMap(response -> singleCellCall(response.getCell(),
-                        (client, streamObserver) -> client.updateJobProcesses(request, streamObserver))
-                );
+        Observable<Empty> result = callJobCell(request.getJobId(),
+                (client, streamObserver) -> client.updateJobProcesses(request, streamObserver));
         return result.toCompletable();
     }
 
     @Override
     public Completable updateJobStatus(JobStatusUpdate request) {
-        Observable<Empty> result = jobManagementServiceHelper.findJobInAllCells(request.getId())
-                .flatMap(response -> singleCellCall(response.getCell(),
-                        (client, streamObserver) -> client.updateJobStatus(request, streamObserver))
-                );
+        Observable<Empty> result = callJobCell(request.getId(),
+                (client, streamObserver) -> client.updateJobStatus(request, streamObserver));
         return result.toCompletable();
     }
 
     @Override
     public Observable<Job> findJob(String jobId) {
-        return jobManagementServiceHelper.findJobInAllCells(jobId).map(CellResponse::getResult);
+        JobId id = JobId.newBuilder().setId(jobId).build();
+        return callJobCell(jobId,
+                (client, streamObserver) -> client.findJob(id, streamObserver),
+                findJobInAllCells(jobId).map(CellResponse::getResult)
+        );
     }
 
     @Override
@@ -174,20 +179,19 @@ public class AggregatingJobManagementService implements JobManagementService {
     private Observable<JobQueryResult> findJobsWithCursorPagination(JobQuery request) {
         return aggregatingClient.call(JobManagementServiceGrpc::newStub, findJobsInCell(request))
                 .map(CellResponse::getResult)
-                .reduce(this::combineJobResults)
-                .map(combinedResults -> {
-                    Pair<List<Job>, Pagination> combinedPage = takeCombinedPage(
+                .toList()
+                .map(cellResults -> {
+                    Pair<List<Job>, Pagination> combinedPage = takeMergedPage(
                             request.getPage(),
-                            combinedResults.getItemsList(),
-                            combinedResults.getPagination(),
+                            cellResults.stream().map(JobQueryResult::getItemsList).collect(Collectors.toList()),
+                            combinePaginations(cellResults.stream().map(JobQueryResult::getPagination)),
                             JobManagerCursors.jobCursorOrderComparator(),
                             JobManagerCursors::newCursorFrom
                     );
 
-                    return JobQueryResult.newBuilder()
-                            .addAllItems(combinedPage.getLeft())
-                            .setPagination(combinedPage.getRight())
-                            .build();
+                    JobQueryResult.Builder resultBuilder = JobQueryResult.newBuilder().setPagination(combinedPage.getRight());
+                    combinedPage.getLeft().forEach(job -> resultBuilder.addItems(addStackName(job)));
+                    return resultBuilder.build();
                 });
     }
 
@@ -195,28 +199,14 @@ public class AggregatingJobManagementService implements JobManagementService {
         return (client, streamObserver) -> wrap(client).findJobs(request, streamObserver);
     }
 
-    private JobQueryResult combineJobResults(JobQueryResult one, JobQueryResult other) {
-        Pagination pagination = combinePagination(one.getPagination(), other.getPagination());
-        List<Job> oneDecoratedList = one.getItemsList().stream()
-                .map(this::addStackName)
-                .collect(Collectors.toList());
-        List<Job> otherDecoratedList = other.getItemsList().stream()
-                .map(this::addStackName)
-                .collect(Collectors.toList());
-        return JobQueryResult.newBuilder()
-                .setPagination(pagination)
-                .addAllItems(oneDecoratedList)
-                .addAllItems(otherDecoratedList)
-                .build();
+    private static Pagination combinePaginations(Stream<Pagination> cellPaginations) {
+        return cellPaginations.reduce(PageAggregationUtil::combinePagination).orElse(Pagination.getDefaultInstance());
     }
 
     @Override
     public Observable<JobChangeNotification> observeJob(String jobId) {
         JobId request = JobId.newBuilder().setId(jobId).build();
-        return jobManagementServiceHelper.findJobInAllCells(jobId)
-                .flatMap(response -> singleCellCall(response.getCell(),
-                        (client, streamObserver) -> client.observeJob(request, streamObserver))
-                );
+        return callJobCell(jobId, (client, streamObserver) -> client.observeJob(request, streamObserver));
     }
 
     @Override
@@ -228,7 +218,9 @@ public class AggregatingJobManagementService implements JobManagementService {
                     () -> emitter.onNext(buildJobSnapshotEndMarker())
             );
             clients.forEach((cell, client) -> {
-                StreamObserver<JobChangeNotification> streamObserver = new FilterOutFirstMarker(emitter, markersEmitted);
+                StreamObserver<JobChangeNotification> streamObserver = new FilterOutFirstMarker(emitter, markersEmitted,
+                        notification -> locationCache.onNotification(cell, notification)
+                );
                 wrap(client).observeJobs(Empty.getDefaultInstance(), streamObserver);
             });
         });
@@ -238,16 +230,17 @@ public class AggregatingJobManagementService implements JobManagementService {
     @Override
     public Completable killJob(String jobId) {
         JobId id = JobId.newBuilder().setId(jobId).build();
-        Observable<Empty> result = jobManagementServiceHelper.findJobInAllCells(jobId)
-                .flatMap(response -> singleCellCall(response.getCell(),
-                        (client, streamObserver) -> client.killJob(id, streamObserver))
-                );
+        Observable<Empty> result = callJobCell(jobId, (client, streamObserver) -> client.killJob(id, streamObserver));
         return result.toCompletable();
     }
 
     @Override
     public Observable<Task> findTask(String taskId) {
-        return findTaskInAllCells(taskId).map(CellResponse::getResult);
+        TaskId id = TaskId.newBuilder().setId(taskId).build();
+        return callTaskCell(taskId,
+                (client, streamObserver) -> client.findTask(id, streamObserver),
+                findTaskInAllCells(taskId).map(CellResponse::getResult)
+        );
     }
 
     private Observable<CellResponse<JobManagementServiceStub, Task>> findTaskInAllCells(String taskId) {
@@ -256,7 +249,8 @@ public class AggregatingJobManagementService implements JobManagementService {
                 .flatMap(response -> response.getResult()
                         .map(v -> Observable.just(CellResponse.ofValue(response)))
                         .onErrorGet(Observable::error)
-                );
+                )
+                .doOnNext(response -> locationCache.putTaskCell(taskId, response.getResult().getJobId(), response.getCell()));
     }
 
     private ClientCall<Task> findTaskInCell(String taskId) {
@@ -281,19 +275,19 @@ public class AggregatingJobManagementService implements JobManagementService {
     private Observable<TaskQueryResult> findTasksWithCursorPagination(TaskQuery request) {
         return aggregatingClient.call(JobManagementServiceGrpc::newStub, findTasksInCell(request))
                 .map(CellResponse::getResult)
-                .reduce(this::combineTaskResults)
-                .map(combinedResults -> {
-                    Pair<List<Task>, Pagination> combinedPage = takeCombinedPage(
+                .toList()
+                .map(cellResults -> {
+                    Pair<List<Task>, Pagination> combinedPage = takeMergedPage(
                             request.getPage(),
-                            combinedResults.getItemsList(),
-                            combinedResults.getPagination(),
+                            cellResults.stream().map(TaskQueryResult::getItemsList).collect(Collectors.toList()),
+                            combinePaginations(cellResults.stream().map(TaskQueryResult::getPagination)),
                             JobManagerCursors.taskCursorOrderComparator(),
                             JobManagerCursors::newCursorFrom
                     );
-                    return TaskQueryResult.newBuilder()
-                            .addAllItems(combinedPage.getLeft())
-                            .setPagination(combinedPage.getRight())
-                            .build();
+
+                    TaskQueryResult.Builder resultBuilder = TaskQueryResult.newBuilder().setPagination(combinedPage.getRight());
+                    combinedPage.getLeft().forEach(task -> resultBuilder.addItems(addStackName(task)));
+                    return resultBuilder.build();
                 });
     }
 
@@ -301,27 +295,11 @@ public class AggregatingJobManagementService implements JobManagementService {
         return (client, streamObserver) -> wrap(client).findTasks(request, streamObserver);
     }
 
-    private TaskQueryResult combineTaskResults(TaskQueryResult one, TaskQueryResult other) {
-        Pagination pagination = combinePagination(one.getPagination(), other.getPagination());
-        List<Task> oneDecoratedList = one.getItemsList().stream()
-                .map(this::addStackName)
-                .collect(Collectors.toList());
-        List<Task> otherDecoratedList = other.getItemsList().stream()
-                .map(this::addStackName)
-                .collect(Collectors.toList());
-        return TaskQueryResult.newBuilder()
-                .setPagination(pagination)
-                .addAllItems(oneDecoratedList)
-                .addAllItems(otherDecoratedList)
-                .build();
-    }
-
     @Override
     public Completable killTask(TaskKillRequest request) {
-        Observable<Empty> result = findTaskInAllCells(request.getTaskId())
-                .flatMap(response -> singleCellCall(response.getCell(),
-                        (client, streamObserver) -> client.killTask(request, streamObserver))
-                );
+        Observable<Empty> result = callTaskCell(request.getTaskId(),
+                (client, streamObserver) -> client.killTask(request, streamObserver)
+        );
         return result.toCompletable();
     }
 
@@ -362,6 +340,61 @@ public class AggregatingJobManagementService implements JobManagementService {
         return createWrappedStub(client, callMetadataResolver, grpcConfiguration.getRequestTimeoutMs());
     }
 
+    private Observable<CellResponse<JobManagementServiceStub, Job>> findJobInAllCells(String jobId) {
+        return jobManagementServiceHelper.findJobInAllCells(jobId)
+                .doOnNext(response -> locationCache.putJobCell(jobId, response.getCell()));
+    }
+
+    private <T> Observable<T> callJobCell(String jobId, ClientCall<T> clientCall) {
+        return callJobCell(jobId, clientCall,
+                findJobInAllCells(jobId).flatMap(response -> singleCellCall(response.getCell(), clientCall))
+        );
+    }
+
+    /**
+     * Sends the call directly to the cell in which the job was last seen. If the job location is not known, or the cell
+     * does not know the job anymore, the fallback (fan out to all cells) is used instead.
+     */
+    private <T> Observable<T> callJobCell(String jobId, ClientCall<T> clientCall, Observable<T> fallback) {
+        return Observable.defer(() -> locationCache.getJobCell(jobId)
+                .filter(cell -> connector.getChannelForCell(cell).isPresent())
+                .map(cell -> singleCellCall(cell, clientCall).onErrorResumeNext(error -> {
+                    if (!isNotFound(error)) {
+                        return Observable.error(error);
+                    }
+                    logger.debug("Job {} not found in the cached cell {}; querying all cells", jobId, cell);
+                    locationCache.onStaleJobRoute(jobId, cell);
+                    return fallback;
+                }))
+                .orElse(fallback)
+        );
+    }
+
+    private <T> Observable<T> callTaskCell(String taskId, ClientCall<T> clientCall) {
+        return callTaskCell(taskId, clientCall,
+                findTaskInAllCells(taskId).flatMap(response -> singleCellCall(response.getCell(), clientCall))
+        );
+    }
+
+    private <T> Observable<T> callTaskCell(String taskId, ClientCall<T> clientCall, Observable<T> fallback) {
+        return Observable.defer(() -> locationCache.getTaskCell(taskId)
+                .filter(cell -> connector.getChannelForCell(cell).isPresent())
+                .map(cell -> singleCellCall(cell, clientCall).onErrorResumeNext(error -> {
+                    if (!isNotFound(error)) {
+                        return Observable.error(error);
+                    }
+                    logger.debug("Task {} not found in the cached cell {}; querying all cells", taskId, cell);
+                    locationCache.onStaleTaskRoute(taskId, cell);
+                    return fallback;
+                }))
+                .orElse(fallback)
+        );
+    }
+
+    private static boolean isNotFound(Throwable error) {
+        return Status.fromThrowable(error).getCode() == Status.Code.NOT_FOUND;
+    }
+
     private <T> Observable<T> singleCellCall(Cell cell, ClientCall<T> clientCall) {
         return callToCell(cell, connector, JobManagementServiceGrpc::newStub,
                 (client, streamObserver) -> clientCall.accept(wrap(client), streamObserver));
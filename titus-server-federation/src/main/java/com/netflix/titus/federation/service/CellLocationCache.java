@@ -0,0 +1,126 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.federation.service;
+
+import java.time.Duration;
+import java.util.Optional;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
+import com.netflix.titus.api.federation.model.Cell;
+import com.netflix.titus.common.util.StringExt;
+import com.netflix.titus.common.util.cache.Cache;
+import com.netflix.titus.common.util.cache.Caches;
+import com.netflix.titus.federation.startup.TitusFederationConfiguration;
+import com.netflix.titus.grpc.protogen.Job;
+import com.netflix.titus.grpc.protogen.JobChangeNotification;
+import com.netflix.titus.grpc.protogen.JobStatus;
+import com.netflix.titus.grpc.protogen.Task;
+import com.netflix.titus.grpc.protogen.TaskStatus;
+
+/**
+ * Remembers in which {@link Cell} jobs and tasks live, so single entity calls can be sent directly to the owning cell,
+ * instead of being fanned out to all cells. Entries are learned from job creation, successful lookups and job
+ * change notifications, and are evicted when they are not refreshed within the configured time to live, when the
+ * entity finishes, or when a cell responds that it does not know the entity (stale route).
+ * <p>
+ * The cache is only a hint. Callers must fall back to the fan out lookup when the cached cell returns NOT_FOUND.
+ */
+@Singleton
+class CellLocationCache {
+
+    private static final String METRIC_ROOT = "titus.federation.cellLocationCache";
+
+    private final Cache<String, Cell> jobCells;
+    private final Cache<String, Cell> taskCells;
+
+    private final Counter staleJobRoutes;
+    private final Counter staleTaskRoutes;
+
+    @Inject
+    CellLocationCache(TitusFederationConfiguration configuration, Registry registry) {
+        Duration timeToLive = Duration.ofMillis(configuration.getCellLocationCacheTtlMs());
+        this.jobCells = Caches.instrumentedCacheWithMaxSize(configuration.getCellLocationCacheSize(), timeToLive, METRIC_ROOT + ".jobs", registry);
+        this.taskCells = Caches.instrumentedCacheWithMaxSize(configuration.getCellLocationCacheSize(), timeToLive, METRIC_ROOT + ".tasks", registry);
+        this.staleJobRoutes = registry.counter(METRIC_ROOT + ".staleRoutes", "type", "job");
+        this.staleTaskRoutes = registry.counter(METRIC_ROOT + ".staleRoutes", "type", "task");
+    }
+
+    @PreDestroy
+    void shutdown() {
+        jobCells.shutdown();
+        taskCells.shutdown();
+    }
+
+    Optional<Cell> getJobCell(String jobId) {
+        return Optional.ofNullable(jobCells.getIfPresent(jobId));
+    }
+
+    Optional<Cell> getTaskCell(String taskId) {
+        return Optional.ofNullable(taskCells.getIfPresent(taskId));
+    }
+
+    void putJobCell(String jobId, Cell cell) {
+        jobCells.put(jobId, cell);
+    }
+
+    void putTaskCell(String taskId, String jobId, Cell cell) {
+        taskCells.put(taskId, cell);
+        if (StringExt.isNotEmpty(jobId)) {
+            jobCells.put(jobId, cell);
+        }
+    }
+
+    /**
+     * Called when the cached cell does not know the job. The entry is removed only if it still points to that cell,
+     * so a newer location learned concurrently is preserved.
+     */
+    void onStaleJobRoute(String jobId, Cell cell) {
+        staleJobRoutes.increment();
+        jobCells.asMap().remove(jobId, cell);
+    }
+
+    void onStaleTaskRoute(String taskId, Cell cell) {
+        staleTaskRoutes.increment();
+        taskCells.asMap().remove(taskId, cell);
+    }
+
+    void onNotification(Cell cell, JobChangeNotification notification) {
+        switch (notification.getNotificationCase()) {
+            case JOBUPDATE:
+                Job job = notification.getJobUpdate().getJob();
+                if (job.getStatus().getState() == JobStatus.JobState.Finished) {
+                    jobCells.invalidate(job.getId());
+                } else {
+                    jobCells.put(job.getId(), cell);
+                }
+                break;
+            case TASKUPDATE:
+                Task task = notification.getTaskUpdate().getTask();
+                if (task.getStatus().getState() == TaskStatus.TaskState.Finished) {
+                    taskCells.invalidate(task.getId());
+                } else {
+                    putTaskCell(task.getId(), task.getJobId(), cell);
+                }
+                break;
+            default:
+        }
+    }
+}
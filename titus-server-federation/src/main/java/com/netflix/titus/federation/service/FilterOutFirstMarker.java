@@ -17,6 +17,7 @@
 package com.netflix.titus.federation.service;
 
 import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
 
 import com.google.protobuf.Empty;
 import com.netflix.titus.runtime.endpoint.common.grpc.GrpcUtil;
@@ -28,17 +29,27 @@ import rx.Emitter;
 
 /**
  * Filter out the first <tt>marker</tt> from a source stream, decrementing a {@link CountDownLatch} when it is received.
+ * All other notifications are passed to an optional listener, before being emitted.
  */
 class FilterOutFirstMarker implements ClientResponseObserver<Empty, JobChangeNotification> {
 
     private final Emitter<JobChangeNotification> emitter;
     private final CountDownLatch latch;
+    private final Consumer<JobChangeNotification> listener;
 
     private volatile boolean markerReceived = false;
 
     FilterOutFirstMarker(Emitter<JobChangeNotification> destination, CountDownLatch markersReceived) {
+        this(destination, markersReceived, notification -> {
+        });
+    }
+
+    FilterOutFirstMarker(Emitter<JobChangeNotification> destination,
+                         CountDownLatch markersReceived,
+                         Consumer<JobChangeNotification> listener) {
         this.emitter = destination;
         this.latch = markersReceived;
+        this.listener = listener;
     }
 
     @Override
@@ -53,6 +64,7 @@ class FilterOutFirstMarker implements ClientResponseObserver<Empty, JobChangeNot
             latch.countDown();
             return;
         }
+        listener.accept(value);
         emitter.onNext(value);
     }
 
@@ -16,11 +16,15 @@
 
 package com.netflix.titus.federation.service;
 
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.PriorityQueue;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
 import com.netflix.titus.common.util.tuple.Pair;
 import com.netflix.titus.grpc.protogen.Page;
 import com.netflix.titus.grpc.protogen.Pagination;
@@ -40,19 +44,63 @@ final class PageAggregationUtil {
 
         int lastItemOffset = Math.min(sorted.size(), requested.getPageSize());
         List<T> pageItems = sorted.subList(0, lastItemOffset);
-        String cursor = sorted.isEmpty() ? "" : cursorFactory.apply(pageItems.get(pageItems.size() - 1));
+
+        return Pair.of(pageItems, buildPagination(requested, pageItems, sorted.size(), combinedPagination, cursorFactory));
+    }
+
+    /**
+     * Same as {@link #takeCombinedPage(Page, List, Pagination, Comparator, Function)}, but for items that are already
+     * sorted within each cell (cursor based queries return items in the cursor order). Cell results are merged with a
+     * k-way merge, which stops as soon as the requested page is full, so its cost depends on the page size, and not on
+     * the total number of items returned by all cells.
+     */
+    static <T> Pair<List<T>, Pagination> takeMergedPage(Page requested,
+                                                        List<List<T>> sortedCellItems,
+                                                        Pagination combinedPagination,
+                                                        Comparator<T> cursorComparator,
+                                                        Function<T, String> cursorFactory) {
+        PriorityQueue<PeekingIterator<T>> cellHeads = new PriorityQueue<>(
+                Math.max(1, sortedCellItems.size()),
+                (one, other) -> cursorComparator.compare(one.peek(), other.peek())
+        );
+        int totalItems = 0;
+        for (List<T> cellItems : sortedCellItems) {
+            totalItems += cellItems.size();
+            if (!cellItems.isEmpty()) {
+                cellHeads.add(Iterators.peekingIterator(cellItems.iterator()));
+            }
+        }
+
+        int lastItemOffset = Math.min(totalItems, requested.getPageSize());
+        List<T> pageItems = new ArrayList<>(lastItemOffset);
+        while (pageItems.size() < lastItemOffset) {
+            PeekingIterator<T> cellHead = cellHeads.poll();
+            pageItems.add(cellHead.next());
+            if (cellHead.hasNext()) {
+                cellHeads.add(cellHead);
+            }
+        }
+
+        return Pair.of(pageItems, buildPagination(requested, pageItems, totalItems, combinedPagination, cursorFactory));
+    }
+
+    private static <T> Pagination buildPagination(Page requested,
+                                                  List<T> pageItems,
+                                                  int totalItems,
+                                                  Pagination combinedPagination,
+                                                  Function<T, String> cursorFactory) {
+        int lastItemOffset = pageItems.size();
+        String cursor = pageItems.isEmpty() ? "" : cursorFactory.apply(pageItems.get(lastItemOffset - 1));
 
         // first item position relative to totalItems from all Cells
-        int firstItemPosition = Math.max(0, combinedPagination.getCursorPosition() - (sorted.size() - 1));
+        int firstItemPosition = Math.max(0, combinedPagination.getCursorPosition() - (totalItems - 1));
         int pageNumber = firstItemPosition / requested.getPageSize();
-        Pagination finalPagination = Pagination.newBuilder(combinedPagination)
+        return Pagination.newBuilder(combinedPagination)
                 .setCurrentPage(Page.newBuilder(requested).setPageNumber(pageNumber))
                 .setCursor(cursor)
                 .setCursorPosition(firstItemPosition + lastItemOffset - 1)
-                .setHasMore(combinedPagination.getHasMore() || lastItemOffset < sorted.size())
+                .setHasMore(combinedPagination.getHasMore() || lastItemOffset < totalItems)
                 .build();
-
-        return Pair.of(pageItems, finalPagination);
     }
 
     static Pagination combinePagination(Pagination one, Pagination other) {
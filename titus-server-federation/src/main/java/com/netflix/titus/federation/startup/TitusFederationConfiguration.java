@@ -30,4 +30,16 @@ public interface TitusFederationConfiguration {
 
     @DefaultValue("cell1=(app1.*|app2.*);cell2=(.*)")
     String getRoutingRules();
+
+    /**
+     * Maximum number of job and task ids (each) for which the owning cell is remembered.
+     */
+    @DefaultValue("100000")
+    long getCellLocationCacheSize();
+
+    /**
+     * How long a job or task to cell mapping is kept in the cache after it was last learned.
+     */
+    @DefaultValue("3600000")
+    long getCellLocationCacheTtlMs();
 }
@@ -30,6 +30,8 @@ import java.util.stream.Stream;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.spectator.api.Registry;
 import com.netflix.titus.api.federation.model.Cell;
 import com.netflix.titus.api.model.Page;
 import com.netflix.titus.api.service.TitusServiceException;
@@ -99,6 +101,8 @@ public class AggregatingJobManagementServiceTest {
 
     private String stackName;
     private AggregatingJobManagementService service;
+    private CellLocationCache locationCache;
+    private Registry registry;
     private Map<Cell, GrpcServerRule> cellToServiceMap;
     private TestClock clock;
     private ServiceDataGenerator dataGenerator;
@@ -114,6 +118,8 @@ public class AggregatingJobManagementServiceTest {
         when(titusFederationConfiguration.getStack()).thenReturn(stackName);
         when(titusFederationConfiguration.getCells()).thenReturn("one=1;two=2");
         when(titusFederationConfiguration.getRoutingRules()).thenReturn("one=(app1.*|app2.*);two=(app3.*)");
+        when(titusFederationConfiguration.getCellLocationCacheSize()).thenReturn(1000L);
+        when(titusFederationConfiguration.getCellLocationCacheTtlMs()).thenReturn(TimeUnit.MINUTES.toMillis(10));
 
         CellInfoResolver cellInfoResolver = new DefaultCellInfoResolver(titusFederationConfiguration);
         DefaultCellRouter cellRouter = new DefaultCellRouter(cellInfoResolver, titusFederationConfiguration);
@@ -134,6 +140,8 @@ public class AggregatingJobManagementServiceTest {
 
         final AggregatingCellClient aggregatingCellClient = new AggregatingCellClient(connector);
         final AnonymousCallMetadataResolver anonymousCallMetadataResolver = new AnonymousCallMetadataResolver();
+        registry = new DefaultRegistry();
+        locationCache = new CellLocationCache(titusFederationConfiguration, registry);
         service = new AggregatingJobManagementService(
                 grpcClientConfiguration,
                 titusFederationConfiguration,
@@ -141,7 +149,8 @@ public class AggregatingJobManagementServiceTest {
                 cellRouter,
                 anonymousCallMetadataResolver,
                 aggregatingCellClient,
-                new AggregatingJobManagementServiceHelper(aggregatingCellClient, grpcClientConfiguration, anonymousCallMetadataResolver)
+                new AggregatingJobManagementServiceHelper(aggregatingCellClient, grpcClientConfiguration, anonymousCallMetadataResolver),
+                locationCache
         );
 
         clock = Clocks.test();
@@ -152,6 +161,7 @@ public class AggregatingJobManagementServiceTest {
     public void tearDown() {
         cellOneUpdates.onCompleted();
         cellTwoUpdates.onCompleted();
+        locationCache.shutdown();
     }
 
     @Test
@@ -395,6 +405,56 @@ public class AggregatingJobManagementServiceTest {
         assertThat(Status.fromThrowable(testSubscriber.getOnErrorEvents().get(0))).isEqualTo(UNAVAILABLE);
     }
 
+    @Test
+    public void findJobRemembersJobCell() {
+        List<Job> cellOneSnapshot = new ArrayList<>(dataGenerator.newServiceJobs(3, V3GrpcModelConverters::toGrpcJob));
+        cellOne.getServiceRegistry().addService(new CellWithFixedJobsService(cellOneSnapshot, cellOneUpdates.serialize()));
+        cellTwo.getServiceRegistry().addService(new CellWithFixedJobsService(Collections.emptyList(), cellTwoUpdates.serialize()));
+
+        Job expected = cellOneSnapshot.get(0);
+        assertThat(locationCache.getJobCell(expected.getId())).isEmpty();
+        assertThat(service.findJob(expected.getId()).toBlocking().first()).isEqualTo(expected);
+        assertThat(locationCache.getJobCell(expected.getId())).isEqualTo(getCellWithName("one"));
+
+        // The second lookup goes directly to the cached cell
+        assertThat(service.findJob(expected.getId()).toBlocking().first()).isEqualTo(expected);
+        assertThat(staleRouteCount("job")).isZero();
+    }
+
+    @Test
+    public void staleJobCellFallsBackToAllCells() {
+        List<Job> cellOneSnapshot = new ArrayList<>(dataGenerator.newServiceJobs(3, V3GrpcModelConverters::toGrpcJob));
+        cellOne.getServiceRegistry().addService(new CellWithFixedJobsService(cellOneSnapshot, cellOneUpdates.serialize()));
+        cellTwo.getServiceRegistry().addService(new CellWithFixedJobsService(Collections.emptyList(), cellTwoUpdates.serialize()));
+
+        Job expected = cellOneSnapshot.get(0);
+        locationCache.putJobCell(expected.getId(), getCellWithName("two").get());
+
+        assertThat(service.findJob(expected.getId()).toBlocking().first()).isEqualTo(expected);
+        assertThat(locationCache.getJobCell(expected.getId())).isEqualTo(getCellWithName("one"));
+        assertThat(staleRouteCount("job")).isEqualTo(1);
+    }
+
+    @Test
+    public void staleTaskCellFallsBackToAllCells() {
+        List<Task> cellOneSnapshot = new ArrayList<>(dataGenerator.newServiceJobWithTasks());
+        CellWithFixedTasksService cellOneService = new CellWithFixedTasksService(cellOneSnapshot);
+        cellOne.getServiceRegistry().addService(cellOneService);
+        cellTwo.getServiceRegistry().addService(new CellWithFixedTasksService(Collections.emptyList()));
+
+        Task task = cellOneSnapshot.get(0);
+        locationCache.putTaskCell(task.getId(), task.getJobId(), getCellWithName("two").get());
+
+        TaskKillRequest request = TaskKillRequest.newBuilder().setTaskId(task.getId()).build();
+        AssertableSubscriber<Void> testSubscriber = service.killTask(request).test();
+        testSubscriber.awaitTerminalEvent(1, TimeUnit.SECONDS);
+        testSubscriber.assertNoErrors();
+        testSubscriber.assertCompleted();
+        assertThat(cellOneService.currentTasks()).doesNotContainKey(task.getId());
+        assertThat(locationCache.getTaskCell(task.getId())).isEqualTo(getCellWithName("one"));
+        assertThat(staleRouteCount("task")).isEqualTo(1);
+    }
+
     @Test
     public void killJob() {
         Random random = new Random();
@@ -631,6 +691,25 @@ public class AggregatingJobManagementServiceTest {
         assertThat(onNextEvents).contains(withStackName(cellOneUpdate), withStackName(cellTwoUpdate));
     }
 
+    @Test
+    public void observeJobsRemembersJobCells() {
+        Job cellOneJob = Job.newBuilder().setId("cell-1-job-1").setStatus(ACCEPTED_STATE).build();
+        Job cellTwoJob = Job.newBuilder().setId("cell-2-job-1").setStatus(ACCEPTED_STATE).build();
+        cellOne.getServiceRegistry().addService(new CellWithFixedJobsService(Collections.singletonList(cellOneJob), cellOneUpdates.serialize()));
+        cellTwo.getServiceRegistry().addService(new CellWithFixedJobsService(Collections.singletonList(cellTwoJob), cellTwoUpdates.serialize()));
+
+        AssertableSubscriber<JobChangeNotification> testSubscriber = service.observeJobs().test();
+        testSubscriber.awaitValueCount(3, 1, TimeUnit.SECONDS);
+        assertThat(locationCache.getJobCell(cellOneJob.getId())).isEqualTo(getCellWithName("one"));
+        assertThat(locationCache.getJobCell(cellTwoJob.getId())).isEqualTo(getCellWithName("two"));
+
+        // Finished jobs are evicted
+        cellTwoUpdates.onNext(toNotification(cellTwoJob.toBuilder().setStatus(FINISHED_STATE).build()));
+        testSubscriber.awaitValueCount(4, 1, TimeUnit.SECONDS);
+        assertThat(locationCache.getJobCell(cellTwoJob.getId())).isEmpty();
+        testSubscriber.unsubscribe();
+    }
+
     @Test
     public void observeJobsStopsWhenAnyClientsTerminate() {
         cellOne.getServiceRegistry().addService(new CellWithFixedJobsService(Collections.emptyList(), cellOneUpdates.serialize()));
@@ -815,6 +894,10 @@ public class AggregatingJobManagementServiceTest {
         }
     }
 
+    private long staleRouteCount(String type) {
+        return registry.counter("titus.federation.cellLocationCache.staleRoutes", "type", type).count();
+    }
+
     private Optional<Cell> getCellWithName(String cellName) {
         return cellToServiceMap.keySet().stream().filter(cell -> cell.getName().equals(cellName)).findFirst();
     }
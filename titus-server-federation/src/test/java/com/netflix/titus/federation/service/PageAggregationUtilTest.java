@@ -0,0 +1,84 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.federation.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.grpc.protogen.Page;
+import com.netflix.titus.grpc.protogen.Pagination;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PageAggregationUtilTest {
+
+    private static final Comparator<Integer> COMPARATOR = Comparator.naturalOrder();
+
+    @Test
+    public void mergedPageIsSameAsCombinedPage() {
+        Random random = new Random(123);
+        for (int pageSize = 1; pageSize <= 20; pageSize++) {
+            List<List<Integer>> cellItems = Arrays.asList(
+                    randomSortedItems(random, pageSize),
+                    randomSortedItems(random, pageSize),
+                    Collections.emptyList(),
+                    randomSortedItems(random, pageSize)
+            );
+            List<Integer> allItems = cellItems.stream().flatMap(List::stream).collect(Collectors.toList());
+            Pagination combinedPagination = Pagination.newBuilder()
+                    .setHasMore(false)
+                    .setTotalItems(allItems.size())
+                    .setCursorPosition(allItems.size() - 1)
+                    .build();
+            Page page = Page.newBuilder().setPageSize(pageSize).build();
+
+            Pair<List<Integer>, Pagination> merged = PageAggregationUtil.takeMergedPage(page, cellItems, combinedPagination, COMPARATOR, String::valueOf);
+            Pair<List<Integer>, Pagination> combined = PageAggregationUtil.takeCombinedPage(page, allItems, combinedPagination, COMPARATOR, String::valueOf);
+
+            assertThat(merged.getLeft()).isEqualTo(combined.getLeft());
+            assertThat(merged.getRight()).isEqualTo(combined.getRight());
+        }
+    }
+
+    @Test
+    public void emptyCells() {
+        Page page = Page.newBuilder().setPageSize(10).build();
+        Pair<List<Integer>, Pagination> merged = PageAggregationUtil.takeMergedPage(
+                page, Arrays.asList(Collections.emptyList(), Collections.emptyList()), Pagination.getDefaultInstance(), COMPARATOR, String::valueOf
+        );
+
+        assertThat(merged.getLeft()).isEmpty();
+        assertThat(merged.getRight().getCursor()).isEmpty();
+        assertThat(merged.getRight().getHasMore()).isFalse();
+    }
+
+    private List<Integer> randomSortedItems(Random random, int maxSize) {
+        List<Integer> items = IntStream.range(0, random.nextInt(maxSize + 1))
+                .mapToObj(i -> random.nextInt(1000))
+                .collect(Collectors.toCollection(ArrayList::new));
+        items.sort(COMPARATOR);
+        return items;
+    }
+}
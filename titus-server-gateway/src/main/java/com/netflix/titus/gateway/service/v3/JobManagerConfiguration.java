@@ -31,4 +31,17 @@ public interface JobManagerConfiguration {
 
     @DefaultValue("_none_")
     String getNoncompliantClientWhiteList();
+
+    /**
+     * If enabled, job and task queries are served from a local replica of the job model, which is kept up to date
+     * by the TitusMaster job event stream. Queries fall back to TitusMaster when the replica is not usable.
+     */
+    @DefaultValue("false")
+    boolean isLocalReplicaEnabled();
+
+    /**
+     * For how long the local replica is still used to serve queries after the connection to TitusMaster is lost.
+     */
+    @DefaultValue("5000")
+    long getLocalReplicaMaxStalenessMs();
 }
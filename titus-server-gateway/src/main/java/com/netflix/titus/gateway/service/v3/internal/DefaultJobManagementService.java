@@ -19,6 +19,7 @@ package com.netflix.titus.gateway.service.v3.internal;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
@@ -99,6 +100,7 @@ public class DefaultJobManagementService implements JobManagementService {
     private final LogStorageInfo<com.netflix.titus.api.jobmanager.model.job.Task> logStorageInfo;
     private final EntitySanitizer entitySanitizer;
     private final Function<String, Matcher> uncompliantClientMatcher;
+    private final LocalJobReplica localJobReplica;
 
     @Inject
     public DefaultJobManagementService(GrpcClientConfiguration configuration,
@@ -107,7 +109,8 @@ public class DefaultJobManagementService implements JobManagementService {
                                        CallMetadataResolver callMetadataResolver,
                                        JobStore store,
                                        LogStorageInfo<com.netflix.titus.api.jobmanager.model.job.Task> logStorageInfo,
-                                       @Named(JOB_STRICT_SANITIZER) EntitySanitizer entitySanitizer) {
+                                       @Named(JOB_STRICT_SANITIZER) EntitySanitizer entitySanitizer,
+                                       LocalJobReplica localJobReplica) {
         this.configuration = configuration;
         this.jobManagerConfiguration = jobManagerConfiguration;
         this.client = client;
@@ -115,6 +118,7 @@ public class DefaultJobManagementService implements JobManagementService {
         this.store = store;
         this.logStorageInfo = logStorageInfo;
         this.entitySanitizer = entitySanitizer;
+        this.localJobReplica = localJobReplica;
         this.uncompliantClientMatcher = RegExpExt.dynamicMatcher(
                 jobManagerConfiguration::getNoncompliantClientWhiteList, "noncompliantClientWhiteList", 0, logger
         );
@@ -184,6 +188,11 @@ public class DefaultJobManagementService implements JobManagementService {
 
     @Override
     public Observable<Job> findJob(String jobId) {
+        Optional<Job> replicated = localJobReplica.findJob(jobId);
+        if (replicated.isPresent()) {
+            return Observable.just(replicated.get());
+        }
+
         Observable<Job> observable = createRequestObservable(emitter -> {
             StreamObserver<Job> streamObserver = createSimpleClientResponseObserver(emitter);
             createWrappedStub(client, callMetadataResolver, configuration.getRequestTimeout()).findJob(JobId.newBuilder().setId(jobId).build(), streamObserver);
@@ -201,6 +210,11 @@ public class DefaultJobManagementService implements JobManagementService {
 
     @Override
     public Observable<JobQueryResult> findJobs(JobQuery jobQuery) {
+        Optional<JobQueryResult> replicated = localJobReplica.findJobs(jobQuery);
+        if (replicated.isPresent()) {
+            return Observable.just(replicated.get());
+        }
+
         return createRequestObservable(emitter -> {
             StreamObserver<JobQueryResult> streamObserver = createSimpleClientResponseObserver(emitter);
             createWrappedStub(client, callMetadataResolver, configuration.getRequestTimeout()).findJobs(jobQuery, streamObserver);
@@ -233,6 +247,11 @@ public class DefaultJobManagementService implements JobManagementService {
 
     @Override
     public Observable<Task> findTask(String taskId) {
+        Optional<Task> replicated = localJobReplica.findTask(taskId);
+        if (replicated.isPresent()) {
+            return Observable.just(replicated.get());
+        }
+
         Observable<Task> observable = createRequestObservable(emitter -> {
             StreamObserver<Task> streamObserver = createSimpleClientResponseObserver(emitter);
             createWrappedStub(client, callMetadataResolver, configuration.getRequestTimeout()).findTask(TaskId.newBuilder().setId(taskId).build(), streamObserver);
@@ -252,6 +271,12 @@ public class DefaultJobManagementService implements JobManagementService {
 
     @Override
     public Observable<TaskQueryResult> findTasks(TaskQuery taskQuery) {
+        // The replica does not serve queries for finished tasks, so archived tasks never need to be merged here.
+        Optional<TaskQueryResult> replicated = localJobReplica.findTasks(taskQuery);
+        if (replicated.isPresent()) {
+            return Observable.just(replicated.get());
+        }
+
         Observable<TaskQueryResult> observable = createRequestObservable(emitter -> {
             StreamObserver<TaskQueryResult> streamObserver = createSimpleClientResponseObserver(emitter);
             createWrappedStub(client, callMetadataResolver, configuration.getRequestTimeout()).findTasks(taskQuery, streamObserver);
@@ -0,0 +1,509 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.gateway.service.v3.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.protobuf.Empty;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
+import com.netflix.titus.api.model.PaginationUtil;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.util.ProtobufCopy;
+import com.netflix.titus.common.util.rx.RetryHandlerBuilder;
+import com.netflix.titus.common.util.time.Clock;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.gateway.service.v3.JobManagerConfiguration;
+import com.netflix.titus.grpc.protogen.Job;
+import com.netflix.titus.grpc.protogen.JobChangeNotification;
+import com.netflix.titus.grpc.protogen.JobDescriptor.JobSpecCase;
+import com.netflix.titus.grpc.protogen.JobManagementServiceGrpc.JobManagementServiceStub;
+import com.netflix.titus.grpc.protogen.JobQuery;
+import com.netflix.titus.grpc.protogen.JobQueryResult;
+import com.netflix.titus.grpc.protogen.JobStatus;
+import com.netflix.titus.grpc.protogen.Page;
+import com.netflix.titus.grpc.protogen.Task;
+import com.netflix.titus.grpc.protogen.TaskQuery;
+import com.netflix.titus.grpc.protogen.TaskQueryResult;
+import com.netflix.titus.grpc.protogen.TaskStatus;
+import com.netflix.titus.runtime.endpoint.JobQueryCriteria;
+import com.netflix.titus.runtime.endpoint.metadata.CallMetadataResolver;
+import com.netflix.titus.runtime.endpoint.v3.grpc.V3GrpcModelConverters;
+import com.netflix.titus.runtime.endpoint.v3.grpc.query.V3JobQueryCriteriaEvaluator;
+import com.netflix.titus.runtime.endpoint.v3.grpc.query.V3TaskQueryCriteriaEvaluator;
+import com.netflix.titus.runtime.jobmanager.JobManagerCursors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscription;
+import rx.schedulers.Schedulers;
+
+import static com.netflix.titus.common.util.CollectionsExt.asSet;
+import static com.netflix.titus.runtime.endpoint.common.grpc.CommonGrpcModelConverters.toGrpcPagination;
+import static com.netflix.titus.runtime.endpoint.common.grpc.CommonGrpcModelConverters.toJobQueryCriteria;
+import static com.netflix.titus.runtime.endpoint.common.grpc.CommonGrpcModelConverters.toPage;
+import static com.netflix.titus.runtime.endpoint.common.grpc.GrpcUtil.createRequestObservable;
+import static com.netflix.titus.runtime.endpoint.common.grpc.GrpcUtil.createSimpleClientResponseObserver;
+import static com.netflix.titus.runtime.endpoint.common.grpc.GrpcUtil.createWrappedStub;
+
+/**
+ * Eventually consistent, local replica of the TitusMaster active job model, built from the master job event stream
+ * (an initial snapshot followed by updates). Job and task queries are evaluated against the replica with the same
+ * criteria evaluators and cursor pagination as in TitusMaster, so the read load can be spread across gateways.
+ * <p>
+ * Each query method returns {@link Optional#empty()} if the replica cannot answer it, and the caller must forward
+ * the query to TitusMaster. This is the case when:
+ * <ul>
+ * <li>the replica is disabled, or not initialized yet</li>
+ * <li>the connection to TitusMaster was lost for longer than the configured staleness bound</li>
+ * <li>the query may match finished jobs or tasks, which are not kept in the replica (only queries with a job or task
+ * state filter excluding the finished state are evaluated locally)</li>
+ * <li>a job or task could not be converted, until its next update is applied (a lookup by id is forwarded only for
+ * that entity, a job or task query is forwarded while any entity is missing)</li>
+ * <li>the query cannot be evaluated locally (for example a task migration query, or an unknown cursor)</li>
+ * </ul>
+ * Finished jobs and tasks are removed from the replica, as TitusMaster does not emit events when they are removed
+ * from its own model. An entity that cannot be converted is skipped rather than failing the event stream, as the
+ * same entity would fail again in every new snapshot.
+ */
+@Singleton
+public class LocalJobReplica {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalJobReplica.class);
+
+    private static final String METRIC_ROOT = "titus.gateway.localJobReplica.";
+
+    private static final long RETRY_INITIAL_DELAY_MS = 1_000;
+    private static final long RETRY_MAX_DELAY_MS = 30_000;
+
+    private static final Set<String> JOB_MINIMUM_FIELD_SET = asSet("id");
+    private static final Set<String> TASK_MINIMUM_FIELD_SET = asSet("id");
+
+    private final JobManagerConfiguration configuration;
+    private final Supplier<Observable<JobChangeNotification>> eventStreamFactory;
+    private final TitusRuntime titusRuntime;
+    private final Clock clock;
+    private final Scheduler scheduler;
+
+    private final Counter localReadsCounter;
+    private final Counter masterReadsCounter;
+    private final Counter conversionErrorsCounter;
+
+    private volatile ReplicaState pendingState;
+    private volatile ReplicaState state;
+    private volatile boolean connected;
+    private volatile long disconnectedTimestamp;
+
+    private Subscription eventSubscription;
+
+    @Inject
+    public LocalJobReplica(JobManagerConfiguration configuration,
+                           JobManagementServiceStub client,
+                           CallMetadataResolver callMetadataResolver,
+                           TitusRuntime titusRuntime) {
+        this(configuration,
+                () -> createRequestObservable(emitter -> createWrappedStub(client, callMetadataResolver)
+                        .observeJobs(Empty.getDefaultInstance(), createSimpleClientResponseObserver(emitter))
+                ),
+                titusRuntime,
+                Schedulers.computation()
+        );
+    }
+
+    @VisibleForTesting
+    LocalJobReplica(JobManagerConfiguration configuration,
+                    Supplier<Observable<JobChangeNotification>> eventStreamFactory,
+                    TitusRuntime titusRuntime,
+                    Scheduler scheduler) {
+        this.configuration = configuration;
+        this.eventStreamFactory = eventStreamFactory;
+        this.titusRuntime = titusRuntime;
+        this.clock = titusRuntime.getClock();
+        this.scheduler = scheduler;
+
+        Registry registry = titusRuntime.getRegistry();
+        this.localReadsCounter = registry.counter(METRIC_ROOT + "reads", "source", "replica");
+        this.masterReadsCounter = registry.counter(METRIC_ROOT + "reads", "source", "master");
+        this.conversionErrorsCounter = registry.counter(METRIC_ROOT + "conversionErrors");
+        registry.gauge(METRIC_ROOT + "connected", this, self -> self.connected ? 1 : 0);
+        registry.gauge(METRIC_ROOT + "jobs", this, self -> self.state == null ? 0 : self.state.jobsById.size());
+        registry.gauge(METRIC_ROOT + "tasks", this, self -> self.state == null ? 0 : self.state.tasksById.size());
+    }
+
+    @PostConstruct
+    public void enterActiveMode() {
+        if (!configuration.isLocalReplicaEnabled()) {
+            logger.info("Local job replica disabled");
+            return;
+        }
+        this.eventSubscription = Observable.defer(() -> {
+            pendingState = new ReplicaState();
+            return eventStreamFactory.get();
+        }).doOnNext(this::onNotification)
+                .doOnError(this::onDisconnect)
+                .retryWhen(RetryHandlerBuilder.retryHandler()
+                        .withUnlimitedRetries()
+                        .withDelay(RETRY_INITIAL_DELAY_MS, RETRY_MAX_DELAY_MS, TimeUnit.MILLISECONDS)
+                        .withScheduler(scheduler)
+                        .withTitle("Local job replica event stream")
+                        .buildExponentialBackoff()
+                )
+                .repeatWhen(completed -> completed.doOnNext(next -> onDisconnect(null)).delay(RETRY_INITIAL_DELAY_MS, TimeUnit.MILLISECONDS, scheduler))
+                .subscribe(next -> {
+                }, e -> logger.error("Local job replica event stream terminated", e));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (eventSubscription != null) {
+            eventSubscription.unsubscribe();
+        }
+        connected = false;
+        state = null;
+    }
+
+    public Optional<Job> findJob(String jobId) {
+        return countRead(getReadyState()
+                .filter(s -> !s.degradedIds.contains(jobId))
+                .flatMap(s -> Optional.ofNullable(s.jobsById.get(jobId)).map(entry -> entry.grpcJob))
+        );
+    }
+
+    public Optional<Task> findTask(String taskId) {
+        return countRead(getReadyState()
+                .filter(s -> !s.degradedIds.contains(taskId))
+                .flatMap(s -> Optional.ofNullable(s.tasksById.get(taskId)).map(entry -> entry.grpcTask))
+        );
+    }
+
+    public Optional<JobQueryResult> findJobs(JobQuery jobQuery) {
+        return countRead(getQueryableState(jobQuery.getPage()).flatMap(s -> {
+            JobQueryCriteria<TaskStatus.TaskState, JobSpecCase> criteria = toCriteriaIfLocallyEvaluable(jobQuery, LocalJobReplica::isJobQueryLocallyEvaluable).orElse(null);
+            if (criteria == null) {
+                return Optional.empty();
+            }
+            V3JobQueryCriteriaEvaluator evaluator = new V3JobQueryCriteriaEvaluator(criteria, titusRuntime);
+            List<Job> matching = new ArrayList<>();
+            s.jobsById.values().forEach(jobEntry -> {
+                if (evaluator.test(Pair.of(jobEntry.coreJob, s.getCoreTasks(jobEntry.grpcJob.getId())))) {
+                    matching.add(jobEntry.grpcJob);
+                }
+            });
+
+            Pair<List<Job>, com.netflix.titus.api.model.Pagination> page;
+            try {
+                page = PaginationUtil.takePageWithCursor(
+                        toPage(jobQuery.getPage()),
+                        matching,
+                        JobManagerCursors.jobCursorOrderComparator(),
+                        JobManagerCursors::jobIndexOf,
+                        JobManagerCursors::newCursorFrom
+                );
+            } catch (IllegalArgumentException e) {
+                // The cursor may point to an entity we have not seen yet, so let TitusMaster handle it.
+                return Optional.empty();
+            }
+
+            List<Job> jobs = page.getLeft();
+            if (!jobQuery.getFieldsList().isEmpty()) {
+                Set<String> fields = withMinimumFields(jobQuery.getFieldsList(), JOB_MINIMUM_FIELD_SET);
+                jobs = jobs.stream().map(job -> ProtobufCopy.copy(job, fields)).collect(Collectors.toList());
+            }
+            return Optional.of(JobQueryResult.newBuilder()
+                    .addAllItems(jobs)
+                    .setPagination(toGrpcPagination(page.getRight()))
+                    .build()
+            );
+        }));
+    }
+
+    public Optional<TaskQueryResult> findTasks(TaskQuery taskQuery) {
+        return countRead(getQueryableState(taskQuery.getPage()).flatMap(s -> {
+            JobQueryCriteria<TaskStatus.TaskState, JobSpecCase> criteria = toCriteriaIfLocallyEvaluable(taskQuery, LocalJobReplica::isTaskQueryLocallyEvaluable).orElse(null);
+            if (criteria == null) {
+                return Optional.empty();
+            }
+            V3TaskQueryCriteriaEvaluator evaluator = new V3TaskQueryCriteriaEvaluator(criteria, titusRuntime);
+            List<Task> matching = new ArrayList<>();
+            s.jobsById.values().forEach(jobEntry -> s.getTasks(jobEntry.grpcJob.getId()).forEach(taskEntry -> {
+                if (evaluator.test(Pair.of(jobEntry.coreJob, taskEntry.coreTask))) {
+                    matching.add(taskEntry.grpcTask);
+                }
+            }));
+
+            Pair<List<Task>, com.netflix.titus.api.model.Pagination> page;
+            try {
+                page = PaginationUtil.takePageWithCursor(
+                        toPage(taskQuery.getPage()),
+                        matching,
+                        JobManagerCursors.taskCursorOrderComparator(),
+                        JobManagerCursors::taskIndexOf,
+                        JobManagerCursors::newCursorFrom
+                );
+            } catch (IllegalArgumentException e) {
+                return Optional.empty();
+            }
+
+            List<Task> tasks = page.getLeft();
+            if (!taskQuery.getFieldsList().isEmpty()) {
+                Set<String> fields = withMinimumFields(taskQuery.getFieldsList(), TASK_MINIMUM_FIELD_SET);
+                tasks = tasks.stream().map(task -> ProtobufCopy.copy(task, fields)).collect(Collectors.toList());
+            }
+            return Optional.of(TaskQueryResult.newBuilder()
+                    .addAllItems(tasks)
+                    .setPagination(toGrpcPagination(page.getRight()))
+                    .build()
+            );
+        }));
+    }
+
+    private <T> Optional<T> countRead(Optional<T> result) {
+        if (result.isPresent()) {
+            localReadsCounter.increment();
+        } else {
+            masterReadsCounter.increment();
+        }
+        return result;
+    }
+
+    private Optional<ReplicaState> getReadyState() {
+        ReplicaState current = state;
+        if (current == null || !configuration.isLocalReplicaEnabled()) {
+            return Optional.empty();
+        }
+        if (!connected && clock.wallTime() - disconnectedTimestamp > configuration.getLocalReplicaMaxStalenessMs()) {
+            return Optional.empty();
+        }
+        return Optional.of(current);
+    }
+
+    /**
+     * Invalid pages are forwarded to TitusMaster, so the client gets the same error as without the replica. Queries
+     * are forwarded as well while any entity is missing from the replica, as it could match them.
+     */
+    private Optional<ReplicaState> getQueryableState(Page page) {
+        if (page.getPageSize() <= 0 || page.getPageNumber() < 0) {
+            return Optional.empty();
+        }
+        return getReadyState().filter(s -> s.degradedIds.isEmpty());
+    }
+
+    private Optional<JobQueryCriteria<TaskStatus.TaskState, JobSpecCase>> toCriteriaIfLocallyEvaluable(JobQuery jobQuery,
+                                                                                                  Predicate<JobQueryCriteria<TaskStatus.TaskState, JobSpecCase>> evaluable) {
+        try {
+            return Optional.of(toJobQueryCriteria(jobQuery)).filter(evaluable);
+        } catch (Exception e) {
+            // Invalid query criteria; TitusMaster returns a proper error to the client.
+            return Optional.empty();
+        }
+    }
+
+    private Optional<JobQueryCriteria<TaskStatus.TaskState, JobSpecCase>> toCriteriaIfLocallyEvaluable(TaskQuery taskQuery,
+                                                                                                  Predicate<JobQueryCriteria<TaskStatus.TaskState, JobSpecCase>> evaluable) {
+        try {
+            return Optional.of(toJobQueryCriteria(taskQuery)).filter(evaluable);
+        } catch (Exception e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Finished jobs are not kept in the replica, so a job query is evaluated locally only if it filters by a job state
+     * other than finished.
+     */
+    private static boolean isJobQueryLocallyEvaluable(JobQueryCriteria<TaskStatus.TaskState, JobSpecCase> criteria) {
+        if (!isCommonQueryLocallyEvaluable(criteria)) {
+            return false;
+        }
+        return criteria.getJobState().map(jobState -> jobState != JobStatus.JobState.Finished).orElse(false);
+    }
+
+    /**
+     * Finished tasks are not kept in the replica, so a task query is evaluated locally only if it filters by task states
+     * that do not include finished.
+     */
+    private static boolean isTaskQueryLocallyEvaluable(JobQueryCriteria<TaskStatus.TaskState, JobSpecCase> criteria) {
+        if (!isCommonQueryLocallyEvaluable(criteria)) {
+            return false;
+        }
+        return !criteria.getTaskStates().isEmpty();
+    }
+
+    private static boolean isCommonQueryLocallyEvaluable(JobQueryCriteria<TaskStatus.TaskState, JobSpecCase> criteria) {
+        if (criteria.isIncludeArchived() || criteria.isNeedsMigration()) {
+            return false;
+        }
+        if (criteria.getJobState().map(jobState -> jobState == JobStatus.JobState.Finished).orElse(false)) {
+            return false;
+        }
+        return !criteria.getTaskStates().contains(TaskStatus.TaskState.Finished);
+    }
+
+    private static Set<String> withMinimumFields(List<String> fields, Set<String> minimumFields) {
+        Set<String> result = new HashSet<>(fields);
+        result.addAll(minimumFields);
+        return result;
+    }
+
+    private void onDisconnect(Throwable error) {
+        if (connected) {
+            if (error == null) {
+                logger.warn("Job event stream from TitusMaster completed; reconnecting");
+            } else {
+                logger.warn("Job event stream from TitusMaster terminated with an error; reconnecting", error);
+            }
+            connected = false;
+            disconnectedTimestamp = clock.wallTime();
+        }
+    }
+
+    private void onNotification(JobChangeNotification notification) {
+        ReplicaState target = pendingState != null ? pendingState : state;
+        if (target == null) {
+            return;
+        }
+        try {
+            switch (notification.getNotificationCase()) {
+                case JOBUPDATE:
+                    target.updateJob(notification.getJobUpdate().getJob());
+                    break;
+                case TASKUPDATE:
+                    target.updateTask(notification.getTaskUpdate().getTask());
+                    break;
+                case SNAPSHOTEND:
+                    if (pendingState != null) {
+                        logger.info("Local job replica initialized with {} jobs and {} tasks", target.jobsById.size(), target.tasksById.size());
+                        state = pendingState;
+                        pendingState = null;
+                        connected = true;
+                    }
+                    break;
+                default:
+            }
+        } catch (Exception e) {
+            // The replica is missing the entity now, so the queries that could match it are forwarded to TitusMaster
+            // until its next update. Resubscribing would not help, as the entity would fail again in the new snapshot.
+            conversionErrorsCounter.increment();
+            String id = notification.getNotificationCase() == JobChangeNotification.NotificationCase.JOBUPDATE
+                    ? notification.getJobUpdate().getJob().getId()
+                    : notification.getTaskUpdate().getTask().getId();
+            target.degradedIds.add(id);
+            logger.warn("Cannot apply job event to the local replica; skipping entity {}", id, e);
+        }
+    }
+
+    private static class JobEntry {
+
+        private final Job grpcJob;
+        private final com.netflix.titus.api.jobmanager.model.job.Job<?> coreJob;
+
+        private JobEntry(Job grpcJob) {
+            this.grpcJob = grpcJob;
+            this.coreJob = V3GrpcModelConverters.toCoreJob(grpcJob);
+        }
+    }
+
+    private static class TaskEntry {
+
+        private final Task grpcTask;
+        private final com.netflix.titus.api.jobmanager.model.job.Task coreTask;
+
+        private TaskEntry(Task grpcTask) {
+            this.grpcTask = grpcTask;
+            this.coreTask = V3GrpcModelConverters.toCoreTask(grpcTask);
+        }
+    }
+
+    /**
+     * Updated by a single thread (the event stream), and read concurrently by the query threads.
+     */
+    private static class ReplicaState {
+
+        private final Map<String, JobEntry> jobsById = new ConcurrentHashMap<>();
+        private final Map<String, TaskEntry> tasksById = new ConcurrentHashMap<>();
+        private final Map<String, Map<String, TaskEntry>> tasksByJobId = new ConcurrentHashMap<>();
+
+        /**
+         * Ids of the jobs and tasks which could not be converted, and are missing from the replica.
+         */
+        private final Set<String> degradedIds = ConcurrentHashMap.newKeySet();
+
+        private void updateJob(Job job) {
+            if (job.getStatus().getState() == JobStatus.JobState.Finished) {
+                jobsById.remove(job.getId());
+                Map<String, TaskEntry> tasks = tasksByJobId.remove(job.getId());
+                if (tasks != null) {
+                    tasks.keySet().forEach(tasksById::remove);
+                    tasks.keySet().forEach(degradedIds::remove);
+                }
+            } else {
+                // Drop the previous version first, so a failed conversion does not leave a stale entry behind.
+                jobsById.remove(job.getId());
+                jobsById.put(job.getId(), new JobEntry(job));
+            }
+            degradedIds.remove(job.getId());
+        }
+
+        private void updateTask(Task task) {
+            removeTask(task);
+            if (task.getStatus().getState() != TaskStatus.TaskState.Finished) {
+                TaskEntry entry = new TaskEntry(task);
+                tasksById.put(task.getId(), entry);
+                tasksByJobId.computeIfAbsent(task.getJobId(), id -> new ConcurrentHashMap<>()).put(task.getId(), entry);
+            }
+            degradedIds.remove(task.getId());
+        }
+
+        private void removeTask(Task task) {
+            tasksById.remove(task.getId());
+            Map<String, TaskEntry> tasks = tasksByJobId.get(task.getJobId());
+            if (tasks != null) {
+                tasks.remove(task.getId());
+            }
+        }
+
+        private Collection<TaskEntry> getTasks(String jobId) {
+            Map<String, TaskEntry> tasks = tasksByJobId.get(jobId);
+            return tasks == null ? Collections.emptyList() : tasks.values();
+        }
+
+        private List<com.netflix.titus.api.jobmanager.model.job.Task> getCoreTasks(String jobId) {
+            Collection<TaskEntry> tasks = getTasks(jobId);
+            List<com.netflix.titus.api.jobmanager.model.job.Task> coreTasks = new ArrayList<>(tasks.size());
+            tasks.forEach(entry -> coreTasks.add(entry.coreTask));
+            return coreTasks;
+        }
+    }
+}
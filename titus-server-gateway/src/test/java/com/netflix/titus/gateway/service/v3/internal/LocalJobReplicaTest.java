@@ -0,0 +1,206 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.gateway.service.v3.internal;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.gateway.service.v3.JobManagerConfiguration;
+import com.netflix.titus.grpc.protogen.JobChangeNotification;
+import com.netflix.titus.grpc.protogen.JobQuery;
+import com.netflix.titus.grpc.protogen.Page;
+import com.netflix.titus.grpc.protogen.Task;
+import com.netflix.titus.grpc.protogen.TaskQuery;
+import com.netflix.titus.grpc.protogen.TaskStatus;
+import com.netflix.titus.runtime.endpoint.common.EmptyLogStorageInfo;
+import com.netflix.titus.runtime.endpoint.v3.grpc.V3GrpcModelConverters;
+import com.netflix.titus.testkit.model.job.JobDescriptorGenerator;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import rx.schedulers.Schedulers;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LocalJobReplicaTest {
+
+    private static final long MAX_STALENESS_MS = 5_000;
+
+    private static final long RETRY_DELAY_MS = 1_000;
+
+    private static final Page PAGE = Page.newBuilder().setPageSize(10).build();
+
+    private static final JobQuery ACTIVE_JOBS_QUERY = JobQuery.newBuilder()
+            .setPage(PAGE)
+            .putFilteringCriteria("jobState", "Accepted")
+            .build();
+
+    private static final TaskQuery ACTIVE_TASKS_QUERY = TaskQuery.newBuilder()
+            .setPage(PAGE)
+            .putFilteringCriteria("taskStates", "Accepted,Launched,StartInitiated,Started,KillInitiated")
+            .build();
+
+    private final TestScheduler testScheduler = Schedulers.test();
+    private final TitusRuntime titusRuntime = TitusRuntimes.test(testScheduler);
+    private final JobManagerConfiguration configuration = mock(JobManagerConfiguration.class);
+
+    private PublishSubject<JobChangeNotification> eventSubject;
+
+    private final Job<BatchJobExt> job = JobGenerator.batchJobs(
+            JobDescriptorGenerator.oneTaskBatchJobDescriptor().but(jd -> jd.getExtensions().toBuilder().withSize(2).build())
+    ).getValue();
+    private final List<Task> tasks = JobGenerator.batchTasks(job)
+            .map(task -> V3GrpcModelConverters.toGrpcTask(task, new EmptyLogStorageInfo<>()))
+            .toList(2);
+
+    private LocalJobReplica replica;
+
+    @Before
+    public void setUp() {
+        when(configuration.isLocalReplicaEnabled()).thenReturn(true);
+        when(configuration.getLocalReplicaMaxStalenessMs()).thenReturn(MAX_STALENESS_MS);
+
+        replica = new LocalJobReplica(configuration, () -> eventSubject = PublishSubject.create(), titusRuntime, testScheduler);
+        replica.enterActiveMode();
+    }
+
+    @After
+    public void tearDown() {
+        replica.shutdown();
+    }
+
+    @Test
+    public void testQueriesAreForwardedUntilSnapshotIsLoaded() {
+        emitJobAndTasks();
+        assertThat(replica.findJob(job.getId())).isEmpty();
+
+        emitSnapshotEnd();
+
+        assertThat(replica.findJob(job.getId()).map(com.netflix.titus.grpc.protogen.Job::getId)).contains(job.getId());
+        assertThat(replica.findTask(tasks.get(0).getId())).contains(tasks.get(0));
+        assertThat(replica.findJobs(ACTIVE_JOBS_QUERY).get().getItemsList()).hasSize(1);
+        assertThat(replica.findTasks(ACTIVE_TASKS_QUERY).get().getItemsList()).hasSize(2);
+    }
+
+    @Test
+    public void testFinishedTasksAreRemoved() {
+        emitJobAndTasks();
+        emitSnapshotEnd();
+
+        Task finished = tasks.get(0).toBuilder()
+                .setStatus(TaskStatus.newBuilder().setState(TaskStatus.TaskState.Finished))
+                .build();
+        eventSubject.onNext(JobChangeNotification.newBuilder()
+                .setTaskUpdate(JobChangeNotification.TaskUpdate.newBuilder().setTask(finished))
+                .build()
+        );
+
+        assertThat(replica.findTask(finished.getId())).isEmpty();
+        assertThat(replica.findTasks(ACTIVE_TASKS_QUERY).get().getItemsList())
+                .extracting(Task::getId)
+                .containsExactly(tasks.get(1).getId());
+    }
+
+    @Test
+    public void testFinishedTaskQueriesAreForwarded() {
+        emitJobAndTasks();
+        emitSnapshotEnd();
+
+        TaskQuery query = TaskQuery.newBuilder()
+                .setPage(PAGE)
+                .putFilteringCriteria("taskStates", "Finished")
+                .build();
+        assertThat(replica.findTasks(query)).isEmpty();
+    }
+
+    @Test
+    public void testQueriesWithoutStateFilterAreForwarded() {
+        emitJobAndTasks();
+        emitSnapshotEnd();
+
+        assertThat(replica.findJobs(JobQuery.newBuilder().setPage(PAGE).build())).isEmpty();
+        assertThat(replica.findTasks(TaskQuery.newBuilder().setPage(PAGE).build())).isEmpty();
+    }
+
+    @Test
+    public void testEntityIsSkippedAfterConversionErrorUntilNextUpdate() {
+        emitJobAndTasks();
+        emitSnapshotEnd();
+        PublishSubject<JobChangeNotification> subscribedSubject = eventSubject;
+
+        com.netflix.titus.grpc.protogen.Job grpcJob = V3GrpcModelConverters.toGrpcJob(job);
+        com.netflix.titus.grpc.protogen.Job badJob = grpcJob.toBuilder()
+                .setJobDescriptor(grpcJob.getJobDescriptor().toBuilder()
+                        .setBatch(grpcJob.getJobDescriptor().getBatch().toBuilder().clearRetryPolicy())
+                )
+                .build();
+        eventSubject.onNext(JobChangeNotification.newBuilder()
+                .setJobUpdate(JobChangeNotification.JobUpdate.newBuilder().setJob(badJob))
+                .build()
+        );
+        assertThat(replica.findJob(job.getId())).isEmpty();
+        assertThat(replica.findJobs(ACTIVE_JOBS_QUERY)).isEmpty();
+        assertThat(replica.findTasks(ACTIVE_TASKS_QUERY)).isEmpty();
+        assertThat(replica.findTask(tasks.get(0).getId())).contains(tasks.get(0));
+
+        // The event stream is not resubscribed, and the next job update brings the replica back.
+        testScheduler.advanceTimeBy(RETRY_DELAY_MS, TimeUnit.MILLISECONDS);
+        assertThat(eventSubject).isSameAs(subscribedSubject);
+
+        emitJobAndTasks();
+
+        assertThat(replica.findJob(job.getId())).isPresent();
+        assertThat(replica.findJobs(ACTIVE_JOBS_QUERY).get().getItemsList()).hasSize(1);
+        assertThat(replica.findTasks(ACTIVE_TASKS_QUERY).get().getItemsList()).hasSize(2);
+    }
+
+    @Test
+    public void testReplicaIsNotUsedWhenDisconnectedForTooLong() {
+        emitJobAndTasks();
+        emitSnapshotEnd();
+
+        eventSubject.onError(new RuntimeException("simulated connection error"));
+        assertThat(replica.findJob(job.getId())).isPresent();
+
+        testScheduler.advanceTimeBy(MAX_STALENESS_MS + 1, TimeUnit.MILLISECONDS);
+        assertThat(replica.findJob(job.getId())).isEmpty();
+    }
+
+    private void emitJobAndTasks() {
+        eventSubject.onNext(JobChangeNotification.newBuilder()
+                .setJobUpdate(JobChangeNotification.JobUpdate.newBuilder().setJob(V3GrpcModelConverters.toGrpcJob(job)))
+                .build()
+        );
+        tasks.forEach(task -> eventSubject.onNext(JobChangeNotification.newBuilder()
+                .setTaskUpdate(JobChangeNotification.TaskUpdate.newBuilder().setTask(task))
+                .build()
+        ));
+    }
+
+    private void emitSnapshotEnd() {
+        eventSubject.onNext(JobChangeNotification.newBuilder().setSnapshotEnd(JobChangeNotification.SnapshotEnd.getDefaultInstance()).build());
+    }
+}
@@ -39,7 +39,7 @@ class AgentCacheMetrics {
     private final Registry registry;
 
     private final Map<String, InstanceGroupMetrics> instanceGroupMetrics = new HashMap<>();
-    private final Map<String, InstanceMetrics> instanceMetrics = new HashMap<>();
+    private final Map<String, InstanceGroupInstanceMetrics> instanceMetricsByInstanceGroup = new HashMap<>();
 
     AgentCacheMetrics(Registry registry) {
         this.registry = registry;
@@ -66,22 +66,24 @@ class AgentCacheMetrics {
         );
     }
 
+    /**
+     * Snapshots share the instance sets of unchanged instance groups, so only instance groups with a different
+     * instance group or instance set object are visited.
+     */
     private void refreshInstanceMetrics(AgentDataSnapshot snapshot) {
         Set<String> foundIds = new HashSet<>();
-        snapshot.getInstanceGroups().forEach(
-                g -> snapshot.getInstances(g.getId())
-                        .forEach(i -> {
-                            foundIds.add(i.getId());
-                            InstanceMetrics current = this.instanceMetrics.get(i.getId());
-                            if (current == null) {
-                                instanceMetrics.put(i.getId(), new InstanceMetrics(g, i));
-                            } else {
-                                instanceMetrics.put(i.getId(), current.apply(g, i));
-                            }
-                        })
-        );
-        CollectionsExt.copyAndRemove(instanceMetrics.keySet(), foundIds).forEach(m ->
-                instanceMetrics.remove(m).remove()
+        snapshot.getInstanceGroups().forEach(g -> {
+            foundIds.add(g.getId());
+            Set<AgentInstance> instances = snapshot.getInstances(g.getId());
+            InstanceGroupInstanceMetrics current = instanceMetricsByInstanceGroup.get(g.getId());
+            if (current == null) {
+                current = new InstanceGroupInstanceMetrics();
+                instanceMetricsByInstanceGroup.put(g.getId(), current);
+            }
+            current.apply(g, instances);
+        });
+        CollectionsExt.copyAndRemove(instanceMetricsByInstanceGroup.keySet(), foundIds).forEach(m ->
+                instanceMetricsByInstanceGroup.remove(m).remove()
         );
     }
 
@@ -139,6 +141,41 @@ class AgentCacheMetrics {
         }
     }
 
+    private class InstanceGroupInstanceMetrics {
+
+        private final Map<String, InstanceMetrics> instanceMetrics = new HashMap<>();
+
+        private AgentInstanceGroup instanceGroup;
+        private Set<AgentInstance> instances;
+
+        private void apply(AgentInstanceGroup newInstanceGroup, Set<AgentInstance> newInstances) {
+            if (newInstanceGroup == instanceGroup && newInstances == instances) {
+                return;
+            }
+            this.instanceGroup = newInstanceGroup;
+            this.instances = newInstances;
+
+            Set<String> foundIds = new HashSet<>();
+            newInstances.forEach(i -> {
+                foundIds.add(i.getId());
+                InstanceMetrics current = instanceMetrics.get(i.getId());
+                if (current == null) {
+                    instanceMetrics.put(i.getId(), new InstanceMetrics(newInstanceGroup, i));
+                } else {
+                    instanceMetrics.put(i.getId(), current.apply(newInstanceGroup, i));
+                }
+            });
+            CollectionsExt.copyAndRemove(instanceMetrics.keySet(), foundIds).forEach(m ->
+                    instanceMetrics.remove(m).remove()
+            );
+        }
+
+        private void remove() {
+            instanceMetrics.values().forEach(InstanceMetrics::remove);
+            instanceMetrics.clear();
+        }
+    }
+
     private class InstanceMetrics {
 
         private final AgentInstanceGroup instanceGroup;
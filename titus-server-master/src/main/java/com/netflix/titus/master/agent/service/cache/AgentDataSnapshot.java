@@ -16,40 +16,46 @@
 
 package com.netflix.titus.master.agent.service.cache;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.AbstractSet;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import com.netflix.titus.api.agent.model.AgentInstance;
 import com.netflix.titus.api.agent.model.AgentInstanceGroup;
-import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.common.util.collections.PersistentSortedMap;
 
+/**
+ * Immutable view of the agent data. The instance groups, their instances, and the instance index are kept in
+ * persistent maps, so an update copies only the paths to the modified entries, and shares the rest with the previous
+ * snapshot. The cost of an update is proportional to the number of changed instances, not to the total number of
+ * agents. Unchanged instance groups keep their instance set objects, which lets {@link AgentCacheMetrics} skip them.
+ */
 class AgentDataSnapshot {
 
-    private final Set<String> instanceGroupIds;
+    private static final Comparator<String> ID_ORDER = Comparator.naturalOrder();
+
+    private final PersistentSortedMap<String, InstanceGroupEntry> instanceGroupsById;
+    private final PersistentSortedMap<String, AgentInstance> agentInstancesById;
     private final List<AgentInstanceGroup> instanceGroups;
-    private final Map<String, Pair<AgentInstanceGroup, Set<AgentInstance>>> instanceGroupsById;
-    private final Map<String, AgentInstance> agentInstancesById;
+
+    private volatile Set<String> instanceGroupIds;
 
     AgentDataSnapshot() {
-        this(Collections.emptyMap());
+        this(PersistentSortedMap.empty(ID_ORDER), PersistentSortedMap.empty(ID_ORDER));
     }
 
-    private AgentDataSnapshot(Map<String, Pair<AgentInstanceGroup, Set<AgentInstance>>> instanceGroupsById) {
-        this.instanceGroupsById = Collections.unmodifiableMap(instanceGroupsById);
-        this.instanceGroupIds = Collections.unmodifiableSet(new HashSet<>(instanceGroupsById.keySet()));
-        this.instanceGroups = Collections.unmodifiableList(new ArrayList<>(instanceGroupsById.values().stream().map(Pair::getLeft).collect(Collectors.toList())));
-        this.agentInstancesById = Collections.unmodifiableMap(instanceGroupsById.values().stream()
-                .flatMap(p -> p.getRight().stream())
-                .collect(Collectors.toMap(AgentInstance::getId, Function.identity()))
-        );
+    private AgentDataSnapshot(PersistentSortedMap<String, InstanceGroupEntry> instanceGroupsById,
+                              PersistentSortedMap<String, AgentInstance> agentInstancesById) {
+        this.instanceGroupsById = instanceGroupsById;
+        this.agentInstancesById = agentInstancesById;
+        this.instanceGroups = new InstanceGroupList(instanceGroupsById.values());
     }
 
     List<AgentInstanceGroup> getInstanceGroups() {
@@ -57,11 +63,16 @@ class AgentDataSnapshot {
     }
 
     AgentInstanceGroup getInstanceGroup(String instanceGroupId) {
-        Pair<AgentInstanceGroup, Set<AgentInstance>> pair = instanceGroupsById.get(instanceGroupId);
-        return pair == null ? null : pair.getLeft();
+        InstanceGroupEntry entry = instanceGroupsById.get(instanceGroupId);
+        return entry == null ? null : entry.getInstanceGroup();
     }
 
     Set<String> getInstanceGroupIds() {
+        if (instanceGroupIds == null) {
+            Set<String> ids = new HashSet<>();
+            instanceGroups.forEach(instanceGroup -> ids.add(instanceGroup.getId()));
+            instanceGroupIds = Collections.unmodifiableSet(ids);
+        }
         return instanceGroupIds;
     }
 
@@ -70,72 +81,203 @@ class AgentDataSnapshot {
     }
 
     Set<AgentInstance> getInstances(String instanceGroupId) {
-        Pair<AgentInstanceGroup, Set<AgentInstance>> pair = instanceGroupsById.get(instanceGroupId);
-        return pair == null ? null : pair.getRight();
+        InstanceGroupEntry entry = instanceGroupsById.get(instanceGroupId);
+        return entry == null ? null : entry.getInstanceSet();
     }
 
     AgentDataSnapshot updateInstanceGroup(AgentInstanceGroup agentInstanceGroup, Set<AgentInstance> agentInstances) {
-        Map<String, Pair<AgentInstanceGroup, Set<AgentInstance>>> newInstanceGroupsById = new HashMap<>(instanceGroupsById);
-        newInstanceGroupsById.put(agentInstanceGroup.getId(), Pair.of(agentInstanceGroup, agentInstances));
-        return new AgentDataSnapshot(newInstanceGroupsById);
+        String instanceGroupId = agentInstanceGroup.getId();
+        InstanceGroupEntry previous = instanceGroupsById.get(instanceGroupId);
+
+        // Instance group update only, with its instances taken from this snapshot.
+        if (previous != null && agentInstances == previous.getInstanceSet()) {
+            return new AgentDataSnapshot(
+                    instanceGroupsById.put(instanceGroupId, previous.withInstanceGroup(agentInstanceGroup)),
+                    agentInstancesById
+            );
+        }
+
+        PersistentSortedMap<String, AgentInstance> newInstances = PersistentSortedMap.empty(ID_ORDER);
+        PersistentSortedMap<String, AgentInstance> newAgentInstancesById = agentInstancesById;
+        for (AgentInstance agentInstance : agentInstances) {
+            newInstances = newInstances.put(agentInstance.getId(), agentInstance);
+            if (newAgentInstancesById.get(agentInstance.getId()) != agentInstance) {
+                newAgentInstancesById = newAgentInstancesById.put(agentInstance.getId(), agentInstance);
+            }
+        }
+        if (previous != null) {
+            for (AgentInstance previousInstance : previous.getInstanceSet()) {
+                if (newInstances.get(previousInstance.getId()) == null) {
+                    newAgentInstancesById = newAgentInstancesById.remove(previousInstance.getId());
+                }
+            }
+        }
+
+        return new AgentDataSnapshot(
+                instanceGroupsById.put(instanceGroupId, new InstanceGroupEntry(agentInstanceGroup, newInstances)),
+                newAgentInstancesById
+        );
     }
 
     AgentDataSnapshot updateAgentInstance(AgentInstance agentInstance) {
         String instanceGroupId = agentInstance.getInstanceGroupId();
-        Pair<AgentInstanceGroup, Set<AgentInstance>> previous = instanceGroupsById.get(instanceGroupId);
+        InstanceGroupEntry previous = instanceGroupsById.get(instanceGroupId);
         if (previous == null) {
             return this;
         }
-        Set<AgentInstance> instanceSet = new TreeSet<>(AgentInstance.idComparator());
-        instanceSet.add(agentInstance);
-
-        Map<String, Pair<AgentInstanceGroup, Set<AgentInstance>>> newInstanceGroupsById = new HashMap<>(instanceGroupsById);
-        newInstanceGroupsById.put(instanceGroupId, Pair.of(previous.getLeft(), instanceSet));
-
-        return new AgentDataSnapshot(newInstanceGroupsById);
+        return new AgentDataSnapshot(
+                instanceGroupsById.put(instanceGroupId, previous.withInstances(previous.getInstances().put(agentInstance.getId(), agentInstance))),
+                agentInstancesById.put(agentInstance.getId(), agentInstance)
+        );
     }
 
     AgentDataSnapshot removeInstanceGroup(String instanceGroupId) {
-        if (!instanceGroupsById.containsKey(instanceGroupId)) {
+        InstanceGroupEntry existing = instanceGroupsById.get(instanceGroupId);
+        if (existing == null) {
             return this;
         }
 
-        Map<String, Pair<AgentInstanceGroup, Set<AgentInstance>>> newInstanceGroupByIds = new HashMap<>(instanceGroupsById);
-        newInstanceGroupByIds.remove(instanceGroupId);
-
-        return new AgentDataSnapshot(newInstanceGroupByIds);
+        PersistentSortedMap<String, AgentInstance> newAgentInstancesById = agentInstancesById;
+        for (AgentInstance agentInstance : existing.getInstanceSet()) {
+            newAgentInstancesById = newAgentInstancesById.remove(agentInstance.getId());
+        }
+        return new AgentDataSnapshot(instanceGroupsById.remove(instanceGroupId), newAgentInstancesById);
     }
 
     AgentDataSnapshot removeInstances(String instanceGroupId, Set<String> agentInstanceIds) {
-        Pair<AgentInstanceGroup, Set<AgentInstance>> existing = instanceGroupsById.get(instanceGroupId);
+        InstanceGroupEntry existing = instanceGroupsById.get(instanceGroupId);
         if (existing == null) {
             return this;
         }
 
-        Map<String, Pair<AgentInstanceGroup, Set<AgentInstance>>> newInstanceGroupsById = new HashMap<>(instanceGroupsById);
-        TreeSet<AgentInstance> newInstanceSet = new TreeSet<>(AgentInstance.idComparator());
-        existing.getRight().forEach(agentInstance -> {
-            if (!agentInstanceIds.contains(agentInstance.getId())) {
-                newInstanceSet.add(agentInstance);
+        PersistentSortedMap<String, AgentInstance> newInstances = existing.getInstances();
+        PersistentSortedMap<String, AgentInstance> newAgentInstancesById = agentInstancesById;
+        for (String agentInstanceId : agentInstanceIds) {
+            if (newInstances.get(agentInstanceId) != null) {
+                newInstances = newInstances.remove(agentInstanceId);
+                newAgentInstancesById = newAgentInstancesById.remove(agentInstanceId);
             }
-        });
-        newInstanceGroupsById.put(instanceGroupId, Pair.of(existing.getLeft(), newInstanceSet));
-
-        return new AgentDataSnapshot(newInstanceGroupsById);
+        }
+        return new AgentDataSnapshot(
+                instanceGroupsById.put(instanceGroupId, existing.withInstances(newInstances)),
+                newAgentInstancesById
+        );
     }
 
     static AgentDataSnapshot initWithStaleDataSnapshot(List<AgentInstanceGroup> persistedInstanceGroups, List<AgentInstance> persistedInstances) {
         Map<String, Set<AgentInstance>> instancesByInstanceGroup = persistedInstances.stream()
                 .collect(Collectors.groupingBy(AgentInstance::getInstanceGroupId, Collectors.toSet()));
 
-        Map<String, Pair<AgentInstanceGroup, Set<AgentInstance>>> instanceGroupsById = persistedInstanceGroups.stream()
-                .map(sg -> {
-                    Set<AgentInstance> instances = instancesByInstanceGroup.get(sg.getId());
-                    instances = instances == null ? Collections.emptySet() : instances;
-                    return Pair.of(sg, instances);
-                }).collect(Collectors.toMap(p -> p.getLeft().getId(), Function.identity()));
+        AgentDataSnapshot snapshot = new AgentDataSnapshot();
+        for (AgentInstanceGroup instanceGroup : persistedInstanceGroups) {
+            Set<AgentInstance> instances = instancesByInstanceGroup.get(instanceGroup.getId());
+            snapshot = snapshot.updateInstanceGroup(instanceGroup, instances == null ? Collections.emptySet() : instances);
+        }
+        return snapshot;
+    }
+
+    private static final class InstanceGroupEntry {
+
+        private final AgentInstanceGroup instanceGroup;
+        private final PersistentSortedMap<String, AgentInstance> instances;
+        private final Set<AgentInstance> instanceSet;
+
+        private InstanceGroupEntry(AgentInstanceGroup instanceGroup, PersistentSortedMap<String, AgentInstance> instances) {
+            this(instanceGroup, instances, new InstanceSet(instances));
+        }
+
+        private InstanceGroupEntry(AgentInstanceGroup instanceGroup,
+                                   PersistentSortedMap<String, AgentInstance> instances,
+                                   Set<AgentInstance> instanceSet) {
+            this.instanceGroup = instanceGroup;
+            this.instances = instances;
+            this.instanceSet = instanceSet;
+        }
 
+        private AgentInstanceGroup getInstanceGroup() {
+            return instanceGroup;
+        }
 
-        return new AgentDataSnapshot(instanceGroupsById);
+        private PersistentSortedMap<String, AgentInstance> getInstances() {
+            return instances;
+        }
+
+        private Set<AgentInstance> getInstanceSet() {
+            return instanceSet;
+        }
+
+        private InstanceGroupEntry withInstanceGroup(AgentInstanceGroup newInstanceGroup) {
+            return new InstanceGroupEntry(newInstanceGroup, instances, instanceSet);
+        }
+
+        private InstanceGroupEntry withInstances(PersistentSortedMap<String, AgentInstance> newInstances) {
+            return newInstances == instances ? this : new InstanceGroupEntry(instanceGroup, newInstances);
+        }
+    }
+
+    /**
+     * Immutable set of instances of an instance group, ordered by instance id.
+     */
+    private static final class InstanceSet extends AbstractSet<AgentInstance> {
+
+        private final PersistentSortedMap<String, AgentInstance> instances;
+
+        private InstanceSet(PersistentSortedMap<String, AgentInstance> instances) {
+            this.instances = instances;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof AgentInstance)) {
+                return false;
+            }
+            AgentInstance agentInstance = (AgentInstance) o;
+            return agentInstance.equals(instances.get(agentInstance.getId()));
+        }
+
+        @Override
+        public Iterator<AgentInstance> iterator() {
+            return instances.values().iterator();
+        }
+
+        @Override
+        public int size() {
+            return instances.size();
+        }
+    }
+
+    private static final class InstanceGroupList extends AbstractList<AgentInstanceGroup> {
+
+        private final List<InstanceGroupEntry> entries;
+
+        private InstanceGroupList(List<InstanceGroupEntry> entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public AgentInstanceGroup get(int index) {
+            return entries.get(index).getInstanceGroup();
+        }
+
+        @Override
+        public int size() {
+            return entries.size();
+        }
+
+        @Override
+        public Iterator<AgentInstanceGroup> iterator() {
+            Iterator<InstanceGroupEntry> entryIterator = entries.iterator();
+            return new Iterator<AgentInstanceGroup>() {
+                @Override
+                public boolean hasNext() {
+                    return entryIterator.hasNext();
+                }
+
+                @Override
+                public AgentInstanceGroup next() {
+                    return entryIterator.next().getInstanceGroup();
+                }
+            };
+        }
     }
 }
@@ -62,4 +62,11 @@ public interface GrpcEndpointConfiguration {
      */
     @DefaultValue("false")
     boolean isJobSizeValidationEnabled();
+
+    /**
+     * Maximum number of job change notifications buffered for a single observeJobs subscriber. A subscriber that
+     * falls further behind is disconnected.
+     */
+    @DefaultValue("10000")
+    int getObserveJobsSubscriberBufferSize();
 }
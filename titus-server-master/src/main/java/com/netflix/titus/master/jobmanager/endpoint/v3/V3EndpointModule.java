@@ -41,6 +41,7 @@ import com.netflix.titus.master.endpoint.adapter.LegacyTitusServiceGatewayGuard;
 import com.netflix.titus.master.endpoint.grpc.GrpcEndpointConfiguration;
 import com.netflix.titus.master.jobmanager.endpoint.v3.grpc.DefaultJobManagementServiceGrpc;
 import com.netflix.titus.master.jobmanager.endpoint.v3.grpc.gateway.GrpcTitusServiceGateway;
+import com.netflix.titus.master.jobmanager.endpoint.v3.grpc.gateway.JobChangeNotificationPublisher;
 import com.netflix.titus.master.jobmanager.endpoint.v3.grpc.gateway.RoutingGrpcTitusServiceGateway;
 import com.netflix.titus.master.jobmanager.endpoint.v3.grpc.gateway.V2GrpcTitusServiceGateway;
 import com.netflix.titus.master.jobmanager.endpoint.v3.grpc.gateway.V3GrpcTitusServiceGateway;
@@ -73,8 +74,9 @@ public class V3EndpointModule extends AbstractModule {
                                                        JobSubmitLimiter jobSubmitLimiter,
                                                        LogStorageInfo<Task> v3LogStorage,
                                                        @Named(JOB_STRICT_SANITIZER) EntitySanitizer entitySanitizer,
-                                                       TitusRuntime titusRuntime) {
-        return new V3GrpcTitusServiceGateway(jobOperations, jobSubmitLimiter, v3LogStorage, entitySanitizer, titusRuntime);
+                                                       TitusRuntime titusRuntime,
+                                                       JobChangeNotificationPublisher notificationPublisher) {
+        return new V3GrpcTitusServiceGateway(jobOperations, jobSubmitLimiter, v3LogStorage, entitySanitizer, titusRuntime, notificationPublisher);
     }
 
     @Provides
@@ -62,6 +62,7 @@ import io.grpc.stub.StreamObserver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import rx.Observable;
+import rx.Subscriber;
 import rx.Subscription;
 
 import static com.netflix.titus.common.util.CollectionsExt.asSet;
@@ -257,19 +258,12 @@ public class DefaultJobManagementServiceGrpc extends JobManagementServiceGrpc.Jo
 
     @Override
     public void observeJobs(Empty request, StreamObserver<JobChangeNotification> responseObserver) {
-        Observable<JobChangeNotification> eventStream = serviceGateway.observeJobs();
-        Subscription subscription = eventStream.subscribe(
-                responseObserver::onNext,
-                e -> responseObserver.onError(
-                        new StatusRuntimeException(Status.INTERNAL
-                                .withDescription("All jobs monitoring stream terminated with an error")
-                                .withCause(e))
-                ),
-                responseObserver::onCompleted
-        );
-
         ServerCallStreamObserver<JobChangeNotification> serverObserver = (ServerCallStreamObserver<JobChangeNotification>) responseObserver;
-        serverObserver.setOnCancelHandler(subscription::unsubscribe);
+        FlowControlledSubscriber subscriber = new FlowControlledSubscriber(serverObserver);
+        serverObserver.setOnReadyHandler(subscriber::onReady);
+        serverObserver.setOnCancelHandler(subscriber::unsubscribe);
+
+        serviceGateway.observeJobs().subscribe(subscriber);
     }
 
     @Override
@@ -344,4 +338,47 @@ public class DefaultJobManagementServiceGrpc extends JobManagementServiceGrpc.Jo
 
         return builder.toString();
     }
+
+    /**
+     * Requests notifications one at a time, as long as the GRPC transport is ready to send them, so a slow client
+     * does not cause an unbounded amount of notifications to be buffered on its behalf.
+     */
+    private static class FlowControlledSubscriber extends Subscriber<JobChangeNotification> {
+
+        private final ServerCallStreamObserver<JobChangeNotification> responseObserver;
+
+        private FlowControlledSubscriber(ServerCallStreamObserver<JobChangeNotification> responseObserver) {
+            this.responseObserver = responseObserver;
+        }
+
+        @Override
+        public void onStart() {
+            request(1);
+        }
+
+        @Override
+        public void onNext(JobChangeNotification notification) {
+            responseObserver.onNext(notification);
+            if (responseObserver.isReady()) {
+                request(1);
+            }
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            responseObserver.onError(new StatusRuntimeException(Status.INTERNAL
+                    .withDescription("All jobs monitoring stream terminated with an error")
+                    .withCause(e))
+            );
+        }
+
+        @Override
+        public void onCompleted() {
+            responseObserver.onCompleted();
+        }
+
+        private void onReady() {
+            request(1);
+        }
+    }
 }
@@ -0,0 +1,563 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.endpoint.v3.grpc.gateway;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.patterns.PolledMeter;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.JobState;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.event.JobManagerEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.JobUpdateEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.TaskUpdateEvent;
+import com.netflix.titus.api.jobmanager.service.V3JobOperations;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.grpc.protogen.JobChangeNotification;
+import com.netflix.titus.master.MetricConstants;
+import com.netflix.titus.master.endpoint.grpc.GrpcEndpointConfiguration;
+import com.netflix.titus.runtime.endpoint.common.LogStorageInfo;
+import com.netflix.titus.runtime.endpoint.v3.grpc.V3GrpcModelConverters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Observable;
+import rx.Producer;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.Subscription;
+import rx.internal.operators.BackpressureUtils;
+import rx.schedulers.Schedulers;
+import rx.subscriptions.Subscriptions;
+
+import static com.netflix.titus.master.jobmanager.endpoint.v3.grpc.gateway.V3GrpcTitusServiceGateway.SNAPSHOT_END_MARKER;
+
+/**
+ * Single subscriber of the job manager event stream, shared by all observeJobs clients. Each event is converted
+ * to its GRPC form once, and applied to a snapshot of jobs and tasks, which is maintained incrementally. A new
+ * subscriber gets a copy of the snapshot followed by the subsequent notifications, without any conversion work
+ * being done on its behalf.
+ * <p>
+ * Finished jobs and tasks stay in the snapshot, together with their timestamps, for as long as they are in the job
+ * manager model, so late events about them are still recognized as stale. As the job manager does not emit events
+ * when it removes them, the finished entities are checked against the job manager before a new subscriber gets the
+ * snapshot, and periodically as events arrive.
+ * <p>
+ * Each subscriber has its own bounded queue, which is drained on a separate worker, as the subscriber requests more
+ * notifications. A subscriber that falls behind by more than
+ * {@link GrpcEndpointConfiguration#getObserveJobsSubscriberBufferSize()} notifications, or fails to accept
+ * a notification, is terminated on its own, without affecting the other subscribers or the shared event stream.
+ * <p>
+ * The job manager event stream is subscribed to when the first client arrives, and released when the last one goes
+ * away. If it terminates, all subscribers are terminated as well, and the next client starts a new subscription.
+ */
+@Singleton
+public class JobChangeNotificationPublisher {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobChangeNotificationPublisher.class);
+
+    private static final String METRIC_ROOT = MetricConstants.METRIC_ROOT + "grpc.observeJobs.";
+
+    /**
+     * How often the finished jobs and tasks in the snapshot are checked against the job manager, if no new subscriber
+     * does it in the meantime.
+     */
+    private static final long FINISHED_ENTITIES_CHECK_INTERVAL_MS = 30_000;
+
+    private final V3JobOperations jobOperations;
+    private final LogStorageInfo<Task> logStorageInfo;
+    private final GrpcEndpointConfiguration configuration;
+    private final Scheduler scheduler;
+
+    private final Counter notificationCounter;
+    private final Counter staleEventCounter;
+    private final Counter evictionCounter;
+
+    private final Object lock = new Object();
+
+    private final Map<String, CachedNotification> jobs = new LinkedHashMap<>();
+    private final Map<String, CachedNotification> tasks = new LinkedHashMap<>();
+    private final List<SubscriberChannel> channels = new ArrayList<>();
+
+    /**
+     * Subscribers waiting for the initial snapshot to be loaded.
+     */
+    private final List<SubscriberChannel> pendingChannels = new ArrayList<>();
+
+    private Subscription eventSubscription;
+
+    /**
+     * Events received while the initial snapshot is loaded, or null if the snapshot is loaded.
+     */
+    private List<Pair<JobManagerEvent<?>, JobChangeNotification>> bufferedEvents;
+
+    private volatile long lastFinishedEntitiesCheck;
+
+    @Inject
+    public JobChangeNotificationPublisher(V3JobOperations jobOperations,
+                                          LogStorageInfo<Task> logStorageInfo,
+                                          GrpcEndpointConfiguration configuration,
+                                          TitusRuntime titusRuntime) {
+        this(jobOperations, logStorageInfo, configuration, titusRuntime, Schedulers.computation());
+    }
+
+    @VisibleForTesting
+    JobChangeNotificationPublisher(V3JobOperations jobOperations,
+                                   LogStorageInfo<Task> logStorageInfo,
+                                   GrpcEndpointConfiguration configuration,
+                                   TitusRuntime titusRuntime,
+                                   Scheduler scheduler) {
+        this.jobOperations = jobOperations;
+        this.logStorageInfo = logStorageInfo;
+        this.configuration = configuration;
+        this.scheduler = scheduler;
+        this.lastFinishedEntitiesCheck = scheduler.now();
+
+        Registry registry = titusRuntime.getRegistry();
+        this.notificationCounter = registry.counter(METRIC_ROOT + "notifications");
+        this.staleEventCounter = registry.counter(METRIC_ROOT + "staleEvents");
+        this.evictionCounter = registry.counter(METRIC_ROOT + "evictions");
+        PolledMeter.using(registry).withName(METRIC_ROOT + "subscribers").monitorValue(this, self -> self.getSubscriberCount());
+        PolledMeter.using(registry).withName(METRIC_ROOT + "snapshotSize").monitorValue(this, self -> self.getSnapshotSize());
+    }
+
+    public Observable<JobChangeNotification> observeJobs() {
+        return Observable.unsafeCreate(subscriber -> {
+            SubscriberChannel channel = new SubscriberChannel(subscriber, configuration.getObserveJobsSubscriberBufferSize());
+            removeFinishedEntitiesNotInModel();
+
+            List<Pair<JobManagerEvent<?>, JobChangeNotification>> activationBuffer = null;
+            synchronized (lock) {
+                if (eventSubscription == null) {
+                    activationBuffer = subscribeToEvents();
+                }
+                if (bufferedEvents != null) {
+                    pendingChannels.add(channel);
+                } else {
+                    addChannel(channel);
+                }
+            }
+            subscriber.add(Subscriptions.create(channel::terminate));
+            subscriber.setProducer(channel);
+
+            if (activationBuffer != null) {
+                loadSnapshot(activationBuffer);
+            }
+        });
+    }
+
+    int getSubscriberCount() {
+        synchronized (lock) {
+            return channels.size();
+        }
+    }
+
+    int getSnapshotSize() {
+        synchronized (lock) {
+            return jobs.size() + tasks.size();
+        }
+    }
+
+    /**
+     * Must be called with the lock held. The events are buffered until the initial snapshot is loaded.
+     *
+     * @return the event buffer, which identifies this activation
+     */
+    private List<Pair<JobManagerEvent<?>, JobChangeNotification>> subscribeToEvents() {
+        List<Pair<JobManagerEvent<?>, JobChangeNotification>> activationBuffer = new ArrayList<>();
+        this.bufferedEvents = activationBuffer;
+        this.eventSubscription = jobOperations.observeJobs().subscribe(
+                this::onEvent,
+                this::onEventStreamError,
+                this::onEventStreamCompleted
+        );
+        return activationBuffer;
+    }
+
+    /**
+     * Loads and converts the initial snapshot without holding the lock, so events are not blocked on it. The events
+     * received in the meantime are applied on top of the snapshot. Those that are older than the loaded state are
+     * discarded.
+     */
+    private void loadSnapshot(List<Pair<JobManagerEvent<?>, JobChangeNotification>> activationBuffer) {
+        List<Pair<Job<?>, JobChangeNotification>> jobSnapshot = new ArrayList<>();
+        List<Pair<Task, JobChangeNotification>> taskSnapshot = new ArrayList<>();
+        try {
+            jobOperations.getJobs().forEach(job -> jobSnapshot.add(Pair.of(job, toJobNotification(job))));
+            jobOperations.getTasks().forEach(task -> taskSnapshot.add(Pair.of(task, toTaskNotification(task))));
+        } catch (Exception e) {
+            logger.error("Cannot load the initial job snapshot", e);
+            synchronized (lock) {
+                if (bufferedEvents == activationBuffer) {
+                    reset().forEach(channel -> channel.onError(e));
+                }
+            }
+            return;
+        }
+
+        synchronized (lock) {
+            // The event stream was terminated in the meantime
+            if (bufferedEvents != activationBuffer) {
+                return;
+            }
+            jobSnapshot.forEach(pair -> applyJob(pair.getLeft(), pair.getRight()));
+            taskSnapshot.forEach(pair -> applyTask(pair.getLeft(), pair.getRight()));
+            bufferedEvents = null;
+            activationBuffer.forEach(pair -> {
+                if (!apply(pair.getLeft(), pair.getRight())) {
+                    staleEventCounter.increment();
+                }
+            });
+            logger.info("Started shared job event stream with the initial snapshot of {} jobs and {} tasks", jobs.size(), tasks.size());
+
+            pendingChannels.forEach(this::addChannel);
+            pendingChannels.clear();
+            releaseIfNoChannels();
+        }
+    }
+
+    /**
+     * Must be called with the lock held.
+     */
+    private void addChannel(SubscriberChannel channel) {
+        jobs.values().forEach(cached -> channel.enqueue(cached.getNotification()));
+        tasks.values().forEach(cached -> channel.enqueue(cached.getNotification()));
+        channel.enqueue(SNAPSHOT_END_MARKER);
+        channels.add(channel);
+        channel.scheduleDrain();
+    }
+
+    private void onEvent(JobManagerEvent<?> event) {
+        JobChangeNotification notification = V3GrpcModelConverters.toGrpcJobChangeNotification(event, logStorageInfo);
+        synchronized (lock) {
+            if (bufferedEvents != null) {
+                bufferedEvents.add(Pair.of(event, notification));
+                return;
+            }
+            // Released subscription
+            if (eventSubscription == null) {
+                return;
+            }
+            if (!apply(event, notification)) {
+                staleEventCounter.increment();
+                return;
+            }
+            notificationCounter.increment();
+
+            for (SubscriberChannel channel : new ArrayList<>(channels)) {
+                if (!channel.offer(notification)) {
+                    channels.remove(channel);
+                    evictionCounter.increment();
+                    channel.evict();
+                }
+            }
+            releaseIfNoChannels();
+        }
+        if (scheduler.now() - lastFinishedEntitiesCheck >= FINISHED_ENTITIES_CHECK_INTERVAL_MS) {
+            removeFinishedEntitiesNotInModel();
+        }
+    }
+
+    private void onEventStreamError(Throwable error) {
+        logger.error("Unexpected error in jobs event stream", error);
+        synchronized (lock) {
+            List<SubscriberChannel> terminated = reset();
+            terminated.forEach(channel -> channel.onError(error));
+        }
+    }
+
+    private void onEventStreamCompleted() {
+        logger.info("Jobs event stream completed");
+        synchronized (lock) {
+            List<SubscriberChannel> terminated = reset();
+            terminated.forEach(SubscriberChannel::onCompleted);
+        }
+    }
+
+    private List<SubscriberChannel> reset() {
+        List<SubscriberChannel> terminated = new ArrayList<>(channels);
+        terminated.addAll(pendingChannels);
+        channels.clear();
+        pendingChannels.clear();
+        jobs.clear();
+        tasks.clear();
+        bufferedEvents = null;
+        eventSubscription = null;
+        return terminated;
+    }
+
+    private void removeChannel(SubscriberChannel channel) {
+        synchronized (lock) {
+            channels.remove(channel);
+            pendingChannels.remove(channel);
+            releaseIfNoChannels();
+        }
+    }
+
+    /**
+     * Must be called with the lock held. Unsubscribes from the job manager event stream when the last subscriber is
+     * gone, unless the initial snapshot is still being loaded, in which case it is checked again afterwards.
+     */
+    private void releaseIfNoChannels() {
+        if (eventSubscription == null || bufferedEvents != null || !channels.isEmpty() || !pendingChannels.isEmpty()) {
+            return;
+        }
+        Subscription subscription = eventSubscription;
+        reset();
+        subscription.unsubscribe();
+        logger.info("Released shared job event stream, as there are no subscribers left");
+    }
+
+    /**
+     * Drops finished jobs and tasks, which are no longer in the job manager model. The job manager is queried without
+     * holding the lock. A finished entity receives no further events, so it cannot change in the meantime.
+     */
+    private void removeFinishedEntitiesNotInModel() {
+        this.lastFinishedEntitiesCheck = scheduler.now();
+
+        List<String> finishedJobIds = new ArrayList<>();
+        List<String> finishedTaskIds = new ArrayList<>();
+        synchronized (lock) {
+            jobs.forEach((id, cached) -> {
+                if (cached.isFinished()) {
+                    finishedJobIds.add(id);
+                }
+            });
+            tasks.forEach((id, cached) -> {
+                if (cached.isFinished()) {
+                    finishedTaskIds.add(id);
+                }
+            });
+        }
+        if (finishedJobIds.isEmpty() && finishedTaskIds.isEmpty()) {
+            return;
+        }
+
+        finishedJobIds.removeIf(jobId -> jobOperations.getJob(jobId).isPresent());
+        finishedTaskIds.removeIf(taskId -> jobOperations.findTaskById(taskId).isPresent());
+
+        synchronized (lock) {
+            finishedJobIds.forEach(jobs::remove);
+            finishedTaskIds.forEach(tasks::remove);
+        }
+    }
+
+    private boolean apply(JobManagerEvent<?> event, JobChangeNotification notification) {
+        return event instanceof JobUpdateEvent
+                ? applyJob(((JobUpdateEvent) event).getCurrent(), notification)
+                : applyTask(((TaskUpdateEvent) event).getCurrent(), notification);
+    }
+
+    private boolean applyJob(Job<?> job, JobChangeNotification notification) {
+        return apply(jobs, job.getId(), job.getStatus().getTimestamp(), job.getStatus().getState() == JobState.Finished, notification);
+    }
+
+    private boolean applyTask(Task task, JobChangeNotification notification) {
+        return apply(tasks, task.getId(), task.getStatus().getTimestamp(), task.getStatus().getState() == TaskState.Finished, notification);
+    }
+
+    /**
+     * Updates the snapshot, unless the cached version of the entity has a newer status.
+     */
+    private boolean apply(Map<String, CachedNotification> cache, String id, long timestamp, boolean finished, JobChangeNotification notification) {
+        CachedNotification cached = cache.get(id);
+        if (cached != null && cached.getTimestamp() > timestamp) {
+            return false;
+        }
+        cache.put(id, new CachedNotification(timestamp, finished, notification));
+        return true;
+    }
+
+    private JobChangeNotification toJobNotification(Job<?> job) {
+        return JobChangeNotification.newBuilder()
+                .setJobUpdate(JobChangeNotification.JobUpdate.newBuilder().setJob(V3GrpcModelConverters.toGrpcJob(job)))
+                .build();
+    }
+
+    private JobChangeNotification toTaskNotification(Task task) {
+        return JobChangeNotification.newBuilder()
+                .setTaskUpdate(JobChangeNotification.TaskUpdate.newBuilder().setTask(V3GrpcModelConverters.toGrpcTask(task, logStorageInfo)))
+                .build();
+    }
+
+    private static class CachedNotification {
+
+        private final long timestamp;
+        private final boolean finished;
+        private final JobChangeNotification notification;
+
+        private CachedNotification(long timestamp, boolean finished, JobChangeNotification notification) {
+            this.timestamp = timestamp;
+            this.finished = finished;
+            this.notification = notification;
+        }
+
+        private long getTimestamp() {
+            return timestamp;
+        }
+
+        private boolean isFinished() {
+            return finished;
+        }
+
+        private JobChangeNotification getNotification() {
+            return notification;
+        }
+    }
+
+    /**
+     * Queue of notifications for a single subscriber, drained on its own worker as the subscriber requests more.
+     * The capacity covers the initial snapshot plus the configured buffer size. Errors are delivered as soon as they
+     * happen, and not after the notifications the subscriber has not consumed yet.
+     */
+    private class SubscriberChannel implements Producer {
+
+        private final Subscriber<? super JobChangeNotification> subscriber;
+        private final int bufferSize;
+        private final Scheduler.Worker worker;
+
+        private final Queue<JobChangeNotification> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private int capacity;
+        private volatile Throwable error;
+        private volatile boolean completed;
+        private volatile boolean terminated;
+
+        private SubscriberChannel(Subscriber<? super JobChangeNotification> subscriber, int bufferSize) {
+            this.subscriber = subscriber;
+            this.bufferSize = bufferSize;
+            this.capacity = bufferSize;
+            this.worker = scheduler.createWorker();
+        }
+
+        /**
+         * Adds a snapshot notification, which does not count against the buffer size.
+         */
+        private void enqueue(JobChangeNotification notification) {
+            capacity++;
+            queued.incrementAndGet();
+            queue.add(notification);
+        }
+
+        /**
+         * @return false if the subscriber has too many pending notifications
+         */
+        private boolean offer(JobChangeNotification notification) {
+            if (queued.incrementAndGet() > capacity) {
+                return false;
+            }
+            queue.add(notification);
+            scheduleDrain();
+            return true;
+        }
+
+        private void evict() {
+            onError(new IllegalStateException("Subscriber too slow; more than " + bufferSize + " job change notifications not delivered"));
+        }
+
+        private void onError(Throwable error) {
+            this.error = error;
+            scheduleDrain();
+        }
+
+        private void onCompleted() {
+            this.completed = true;
+            scheduleDrain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n > 0) {
+                BackpressureUtils.getAndAddRequest(requested, n);
+                scheduleDrain();
+            }
+        }
+
+        private void scheduleDrain() {
+            if (wip.getAndIncrement() == 0) {
+                worker.schedule(this::drain);
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                if (terminated) {
+                    return;
+                }
+                if (error != null) {
+                    terminate();
+                    subscriber.onError(error);
+                    return;
+                }
+                long limit = requested.get();
+                long emitted = 0;
+                JobChangeNotification notification;
+                while (emitted != limit && error == null && (notification = queue.poll()) != null) {
+                    queued.decrementAndGet();
+                    try {
+                        subscriber.onNext(notification);
+                    } catch (Throwable e) {
+                        logger.warn("Terminating observeJobs subscriber, which failed to accept a notification", e);
+                        evictionCounter.increment();
+                        terminate();
+                        try {
+                            subscriber.onError(e);
+                        } catch (Throwable ignore) {
+                            // Nothing more we can do about it
+                        }
+                        return;
+                    }
+                    emitted++;
+                }
+                if (emitted > 0) {
+                    BackpressureUtils.produced(requested, emitted);
+                }
+                if (error == null && completed && queue.isEmpty()) {
+                    terminate();
+                    subscriber.onCompleted();
+                    return;
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void terminate() {
+            if (!terminated) {
+                terminated = true;
+                removeChannel(this);
+                worker.unsubscribe();
+            }
+        }
+    }
+}
@@ -268,12 +268,16 @@ public class RoutingGrpcTitusServiceGateway implements GrpcTitusServiceGateway {
 
     @Override
     public Observable<JobChangeNotification> observeJobs() {
-        return v2EngineGateway.observeJobs().flatMap(event -> {
-            if (event.getNotificationCase() == NotificationCase.SNAPSHOTEND) {
-                return v3EngineGateway.observeJobs();
-            }
-            return Observable.just(event);
-        });
+        // The V2 stream does not support backpressure, so it is buffered here. The V3 stream is flow controlled by
+        // the subscriber, and is the only long lived inner stream, so at most one V2 notification is in flight next to it.
+        return v2EngineGateway.observeJobs()
+                .onBackpressureBuffer()
+                .flatMap(event -> {
+                    if (event.getNotificationCase() == NotificationCase.SNAPSHOTEND) {
+                        return v3EngineGateway.observeJobs();
+                    }
+                    return Observable.just(event);
+                }, 2);
     }
 
     @Override
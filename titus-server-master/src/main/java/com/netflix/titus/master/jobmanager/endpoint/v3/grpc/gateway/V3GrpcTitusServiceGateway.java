@@ -47,9 +47,11 @@ import com.netflix.titus.master.endpoint.common.TaskSummary;
 import com.netflix.titus.master.jobmanager.service.limiter.JobSubmitLimiter;
 import com.netflix.titus.runtime.endpoint.JobQueryCriteria;
 import com.netflix.titus.runtime.endpoint.common.LogStorageInfo;
+import com.netflix.titus.runtime.endpoint.v3.grpc.GrpcFieldProjection;
 import com.netflix.titus.runtime.endpoint.v3.grpc.V3GrpcModelConverters;
 import com.netflix.titus.runtime.endpoint.v3.grpc.query.V3JobQueryCriteriaEvaluator;
 import com.netflix.titus.runtime.endpoint.v3.grpc.query.V3TaskQueryCriteriaEvaluator;
+import com.netflix.titus.runtime.jobmanager.JobManagerCursors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import rx.Observable;
@@ -72,18 +74,21 @@ public class V3GrpcTitusServiceGateway implements GrpcTitusServiceGateway {
     private final LogStorageInfo<Task> logStorageInfo;
     private final EntitySanitizer entitySanitizer;
     private final TitusRuntime titusRuntime;
+    private final JobChangeNotificationPublisher notificationPublisher;
 
     @Inject
     public V3GrpcTitusServiceGateway(V3JobOperations jobOperations,
                                      JobSubmitLimiter jobSubmitLimiter,
                                      LogStorageInfo<Task> logStorageInfo,
                                      @Named(JOB_STRICT_SANITIZER) EntitySanitizer entitySanitizer,
-                                     TitusRuntime titusRuntime) {
+                                     TitusRuntime titusRuntime,
+                                     JobChangeNotificationPublisher notificationPublisher) {
         this.jobOperations = jobOperations;
         this.jobSubmitLimiter = jobSubmitLimiter;
         this.logStorageInfo = logStorageInfo;
         this.entitySanitizer = entitySanitizer;
         this.titusRuntime = titusRuntime;
+        this.notificationPublisher = notificationPublisher;
     }
 
     @Override
@@ -144,7 +149,9 @@ public class V3GrpcTitusServiceGateway implements GrpcTitusServiceGateway {
         boolean hasMore = queryResult.size() > page.getPageSize();
         List<com.netflix.titus.api.jobmanager.model.job.Job<?>> pageResult = hasMore ? queryResult.subList(0, page.getPageSize()) : queryResult;
 
-        List<Job> jobs = pageResult.stream().map(V3GrpcModelConverters::toGrpcJob).collect(Collectors.toList());
+        // Entities are sorted by the routing layer, so the cursor fields must be included in the projection.
+        GrpcFieldProjection projection = GrpcFieldProjection.of(queryCriteria.getFields(), JobManagerCursors.JOB_CURSOR_FIELDS);
+        List<Job> jobs = pageResult.stream().map(job -> V3GrpcModelConverters.toGrpcJob(job, projection)).collect(Collectors.toList());
         //TODO the pagination model here is not semantically correct since the total is not even known
         return Pair.of(jobs, new Pagination(page, false, 1, jobs.size(), "", 0));
     }
@@ -165,8 +172,9 @@ public class V3GrpcTitusServiceGateway implements GrpcTitusServiceGateway {
         boolean hasMore = queryResult.size() > page.getPageSize();
         List<Pair<com.netflix.titus.api.jobmanager.model.job.Job<?>, Task>> pageResult = hasMore ? queryResult.subList(0, page.getPageSize()) : queryResult;
 
+        GrpcFieldProjection projection = GrpcFieldProjection.of(queryCriteria.getFields(), JobManagerCursors.TASK_CURSOR_FIELDS);
         List<com.netflix.titus.grpc.protogen.Task> tasks = pageResult.stream().map(jobTaskPair ->
-                V3GrpcModelConverters.toGrpcTask(jobTaskPair.getRight(), logStorageInfo)
+                V3GrpcModelConverters.toGrpcTask(jobTaskPair.getRight(), logStorageInfo, projection)
         ).collect(Collectors.toList());
         //TODO the pagination model here is not semantically correct since the total is not even known
         return Pair.of(tasks, new Pagination(page, false, 1, tasks.size(), "", 0));
@@ -216,13 +224,7 @@ public class V3GrpcTitusServiceGateway implements GrpcTitusServiceGateway {
 
     @Override
     public Observable<JobChangeNotification> observeJobs() {
-        return jobOperations.observeJobs().map(event -> V3GrpcModelConverters.toGrpcJobChangeNotification(event, logStorageInfo))
-                .compose(ObservableExt.head(() -> {
-                    List<JobChangeNotification> snapshot = createJobsSnapshot();
-                    snapshot.add(SNAPSHOT_END_MARKER);
-                    return snapshot;
-                }))
-                .doOnError(e -> logger.error("Unexpected error in jobs event stream", e));
+        return notificationPublisher.observeJobs();
     }
 
     @Override
@@ -236,18 +238,6 @@ public class V3GrpcTitusServiceGateway implements GrpcTitusServiceGateway {
                 .doOnError(e -> logger.error("Unexpected error in job {} event stream", jobId, e));
     }
 
-    private List<JobChangeNotification> createJobsSnapshot() {
-        List<JobChangeNotification> snapshot = new ArrayList<>();
-
-        List<com.netflix.titus.api.jobmanager.model.job.Job> coreJobs = jobOperations.getJobs();
-        coreJobs.forEach(coreJob -> snapshot.add(toJobChangeNotification(coreJob)));
-
-        List<Task> coreTasks = jobOperations.getTasks();
-        coreTasks.forEach(task -> snapshot.add(toJobChangeNotification(task)));
-
-        return snapshot;
-    }
-
     private List<JobChangeNotification> createJobSnapshot(String jobId) {
         List<JobChangeNotification> snapshot = new ArrayList<>();
 
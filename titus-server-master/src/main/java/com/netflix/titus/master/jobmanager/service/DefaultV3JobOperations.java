@@ -16,9 +16,13 @@
 
 package com.netflix.titus.master.jobmanager.service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -241,6 +245,15 @@ public class DefaultV3JobOperations implements V3JobOperations {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public Optional<Pair<Job<?>, Task>> findTaskById(String taskId) {
+        return reconciliationFramework.findEngineByChildId(taskId).map(engineChildPair -> {
+            Job<?> job = engineChildPair.getLeft().getReferenceView().getEntity();
+            Task task = engineChildPair.getRight().getEntity();
+            return Pair.of(job, task);
+        });
+    }
+
     @Override
     public Completable updateTask(String taskId, Function<Task, Optional<Task>> changeFunction, Trigger trigger, String reason) {
         Optional<ReconciliationEngine<JobManagerReconcilerEvent>> engineOpt = reconciliationFramework.findEngineByChildId(taskId).map(Pair::getLeft);
@@ -282,6 +295,83 @@ public class DefaultV3JobOperations implements V3JobOperations {
         return engine.changeReferenceModel(changeAction).toCompletable();
     }
 
+    @Override
+    public Observable<Pair<String, Optional<Throwable>>> recordTaskPlacements(List<Pair<String, Function<Task, Task>>> taskChangeFunctions) {
+        Map<ReconciliationEngine<JobManagerReconcilerEvent>, List<Pair<String, Function<Task, Task>>>> placementsByEngine = new HashMap<>();
+        List<Pair<String, Optional<Throwable>>> notFound = new ArrayList<>();
+        taskChangeFunctions.forEach(placement -> {
+            String taskId = placement.getLeft();
+            Optional<ReconciliationEngine<JobManagerReconcilerEvent>> engineOpt = reconciliationFramework.findEngineByChildId(taskId).map(Pair::getLeft);
+            if (engineOpt.isPresent()) {
+                placementsByEngine.computeIfAbsent(engineOpt.get(), engine -> new ArrayList<>()).add(placement);
+            } else {
+                notFound.add(Pair.of(taskId, Optional.of(JobManagerException.taskNotFound(taskId))));
+            }
+        });
+
+        List<Observable<Pair<String, Optional<Throwable>>>> engineResults = placementsByEngine.entrySet().stream()
+                .map(entry -> recordTaskPlacementsInJob(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList());
+
+        return Observable.from(notFound).mergeWith(Observable.merge(engineResults));
+    }
+
+    private Observable<Pair<String, Optional<Throwable>>> recordTaskPlacementsInJob(ReconciliationEngine<JobManagerReconcilerEvent> engine,
+                                                                                  List<Pair<String, Function<Task, Task>>> placements) {
+        Map<String, Throwable> failures = new ConcurrentHashMap<>();
+
+        TitusChangeAction changeAction = TitusChangeAction.newAction("recordTaskPlacements")
+                .id(engine.getReferenceView().getId())
+                .trigger(Trigger.Scheduler)
+                .summary("Scheduler assigned %s task(s) to agents", placements.size())
+                .changeWithModelUpdates(self -> {
+                    List<Observable<List<ModelActionHolder>>> taskUpdates = placements.stream()
+                            .map(placement -> {
+                                String taskId = placement.getLeft();
+                                Optional<Task> taskOpt = JobEntityHolders.expectTask(engine, taskId, titusRuntime);
+                                if (!taskOpt.isPresent()) {
+                                    failures.put(taskId, JobManagerException.taskNotFound(taskId));
+                                    return Observable.<List<ModelActionHolder>>empty();
+                                }
+
+                                Task newTask;
+                                try {
+                                    newTask = placement.getRight().apply(taskOpt.get());
+                                } catch (Exception e) {
+                                    failures.put(taskId, e);
+                                    return Observable.<List<ModelActionHolder>>empty();
+                                }
+
+                                TitusModelAction modelUpdate = TitusModelAction.newModelUpdate("recordTaskPlacement")
+                                        .task(newTask)
+                                        .trigger(Trigger.Scheduler)
+                                        .summary("Scheduler assigned task to an agent")
+                                        .taskUpdate(newTask);
+                                return store.updateTask(newTask).andThen(Observable.just(ModelActionHolder.allModels(modelUpdate)))
+                                        .onErrorResumeNext(e -> {
+                                            failures.put(taskId, e);
+                                            return Observable.empty();
+                                        });
+                            })
+                            .collect(Collectors.toList());
+
+                    return Observable.merge(taskUpdates).reduce(
+                            new ArrayList<ModelActionHolder>(),
+                            (acc, modelActionHolders) -> {
+                                acc.addAll(modelActionHolders);
+                                return acc;
+                            }
+                    ).map(all -> (List<ModelActionHolder>) all);
+                });
+
+        return engine.changeReferenceModel(changeAction).toCompletable()
+                .andThen(Observable.defer(() -> Observable.from(placements).map(placement -> {
+                    String taskId = placement.getLeft();
+                    return Pair.of(taskId, Optional.ofNullable(failures.get(taskId)));
+                })))
+                .onErrorResumeNext(e -> Observable.from(placements).map(placement -> Pair.of(placement.getLeft(), Optional.of(e))));
+    }
+
     @Override
     public Observable<Void> updateJobCapacity(String jobId, Capacity capacity) {
         return inServiceJob(jobId).flatMap(engine -> {
@@ -30,6 +30,20 @@ public interface JobManagerConfiguration {
     @DefaultValue("50")
     long getReconcilerActiveTimeoutMs();
 
+    /**
+     * Number of partitions the job reconciliation engines are split into. Each partition runs its own reconciliation
+     * loop, so with more than one partition jobs are reconciled concurrently.
+     */
+    @DefaultValue("1")
+    int getReconcilerShardCount();
+
+    /**
+     * If enabled, the reconciliation loop is triggered immediately when a new change action or a model update is
+     * queued, and evaluates only the engines with pending work. All engines are still evaluated once every idle timeout period.
+     */
+    @DefaultValue("false")
+    boolean isReconcilerSignalingEnabled();
+
     /**
      * How many active tasks in the transient state (in other words not Started and not Finished) are allowed in a job.
      * If the number of active tasks in the transient state goes above this limit, no new tasks are created.
@@ -22,6 +22,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -98,6 +99,7 @@ public class JobReconciliationFrameworkFactory {
     static final String SERVICE_RESOLVER = "serviceResolver";
 
     private static final int MAX_RETRIEVE_TASK_CONCURRENCY = 100;
+    private static final int BOOTSTRAP_PARALLELISM = Runtime.getRuntime().availableProcessors();
 
     private static final JobEventFactory JOB_EVENT_FACTORY = new JobEventFactory();
 
@@ -120,6 +122,7 @@ public class JobReconciliationFrameworkFactory {
     private final Registry registry;
     private final Clock clock;
     private final Scheduler scheduler;
+    private final Scheduler bootstrapScheduler = Schedulers.computation();
 
     private final Gauge loadedJobs;
     private final Gauge loadedTasks;
@@ -189,19 +192,25 @@ public class JobReconciliationFrameworkFactory {
     }
 
     ReconciliationFramework<JobManagerReconcilerEvent> newInstance() {
-        List<Pair<Job, List<Task>>> jobsAndTasks = checkGlobalConsistency(loadJobsAndTasksFromStore(errorCollector));
+        BootstrapPhaseTimer phaseTimer = new BootstrapPhaseTimer();
+
+        List<RestoredJob> restoredJobs = loadJobsAndTasksFromStore(errorCollector, phaseTimer);
+        restoredJobs = checkGlobalConsistency(restoredJobs);
+        phaseTimer.phaseCompleted("globalConsistencyCheck");
+
+        List<Pair<RestoredJob, ReconciliationEngine<JobManagerReconcilerEvent>>> restoredEngines = newRestoredEngines(restoredJobs);
+        phaseTimer.phaseCompleted("engineCreation");
 
         // initialize fenzo with running tasks
         List<ReconciliationEngine<JobManagerReconcilerEvent>> engines = new ArrayList<>();
-        for (Pair<Job, List<Task>> pair : jobsAndTasks) {
-            Job job = pair.getLeft();
-            List<Task> tasks = pair.getRight();
-            ReconciliationEngine<JobManagerReconcilerEvent> engine = newRestoredEngine(job, tasks);
+        for (Pair<RestoredJob, ReconciliationEngine<JobManagerReconcilerEvent>> pair : restoredEngines) {
+            RestoredJob restoredJob = pair.getLeft();
+            ReconciliationEngine<JobManagerReconcilerEvent> engine = pair.getRight();
             engines.add(engine);
-            for (Task task : tasks) {
-                Optional<Task> validatedTask = validateTask(task);
-                if (validatedTask.isPresent()) {
-                    TaskFenzoCheck check = addTaskToFenzo(engine, job, task);
+            for (EntityHolder taskHolder : restoredJob.getJobHolder().getChildren()) {
+                Task task = taskHolder.getEntity();
+                if (restoredJob.isValidTask(task.getId())) {
+                    TaskFenzoCheck check = addTaskToFenzo(engine, restoredJob.getJob(), task);
                     if (check == TaskFenzoCheck.FenzoAddError) {
                         errorCollector.taskAddToFenzoError(task.getId());
                     } else if (check == TaskFenzoCheck.Inconsistent) {
@@ -212,6 +221,8 @@ public class JobReconciliationFrameworkFactory {
                 }
             }
         }
+        phaseTimer.phaseCompleted("fenzoRegistration");
+        phaseTimer.report();
 
         errorCollector.failIfTooManyBadRecords();
 
@@ -221,19 +232,34 @@ public class JobReconciliationFrameworkFactory {
                 jobManagerConfiguration.getReconcilerIdleTimeoutMs(),
                 jobManagerConfiguration.getReconcilerActiveTimeoutMs(),
                 INDEX_COMPARATORS,
+                jobManagerConfiguration.getReconcilerShardCount(),
+                jobManagerConfiguration.isReconcilerSignalingEnabled(),
                 registry,
                 scheduler
         );
     }
 
-    private ReconciliationEngine<JobManagerReconcilerEvent> newRestoredEngine(Job job, List<Task> tasks) {
-        EntityHolder jobHolder = EntityHolder.newRoot(job.getId(), job);
+    /**
+     * Creates engines in parallel, as building the engine indexes for large jobs is not cheap.
+     */
+    private List<Pair<RestoredJob, ReconciliationEngine<JobManagerReconcilerEvent>>> newRestoredEngines(List<RestoredJob> restoredJobs) {
+        return Observable.from(restoredJobs)
+                .flatMap(restoredJob -> Observable.fromCallable(() -> Pair.of(restoredJob, newEngine(restoredJob.getJobHolder(), false)))
+                                .subscribeOn(bootstrapScheduler),
+                        BOOTSTRAP_PARALLELISM
+                )
+                .toList()
+                .toBlocking()
+                .singleOrDefault(Collections.emptyList());
+    }
+
+    private EntityHolder newRestoredJobHolder(Job job, List<Task> tasks) {
+        List<EntityHolder> taskHolders = new ArrayList<>(tasks.size());
         for (Task task : tasks) {
             EntityHolder taskHolder = EntityHolder.newRoot(task.getId(), task);
-            EntityHolder decorated = TaskTimeoutChangeActions.setTimeoutOnRestoreFromStore(jobManagerConfiguration, taskHolder, clock);
-            jobHolder = jobHolder.addChild(decorated);
+            taskHolders.add(TaskTimeoutChangeActions.setTimeoutOnRestoreFromStore(jobManagerConfiguration, taskHolder, clock));
         }
-        return newEngine(jobHolder, false);
+        return EntityHolder.newRoot(job.getId(), job).addChildren(taskHolders);
     }
 
     private ReconciliationEngine<JobManagerReconcilerEvent> newEngine(EntityHolder bootstrapModel, boolean newlyCreated) {
@@ -341,52 +367,72 @@ public class JobReconciliationFrameworkFactory {
         return true;
     }
 
-    private List<Pair<Job, List<Task>>> loadJobsAndTasksFromStore(InitializationErrorCollector errorCollector) {
+    /**
+     * Loads jobs and their tasks from the store. Records are processed as they arrive: job validation, task loading,
+     * task validation, and building the job entity holder are done for each job independently, and in parallel.
+     */
+    private List<RestoredJob> loadJobsAndTasksFromStore(InitializationErrorCollector errorCollector, BootstrapPhaseTimer phaseTimer) {
         long startTime = clock.wallTime();
 
-        // load all job/task pairs
-        List<Pair<Job, Pair<List<Task>, Integer>>> jobTasksPairs;
+        List<RestoredJob> restoredJobs;
         try {
-            jobTasksPairs = store.init().andThen(store.retrieveJobs().flatMap(retrievedJobsAndErrors -> {
+            restoredJobs = store.init().andThen(store.retrieveJobs().flatMap(retrievedJobsAndErrors -> {
+                phaseTimer.phaseCompleted("jobRecordsLoad");
                 errorCollector.corruptedJobRecords(retrievedJobsAndErrors.getRight());
 
-                List<Job<?>> retrievedJobs = retrievedJobsAndErrors.getLeft();
-                List<Observable<Pair<Job, Pair<List<Task>, Integer>>>> retrieveTasksObservables = new ArrayList<>();
-                for (Job job : retrievedJobs) {
-
-                    // TODO Finished jobs that were not archived immediately should be moved by background archive process
-                    if (job.getStatus().getState() == JobState.Finished) {
-                        logger.info("Not loading finished job: {}", job.getId());
-                        continue;
-                    }
-
-                    Optional<Job> validatedJob = validateJob(job);
-                    if (validatedJob.isPresent()) {
-                        Observable<Pair<Job, Pair<List<Task>, Integer>>> retrieveTasksObservable = store.retrieveTasksForJob(job.getId())
-                                .map(taskList -> new Pair<>(validatedJob.get(), taskList));
-                        retrieveTasksObservables.add(retrieveTasksObservable);
-                    } else {
-                        errorCollector.invalidJob(job.getId());
-                    }
-                }
-                return Observable.merge(retrieveTasksObservables, MAX_RETRIEVE_TASK_CONCURRENCY);
+                return Observable.from(retrievedJobsAndErrors.getLeft())
+                        .filter(job -> {
+                            // TODO Finished jobs that were not archived immediately should be moved by background archive process
+                            if (job.getStatus().getState() == JobState.Finished) {
+                                logger.info("Not loading finished job: {}", job.getId());
+                                return false;
+                            }
+                            return true;
+                        })
+                        .flatMap(job -> Observable.defer(() -> restoreJob(job)).subscribeOn(bootstrapScheduler), MAX_RETRIEVE_TASK_CONCURRENCY);
             })).toList().toBlocking().singleOrDefault(Collections.emptyList());
 
-            int corruptedTaskRecords = jobTasksPairs.stream().mapToInt(p -> p.getRight().getRight()).sum();
+            int corruptedTaskRecords = restoredJobs.stream().mapToInt(RestoredJob::getCorruptedTaskRecords).sum();
             errorCollector.corruptedTaskRecords(corruptedTaskRecords);
 
-            int taskCount = jobTasksPairs.stream().map(p -> p.getRight().getLeft().size()).reduce(0, (a, v) -> a + v);
-            loadedJobs.set(jobTasksPairs.size());
+            int taskCount = restoredJobs.stream().mapToInt(restoredJob -> restoredJob.getJobHolder().getChildren().size()).sum();
+            loadedJobs.set(restoredJobs.size());
             loadedTasks.set(taskCount);
-            logger.info("{} jobs and {} tasks loaded from store in {}ms", jobTasksPairs.size(), taskCount, clock.wallTime() - startTime);
+            logger.info("{} jobs and {} tasks loaded from store in {}ms", restoredJobs.size(), taskCount, clock.wallTime() - startTime);
         } catch (Exception e) {
             logger.error("Failed to load jobs from the store during initialization:", e);
             throw new IllegalStateException("Failed to load jobs from the store during initialization", e);
         } finally {
             storeLoadTimeMs.set(clock.wallTime() - startTime);
         }
+        phaseTimer.phaseCompleted("storeLoad");
 
-        return jobTasksPairs.stream().map(p -> Pair.of(p.getLeft(), p.getRight().getLeft())).collect(Collectors.toList());
+        return restoredJobs;
+    }
+
+    private Observable<RestoredJob> restoreJob(Job<?> job) {
+        Optional<Job> validatedJob = validateJob(job);
+        if (!validatedJob.isPresent()) {
+            errorCollector.invalidJob(job.getId());
+            return Observable.empty();
+        }
+        return store.retrieveTasksForJob(job.getId())
+                .observeOn(bootstrapScheduler)
+                .map(tasksAndErrors -> {
+                    List<Task> tasks = tasksAndErrors.getLeft();
+                    Set<String> invalidTaskIds = new HashSet<>();
+                    for (Task task : tasks) {
+                        if (!validateTask(task).isPresent()) {
+                            invalidTaskIds.add(task.getId());
+                        }
+                    }
+                    return new RestoredJob(
+                            validatedJob.get(),
+                            newRestoredJobHolder(validatedJob.get(), tasks),
+                            invalidTaskIds,
+                            tasksAndErrors.getRight()
+                    );
+                });
     }
 
     private Optional<Job> validateJob(Job job) {
@@ -431,19 +477,25 @@ public class JobReconciliationFrameworkFactory {
         return Optional.of(task);
     }
 
-    private List<Pair<Job, List<Task>>> checkGlobalConsistency(List<Pair<Job, List<Task>>> jobsAndTasks) {
+    /**
+     * Consistency checks that need the full view of all jobs and tasks. They are run after all records are loaded.
+     * Tasks that fail them are removed from their job entity holders.
+     */
+    private List<RestoredJob> checkGlobalConsistency(List<RestoredJob> restoredJobs) {
         Map<String, Map<String, Set<String>>> eniAssignmentMap = new HashMap<>();
 
-        List<Pair<Job, List<Task>>> filtered = jobsAndTasks.stream()
-                .map(jobAndTasks -> {
-                            List<Task> filteredTasks = jobAndTasks.getRight().stream()
-                                    .map(task -> checkTaskEniAssignment(task, eniAssignmentMap))
-                                    .filter(Optional::isPresent)
-                                    .map(Optional::get)
-                                    .collect(Collectors.toList());
-                            return Pair.of(jobAndTasks.getLeft(), filteredTasks);
+        List<RestoredJob> filtered = restoredJobs.stream()
+                .map(restoredJob -> {
+                    EntityHolder jobHolder = restoredJob.getJobHolder();
+                    for (EntityHolder taskHolder : restoredJob.getJobHolder().getChildren()) {
+                        Task task = taskHolder.getEntity();
+                        if (!checkTaskEniAssignment(task, eniAssignmentMap).isPresent()) {
+                            jobHolder = jobHolder.removeChild(task.getId()).getLeft();
                         }
-                ).collect(Collectors.toList());
+                    }
+                    return jobHolder == restoredJob.getJobHolder() ? restoredJob : restoredJob.withJobHolder(jobHolder);
+                })
+                .collect(Collectors.toList());
 
         // Report overlaps
         eniAssignmentMap.forEach((eniSignature, assignments) -> {
@@ -496,4 +548,63 @@ public class JobReconciliationFrameworkFactory {
         Task task2 = holder2.getEntity();
         return Long.compare(task1.getStatus().getTimestamp(), task2.getStatus().getTimestamp());
     }
+
+    private static class RestoredJob {
+
+        private final Job job;
+        private final EntityHolder jobHolder;
+        private final Set<String> invalidTaskIds;
+        private final int corruptedTaskRecords;
+
+        private RestoredJob(Job job, EntityHolder jobHolder, Set<String> invalidTaskIds, int corruptedTaskRecords) {
+            this.job = job;
+            this.jobHolder = jobHolder;
+            this.invalidTaskIds = invalidTaskIds;
+            this.corruptedTaskRecords = corruptedTaskRecords;
+        }
+
+        private Job getJob() {
+            return job;
+        }
+
+        private EntityHolder getJobHolder() {
+            return jobHolder;
+        }
+
+        private boolean isValidTask(String taskId) {
+            return !invalidTaskIds.contains(taskId);
+        }
+
+        private int getCorruptedTaskRecords() {
+            return corruptedTaskRecords;
+        }
+
+        private RestoredJob withJobHolder(EntityHolder newJobHolder) {
+            return new RestoredJob(job, newJobHolder, invalidTaskIds, corruptedTaskRecords);
+        }
+    }
+
+    /**
+     * Measures the duration of the consecutive bootstrap phases, and reports them as gauges, and in the log.
+     */
+    private class BootstrapPhaseTimer {
+
+        private final long startTime = clock.wallTime();
+        private final Map<String, Long> phaseTimes = new LinkedHashMap<>();
+        private long lastPhaseEndTime = startTime;
+
+        private synchronized void phaseCompleted(String phase) {
+            long now = clock.wallTime();
+            long elapsed = now - lastPhaseEndTime;
+            lastPhaseEndTime = now;
+            phaseTimes.put(phase, elapsed);
+            registry.gauge(registry.createId(ROOT_METRIC_NAME + "phaseTimeMs", "phase", phase)).set(elapsed);
+        }
+
+        private synchronized void report() {
+            long total = lastPhaseEndTime - startTime;
+            registry.gauge(registry.createId(ROOT_METRIC_NAME + "phaseTimeMs", "phase", "total")).set(total);
+            logger.info("Job manager bootstrap completed in {}ms: phases={}", total, phaseTimes);
+        }
+    }
 }
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.service;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.common.util.histogram.Histogram;
+import com.netflix.titus.common.util.histogram.HistogramDescriptor;
+import com.netflix.titus.master.service.management.ApplicationSlaManagementService;
+
+/**
+ * Index of active tasks, grouped by capacity group and task state, with the time the tasks entered their current
+ * state kept in {@link TimeBucketCounter}s. The index is updated from task state change events, so
+ * {@link TaskLivenessMetrics} can build its histograms without traversing all tasks.
+ * <p>
+ * The initial state is loaded from a snapshot of the job manager model. Events received between the subscription
+ * and the snapshot load are buffered, and replayed on top of the snapshot, so a snapshot read before an event was
+ * emitted never overrides the newer state carried by that event.
+ * <p>
+ * Events and metric refreshes come from different threads, so all access is synchronized.
+ */
+abstract class TaskLivenessIndex<EVENT> {
+
+    static final long BUCKET_RESOLUTION_MS = 10_000;
+
+    private final long horizonMs;
+
+    private final Map<String, TaskEntry> tasksById = new HashMap<>();
+    private final Map<String, Map<TaskState, TimeBucketCounter>> countersByCapacityGroup = new HashMap<>();
+
+    private List<EVENT> bufferedEvents;
+
+    TaskLivenessIndex(HistogramDescriptor histogramDescriptor) {
+        List<Long> valueBounds = histogramDescriptor.getValueBounds();
+        this.horizonMs = valueBounds.get(valueBounds.size() - 1);
+    }
+
+    /**
+     * Must be called before subscribing to the event stream. Events are buffered until the snapshot is loaded.
+     */
+    synchronized void startResync() {
+        this.bufferedEvents = new ArrayList<>();
+    }
+
+    synchronized void onEvent(EVENT event) {
+        if (bufferedEvents != null) {
+            bufferedEvents.add(event);
+        } else {
+            applyEvent(event);
+        }
+    }
+
+    /**
+     * Adds the time spent in the current state by all tasks to the histograms. Tasks of capacity groups not present in
+     * the histogram map are assigned to the default capacity group.
+     */
+    synchronized void addTo(Map<String, Map<String, Histogram.Builder>> capacityGroupsHistograms,
+                            HistogramDescriptor histogramDescriptor,
+                            long now) {
+        countersByCapacityGroup.forEach((capacityGroup, counters) -> {
+            String effectiveCapacityGroup = capacityGroupsHistograms.containsKey(capacityGroup)
+                    ? capacityGroup
+                    : ApplicationSlaManagementService.DEFAULT_APPLICATION;
+            Map<String, Histogram.Builder> histograms = capacityGroupsHistograms.computeIfAbsent(effectiveCapacityGroup, k -> new HashMap<>());
+            counters.forEach((state, counter) ->
+                    counter.addTo(histograms.computeIfAbsent(state.name(), name -> Histogram.newBuilder(histogramDescriptor)), now)
+            );
+        });
+    }
+
+    /**
+     * Replaces the index content with the snapshot loaded by the given action, and replays the buffered events.
+     */
+    protected synchronized void resync(Runnable snapshotLoader) {
+        tasksById.clear();
+        countersByCapacityGroup.clear();
+        snapshotLoader.run();
+        if (bufferedEvents != null) {
+            bufferedEvents.forEach(this::applyEvent);
+            bufferedEvents = null;
+        }
+    }
+
+    protected abstract void applyEvent(EVENT event);
+
+    /**
+     * Moves the task to the counter of its new state, or removes it if it is finished.
+     */
+    protected void updateTask(String taskId, String capacityGroup, TaskState state, long timestamp) {
+        removeTask(taskId);
+        if (state == TaskState.Finished || timestamp <= 0) {
+            return;
+        }
+        tasksById.put(taskId, new TaskEntry(capacityGroup, state, timestamp));
+        countersByCapacityGroup.computeIfAbsent(capacityGroup, k -> new EnumMap<>(TaskState.class))
+                .computeIfAbsent(state, s -> new TimeBucketCounter(BUCKET_RESOLUTION_MS, horizonMs))
+                .add(timestamp);
+    }
+
+    private void removeTask(String taskId) {
+        TaskEntry entry = tasksById.remove(taskId);
+        if (entry == null) {
+            return;
+        }
+        Map<TaskState, TimeBucketCounter> counters = countersByCapacityGroup.get(entry.capacityGroup);
+        TimeBucketCounter counter = counters.get(entry.state);
+        counter.remove(entry.timestamp);
+        if (counter.isEmpty()) {
+            counters.remove(entry.state);
+            if (counters.isEmpty()) {
+                countersByCapacityGroup.remove(entry.capacityGroup);
+            }
+        }
+    }
+
+    private static class TaskEntry {
+
+        private final String capacityGroup;
+        private final TaskState state;
+        private final long timestamp;
+
+        private TaskEntry(String capacityGroup, TaskState state, long timestamp) {
+            this.capacityGroup = capacityGroup;
+            this.state = state;
+            this.timestamp = timestamp;
+        }
+    }
+}
@@ -22,7 +22,6 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -33,25 +32,19 @@ import javax.inject.Singleton;
 import com.netflix.spectator.api.Gauge;
 import com.netflix.spectator.api.Id;
 import com.netflix.spectator.api.Registry;
-import com.netflix.titus.api.jobmanager.model.job.Job;
-import com.netflix.titus.api.jobmanager.model.job.Task;
 import com.netflix.titus.api.jobmanager.model.job.TaskState;
 import com.netflix.titus.api.jobmanager.service.V3JobOperations;
 import com.netflix.titus.api.model.ApplicationSLA;
 import com.netflix.titus.api.model.Tier;
-import com.netflix.titus.api.model.v2.V2JobState;
-import com.netflix.titus.api.model.v2.parameter.Parameters;
-import com.netflix.titus.api.store.v2.V2JobMetadata;
-import com.netflix.titus.api.store.v2.V2WorkerMetadata;
+import com.netflix.titus.api.model.event.TaskStateChangeEvent;
 import com.netflix.titus.common.util.CollectionsExt;
 import com.netflix.titus.common.util.DateTimeExt;
-import com.netflix.titus.common.util.StringExt;
 import com.netflix.titus.common.util.guice.annotation.Activator;
 import com.netflix.titus.common.util.histogram.Histogram;
 import com.netflix.titus.common.util.histogram.HistogramDescriptor;
 import com.netflix.titus.common.util.rx.ObservableExt;
+import com.netflix.titus.common.util.rx.eventbus.RxEventBus;
 import com.netflix.titus.master.MetricConstants;
-import com.netflix.titus.master.job.V2JobMgrIntf;
 import com.netflix.titus.master.job.V2JobOperations;
 import com.netflix.titus.master.service.management.ApplicationSlaManagementService;
 import org.slf4j.Logger;
@@ -64,6 +57,9 @@ import rx.schedulers.Schedulers;
  * Supplementary metrics based on both job/task state, and elapsed time. These metrics cannot be computed only
  * in response to system state change events. Instead, they are recomputed at regular interval.
  * <p>
+ * V3 tasks are kept in {@link V3TaskLivenessIndex}, which is updated from the job manager events, and V2 tasks in
+ * {@link V2TaskLivenessIndex}, which is updated from the {@link TaskStateChangeEvent}s on the event bus, so a refresh
+ * only re-publishes their already aggregated counters.
  */
 @Singleton
 public class TaskLivenessMetrics {
@@ -103,18 +99,27 @@ public class TaskLivenessMetrics {
 
     private final Map<String, Map<String, List<Gauge>>> capacityGroupsMetrics = new HashMap<>();
 
+    private final RxEventBus rxEventBus;
+
+    private final V2TaskLivenessIndex v2TaskIndex = new V2TaskLivenessIndex(HISTOGRAM_DESCRIPTOR);
+    private final V3TaskLivenessIndex v3TaskIndex = new V3TaskLivenessIndex(HISTOGRAM_DESCRIPTOR);
+
     private Subscription subscription;
+    private Subscription v2TaskEventSubscription;
+    private Subscription jobEventSubscription;
 
     @Inject
     public TaskLivenessMetrics(ApplicationSlaManagementService applicationSlaManagementService,
                                V2JobOperations v2JobOperations,
                                V3JobOperations v3JobOperations,
                                JobManagerConfiguration configuration,
+                               RxEventBus rxEventBus,
                                Registry registry) {
         this.applicationSlaManagementService = applicationSlaManagementService;
         this.v2JobOperations = v2JobOperations;
         this.v3JobOperations = v3JobOperations;
         this.configuration = configuration;
+        this.rxEventBus = rxEventBus;
         this.registry = registry;
     }
 
@@ -131,16 +136,50 @@ public class TaskLivenessMetrics {
 
     @PreDestroy
     public void shutdown() {
-        ObservableExt.safeUnsubscribe(subscription);
+        ObservableExt.safeUnsubscribe(subscription, v2TaskEventSubscription, jobEventSubscription);
     }
 
     private void refresh() {
+        if (v2TaskEventSubscription == null || v2TaskEventSubscription.isUnsubscribed()) {
+            subscribeToV2TaskEvents();
+        }
+        if (jobEventSubscription == null || jobEventSubscription.isUnsubscribed()) {
+            subscribeToJobEvents();
+        }
         Map<String, Tier> tierMap = buildTierMap();
         Map<String, Map<String, Histogram.Builder>> capacityGroupsHistograms = buildCapacityGroupsHistograms(tierMap.keySet());
         resetDroppedCapacityGroups(capacityGroupsHistograms.keySet());
         updateCapacityGroupCounters(capacityGroupsHistograms, tierMap);
     }
 
+    /**
+     * Subscribes to the V2 task state change events, and loads the current V2 task state into the index. If the event
+     * stream terminates, this is repeated in the next refresh.
+     */
+    private void subscribeToV2TaskEvents() {
+        v2TaskIndex.startResync();
+        this.v2TaskEventSubscription = rxEventBus.listen(getClass().getSimpleName(), TaskStateChangeEvent.class).subscribe(
+                v2TaskIndex::onEvent,
+                e -> logger.warn("V2 task event stream terminated with an error", e),
+                () -> logger.info("V2 task event stream completed")
+        );
+        v2TaskIndex.resync(v2JobOperations.getAllJobMgrs());
+    }
+
+    /**
+     * Subscribes to the job manager events, and loads the current V3 task state into the index. If the event stream
+     * terminates, this is repeated in the next refresh.
+     */
+    private void subscribeToJobEvents() {
+        v3TaskIndex.startResync();
+        this.jobEventSubscription = v3JobOperations.observeJobs().subscribe(
+                v3TaskIndex::onEvent,
+                e -> logger.warn("Job manager event stream terminated with an error", e),
+                () -> logger.info("Job manager event stream completed")
+        );
+        v3TaskIndex.resync(v3JobOperations.getJobsAndTasks());
+    }
+
     private void resetDroppedCapacityGroups(Set<String> knownCapacityGroups) {
         CollectionsExt.copyAndRemove(capacityGroupsMetrics.keySet(), knownCapacityGroups).forEach(absent -> {
             Map<String, List<Gauge>> removed = capacityGroupsMetrics.remove(absent);
@@ -206,86 +245,19 @@ public class TaskLivenessMetrics {
     }
 
     /**
-     * Traverse all active tasks and collect their state and the time they stayed in this state (the latter in form of histogram).
+     * Collect the V2 and V3 task counters by capacity group and task state, with the time the tasks stayed in this
+     * state (the latter in form of histogram).
      *
      * @return mapOf(capacityGroupName - > mapOf ( taskState, histogram))
      */
     private Map<String, Map<String, Histogram.Builder>> buildCapacityGroupsHistograms(Set<String> capacityGroups) {
         Map<String, Map<String, Histogram.Builder>> capacityGroupsHistograms = newCapacityHistograms(capacityGroups);
-        v2JobOperations.getAllJobMgrs()
-                .forEach(jmgr -> resolveCapacityGroup(jmgr, capacityGroupsHistograms).ifPresent(capacityGroup ->
-                        buildCapacityGroupHistogram(jmgr, capacityGroup, capacityGroupsHistograms)
-                ));
-        v3JobOperations.getJobs()
-                .forEach(job -> resolveCapacityGroup(job, capacityGroupsHistograms).ifPresent(capacityGroup ->
-                        buildCapacityGroupHistogram(job, capacityGroup, capacityGroupsHistograms)
-                ));
+        long now = System.currentTimeMillis();
+        v2TaskIndex.addTo(capacityGroupsHistograms, HISTOGRAM_DESCRIPTOR, now);
+        v3TaskIndex.addTo(capacityGroupsHistograms, HISTOGRAM_DESCRIPTOR, now);
         return capacityGroupsHistograms;
     }
 
-    private void buildCapacityGroupHistogram(V2JobMgrIntf jmgr, String capacityGroup, Map<String, Map<String, Histogram.Builder>> capacityGroupsHistograms) {
-        // 'capacityGroupsHistograms' is pre-initialized, but to avoid race condition we make extra check here.
-        Map<String, Histogram.Builder> capacityGroupHistograms = capacityGroupsHistograms.computeIfAbsent(capacityGroup, k -> new HashMap<>());
-        jmgr.getWorkers().forEach(worker -> {
-            long timestamp = getTimestamp(worker);
-            if (timestamp > 0) {
-                long durationMs = System.currentTimeMillis() - timestamp;
-                capacityGroupHistograms.computeIfAbsent(
-                        V2JobState.toV3TaskState(worker.getState()).name(),
-                        name -> Histogram.newBuilder(HISTOGRAM_DESCRIPTOR)
-                ).increment(durationMs);
-            }
-        });
-    }
-
-    private void buildCapacityGroupHistogram(Job<?> job, String capacityGroup, Map<String, Map<String, Histogram.Builder>> capacityGroupsHistograms) {
-        // 'capacityGroupsHistograms' is pre-initialized, but to avoid race condition we make extra check here.
-        Map<String, Histogram.Builder> capacityGroupHistograms = capacityGroupsHistograms.computeIfAbsent(capacityGroup, k -> new HashMap<>());
-        List<Task> tasks;
-        try {
-            tasks = v3JobOperations.getTasks(job.getId());
-        } catch (Exception e) {
-            // We work on live data, which may be removed at any point in time.
-            return;
-        }
-        tasks.forEach(task -> {
-            long timestamp = task.getStatus().getTimestamp();
-            if (timestamp > 0) {
-                long durationMs = System.currentTimeMillis() - timestamp;
-                capacityGroupHistograms.computeIfAbsent(
-                        task.getStatus().getState().name(),
-                        name -> Histogram.newBuilder(HISTOGRAM_DESCRIPTOR)
-                ).increment(durationMs);
-            }
-        });
-    }
-
-    private Optional<String> resolveCapacityGroup(V2JobMgrIntf jmgr, Map<String, Map<String, Histogram.Builder>> capacityHistograms) {
-        V2JobMetadata jobMetadata = jmgr.getJobMetadata();
-        if (jobMetadata == null) {
-            return Optional.empty();
-        }
-        String capacityGroup = Parameters.getCapacityGroup(jobMetadata.getParameters());
-        if (capacityGroup == null) {
-            capacityGroup = Parameters.getAppName(jobMetadata.getParameters());
-        }
-        if (capacityGroup == null) {
-            return Optional.of(ApplicationSlaManagementService.DEFAULT_APPLICATION);
-        }
-        return Optional.of(capacityHistograms.containsKey(capacityGroup) ? capacityGroup : ApplicationSlaManagementService.DEFAULT_APPLICATION);
-    }
-
-    private Optional<String> resolveCapacityGroup(Job<?> job, Map<String, Map<String, Histogram.Builder>> capacityHistograms) {
-        String capacityGroup = job.getJobDescriptor().getCapacityGroup();
-        if (StringExt.isEmpty(capacityGroup)) {
-            capacityGroup = job.getJobDescriptor().getApplicationName();
-        }
-        if (StringExt.isEmpty(capacityGroup)) {
-            return Optional.of(ApplicationSlaManagementService.DEFAULT_APPLICATION);
-        }
-        return Optional.of(capacityHistograms.containsKey(capacityGroup) ? capacityGroup : ApplicationSlaManagementService.DEFAULT_APPLICATION);
-    }
-
     private Map<String, Tier> buildTierMap() {
         return applicationSlaManagementService.getApplicationSLAs().stream()
                 .collect(Collectors.toMap(ApplicationSLA::getAppName, ApplicationSLA::getTier));
@@ -294,29 +266,4 @@ public class TaskLivenessMetrics {
     private Map<String, Map<String, Histogram.Builder>> newCapacityHistograms(Set<String> capacityGroups) {
         return capacityGroups.stream().collect(Collectors.toMap(name -> name, name -> new HashMap<>()));
     }
-
-    private long getTimestamp(V2WorkerMetadata worker) {
-        V2JobState state = worker.getState();
-        long timestamp;
-        switch (state) {
-            case Accepted:
-                timestamp = worker.getAcceptedAt();
-                break;
-            case Launched:
-                timestamp = worker.getLaunchedAt();
-                break;
-            case StartInitiated:
-                timestamp = worker.getStartingAt();
-                break;
-            case Started:
-                timestamp = worker.getStartedAt();
-                break;
-            case Failed:
-            case Completed:
-            case Noop:
-            default:
-                timestamp = -1;
-        }
-        return timestamp;
-    }
 }
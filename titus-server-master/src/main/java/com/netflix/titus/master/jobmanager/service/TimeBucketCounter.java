@@ -0,0 +1,95 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.service;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import com.netflix.titus.common.util.histogram.Histogram;
+
+/**
+ * Counts timestamps in time buckets of a fixed resolution, so the age histogram of the counted items can be computed
+ * in time proportional to the number of non-empty buckets, not the number of items. Buckets older than the horizon
+ * (the largest histogram bound) are merged into a single overflow counter, as their exact age no longer matters.
+ * This keeps the number of buckets bounded by {@code horizonMs / resolutionMs}.
+ * <p>
+ * Ages are computed from the bucket start time, so they can be overestimated by up to the bucket resolution.
+ * The class is not thread safe.
+ */
+class TimeBucketCounter {
+
+    private final long resolutionMs;
+    private final long horizonMs;
+
+    private final TreeMap<Long, Integer> buckets = new TreeMap<>();
+
+    private long overflowBeforeBucket = Long.MIN_VALUE;
+    private long overflowCount;
+    private long size;
+
+    TimeBucketCounter(long resolutionMs, long horizonMs) {
+        this.resolutionMs = resolutionMs;
+        this.horizonMs = horizonMs;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void add(long timestamp) {
+        long bucket = timestamp / resolutionMs;
+        if (bucket < overflowBeforeBucket) {
+            overflowCount++;
+        } else {
+            buckets.merge(bucket, 1, Integer::sum);
+        }
+        size++;
+    }
+
+    void remove(long timestamp) {
+        long bucket = timestamp / resolutionMs;
+        if (bucket < overflowBeforeBucket) {
+            overflowCount--;
+        } else {
+            buckets.computeIfPresent(bucket, (key, count) -> count == 1 ? null : count - 1);
+        }
+        size--;
+    }
+
+    /**
+     * Adds the ages of all counted items at time {@code now} to the given histogram.
+     */
+    void addTo(Histogram.Builder histogramBuilder, long now) {
+        long horizonBucket = (now - horizonMs) / resolutionMs;
+        if (horizonBucket > overflowBeforeBucket) {
+            SortedMap<Long, Integer> expired = buckets.headMap(horizonBucket);
+            for (Integer count : expired.values()) {
+                overflowCount += count;
+            }
+            expired.clear();
+            overflowBeforeBucket = horizonBucket;
+        }
+
+        if (overflowCount > 0) {
+            histogramBuilder.add(Long.MAX_VALUE, overflowCount);
+        }
+        for (Map.Entry<Long, Integer> entry : buckets.entrySet()) {
+            histogramBuilder.add(now - entry.getKey() * resolutionMs, entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.service;
+
+import java.util.Collection;
+
+import com.netflix.titus.api.model.event.TaskStateChangeEvent;
+import com.netflix.titus.api.model.v2.V2JobState;
+import com.netflix.titus.api.model.v2.WorkerNaming;
+import com.netflix.titus.api.model.v2.parameter.Parameters;
+import com.netflix.titus.api.store.v2.V2JobMetadata;
+import com.netflix.titus.api.store.v2.V2WorkerMetadata;
+import com.netflix.titus.common.util.histogram.HistogramDescriptor;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.master.job.V2JobMgrIntf;
+import com.netflix.titus.master.service.management.ApplicationSlaManagementService;
+
+/**
+ * {@link TaskLivenessIndex} of V2 tasks, updated from the {@link TaskStateChangeEvent}s published by the V2 job
+ * managers on the event bus.
+ */
+class V2TaskLivenessIndex extends TaskLivenessIndex<TaskStateChangeEvent<?, ?>> {
+
+    V2TaskLivenessIndex(HistogramDescriptor histogramDescriptor) {
+        super(histogramDescriptor);
+    }
+
+    void resync(Collection<V2JobMgrIntf> jobMgrs) {
+        resync(() -> jobMgrs.forEach(jobMgr -> {
+            V2JobMetadata jobMetadata = jobMgr.getJobMetadata();
+            if (jobMetadata != null) {
+                String capacityGroup = resolveCapacityGroup(jobMetadata);
+                jobMgr.getWorkers().forEach(worker -> updateTask(capacityGroup, worker, worker.getState()));
+            }
+        }));
+    }
+
+    @Override
+    protected void applyEvent(TaskStateChangeEvent<?, ?> event) {
+        if (!(event.getSource() instanceof Pair) || !(event.getState() instanceof V2JobState)) {
+            return;
+        }
+        Pair<?, ?> source = (Pair<?, ?>) event.getSource();
+        if (source.getLeft() instanceof V2JobMetadata && source.getRight() instanceof V2WorkerMetadata) {
+            updateTask(
+                    resolveCapacityGroup((V2JobMetadata) source.getLeft()),
+                    (V2WorkerMetadata) source.getRight(),
+                    (V2JobState) event.getState()
+            );
+        }
+    }
+
+    /**
+     * The worker object is mutable, so the task state is taken from the event, and not from the worker.
+     */
+    private void updateTask(String capacityGroup, V2WorkerMetadata worker, V2JobState state) {
+        updateTask(WorkerNaming.getTaskId(worker), capacityGroup, V2JobState.toV3TaskState(state), getTimestamp(worker, state));
+    }
+
+    private static String resolveCapacityGroup(V2JobMetadata jobMetadata) {
+        String capacityGroup = Parameters.getCapacityGroup(jobMetadata.getParameters());
+        if (capacityGroup == null) {
+            capacityGroup = Parameters.getAppName(jobMetadata.getParameters());
+        }
+        return capacityGroup == null ? ApplicationSlaManagementService.DEFAULT_APPLICATION : capacityGroup;
+    }
+
+    private static long getTimestamp(V2WorkerMetadata worker, V2JobState state) {
+        switch (state) {
+            case Accepted:
+                return worker.getAcceptedAt();
+            case Launched:
+                return worker.getLaunchedAt();
+            case StartInitiated:
+                return worker.getStartingAt();
+            case Started:
+                return worker.getStartedAt();
+            case Failed:
+            case Completed:
+            case Noop:
+            default:
+                return -1;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.service;
+
+import java.util.List;
+
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.event.JobManagerEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.TaskUpdateEvent;
+import com.netflix.titus.common.util.StringExt;
+import com.netflix.titus.common.util.histogram.HistogramDescriptor;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.master.service.management.ApplicationSlaManagementService;
+
+/**
+ * {@link TaskLivenessIndex} of V3 tasks, updated from the job manager task events.
+ */
+class V3TaskLivenessIndex extends TaskLivenessIndex<JobManagerEvent<?>> {
+
+    V3TaskLivenessIndex(HistogramDescriptor histogramDescriptor) {
+        super(histogramDescriptor);
+    }
+
+    void resync(List<Pair<Job, List<Task>>> jobsAndTasks) {
+        resync(() -> jobsAndTasks.forEach(jobAndTasks -> {
+            String capacityGroup = resolveCapacityGroup(jobAndTasks.getLeft());
+            jobAndTasks.getRight().forEach(task -> updateTask(capacityGroup, task));
+        }));
+    }
+
+    @Override
+    protected void applyEvent(JobManagerEvent<?> event) {
+        if (event instanceof TaskUpdateEvent) {
+            TaskUpdateEvent taskEvent = (TaskUpdateEvent) event;
+            updateTask(resolveCapacityGroup(taskEvent.getCurrentJob()), taskEvent.getCurrentTask());
+        }
+    }
+
+    private void updateTask(String capacityGroup, Task task) {
+        updateTask(task.getId(), capacityGroup, task.getStatus().getState(), task.getStatus().getTimestamp());
+    }
+
+    private static String resolveCapacityGroup(Job<?> job) {
+        String capacityGroup = job.getJobDescriptor().getCapacityGroup();
+        if (StringExt.isEmpty(capacityGroup)) {
+            capacityGroup = job.getJobDescriptor().getApplicationName();
+        }
+        return StringExt.isEmpty(capacityGroup) ? ApplicationSlaManagementService.DEFAULT_APPLICATION : capacityGroup;
+    }
+}
@@ -19,6 +19,7 @@ package com.netflix.titus.master.jobmanager.service.common;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -35,11 +36,14 @@ import com.netflix.titus.api.jobmanager.model.job.Task;
 import com.netflix.titus.api.jobmanager.model.job.TwoLevelResource;
 import com.netflix.titus.api.model.Tier;
 import com.netflix.titus.common.util.CollectionsExt;
+import com.netflix.titus.common.util.StringExt;
 import com.netflix.titus.common.util.tuple.Pair;
 import com.netflix.titus.master.model.job.TitusQueuableTask;
 import com.netflix.titus.master.scheduler.constraint.ConstraintEvaluatorTransformer;
 import com.netflix.titus.master.scheduler.constraint.SystemHardConstraint;
 import com.netflix.titus.master.scheduler.constraint.SystemSoftConstraint;
+import com.netflix.titus.master.scheduler.resourcecache.AgentResourceCacheFunctions;
+import com.netflix.titus.master.scheduler.resourcecache.AgentResourceCacheImage;
 
 import static com.netflix.titus.common.util.CollectionsExt.isNullOrEmpty;
 
@@ -61,6 +65,12 @@ public class V3QueueableTask implements TitusQueuableTask<Job, Task> {
 
     private final V3QAttributes qAttributes;
 
+    /**
+     * Placement keys used by the fitness calculators for each task and agent pair, so they are computed once.
+     */
+    private final AgentResourceCacheImage image;
+    private final String joinedSecurityGroupIds;
+
     private List<ConstraintEvaluator> hardConstraints;
     private List<VMTaskFitnessCalculator> softConstraints;
     private final Map<String, NamedResourceSetRequest> namedResources = new HashMap<>();
@@ -87,6 +97,12 @@ public class V3QueueableTask implements TitusQueuableTask<Job, Task> {
 
         this.qAttributes = new V3QAttributes(tier.ordinal(), capacityGroup);
 
+        this.image = AgentResourceCacheFunctions.createImage(job);
+        this.joinedSecurityGroupIds = StringExt.concatenate(
+                new HashSet<>(job.getJobDescriptor().getContainer().getSecurityProfile().getSecurityGroups()),
+                AgentResourceCacheFunctions.SECURITY_GROUP_ID_DELIMITER
+        );
+
         List<TwoLevelResource> twoLevelResources = task.getTwoLevelResources();
         if (!isNullOrEmpty(twoLevelResources)) {
             assignedResources = new AssignedResources();
@@ -122,6 +138,14 @@ public class V3QueueableTask implements TitusQueuableTask<Job, Task> {
         return task.getId();
     }
 
+    public AgentResourceCacheImage getImage() {
+        return image;
+    }
+
+    public String getJoinedSecurityGroupIds() {
+        return joinedSecurityGroupIds;
+    }
+
     @Override
     public String taskGroupName() {
         return DEFAULT_GRP_NAME;
@@ -18,8 +18,11 @@ package com.netflix.titus.master.loadbalancer.service;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -34,6 +37,7 @@ import com.netflix.spectator.api.Counter;
 import com.netflix.spectator.api.Id;
 import com.netflix.spectator.api.Registry;
 import com.netflix.spectator.api.Tag;
+import com.netflix.spectator.api.Timer;
 import com.netflix.spectator.api.patterns.PolledMeter;
 import com.netflix.titus.api.connector.cloud.LoadBalancerConnector;
 import com.netflix.titus.api.jobmanager.service.JobManagerException;
@@ -44,6 +48,8 @@ import com.netflix.titus.api.loadbalancer.model.LoadBalancerTarget.State;
 import com.netflix.titus.api.loadbalancer.model.TargetState;
 import com.netflix.titus.api.loadbalancer.store.LoadBalancerStore;
 import com.netflix.titus.common.util.CollectionsExt;
+import com.netflix.titus.common.util.limiter.Limiters;
+import com.netflix.titus.common.util.limiter.tokenbucket.TokenBucket;
 import com.netflix.titus.common.util.rx.ObservableExt;
 import com.netflix.titus.common.util.rx.batch.Priority;
 import com.netflix.titus.common.util.spectator.ContinuousSubscriptionMetrics;
@@ -64,6 +70,12 @@ import static com.netflix.titus.master.MetricConstants.METRIC_LOADBALANCER;
  * <p>
  * This was a simple way to get a first version out of the door, but it will likely be changed in the future once we
  * have a good way to track which targets should be managed by this reconciler.
+ * <p>
+ * Reading registered targets from a load balancer is expensive, so each run only reads load balancers that may have
+ * drifted: the ones with association changes, the ones for which updates were recently enqueued (they are reconciled
+ * again when the update cooldown expires), and the ones not reconciled for longer than
+ * {@link LoadBalancerConfiguration#getReconciliationMaxAgeMs()}. Reads are done concurrently, within a rate budget
+ * for each cloud account.
  */
 public class DefaultLoadBalancerReconciler implements LoadBalancerReconciler {
     private static final Logger logger = LoggerFactory.getLogger(DefaultLoadBalancerReconciler.class);
@@ -76,6 +88,7 @@ public class DefaultLoadBalancerReconciler implements LoadBalancerReconciler {
     private static final String METRIC_RECONCILER = METRIC_LOADBALANCER + "reconciliation";
     private static final String UNKNOWN_JOB = "UNKNOWN-JOB";
     private static final String UNKNOWN_TASK = "UNKNOWN-TASK";
+    private static final String DEFAULT_ACCOUNT = "default";
 
     private final ConcurrentMap<LoadBalancerTarget, Instant> ignored = new ConcurrentHashMap<>();
 
@@ -83,6 +96,14 @@ public class DefaultLoadBalancerReconciler implements LoadBalancerReconciler {
     // visibility across multiple reconciliation runs, which may run on different threads
     private final Set<JobLoadBalancer> markedAsOrphan = ConcurrentHashMap.newKeySet();
 
+    // loadBalancerId -> time after which it should be reconciled, as it may have changed
+    private final ConcurrentMap<String, Instant> dirty = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Instant> lastReconciled = new ConcurrentHashMap<>();
+    // associations seen by the previous run, to detect changes
+    private final ConcurrentMap<String, Set<JobLoadBalancerState>> previousAssociations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, TokenBucket> accountBudgets = new ConcurrentHashMap<>();
+
+    private final LoadBalancerConfiguration configuration;
     private final LoadBalancerStore store;
     private final LoadBalancerConnector connector;
     private final LoadBalancerJobOperations jobOperations;
@@ -97,9 +118,12 @@ public class DefaultLoadBalancerReconciler implements LoadBalancerReconciler {
     private final ContinuousSubscriptionMetrics fullReconciliationMetrics;
     private final ContinuousSubscriptionMetrics orphanUpdateMetrics;
     private final ContinuousSubscriptionMetrics removeMetrics;
-    private final ContinuousSubscriptionMetrics registeredIpsMetrics;
+    private final Timer registeredIpsLatency;
+    private final Counter skippedCounter;
+    private final Id rateLimitedId;
     private final Id ignoredMetricsId;
     private final Id orphanMetricsId;
+    private final Id dirtyMetricsId;
 
     DefaultLoadBalancerReconciler(LoadBalancerConfiguration configuration,
                                   LoadBalancerStore store,
@@ -107,6 +131,7 @@ public class DefaultLoadBalancerReconciler implements LoadBalancerReconciler {
                                   LoadBalancerJobOperations loadBalancerJobOperations,
                                   Registry registry,
                                   Scheduler scheduler) {
+        this.configuration = configuration;
         this.store = store;
         this.connector = connector;
         this.jobOperations = loadBalancerJobOperations;
@@ -122,11 +147,15 @@ public class DefaultLoadBalancerReconciler implements LoadBalancerReconciler {
         this.fullReconciliationMetrics = SpectatorExt.continuousSubscriptionMetrics(METRIC_RECONCILER + ".full", tags, registry);
         this.orphanUpdateMetrics = SpectatorExt.continuousSubscriptionMetrics(METRIC_RECONCILER + ".orphanUpdates", tags, registry);
         this.removeMetrics = SpectatorExt.continuousSubscriptionMetrics(METRIC_RECONCILER + ".remove", tags, registry);
-        this.registeredIpsMetrics = SpectatorExt.continuousSubscriptionMetrics(METRIC_RECONCILER + ".getRegisteredIps", tags, registry);
+        this.registeredIpsLatency = registry.timer(METRIC_RECONCILER + ".getRegisteredIps.latency", tags);
+        this.skippedCounter = registry.counter(METRIC_RECONCILER + ".skipped", tags);
+        this.rateLimitedId = registry.createId(METRIC_RECONCILER + ".rateLimited", tags);
         this.ignoredMetricsId = registry.createId(METRIC_RECONCILER + ".ignored", tags);
         this.orphanMetricsId = registry.createId(METRIC_RECONCILER + ".orphan", tags);
+        this.dirtyMetricsId = registry.createId(METRIC_RECONCILER + ".dirty", tags);
         PolledMeter.using(registry).withId(ignoredMetricsId).monitorSize(ignored);
         PolledMeter.using(registry).withId(orphanMetricsId).monitorSize(markedAsOrphan);
+        PolledMeter.using(registry).withId(dirtyMetricsId).monitorSize(dirty);
     }
 
     @Override
@@ -135,15 +164,17 @@ public class DefaultLoadBalancerReconciler implements LoadBalancerReconciler {
         logger.debug("Setting a cooldown of {} for target {}", periodDuration, target);
         Instant untilWhen = Instant.ofEpochMilli(scheduler.now()).plus(periodDuration);
         ignored.put(target, untilWhen);
+        // check that the update was applied once the cooldown expires
+        dirty.merge(target.getLoadBalancerId(), untilWhen, (previous, next) -> previous.isAfter(next) ? previous : next);
     }
 
     @Override
     public void shutdown() {
         orphanUpdateMetrics.remove();
         removeMetrics.remove();
-        registeredIpsMetrics.remove();
         PolledMeter.remove(registry, ignoredMetricsId);
         PolledMeter.remove(registry, orphanMetricsId);
+        PolledMeter.remove(registry, dirtyMetricsId);
     }
 
     @Override
@@ -153,7 +184,7 @@ public class DefaultLoadBalancerReconciler implements LoadBalancerReconciler {
 
         // full reconciliation run
         final Observable<TargetStateBatchable> updatesForAll = cleanupOrphansAndSnapshot
-                .flatMap(entry -> reconcile(entry.getKey(), entry.getValue()), 1)
+                .flatMap(entry -> reconcile(entry.getKey(), entry.getValue()), Math.max(1, configuration.getReconciliationConcurrency()))
                 .compose(ObservableExt.subscriptionTimeout(timeoutMs, TimeUnit.MILLISECONDS, scheduler))
                 .compose(fullReconciliationMetrics.asObservable())
                 .doOnError(e -> logger.error("reconciliation failed", e))
@@ -166,11 +197,19 @@ public class DefaultLoadBalancerReconciler implements LoadBalancerReconciler {
     }
 
     private Observable<TargetStateBatchable> reconcile(String loadBalancerId, List<JobLoadBalancerState> associations) {
-        final Observable<TargetStateBatchable> updatesForLoadBalancer = connector.getRegisteredIps(loadBalancerId)
-                // the same metrics transformer can be used for all subscriptions only because they are all being
-                // serialized with flatMap(maxConcurrent: 1)
-                .compose(registeredIpsMetrics.asSingle())
-                .flatMapObservable(registeredIps -> updatesFor(loadBalancerId, associations, registeredIps));
+        final Observable<TargetStateBatchable> updatesForLoadBalancer = Observable.defer(() -> {
+            if (!tryTakeBudget(loadBalancerId)) {
+                logger.debug("Reconciliation rate limit exceeded, skipping load balancer {} in this run", loadBalancerId);
+                return Observable.empty();
+            }
+            final Instant startTime = now();
+            return connector.getRegisteredIps(loadBalancerId)
+                    .doOnSuccess(registeredIps -> {
+                        registeredIpsLatency.record(scheduler.now() - startTime.toEpochMilli(), TimeUnit.MILLISECONDS);
+                        markAsReconciled(loadBalancerId, startTime);
+                    })
+                    .flatMapObservable(registeredIps -> updatesFor(loadBalancerId, associations, registeredIps));
+        });
 
         return updatesForLoadBalancer
                 .doOnError(e -> logger.error("Error while reconciling load balancer {}", loadBalancerId, e))
@@ -291,13 +330,95 @@ public class DefaultLoadBalancerReconciler implements LoadBalancerReconciler {
         return Observable.defer(() -> {
             cleanupExpiredIgnored();
             logger.debug("Snapshotting current associations");
-            final Set<Map.Entry<String, List<JobLoadBalancerState>>> pairs = store.getAssociations().stream()
-                    .collect(Collectors.groupingBy(JobLoadBalancerState::getLoadBalancerId))
-                    .entrySet();
-            return Observable.from(pairs);
+            final List<JobLoadBalancerState> associations = store.getAssociations();
+            jobOperations.retainTrackedJobs(associations.stream()
+                    .filter(JobLoadBalancerState::isStateAssociated)
+                    .map(JobLoadBalancerState::getJobId)
+                    .collect(Collectors.toSet())
+            );
+            final Map<String, List<JobLoadBalancerState>> byLoadBalancer = associations.stream()
+                    .collect(Collectors.groupingBy(JobLoadBalancerState::getLoadBalancerId));
+            return Observable.from(selectForReconciliation(byLoadBalancer));
         });
     }
 
+    /**
+     * Load balancers with association changes or pending updates go first, followed by the ones not reconciled for
+     * longer than the max age (oldest first). All others are skipped in this run.
+     */
+    private List<Map.Entry<String, List<JobLoadBalancerState>>> selectForReconciliation(Map<String, List<JobLoadBalancerState>> byLoadBalancer) {
+        final Instant now = now();
+        final Instant agedOutAt = now.minusMillis(configuration.getReconciliationMaxAgeMs());
+
+        // forget load balancers that are not associated with any job anymore
+        dirty.keySet().retainAll(byLoadBalancer.keySet());
+        lastReconciled.keySet().retainAll(byLoadBalancer.keySet());
+        previousAssociations.keySet().retainAll(byLoadBalancer.keySet());
+
+        final List<Map.Entry<String, List<JobLoadBalancerState>>> changed = new ArrayList<>();
+        final List<Map.Entry<String, List<JobLoadBalancerState>>> agedOut = new ArrayList<>();
+        for (Map.Entry<String, List<JobLoadBalancerState>> entry : byLoadBalancer.entrySet()) {
+            final String loadBalancerId = entry.getKey();
+            final Set<JobLoadBalancerState> associations = new HashSet<>(entry.getValue());
+            if (!associations.equals(previousAssociations.put(loadBalancerId, associations))) {
+                dirty.putIfAbsent(loadBalancerId, now);
+            }
+
+            final Instant dirtyAt = dirty.get(loadBalancerId);
+            final Instant last = lastReconciled.get(loadBalancerId);
+            if (last == null || (dirtyAt != null && !dirtyAt.isAfter(now))) {
+                changed.add(entry);
+            } else if (!last.isAfter(agedOutAt)) {
+                agedOut.add(entry);
+            } else {
+                skippedCounter.increment();
+            }
+        }
+        agedOut.sort(Comparator.comparing(entry -> lastReconciled.getOrDefault(entry.getKey(), Instant.EPOCH)));
+
+        logger.debug("Reconciling {} changed and {} aged out load balancers", changed.size(), agedOut.size());
+        return CollectionsExt.merge(changed, agedOut);
+    }
+
+    private void markAsReconciled(String loadBalancerId, Instant startTime) {
+        lastReconciled.put(loadBalancerId, startTime);
+        final Instant dirtyAt = dirty.get(loadBalancerId);
+        if (dirtyAt != null && !dirtyAt.isAfter(startTime)) {
+            dirty.remove(loadBalancerId, dirtyAt /* do not remove when changed */);
+        }
+    }
+
+    private boolean tryTakeBudget(String loadBalancerId) {
+        final long burst = configuration.getReconciliationRateLimitBurstPerAccount();
+        final long refillPerSec = configuration.getReconciliationRateLimitRefillPerSecPerAccount();
+        if (burst <= 0 || refillPerSec <= 0) {
+            return true;
+        }
+        final String account = accountOf(loadBalancerId);
+        final TokenBucket budget = accountBudgets.computeIfAbsent(account, name -> Limiters.createFixedIntervalTokenBucket(
+                "loadBalancerReconciliation-" + name, burst, burst, refillPerSec, 1, TimeUnit.SECONDS
+        ));
+        if (budget.tryTake()) {
+            return true;
+        }
+        registry.counter(rateLimitedId.withTag("account", account)).increment();
+        return false;
+    }
+
+    /**
+     * Load balancer ids are AWS ARNs (arn:partition:service:region:account-id:resource). Other formats are all
+     * assigned to the same default account.
+     */
+    static String accountOf(String loadBalancerId) {
+        if (loadBalancerId.startsWith("arn:")) {
+            final String[] parts = loadBalancerId.split(":", 6);
+            if (parts.length == 6 && !parts[4].isEmpty()) {
+                return parts[4];
+            }
+        }
+        return DEFAULT_ACCOUNT;
+    }
+
     private void cleanupExpiredIgnored() {
         Instant now = Instant.ofEpochMilli(scheduler.now());
         ignored.forEach((target, untilWhen) -> {
@@ -63,6 +63,7 @@ public class DefaultLoadBalancerService implements LoadBalancerService {
     private final LoadBalancerConfiguration configuration;
     private final LoadBalancerStore loadBalancerStore;
     private final LoadBalancerJobValidator validator;
+    private final LoadBalancerJobOperations jobOperations;
     private final LoadBalancerReconciler reconciler;
     private final LoadBalancerEngine engine;
     private final Scheduler scheduler;
@@ -77,10 +78,21 @@ public class DefaultLoadBalancerService implements LoadBalancerService {
                                       V3JobOperations v3JobOperations,
                                       LoadBalancerJobValidator validator) {
         this(runtime, configuration, loadBalancerConnector, loadBalancerStore,
-                new LoadBalancerJobOperations(v3JobOperations),
+                new LoadBalancerJobOperations(v3JobOperations, new LoadBalancerTargetTracker(v3JobOperations, runtime)),
+                validator
+        );
+    }
+
+    private DefaultLoadBalancerService(TitusRuntime runtime,
+                                       LoadBalancerConfiguration configuration,
+                                       LoadBalancerConnector loadBalancerConnector,
+                                       LoadBalancerStore loadBalancerStore,
+                                       LoadBalancerJobOperations loadBalancerJobOperations,
+                                       LoadBalancerJobValidator validator) {
+        this(runtime, configuration, loadBalancerConnector, loadBalancerStore, loadBalancerJobOperations,
                 new DefaultLoadBalancerReconciler(
                         configuration, loadBalancerStore, loadBalancerConnector,
-                        new LoadBalancerJobOperations(v3JobOperations), runtime.getRegistry(), Schedulers.computation()
+                        loadBalancerJobOperations, runtime.getRegistry(), Schedulers.computation()
                 ), validator, Schedulers.computation()
         );
     }
@@ -97,6 +109,7 @@ public class DefaultLoadBalancerService implements LoadBalancerService {
         this.runtime = runtime;
         this.configuration = configuration;
         this.loadBalancerStore = loadBalancerStore;
+        this.jobOperations = loadBalancerJobOperations;
         this.reconciler = reconciler;
         this.validator = validator;
         this.scheduler = scheduler;
@@ -169,6 +182,7 @@ public class DefaultLoadBalancerService implements LoadBalancerService {
             return; // noop
         }
 
+        jobOperations.activateTargetTracking();
         loadBalancerBatches = runtime.persistentStream(events())
                 .subscribeOn(scheduler)
                 .subscribe(
@@ -197,6 +211,7 @@ public class DefaultLoadBalancerService implements LoadBalancerService {
         ObservableExt.safeUnsubscribe(loadBalancerBatches);
         engine.shutdown();
         reconciler.shutdown();
+        jobOperations.shutdown();
     }
 
     @VisibleForTesting
@@ -51,6 +51,33 @@ public interface LoadBalancerConfiguration {
     @DefaultValue("30000")
     long getReconciliationDelayMs();
 
+    /**
+     * Max number of load balancers being read concurrently during a reconciliation run.
+     */
+    @DefaultValue("10")
+    int getReconciliationConcurrency();
+
+    /**
+     * Max time between reconciliations of a load balancer. Load balancers with no association changes and no recent
+     * updates are skipped by reconciliation runs until their last reconciliation is older than this.
+     */
+    @DefaultValue("600000")
+    long getReconciliationMaxAgeMs();
+
+    /**
+     * Max number of load balancer reads that can be done in a burst during reconciliation, per cloud account.
+     * Set to 0 to disable the rate limiting.
+     */
+    @DefaultValue("20")
+    long getReconciliationRateLimitBurstPerAccount();
+
+    /**
+     * Sustained rate of load balancer reads during reconciliation, per cloud account. Load balancers that exceed the
+     * budget are skipped, and reconciled in one of the following runs.
+     */
+    @DefaultValue("5")
+    long getReconciliationRateLimitRefillPerSecPerAccount();
+
     /**
      * Minimum time that items are held in a buffer for batching.
      */
@@ -71,4 +98,18 @@ public interface LoadBalancerConfiguration {
      */
     @DefaultValue("5000")
     long getBucketSizeMs();
+
+    /**
+     * Max number of targets in a batch, i.e.: in a single call to register or deregister targets on a load balancer.
+     * Larger batches are split, and each part takes a token from the rate limiter. Set to 0 for unlimited batch sizes.
+     */
+    @DefaultValue("500")
+    int getMaxBatchSize();
+
+    /**
+     * Max number of batches being applied to load balancers concurrently. While this is exceeded, updates are held
+     * in the batching buffer, where newer updates for a target replace older ones.
+     */
+    @DefaultValue("10")
+    int getMaxConcurrentBatches();
 }
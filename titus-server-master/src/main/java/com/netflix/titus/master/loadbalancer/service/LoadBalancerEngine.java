@@ -115,12 +115,13 @@ class LoadBalancerEngine {
                 deregisterFromEvents(stateTransitions)
         ).compose(disableReconciliationTemporarily());
 
+        // the batcher respects backpressure, so batches are never dropped: updates wait in its buffer (where they are
+        // coalesced by target) until there is capacity to apply them
         return updates
                 .compose(ObservableExt.batchWithRateLimit(buildBatcher(), METRIC_BATCHES, titusRuntime.getRegistry()))
                 .filter(batch -> !batch.getItems().isEmpty())
-                .onBackpressureDrop(batch -> logger.warn("Backpressure! Dropping batch for {} size {}", batch.getIndex(), batch.size()))
                 .doOnNext(batch -> logger.debug("Processing batch for {} size {}", batch.getIndex(), batch.size()))
-                .flatMap(this::applyUpdates)
+                .flatMap(this::applyUpdates, Math.max(1, configuration.getMaxConcurrentBatches()))
                 .doOnNext(batch -> logger.info("Processed {} load balancer updates for {}", batch.size(), batch.getIndex()))
                 .doOnError(e -> logger.error("Error batching load balancer calls", e))
                 .retry();
@@ -207,8 +208,9 @@ class LoadBalancerEngine {
         final long minTimeMs = configuration.getMinTimeMs();
         final long maxTimeMs = configuration.getMaxTimeMs();
         final long bucketSizeMs = configuration.getBucketSizeMs();
+        final int maxBatchSize = configuration.getMaxBatchSize() > 0 ? configuration.getMaxBatchSize() : Integer.MAX_VALUE;
         final LargestPerTimeBucket emissionStrategy = new LargestPerTimeBucket(minTimeMs, bucketSizeMs, scheduler);
-        return RateLimitedBatcher.create(connectorTokenBucket, minTimeMs, maxTimeMs, TargetStateBatchable::getLoadBalancerId,
+        return RateLimitedBatcher.create(connectorTokenBucket, minTimeMs, maxTimeMs, maxBatchSize, TargetStateBatchable::getLoadBalancerId,
                 emissionStrategy, METRIC_BATCHER, titusRuntime.getRegistry(), scheduler);
     }
 
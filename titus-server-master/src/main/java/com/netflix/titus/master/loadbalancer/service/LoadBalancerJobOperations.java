@@ -18,15 +18,15 @@ package com.netflix.titus.master.loadbalancer.service;
 
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
 
-import com.netflix.titus.api.jobmanager.TaskAttributes;
 import com.netflix.titus.api.jobmanager.model.job.Job;
 import com.netflix.titus.api.jobmanager.model.job.event.JobManagerEvent;
 import com.netflix.titus.api.jobmanager.service.JobManagerException;
 import com.netflix.titus.api.jobmanager.service.V3JobOperations;
 import com.netflix.titus.api.loadbalancer.model.JobLoadBalancer;
 import com.netflix.titus.api.loadbalancer.model.LoadBalancerTarget;
+import com.netflix.titus.common.runtime.TitusRuntimes;
 import rx.Observable;
 
 /**
@@ -35,9 +35,15 @@ import rx.Observable;
 // TODO: add V2 support
 class LoadBalancerJobOperations {
     private final V3JobOperations v3JobOperations;
+    private final LoadBalancerTargetTracker targetTracker;
 
     LoadBalancerJobOperations(V3JobOperations v3JobOperations) {
+        this(v3JobOperations, new LoadBalancerTargetTracker(v3JobOperations, TitusRuntimes.internal()));
+    }
+
+    LoadBalancerJobOperations(V3JobOperations v3JobOperations, LoadBalancerTargetTracker targetTracker) {
         this.v3JobOperations = v3JobOperations;
+        this.targetTracker = targetTracker;
     }
 
     /**
@@ -47,14 +53,25 @@ class LoadBalancerJobOperations {
      * @throws JobManagerException when the job is not present anymore
      */
     List<LoadBalancerTarget> targetsForJob(JobLoadBalancer jobLoadBalancer) {
-        return v3JobOperations.getTasks(jobLoadBalancer.getJobId()).stream()
-                .filter(TaskHelpers::isStartedWithIp)
-                .map(task -> new LoadBalancerTarget(
-                        jobLoadBalancer,
-                        task.getId(),
-                        task.getTaskContext().get(TaskAttributes.TASK_ATTRIBUTES_CONTAINER_IP)
-                ))
-                .collect(Collectors.toList());
+        return targetTracker.targetsForJob(jobLoadBalancer);
+    }
+
+    /**
+     * Start serving targets from an index kept up to date with job manager events, instead of scanning the job model.
+     */
+    void activateTargetTracking() {
+        targetTracker.activate();
+    }
+
+    /**
+     * @param associatedJobIds all jobs currently associated with load balancers
+     */
+    void retainTrackedJobs(Set<String> associatedJobIds) {
+        targetTracker.retainJobs(associatedJobIds);
+    }
+
+    void shutdown() {
+        targetTracker.shutdown();
     }
 
     Observable<JobManagerEvent<?>> observeJobs() {
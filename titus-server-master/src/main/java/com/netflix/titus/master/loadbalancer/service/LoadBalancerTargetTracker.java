@@ -0,0 +1,186 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.loadbalancer.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.patterns.PolledMeter;
+import com.netflix.titus.api.jobmanager.TaskAttributes;
+import com.netflix.titus.api.jobmanager.model.job.JobState;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.event.JobManagerEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.JobUpdateEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.TaskUpdateEvent;
+import com.netflix.titus.api.jobmanager.service.JobManagerException;
+import com.netflix.titus.api.jobmanager.service.V3JobOperations;
+import com.netflix.titus.api.loadbalancer.model.JobLoadBalancer;
+import com.netflix.titus.api.loadbalancer.model.LoadBalancerTarget;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.util.rx.ObservableExt;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Subscription;
+
+import static com.netflix.titus.master.MetricConstants.METRIC_LOADBALANCER;
+
+/**
+ * Keeps an index of the active tasks of jobs associated with load balancers, so targets can be computed without
+ * scanning the job model every time. A job is loaded from the job model the first time its targets are requested,
+ * and from then on kept up to date with job manager events, until it finishes or is not associated with any load
+ * balancer anymore (see {@link #retainJobs(Set)}).
+ * <p>
+ * Until events are flowing (not activated yet, or resubscribing after an error), all calls go to the job model.
+ */
+class LoadBalancerTargetTracker {
+    private static final Logger logger = LoggerFactory.getLogger(LoadBalancerTargetTracker.class);
+
+    private static final String METRIC_TRACKED_JOBS = METRIC_LOADBALANCER + "targetTracker.trackedJobs";
+
+    private final V3JobOperations v3JobOperations;
+    private final TitusRuntime titusRuntime;
+
+    private final ConcurrentMap<String, TrackedJob> trackedJobs = new ConcurrentHashMap<>();
+    private final Id trackedJobsId;
+
+    private volatile boolean tracking;
+    private Subscription eventSubscription;
+
+    LoadBalancerTargetTracker(V3JobOperations v3JobOperations, TitusRuntime titusRuntime) {
+        this.v3JobOperations = v3JobOperations;
+        this.titusRuntime = titusRuntime;
+        this.trackedJobsId = titusRuntime.getRegistry().createId(METRIC_TRACKED_JOBS);
+        PolledMeter.using(titusRuntime.getRegistry()).withId(trackedJobsId).monitorSize(trackedJobs);
+    }
+
+    void activate() {
+        // the index is rebuilt from scratch on each (re)subscription, since events may have been missed in between
+        eventSubscription = titusRuntime.persistentStream(v3JobOperations.observeJobs()
+                .doOnSubscribe(trackedJobs::clear)
+                .doOnTerminate(this::stopTracking)
+                .doOnUnsubscribe(this::stopTracking)
+        ).subscribe(
+                this::apply,
+                e -> logger.error("Load balancer target tracking terminated with an error", e),
+                () -> logger.info("Load balancer target tracking completed")
+        );
+    }
+
+    void shutdown() {
+        ObservableExt.safeUnsubscribe(eventSubscription);
+        PolledMeter.remove(titusRuntime.getRegistry(), trackedJobsId);
+    }
+
+    /**
+     * Valid targets are tasks in the Started state that have ip addresses associated to them.
+     *
+     * @throws JobManagerException when the job is not present anymore
+     */
+    List<LoadBalancerTarget> targetsForJob(JobLoadBalancer jobLoadBalancer) {
+        final String jobId = jobLoadBalancer.getJobId();
+        final Collection<Task> tasks = tracking
+                ? trackedJobs.computeIfAbsent(jobId, this::load).tasks.values()
+                : v3JobOperations.getTasks(jobId);
+
+        return tasks.stream()
+                .filter(TaskHelpers::isStartedWithIp)
+                .map(task -> new LoadBalancerTarget(
+                        jobLoadBalancer,
+                        task.getId(),
+                        task.getTaskContext().get(TaskAttributes.TASK_ATTRIBUTES_CONTAINER_IP)
+                ))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Stop tracking jobs that are not associated with any load balancer anymore.
+     */
+    void retainJobs(Set<String> associatedJobIds) {
+        trackedJobs.keySet().retainAll(associatedJobIds);
+    }
+
+    private TrackedJob load(String jobId) {
+        // taken before reading the job model, so events older than the snapshot can be told apart
+        final long loadedAt = titusRuntime.getClock().wallTime();
+        final TrackedJob trackedJob = new TrackedJob(loadedAt);
+        v3JobOperations.getTasks(jobId).forEach(task -> {
+            if (task.getStatus().getState() != TaskState.Finished) {
+                trackedJob.tasks.put(task.getId(), task);
+            }
+        });
+        logger.debug("Tracking targets of job {}, with {} active tasks", jobId, trackedJob.tasks.size());
+        return trackedJob;
+    }
+
+    private void apply(JobManagerEvent<?> event) {
+        // the first event proves that the subscription is in place, and no later events can be missed
+        if (!tracking) {
+            tracking = true;
+        }
+        if (event instanceof JobUpdateEvent) {
+            final JobUpdateEvent jobUpdate = (JobUpdateEvent) event;
+            if (jobUpdate.getCurrent().getStatus().getState() == JobState.Finished) {
+                trackedJobs.remove(jobUpdate.getCurrent().getId());
+            }
+        } else if (event instanceof TaskUpdateEvent) {
+            final Task task = ((TaskUpdateEvent) event).getCurrentTask();
+            // blocks while the job is being loaded, so no events are lost
+            trackedJobs.computeIfPresent(task.getJobId(), (jobId, trackedJob) -> {
+                trackedJob.update(task);
+                return trackedJob;
+            });
+        }
+    }
+
+    private void stopTracking() {
+        tracking = false;
+        trackedJobs.clear();
+    }
+
+    private static class TrackedJob {
+        private final long loadedAt;
+        private final ConcurrentMap<String, Task> tasks = new ConcurrentHashMap<>();
+
+        private TrackedJob(long loadedAt) {
+            this.loadedAt = loadedAt;
+        }
+
+        /**
+         * Updates older than what is already known (including what was read from the job model when loading) are
+         * ignored.
+         */
+        private void update(Task task) {
+            final long timestamp = task.getStatus().getTimestamp();
+            final Task previous = tasks.get(task.getId());
+            final long knownTimestamp = previous == null ? loadedAt : previous.getStatus().getTimestamp();
+            if (timestamp < knownTimestamp) {
+                return;
+            }
+            if (task.getStatus().getState() == TaskState.Finished) {
+                tasks.remove(task.getId());
+            } else {
+                tasks.put(task.getId(), task);
+            }
+        }
+    }
+}
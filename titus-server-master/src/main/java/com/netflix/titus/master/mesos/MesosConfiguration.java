@@ -43,6 +43,13 @@ public interface MesosConfiguration {
     @DefaultValue("false")
     boolean isAllowReconcilerUpdatesForUnknownTasks();
 
+    /**
+     * @return the maximum number of pending task status updates, above which new reconciler triggered updates are dropped.
+     * Other updates are always accepted.
+     */
+    @DefaultValue("10000")
+    int getStatusUpdateQueueSize();
+
     /**
      * @return whether or not the nested containers should be allowed.
      */
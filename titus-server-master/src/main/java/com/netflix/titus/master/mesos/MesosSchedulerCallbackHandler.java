@@ -20,12 +20,12 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -44,11 +44,9 @@ import com.netflix.titus.api.jobmanager.service.V3JobOperations;
 import com.netflix.titus.api.model.v2.JobCompletedReason;
 import com.netflix.titus.api.model.v2.V2JobState;
 import com.netflix.titus.api.model.v2.WorkerNaming;
-import com.netflix.titus.api.store.v2.V2JobMetadata;
 import com.netflix.titus.api.store.v2.V2WorkerMetadata;
 import com.netflix.titus.common.framework.fit.FitInjection;
 import com.netflix.titus.common.runtime.TitusRuntime;
-import com.netflix.titus.common.util.CollectionsExt;
 import com.netflix.titus.common.util.RegExpExt;
 import com.netflix.titus.common.util.StringExt;
 import com.netflix.titus.master.MetricConstants;
@@ -82,11 +80,7 @@ import static com.netflix.titus.master.mesos.MesosTracer.traceMesosRequest;
 
 public class MesosSchedulerCallbackHandler implements Scheduler {
 
-    private static final Set<TaskState> ACTIVE_MESOS_TASK_STATES = CollectionsExt.asSet(
-            TaskState.TASK_STAGING,
-            TaskState.TASK_STARTING,
-            TaskState.TASK_RUNNING
-    );
+    private static final int STATUS_UPDATE_BATCH_SIZE = 1000;
 
     private Observer<String> vmLeaseRescindedObserver;
     private Observer<ContainerEvent> vmTaskStatusObserver;
@@ -110,6 +104,8 @@ public class MesosSchedulerCallbackHandler implements Scheduler {
     private final Counter numReconcileTasks;
     private final Counter numInvalidOffers;
     private final Counter numOfferTooSmall;
+    private final Counter numKnownReconcilerUpdates;
+    private final Counter numUnknownReconcilerUpdates;
     private long reconciliationTrial = 0;
     private final com.netflix.fenzo.functions.Action1<List<? extends VirtualMachineLease>> leaseHandler;
 
@@ -120,6 +116,8 @@ public class MesosSchedulerCallbackHandler implements Scheduler {
     private final Function<String, Matcher> unknownSystemErrorMessageMatcherFactory;
 
     private final Subscription subscription;
+    private final TaskStatusUpdateQueue statusUpdateQueue;
+    private final Thread statusUpdateProcessor;
     private ScheduledThreadPoolExecutor executor;
     private boolean connected;
 
@@ -161,6 +159,8 @@ public class MesosSchedulerCallbackHandler implements Scheduler {
         lastValidOfferReceiveMillis = registry.gauge(MetricConstants.METRIC_MESOS + "lastValidOfferReceiveMillis", new AtomicLong());
         numInvalidOffers = registry.counter(MetricConstants.METRIC_MESOS + "numInvalidOffers");
         numOfferTooSmall = registry.counter(MetricConstants.METRIC_MESOS + "numOfferTooSmall");
+        numKnownReconcilerUpdates = registry.counter(MetricConstants.METRIC_MESOS + "reconcilerUpdates", "known", "true");
+        numUnknownReconcilerUpdates = registry.counter(MetricConstants.METRIC_MESOS + "reconcilerUpdates", "known", "false");
 
         this.invalidRequestMessageMatcherFactory = RegExpExt.dynamicMatcher(mesosConfiguration::getInvalidRequestMessagePattern, "invalidRequestMessagePattern", Pattern.DOTALL, logger);
         this.crashedMessageMatcherFactory = RegExpExt.dynamicMatcher(mesosConfiguration::getCrashedMessagePattern, "crashedMessagePattern", Pattern.DOTALL, logger);
@@ -175,6 +175,11 @@ public class MesosSchedulerCallbackHandler implements Scheduler {
                     lastValidOfferReceiveMillis.set(System.currentTimeMillis() - lastValidOfferReceivedAt.get());
                 })
                 .subscribe();
+
+        this.statusUpdateQueue = new TaskStatusUpdateQueue(mesosConfiguration.getStatusUpdateQueueSize(), registry);
+        this.statusUpdateProcessor = new Thread(this::processStatusUpdates, "mesos-status-update-processor");
+        statusUpdateProcessor.setDaemon(true);
+        statusUpdateProcessor.start();
     }
 
     public void shutdown() {
@@ -183,6 +188,7 @@ public class MesosSchedulerCallbackHandler implements Scheduler {
                 executor.shutdown();
             }
             subscription.unsubscribe();
+            statusUpdateProcessor.interrupt();
         } finally {
             connected = false;
         }
@@ -390,8 +396,36 @@ public class MesosSchedulerCallbackHandler implements Scheduler {
         logMesosCallbackWarn("Lost slave: %s", slaveId.getValue());
     }
 
+    /**
+     * Status updates are handed over to the processing thread, so the driver callback thread is never blocked by them,
+     * and a reconciliation storm cannot delay offer processing.
+     */
     @Override
     public void statusUpdate(final SchedulerDriver arg0, TaskStatus taskStatus) {
+        if (!statusUpdateQueue.offer(taskStatus)) {
+            logger.debug("Status update queue full; dropping reconciler triggered task status update: {}", taskStatus.getTaskId().getValue());
+        }
+    }
+
+    private void processStatusUpdates() {
+        while (!Thread.currentThread().isInterrupted()) {
+            List<TaskStatus> batch;
+            try {
+                batch = statusUpdateQueue.takeBatch(STATUS_UPDATE_BATCH_SIZE);
+            } catch (InterruptedException e) {
+                return;
+            }
+            for (TaskStatus taskStatus : batch) {
+                try {
+                    processStatusUpdate(taskStatus);
+                } catch (Exception e) {
+                    logger.warn("Unexpected error during processing task status update: {}", taskStatus.getTaskId().getValue(), e);
+                }
+            }
+        }
+    }
+
+    private void processStatusUpdate(TaskStatus taskStatus) {
         String taskId = taskStatus.getTaskId().getValue();
         TaskState taskState = taskStatus.getState();
 
@@ -423,12 +457,7 @@ public class MesosSchedulerCallbackHandler implements Scheduler {
 
         String taskId = taskStatus.getTaskId().getValue();
         boolean known = isKnown(taskId);
-
-        registry.counter(
-                MetricConstants.METRIC_MESOS + "reconcilerUpdates",
-                "taskId", taskId,
-                "known", Boolean.toString(known)
-        ).increment();
+        (known ? numKnownReconcilerUpdates : numUnknownReconcilerUpdates).increment();
 
         return !known;
     }
@@ -439,20 +468,19 @@ public class MesosSchedulerCallbackHandler implements Scheduler {
             return v3JobOperations.findTaskById(taskId).isPresent();
         }
 
-        // V2 engine
-        for (V2JobMgrIntf jmgr : v2JobOperations.getAllJobMgrs()) {
-            V2JobMetadata jobMetadata = jmgr.getJobMetadata();
-            if (jobMetadata != null) {
-                try {
-                    for (V2WorkerMetadata worker : jmgr.getWorkers()) {
-                        if (taskId.equals(WorkerNaming.getTaskId(worker))) {
-                            return true;
-                        }
-                    }
-                } catch (Exception ignore) {
-                    logger.debug("Error during searching through V2 tasks of job: {}", jobMetadata.getJobId());
+        // V2 engine (the task id embeds the job id, so only workers of this job are checked)
+        V2JobMgrIntf jmgr = v2JobOperations.getJobMgr(WorkerNaming.getJobAndWorkerId(taskId).jobId);
+        if (jmgr == null || jmgr.getJobMetadata() == null) {
+            return false;
+        }
+        try {
+            for (V2WorkerMetadata worker : jmgr.getWorkers()) {
+                if (taskId.equals(WorkerNaming.getTaskId(worker))) {
+                    return true;
                 }
             }
+        } catch (Exception ignore) {
+            logger.debug("Error during searching through V2 tasks of job: {}", jmgr.getJobId());
         }
         return false;
     }
@@ -600,14 +628,15 @@ public class MesosSchedulerCallbackHandler implements Scheduler {
             }
         }
 
-        Optional<TitusExecutorDetails> details;
-        if (taskStatus.getData() != null) {
+        // The executor details are parsed only if the event results in a task state change.
+        Supplier<Optional<TitusExecutorDetails>> details = () -> {
+            if (taskStatus.getData() == null) {
+                return Optional.empty();
+            }
             String data = new String(taskStatus.getData().toByteArray());
             logMesosCallbackDebug("Mesos status object data: %s", data);
-            details = JobManagerUtil.parseDetails(data);
-        } else {
-            details = Optional.empty();
-        }
+            return JobManagerUtil.parseDetails(data);
+        };
 
         V3ContainerEvent event = new V3ContainerEvent(
                 taskId,
@@ -636,6 +665,6 @@ public class MesosSchedulerCallbackHandler implements Scheduler {
     }
 
     private boolean isTerminal(TaskState taskState) {
-        return !ACTIVE_MESOS_TASK_STATES.contains(taskState);
+        return TaskStatusUpdateQueue.isTerminal(taskState);
     }
 }
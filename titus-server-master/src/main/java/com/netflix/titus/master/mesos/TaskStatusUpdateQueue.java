@@ -0,0 +1,119 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.mesos;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
+import com.netflix.titus.common.util.CollectionsExt;
+import com.netflix.titus.master.MetricConstants;
+import org.apache.mesos.Protos.TaskState;
+import org.apache.mesos.Protos.TaskStatus;
+
+/**
+ * Queue of Mesos task status updates, which decouples the Mesos driver callback thread from the update processing.
+ * Updates are kept in arrival order, with at most one pending update per task. A new update for a task which has
+ * a pending update replaces it, so under load only the latest state of a task is processed. The exception is a pending
+ * terminal update, which is never replaced by a non-terminal one (for example a stale reconciliation update), as the
+ * driver acknowledges updates implicitly, and the terminal one would never be sent again. A {@link TaskState#TASK_LOST}
+ * update following a pending terminal one is dropped too, as the terminal state carries more information (the same
+ * rule is applied to the processed updates in {@link MesosSchedulerCallbackHandler}).
+ * <p>
+ * The queue capacity limits the number of pending reconciliation updates only. When the queue is full, reconciliation
+ * updates are dropped, as Mesos sends them again during the next reconciliation cycle. Other updates are never
+ * dropped, so the task state changes reported by agents are not lost.
+ */
+class TaskStatusUpdateQueue {
+
+    private static final String METRIC_ROOT = MetricConstants.METRIC_MESOS + "statusUpdateQueue.";
+
+    private static final Set<TaskState> ACTIVE_MESOS_TASK_STATES = CollectionsExt.asSet(
+            TaskState.TASK_STAGING,
+            TaskState.TASK_STARTING,
+            TaskState.TASK_RUNNING
+    );
+
+    private final int capacity;
+
+    private final Map<String, TaskStatus> pendingByTaskId = new LinkedHashMap<>();
+
+    private final Counter coalescedCounter;
+    private final Counter droppedCounter;
+
+    TaskStatusUpdateQueue(int capacity, Registry registry) {
+        this.capacity = capacity;
+        this.coalescedCounter = registry.counter(METRIC_ROOT + "coalesced");
+        this.droppedCounter = registry.counter(METRIC_ROOT + "dropped");
+        registry.gauge(METRIC_ROOT + "size", this, TaskStatusUpdateQueue::size);
+    }
+
+    synchronized int size() {
+        return pendingByTaskId.size();
+    }
+
+    /**
+     * @return false if the update was dropped
+     */
+    synchronized boolean offer(TaskStatus taskStatus) {
+        String taskId = taskStatus.getTaskId().getValue();
+        TaskStatus pending = pendingByTaskId.get(taskId);
+
+        if (pending != null) {
+            coalescedCounter.increment();
+            if (isTerminal(pending.getState()) && (!isTerminal(taskStatus.getState()) || taskStatus.getState() == TaskState.TASK_LOST)) {
+                return true;
+            }
+            pendingByTaskId.put(taskId, taskStatus);
+            return true;
+        }
+
+        if (pendingByTaskId.size() >= capacity && taskStatus.getReason() == TaskStatus.Reason.REASON_RECONCILIATION) {
+            droppedCounter.increment();
+            return false;
+        }
+
+        pendingByTaskId.put(taskId, taskStatus);
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Removes up to {@code maxBatchSize} oldest updates from the queue, waiting if the queue is empty.
+     */
+    synchronized List<TaskStatus> takeBatch(int maxBatchSize) throws InterruptedException {
+        while (pendingByTaskId.isEmpty()) {
+            wait();
+        }
+        List<TaskStatus> batch = new ArrayList<>(Math.min(maxBatchSize, pendingByTaskId.size()));
+        Iterator<TaskStatus> it = pendingByTaskId.values().iterator();
+        while (it.hasNext() && batch.size() < maxBatchSize) {
+            batch.add(it.next());
+            it.remove();
+        }
+        return batch;
+    }
+
+    static boolean isTerminal(TaskState taskState) {
+        return !ACTIVE_MESOS_TASK_STATES.contains(taskState);
+    }
+}
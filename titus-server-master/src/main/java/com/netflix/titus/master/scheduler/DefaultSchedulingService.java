@@ -34,7 +34,9 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -175,6 +177,7 @@ public class DefaultSchedulingService implements SchedulingService {
     private final ConcurrentMap<Integer, List<VirtualMachineCurrentState>> vmCurrentStatesMap;
     private final SystemSoftConstraint systemSoftConstraint;
     private final SystemHardConstraint systemHardConstraint;
+    private final TitusFitnessCalculator fitnessCalculator;
     private final Config config;
     private final Scheduler threadScheduler;
     private Action1<QueuableTask> taskQueueAction;
@@ -265,6 +268,7 @@ public class DefaultSchedulingService implements SchedulingService {
         this.agentResourceCache = agentResourceCache;
         this.systemSoftConstraint = systemSoftConstraint;
         this.systemHardConstraint = systemHardConstraint;
+        this.fitnessCalculator = new TitusFitnessCalculator(schedulerConfiguration, agentResourceCache);
         this.config = config;
         agentResourceCacheUpdater = new AgentResourceCacheUpdater(titusRuntime, agentResourceCache, v3JobOperations, rxEventBus);
 
@@ -282,7 +286,7 @@ public class DefaultSchedulingService implements SchedulingService {
         TaskScheduler.Builder schedulerBuilder = new TaskScheduler.Builder()
                 .withLeaseRejectAction(virtualMachineService::rejectLease)
                 .withLeaseOfferExpirySecs(masterConfiguration.getMesosLeaseOfferExpirySecs())
-                .withFitnessCalculator(new TitusFitnessCalculator(schedulerConfiguration, agentResourceCache))
+                .withFitnessCalculator(fitnessCalculator)
                 .withFitnessGoodEnoughFunction(TitusFitnessCalculator.fitnessGoodEnoughFunction)
                 .withAutoScaleByAttributeName(masterConfiguration.getAutoscaleByAttributeName())
                 .withScaleDownOrderEvaluator(scaleDownOrderEvaluator)
@@ -529,6 +533,7 @@ public class DefaultSchedulingService implements SchedulingService {
 
     private void preSchedulingHook() {
         systemHardConstraint.prepare();
+        fitnessCalculator.prepare();
         setupTierAutoscalerConfig();
     }
 
@@ -593,9 +598,10 @@ public class DefaultSchedulingService implements SchedulingService {
         int failedTasksDuringSchedulingResult = 0;
 
         Map<String, VMAssignmentResult> assignmentResultMap = schedulingResult.getResultMap();
+        V3PlacementBatch v3PlacementBatch = recordV3TaskPlacements(assignmentResultMap.values());
         for (Map.Entry<String, VMAssignmentResult> aResult : assignmentResultMap.entrySet()) {
             Set<TaskAssignmentResult> tasksAssigned = aResult.getValue().getTasksAssigned();
-            launchTasks(tasksAssigned, aResult.getValue().getLeasesUsed());
+            launchTasks(tasksAssigned, aResult.getValue().getLeasesUsed(), v3PlacementBatch);
             assignedDuringSchedulingResult += tasksAssigned.size();
         }
 
@@ -630,7 +636,61 @@ public class DefaultSchedulingService implements SchedulingService {
         schedulingIterationLatency.record(schedulingResult.getRuntime(), TimeUnit.MILLISECONDS);
     }
 
-    private void launchTasks(Collection<TaskAssignmentResult> requests, List<VirtualMachineLease> leases) {
+    /**
+     * Records placements of all V3 tasks from a scheduling iteration in a single bulk operation, so the store updates
+     * and the job model updates are executed concurrently, instead of one task at a time.
+     */
+    private V3PlacementBatch recordV3TaskPlacements(Collection<VMAssignmentResult> vmAssignmentResults) {
+        Map<String, Pair<Job<?>, Task>> jobsAndTasks = new HashMap<>();
+        List<Pair<String, Function<Task, Task>>> placements = new ArrayList<>();
+        for (VMAssignmentResult vmAssignmentResult : vmAssignmentResults) {
+            VirtualMachineLease lease = vmAssignmentResult.getLeasesUsed().get(0);
+            Map<String, String> attributesMap = getAttributesMap(lease);
+            Optional<String> executorUriOverrideOpt = JobManagerUtil.getExecutorUriOverride(config, attributesMap);
+
+            for (TaskAssignmentResult assignmentResult : vmAssignmentResult.getTasksAssigned()) {
+                String taskId = assignmentResult.getRequest().getId();
+                if (JobFunctions.isV2Task(taskId)) {
+                    continue;
+                }
+                Optional<Pair<Job<?>, Task>> v3JobAndTask = v3JobOperations.findTaskById(taskId);
+                if (!v3JobAndTask.isPresent()) {
+                    continue;
+                }
+                jobsAndTasks.put(taskId, v3JobAndTask.get());
+
+                ConsumeResult consumeResult = assignmentResult.getrSets().get(0);
+                placements.add(Pair.<String, Function<Task, Task>>of(taskId, oldTask -> JobManagerUtil.newTaskLaunchConfigurationUpdater(
+                        masterConfiguration.getHostZoneAttributeName(), lease, consumeResult,
+                        executorUriOverrideOpt, attributesMap
+                ).apply(oldTask)));
+            }
+        }
+        if (placements.isEmpty()) {
+            return new V3PlacementBatch(jobsAndTasks, Collections.emptyMap());
+        }
+
+        Map<String, Optional<Throwable>> results = new ConcurrentHashMap<>();
+        long recordStartTime = titusRuntime.getClock().wallTime();
+        fitInjection.ifPresent(i -> i.beforeImmediate("storeLaunchConfiguration"));
+        try {
+            v3JobOperations.recordTaskPlacements(placements)
+                    .doOnNext(result -> results.put(result.getLeft(), result.getRight()))
+                    .toCompletable()
+                    .await(STORE_UPDATE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            Throwable error = ExceptionExt.unpackRuntimeException(e);
+            placements.forEach(placement -> results.putIfAbsent(placement.getLeft(), Optional.of(error)));
+        } finally {
+            logger.info("Recorded V3 task placements in {}ms: tasks={}, completed={}",
+                    titusRuntime.getClock().wallTime() - recordStartTime, placements.size(), results.size());
+        }
+        fitInjection.ifPresent(i -> i.afterImmediate("storeLaunchConfiguration"));
+
+        return new V3PlacementBatch(jobsAndTasks, results);
+    }
+
+    private void launchTasks(Collection<TaskAssignmentResult> requests, List<VirtualMachineLease> leases, V3PlacementBatch v3PlacementBatch) {
         final List<Protos.TaskInfo> taskInfoList = new LinkedList<>();
 
         long recordStartTime = System.currentTimeMillis();
@@ -660,37 +720,24 @@ public class DefaultSchedulingService implements SchedulingService {
                         }
                     }
                 } else { // V3 task
-                    Optional<Pair<Job<?>, Task>> v3JobAndTask = v3JobOperations.findTaskById(task.getId());
-                    taskFound = v3JobAndTask.isPresent();
+                    Pair<Job<?>, Task> v3JobAndTask = v3PlacementBatch.getJobAndTask(task.getId());
+                    taskFound = v3JobAndTask != null;
                     if (taskFound) {
-                        Job v3Job = v3JobAndTask.get().getLeft();
-                        Task v3Task = v3JobAndTask.get().getRight();
+                        Job v3Job = v3JobAndTask.getLeft();
+                        Task v3Task = v3JobAndTask.getRight();
                         final VirtualMachineLease lease = leases.get(0);
                         try {
                             Map<String, String> attributesMap = getAttributesMap(lease);
-
-                            fitInjection.ifPresent(i -> i.beforeImmediate("storeLaunchConfiguration"));
-                            boolean completedInTime = false;
-                            Throwable recordTaskError = null;
                             Optional<String> executorUriOverrideOpt = JobManagerUtil.getExecutorUriOverride(config, attributesMap);
-                            try {
-                                completedInTime = v3JobOperations.recordTaskPlacement(
-                                        task.getId(),
-                                        oldTask -> JobManagerUtil.newTaskLaunchConfigurationUpdater(
-                                                masterConfiguration.getHostZoneAttributeName(), lease, consumeResult,
-                                                executorUriOverrideOpt, attributesMap
-                                        ).apply(oldTask)
-                                ).await(STORE_UPDATE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
-                            } catch (Exception e) {
-                                recordTaskError = ExceptionExt.unpackRuntimeException(e);
-                            }
+
+                            Optional<Throwable> placementResult = v3PlacementBatch.getPlacementResult(task.getId());
+                            boolean completedInTime = placementResult != null;
+                            Throwable recordTaskError = completedInTime ? placementResult.orElse(null) : null;
 
                             Protos.TaskInfo taskInfo = v3TaskInfoFactory.newTaskInfo(
                                     task, v3Job, v3Task, lease.hostname(), attributesMap, lease.getOffer().getSlaveId(),
                                     consumeResult, executorUriOverrideOpt);
 
-                            fitInjection.ifPresent(i -> i.afterImmediate("storeLaunchConfiguration"));
-
                             if (recordTaskError != null) {
                                 if (JobManagerException.hasErrorCode(recordTaskError, JobManagerException.ErrorCode.UnexpectedTaskState)) {
                                     logger.info("Not launching task, as it is no longer in Accepted state (probably killed): {}", v3Task.getId());
@@ -736,6 +783,31 @@ public class DefaultSchedulingService implements SchedulingService {
         }
     }
 
+    /**
+     * V3 jobs and tasks as seen before their placements were recorded, and the placement outcomes. A task with
+     * no placement outcome did not complete within the store update timeout.
+     */
+    private static class V3PlacementBatch {
+
+        private final Map<String, Pair<Job<?>, Task>> jobsAndTasks;
+        private final Map<String, Optional<Throwable>> placementResults;
+
+        private V3PlacementBatch(Map<String, Pair<Job<?>, Task>> jobsAndTasks, Map<String, Optional<Throwable>> placementResults) {
+            this.jobsAndTasks = jobsAndTasks;
+            this.placementResults = placementResults;
+        }
+
+        @Nullable
+        private Pair<Job<?>, Task> getJobAndTask(String taskId) {
+            return jobsAndTasks.get(taskId);
+        }
+
+        @Nullable
+        private Optional<Throwable> getPlacementResult(String taskId) {
+            return placementResults.get(taskId);
+        }
+    }
+
     private void killBrokenTask(TitusQueuableTask task, String reason) {
         v3JobOperations.killTask(task.getId(), false, String.format("Failed to launch task %s due to %s", task.getId(), reason)).subscribe(
                 next -> {
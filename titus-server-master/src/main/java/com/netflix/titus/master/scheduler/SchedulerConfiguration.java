@@ -74,6 +74,15 @@ public interface SchedulerConfiguration {
     @DefaultValue("false")
     boolean isSystemSelectorsEnabled();
 
+    /**
+     * @return whether or not to compile system selector expressions with SpEL. If disabled, or if an expression is
+     * not a valid SpEL expression, or cannot be evaluated as one, the expression is evaluated by the JavaScript engine.
+     * As system selectors are written in JavaScript, enable it only when the selectors in use have the same meaning
+     * in SpEL.
+     */
+    @DefaultValue("false")
+    boolean isSystemSelectorSpelEnabled();
+
     @DefaultValue("true")
     boolean isExitUponFenzoSchedulingErrorEnabled();
 
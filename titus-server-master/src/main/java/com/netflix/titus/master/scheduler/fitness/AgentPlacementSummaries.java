@@ -0,0 +1,58 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.scheduler.fitness;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.netflix.fenzo.TaskAssignmentResult;
+import com.netflix.fenzo.VirtualMachineCurrentState;
+
+/**
+ * Per scheduling iteration cache of {@link AgentPlacementSummary} instances, keyed by agent host name. Running tasks
+ * do not change during an iteration, so their part of a summary is built once per agent. The summary is extended
+ * only when Fenzo assigns a new task to the agent, which is detected by a change of the assigned task count.
+ * <p>
+ * Fenzo evaluates agents concurrently, so updates are done by replacing the immutable summaries.
+ */
+public class AgentPlacementSummaries {
+
+    private final ConcurrentMap<String, AgentPlacementSummary> summaries = new ConcurrentHashMap<>();
+
+    /**
+     * Must be called before each scheduling iteration, to discard summaries of the previous one.
+     */
+    public void prepare() {
+        summaries.clear();
+    }
+
+    public AgentPlacementSummary get(VirtualMachineCurrentState targetVM) {
+        String hostname = targetVM.getHostname();
+        Collection<TaskAssignmentResult> assignedTasks = targetVM.getTasksCurrentlyAssigned();
+
+        AgentPlacementSummary summary = summaries.get(hostname);
+        if (summary == null) {
+            summary = AgentPlacementSummary.ofRunningTasks(targetVM.getRunningTasks()).withAssignedTasks(assignedTasks);
+            summaries.put(hostname, summary);
+        } else if (summary.getAssignedTaskCount() != assignedTasks.size()) {
+            summary = summary.withAssignedTasks(assignedTasks);
+            summaries.put(hostname, summary);
+        }
+        return summary;
+    }
+}
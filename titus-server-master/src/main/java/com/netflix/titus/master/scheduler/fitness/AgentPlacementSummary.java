@@ -0,0 +1,148 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.scheduler.fitness;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.netflix.fenzo.TaskAssignmentResult;
+import com.netflix.fenzo.TaskRequest;
+import com.netflix.titus.master.scheduler.resourcecache.AgentResourceCacheFunctions;
+import com.netflix.titus.master.scheduler.resourcecache.AgentResourceCacheImage;
+
+import static com.netflix.titus.master.scheduler.fitness.FitnessCalculatorFunctions.getJoinedSecurityGroupIds;
+import static com.netflix.titus.master.scheduler.fitness.FitnessCalculatorFunctions.isServiceJob;
+import static com.netflix.titus.master.scheduler.fitness.FitnessCalculatorFunctions.isTaskLaunching;
+
+/**
+ * Task counts on an agent, that the fitness calculators need for each task and agent pair. A summary is immutable
+ * once built. It is computed from the running tasks once per scheduling iteration, and extended with the tasks
+ * assigned to the agent in the current iteration (see {@link AgentPlacementSummaries}).
+ */
+public class AgentPlacementSummary {
+
+    private static final AgentPlacementSummary EMPTY = new AgentPlacementSummary();
+
+    private final AgentPlacementSummary runningTasksSummary;
+
+    private final Map<AgentResourceCacheImage, Integer> imageCounts;
+    private final Map<String, Integer> securityGroupCounts;
+    private int totalTaskCount;
+    private int serviceTaskCount;
+    private int launchingTaskCount;
+    private int assignedTaskCount;
+
+    private AgentPlacementSummary() {
+        this.runningTasksSummary = this;
+        this.imageCounts = new HashMap<>();
+        this.securityGroupCounts = new HashMap<>();
+    }
+
+    private AgentPlacementSummary(AgentPlacementSummary runningTasksSummary) {
+        this.runningTasksSummary = runningTasksSummary;
+        this.imageCounts = new HashMap<>(runningTasksSummary.imageCounts);
+        this.securityGroupCounts = new HashMap<>(runningTasksSummary.securityGroupCounts);
+        this.totalTaskCount = runningTasksSummary.totalTaskCount;
+        this.serviceTaskCount = runningTasksSummary.serviceTaskCount;
+        this.launchingTaskCount = runningTasksSummary.launchingTaskCount;
+    }
+
+    public int getTotalTaskCount() {
+        return totalTaskCount;
+    }
+
+    public int getServiceTaskCount() {
+        return serviceTaskCount;
+    }
+
+    public int getBatchTaskCount() {
+        return totalTaskCount - serviceTaskCount;
+    }
+
+    /**
+     * Number of running tasks in a launching state, plus all tasks assigned in the current iteration.
+     */
+    public int getLaunchingTaskCount() {
+        return launchingTaskCount;
+    }
+
+    public int getAssignedTaskCount() {
+        return assignedTaskCount;
+    }
+
+    public int getImageCount(AgentResourceCacheImage image) {
+        return imageCounts.getOrDefault(image, 0);
+    }
+
+    public int getSecurityGroupCount(String joinedSecurityGroupIds) {
+        return securityGroupCounts.getOrDefault(joinedSecurityGroupIds, 0);
+    }
+
+    /**
+     * Returns a summary of the running tasks plus the given assigned tasks. Counts of any previously assigned tasks
+     * are not carried over.
+     */
+    public AgentPlacementSummary withAssignedTasks(Collection<TaskAssignmentResult> assignedTasks) {
+        if (assignedTasks.isEmpty()) {
+            return runningTasksSummary;
+        }
+        AgentPlacementSummary summary = new AgentPlacementSummary(runningTasksSummary);
+        for (TaskAssignmentResult assignedTask : assignedTasks) {
+            summary.add(assignedTask.getRequest(), true);
+            summary.assignedTaskCount++;
+        }
+        return summary;
+    }
+
+    @Override
+    public String toString() {
+        return "AgentPlacementSummary{" +
+                "totalTaskCount=" + totalTaskCount +
+                ", serviceTaskCount=" + serviceTaskCount +
+                ", launchingTaskCount=" + launchingTaskCount +
+                ", assignedTaskCount=" + assignedTaskCount +
+                ", imageCounts=" + imageCounts +
+                ", securityGroupCounts=" + securityGroupCounts +
+                '}';
+    }
+
+    public static AgentPlacementSummary empty() {
+        return EMPTY;
+    }
+
+    public static AgentPlacementSummary ofRunningTasks(Collection<TaskRequest> runningTasks) {
+        if (runningTasks.isEmpty()) {
+            return EMPTY;
+        }
+        AgentPlacementSummary summary = new AgentPlacementSummary();
+        runningTasks.forEach(task -> summary.add(task, isTaskLaunching(task)));
+        return summary;
+    }
+
+    private void add(TaskRequest taskRequest, boolean launching) {
+        imageCounts.merge(AgentResourceCacheFunctions.getImage(taskRequest), 1, Integer::sum);
+        securityGroupCounts.merge(getJoinedSecurityGroupIds(taskRequest), 1, Integer::sum);
+        totalTaskCount++;
+        if (isServiceJob(taskRequest)) {
+            serviceTaskCount++;
+        }
+        if (launching) {
+            launchingTaskCount++;
+        }
+    }
+}
@@ -16,17 +16,14 @@
 
 package com.netflix.titus.master.scheduler.fitness;
 
-import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.function.Predicate;
 
 import com.google.common.base.Strings;
 import com.netflix.fenzo.TaskRequest;
 import com.netflix.fenzo.VirtualMachineCurrentState;
 import com.netflix.fenzo.queues.QueuableTask;
-import com.netflix.titus.api.jobmanager.model.job.Container;
 import com.netflix.titus.api.jobmanager.model.job.Job;
 import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
 import com.netflix.titus.api.jobmanager.model.job.Task;
@@ -103,25 +100,11 @@ public class FitnessCalculatorFunctions {
             Set<String> securityGroupIds = new HashSet<>(Parameters.getSecurityGroups(parameters));
             return StringExt.concatenate(securityGroupIds, AgentResourceCacheFunctions.SECURITY_GROUP_ID_DELIMITER);
         } else if (taskRequest instanceof V3QueueableTask) {
-            V3QueueableTask v3QueueableTask = (V3QueueableTask) taskRequest;
-            Job job = v3QueueableTask.getJob();
-            Container container = job.getJobDescriptor().getContainer();
-            Set<String> securityGroupIds = new HashSet<>(container.getSecurityProfile().getSecurityGroups());
-            return StringExt.concatenate(securityGroupIds, AgentResourceCacheFunctions.SECURITY_GROUP_ID_DELIMITER);
+            return ((V3QueueableTask) taskRequest).getJoinedSecurityGroupIds();
         }
         return AgentResourceCacheFunctions.EMPTY_JOINED_SECURITY_GROUP_IDS;
     }
 
-    public static List<TaskRequest> getAllTasksOnAgent(VirtualMachineCurrentState targetVm) {
-        List<TaskRequest> tasksOnAgent = new ArrayList<>(targetVm.getRunningTasks());
-        targetVm.getTasksCurrentlyAssigned().forEach(t -> tasksOnAgent.add(t.getRequest()));
-        return tasksOnAgent;
-    }
-
-    public static long countMatchingTasks(List<TaskRequest> tasksOnAgent, Predicate<TaskRequest> predicate) {
-        return tasksOnAgent.stream().filter(predicate).count();
-    }
-
     public static String getAgentAttributeValue(VirtualMachineCurrentState targetVM, String attributeName) {
         Protos.Attribute attribute = targetVM.getCurrAvailableResources().getAttributeMap().get(attributeName);
         return Strings.nullToEmpty(attribute.getText().getValue());
@@ -16,17 +16,12 @@
 
 package com.netflix.titus.master.scheduler.fitness;
 
-import com.netflix.fenzo.TaskAssignmentResult;
 import com.netflix.fenzo.TaskRequest;
 import com.netflix.fenzo.TaskTrackerState;
 import com.netflix.fenzo.VMTaskFitnessCalculator;
 import com.netflix.fenzo.VirtualMachineCurrentState;
-import com.netflix.titus.api.jobmanager.model.job.JobDescriptor;
-import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
-import com.netflix.titus.api.jobmanager.model.job.ext.ServiceJobExt;
-import com.netflix.titus.api.model.v2.parameter.Parameters;
-import com.netflix.titus.master.jobmanager.service.common.V3QueueableTask;
-import com.netflix.titus.master.scheduler.ScheduledRequest;
+
+import static com.netflix.titus.master.scheduler.fitness.FitnessCalculatorFunctions.isServiceJob;
 
 /**
  * A fitness calculator that will prefer task placement on agents with the same job type.
@@ -36,7 +31,11 @@ public class JobTypeFitnessCalculator implements VMTaskFitnessCalculator {
     private static final double EMPTY_HOST_SCORE = 0.7;
     private static final double ZERO_SAME_JOB_TASKS_SCORE = 0.01;
 
-    private enum JobType {Batch, Service}
+    private final AgentPlacementSummaries placementSummaries;
+
+    public JobTypeFitnessCalculator(AgentPlacementSummaries placementSummaries) {
+        this.placementSummaries = placementSummaries;
+    }
 
     @Override
     public String getName() {
@@ -45,21 +44,12 @@ public class JobTypeFitnessCalculator implements VMTaskFitnessCalculator {
 
     @Override
     public double calculateFitness(TaskRequest taskRequest, VirtualMachineCurrentState targetVM, TaskTrackerState taskTrackerState) {
-        int totalTasks = 0;
-        int totalSameJobTasks = 0;
+        AgentPlacementSummary summary = placementSummaries.get(targetVM);
+
+        // Tasks of an unknown job type are counted as batch ones.
+        int totalTasks = summary.getTotalTaskCount();
+        int totalSameJobTasks = isServiceJob(taskRequest) ? summary.getServiceTaskCount() : summary.getBatchTaskCount();
 
-        for (TaskRequest request : targetVM.getRunningTasks()) {
-            totalTasks++;
-            if (isSameJobType(taskRequest, request)) {
-                totalSameJobTasks++;
-            }
-        }
-        for (TaskAssignmentResult result : targetVM.getTasksCurrentlyAssigned()) {
-            totalTasks++;
-            if (isSameJobType(taskRequest, result.getRequest())) {
-                totalSameJobTasks++;
-            }
-        }
         if (totalTasks == 0) {
             return EMPTY_HOST_SCORE;
         } else if (totalSameJobTasks == 0) {
@@ -67,27 +57,4 @@ public class JobTypeFitnessCalculator implements VMTaskFitnessCalculator {
         }
         return (double) totalSameJobTasks / (double) totalTasks;
     }
-
-    private boolean isSameJobType(TaskRequest first, TaskRequest second) {
-        return getJobType(first) == getJobType(second);
-    }
-
-    private JobType getJobType(TaskRequest taskRequest) {
-        if (taskRequest instanceof ScheduledRequest) {
-            Parameters.JobType jobType = Parameters.getJobType(((ScheduledRequest) taskRequest).getJob().getParameters());
-            if (jobType == Parameters.JobType.Batch) {
-                return JobType.Batch;
-            } else if (jobType == Parameters.JobType.Service) {
-                return JobType.Service;
-            }
-        } else if (taskRequest instanceof V3QueueableTask) {
-            JobDescriptor.JobDescriptorExt jobDescriptorExt = ((V3QueueableTask) taskRequest).getJob().getJobDescriptor().getExtensions();
-            if (jobDescriptorExt instanceof BatchJobExt) {
-                return JobType.Batch;
-            } else if (jobDescriptorExt instanceof ServiceJobExt) {
-                return JobType.Service;
-            }
-        }
-        return JobType.Batch;
-    }
 }
@@ -16,8 +16,6 @@
 
 package com.netflix.titus.master.scheduler.fitness;
 
-import java.util.List;
-
 import com.netflix.fenzo.TaskRequest;
 import com.netflix.fenzo.TaskTrackerState;
 import com.netflix.fenzo.VMTaskFitnessCalculator;
@@ -31,6 +29,12 @@ public class SecurityGroupSpreadingFitnessCalculator implements VMTaskFitnessCal
     private static final double MATCHING_TASK_SCORE = 0.5;
     private static final double NO_MATCHING_TASK_SCORE = 1.0;
 
+    private final AgentPlacementSummaries placementSummaries;
+
+    public SecurityGroupSpreadingFitnessCalculator(AgentPlacementSummaries placementSummaries) {
+        this.placementSummaries = placementSummaries;
+    }
+
     @Override
     public String getName() {
         return "Security Group Spreading Fitness Calculator";
@@ -38,12 +42,8 @@ public class SecurityGroupSpreadingFitnessCalculator implements VMTaskFitnessCal
 
     @Override
     public double calculateFitness(TaskRequest taskRequest, VirtualMachineCurrentState targetVM, TaskTrackerState taskTrackerState) {
-        List<TaskRequest> allTasksOnAgent = FitnessCalculatorFunctions.getAllTasksOnAgent(targetVM);
-        String currentTaskRequestJoinedSecurityGroupIds = FitnessCalculatorFunctions.getJoinedSecurityGroupIds(taskRequest);
-        long matchingTaskCount = FitnessCalculatorFunctions.countMatchingTasks(allTasksOnAgent, taskOnAgent -> {
-            String taskOnAgentJoinedSecurityGroupIds = FitnessCalculatorFunctions.getJoinedSecurityGroupIds(taskOnAgent);
-            return currentTaskRequestJoinedSecurityGroupIds.equals(taskOnAgentJoinedSecurityGroupIds);
-        });
+        String joinedSecurityGroupIds = FitnessCalculatorFunctions.getJoinedSecurityGroupIds(taskRequest);
+        long matchingTaskCount = placementSummaries.get(targetVM).getSecurityGroupCount(joinedSecurityGroupIds);
 
         if (matchingTaskCount == 0) {
             return NO_MATCHING_TASK_SCORE;
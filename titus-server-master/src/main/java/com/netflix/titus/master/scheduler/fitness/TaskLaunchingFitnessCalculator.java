@@ -32,6 +32,12 @@ public class TaskLaunchingFitnessCalculator implements VMTaskFitnessCalculator {
     private static final double LAUNCHING_TASKS_SCORE = 0.5;
     private static final double NOT_LAUNCHING_TASKS_SCORE = 1.0;
 
+    private final AgentPlacementSummaries placementSummaries;
+
+    public TaskLaunchingFitnessCalculator(AgentPlacementSummaries placementSummaries) {
+        this.placementSummaries = placementSummaries;
+    }
+
     @Override
     public String getName() {
         return "Task Launching Fitness Calculator";
@@ -39,12 +45,9 @@ public class TaskLaunchingFitnessCalculator implements VMTaskFitnessCalculator {
 
     @Override
     public double calculateFitness(TaskRequest taskRequest, VirtualMachineCurrentState targetVM, TaskTrackerState taskTrackerState) {
-        int totalTasks = targetVM.getRunningTasks().size();
-        int totalLaunchingTasks = (int) targetVM.getRunningTasks().stream().filter(FitnessCalculatorFunctions::isTaskLaunching).count();
-
-        int totalAssignedTasks = targetVM.getTasksCurrentlyAssigned().size();
-        totalTasks += totalAssignedTasks;
-        totalLaunchingTasks += totalAssignedTasks;
+        AgentPlacementSummary summary = placementSummaries.get(targetVM);
+        int totalTasks = summary.getTotalTaskCount();
+        int totalLaunchingTasks = summary.getLaunchingTaskCount();
 
         if (totalTasks == 0) {
             return EMPTY_HOST_SCORE;
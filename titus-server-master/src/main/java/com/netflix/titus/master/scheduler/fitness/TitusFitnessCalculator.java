@@ -35,6 +35,7 @@ import static com.netflix.titus.master.scheduler.fitness.FitnessCalculatorFuncti
 public class TitusFitnessCalculator implements VMTaskFitnessCalculator {
 
     private final SchedulerConfiguration configuration;
+    private final AgentPlacementSummaries placementSummaries = new AgentPlacementSummaries();
     private final VMTaskFitnessCalculator criticalServiceJobSpreader;
     private final VMTaskFitnessCalculator criticalServiceJobBinPacker;
     private final VMTaskFitnessCalculator defaultFitnessCalculator;
@@ -54,6 +55,13 @@ public class TitusFitnessCalculator implements VMTaskFitnessCalculator {
         return "Titus Fitness Calculator";
     }
 
+    /**
+     * Must be called before each scheduling iteration.
+     */
+    public void prepare() {
+        placementSummaries.prepare();
+    }
+
     @Override
     public double calculateFitness(TaskRequest taskRequest, VirtualMachineCurrentState targetVM, TaskTrackerState taskTrackerState) {
         if (isCriticalTier(taskRequest) && isServiceJob(taskRequest)) {
@@ -69,15 +77,15 @@ public class TitusFitnessCalculator implements VMTaskFitnessCalculator {
     private VMTaskFitnessCalculator criticalServiceJobSpreader() {
         List<WeightedFitnessCalculator> calculators = new ArrayList<>();
         calculators.add(new WeightedFitnessCalculator(BinPackingFitnessCalculators.cpuMemBinPacker, 0.1));
-        calculators.add(new WeightedFitnessCalculator(new JobTypeFitnessCalculator(), 0.1));
-        calculators.add(new WeightedFitnessCalculator(new ImageSpreadingFitnessCalculator(), 0.2));
-        calculators.add(new WeightedFitnessCalculator(new SecurityGroupSpreadingFitnessCalculator(), 0.6));
+        calculators.add(new WeightedFitnessCalculator(new JobTypeFitnessCalculator(placementSummaries), 0.1));
+        calculators.add(new WeightedFitnessCalculator(new ImageSpreadingFitnessCalculator(placementSummaries), 0.2));
+        calculators.add(new WeightedFitnessCalculator(new SecurityGroupSpreadingFitnessCalculator(placementSummaries), 0.6));
         return new WeightedAverageFitnessCalculator(calculators);
     }
 
     private VMTaskFitnessCalculator criticalServiceJobBinPacker(AgentResourceCache agentResourceCache) {
         List<WeightedFitnessCalculator> calculators = new ArrayList<>();
-        calculators.add(new WeightedFitnessCalculator(new JobTypeFitnessCalculator(), 0.1));
+        calculators.add(new WeightedFitnessCalculator(new JobTypeFitnessCalculator(placementSummaries), 0.1));
         calculators.add(new WeightedFitnessCalculator(BinPackingFitnessCalculators.cpuMemBinPacker, 0.2));
         calculators.add(new WeightedFitnessCalculator(new CachedImageFitnessCalculator(agentResourceCache), 0.3));
         calculators.add(new WeightedFitnessCalculator(new CachedSecurityGroupFitnessCalculator(agentResourceCache), 0.4));
@@ -87,7 +95,7 @@ public class TitusFitnessCalculator implements VMTaskFitnessCalculator {
     private VMTaskFitnessCalculator defaultFitnessCalculator(AgentResourceCache agentResourceCache) {
         List<WeightedFitnessCalculator> calculators = new ArrayList<>();
         calculators.add(new WeightedFitnessCalculator(BinPackingFitnessCalculators.cpuMemBinPacker, 0.2));
-        calculators.add(new WeightedFitnessCalculator(new JobTypeFitnessCalculator(), 0.2));
+        calculators.add(new WeightedFitnessCalculator(new JobTypeFitnessCalculator(placementSummaries), 0.2));
         calculators.add(new WeightedFitnessCalculator(new CachedImageFitnessCalculator(agentResourceCache), 0.3));
         calculators.add(new WeightedFitnessCalculator(new CachedSecurityGroupFitnessCalculator(agentResourceCache), 0.3));
         return new WeightedAverageFitnessCalculator(calculators);
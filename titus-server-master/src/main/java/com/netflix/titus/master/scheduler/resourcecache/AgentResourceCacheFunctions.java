@@ -119,9 +119,7 @@ public class AgentResourceCacheFunctions {
             V2JobMetadata job = scheduledRequest.getJob();
             return createImage(job);
         } else if (taskRequest instanceof V3QueueableTask) {
-            V3QueueableTask v3QueueableTask = (V3QueueableTask) taskRequest;
-            Job job = v3QueueableTask.getJob();
-            return createImage(job);
+            return ((V3QueueableTask) taskRequest).getImage();
         }
         return AgentResourceCacheImage.newBuilder().build();
     }
@@ -17,7 +17,6 @@
 package com.netflix.titus.master.scheduler.systemselector;
 
 import java.util.List;
-import java.util.Map;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -32,8 +31,6 @@ import com.netflix.titus.master.scheduler.constraint.GlobalConstraintEvaluator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import static com.netflix.titus.master.scheduler.systemselector.SystemSelectorFunctions.createContext;
-
 /**
  *
  */
@@ -63,12 +60,20 @@ public class SystemSelectorConstraintEvaluator implements GlobalConstraintEvalua
         return "System Selector Constraint Evaluator";
     }
 
+    @Override
+    public void prepare() {
+        systemSelectorEvaluator.prepare();
+    }
+
     @Override
     public Result evaluate(TaskRequest taskRequest, VirtualMachineCurrentState targetVM, TaskTrackerState taskTrackerState) {
         List<Match> matches = systemSelectorService.getMustMatchesForEvaluation();
+        if (matches.isEmpty()) {
+            return new Result(true, "");
+        }
+        SystemSelectorContext context = new SystemSelectorContext(taskRequest, targetVM, agentManagementService, schedulerConfiguration);
         for (Match match : matches) {
             String selectExpression = match.getSelectExpression();
-            Map<String, Object> context = createContext(taskRequest, targetVM, agentManagementService, schedulerConfiguration);
             boolean selectResult = false;
             try {
                 logger.debug("Evaluating select expression: {} for taskRequest: {} on targetVM: {}", selectExpression, taskRequest, targetVM);
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.scheduler.systemselector;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.netflix.fenzo.TaskRequest;
+import com.netflix.fenzo.VirtualMachineCurrentState;
+import com.netflix.titus.api.agent.model.AgentInstance;
+import com.netflix.titus.api.agent.model.AgentInstanceGroup;
+import com.netflix.titus.api.agent.service.AgentManagementService;
+import com.netflix.titus.master.jobmanager.service.common.V3QueueableTask;
+import com.netflix.titus.master.scheduler.ScheduledRequest;
+import com.netflix.titus.master.scheduler.SchedulerConfiguration;
+
+import static com.netflix.titus.master.scheduler.fitness.FitnessCalculatorFunctions.getAgentAttributeValue;
+
+/**
+ * Values available to system selector expressions, evaluated for a single task and agent pair. The agent instance
+ * group and the agent instance are resolved lazily, on first access, as many expressions need only one of them
+ * (or none). Expressions access the values as properties of this object ('job', 'task', 'instanceGroup', 'instance').
+ */
+public class SystemSelectorContext {
+
+    static final String JOB = "job";
+    static final String TASK = "task";
+    static final String INSTANCE_GROUP = "instanceGroup";
+    static final String INSTANCE = "instance";
+
+    private final TaskRequest taskRequest;
+    private final VirtualMachineCurrentState targetVM;
+    private final AgentManagementService agentManagementService;
+    private final SchedulerConfiguration schedulerConfiguration;
+
+    private Object job;
+    private Object task;
+    private String jobId;
+
+    private Object instanceGroup;
+    private Object instance;
+
+    public SystemSelectorContext(TaskRequest taskRequest,
+                                 VirtualMachineCurrentState targetVM,
+                                 AgentManagementService agentManagementService,
+                                 SchedulerConfiguration schedulerConfiguration) {
+        this.taskRequest = taskRequest;
+        this.targetVM = targetVM;
+        this.agentManagementService = agentManagementService;
+        this.schedulerConfiguration = schedulerConfiguration;
+
+        if (taskRequest instanceof ScheduledRequest) {
+            ScheduledRequest scheduledRequest = (ScheduledRequest) taskRequest;
+            this.job = scheduledRequest.getJob();
+            this.task = scheduledRequest.getTask();
+            this.jobId = scheduledRequest.getJob().getJobId();
+        } else if (taskRequest instanceof V3QueueableTask) {
+            V3QueueableTask v3QueueableTask = (V3QueueableTask) taskRequest;
+            this.job = v3QueueableTask.getJob();
+            this.task = v3QueueableTask.getTask();
+            this.jobId = v3QueueableTask.getJob().getId();
+        } else {
+            this.jobId = "";
+        }
+    }
+
+    public Object getJob() {
+        return job;
+    }
+
+    public Object getTask() {
+        return task;
+    }
+
+    public Object getInstanceGroup() {
+        if (instanceGroup == null) {
+            String instanceGroupId = getInstanceGroupId();
+            try {
+                instanceGroup = agentManagementService.getInstanceGroup(instanceGroupId);
+            } catch (Exception ignored) {
+                instanceGroup = AgentInstanceGroup.newBuilder();
+            }
+        }
+        return instanceGroup;
+    }
+
+    public Object getInstance() {
+        if (instance == null) {
+            String instanceId = getAgentAttributeValue(targetVM, schedulerConfiguration.getInstanceAttributeName());
+            try {
+                instance = agentManagementService.getAgentInstance(instanceId);
+            } catch (Exception ignored) {
+                instance = AgentInstance.newBuilder();
+            }
+        }
+        return instance;
+    }
+
+    String getJobId() {
+        return jobId;
+    }
+
+    String getTaskId() {
+        return taskRequest.getId();
+    }
+
+    String getInstanceGroupId() {
+        return getAgentAttributeValue(targetVM, schedulerConfiguration.getInstanceGroupAttributeName());
+    }
+
+    /**
+     * Returns all values as a map, resolving the agent data.
+     */
+    Map<String, Object> toMap() {
+        Map<String, Object> context = new HashMap<>();
+        if (job != null) {
+            context.put(JOB, job);
+            context.put(TASK, task);
+        }
+        context.put(INSTANCE_GROUP, getInstanceGroup());
+        context.put(INSTANCE, getInstance());
+        return context;
+    }
+}
@@ -17,8 +17,10 @@
 package com.netflix.titus.master.scheduler.systemselector;
 
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import javax.script.Compilable;
@@ -28,6 +30,8 @@ import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
 
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
 import com.netflix.titus.api.scheduler.service.SchedulerException;
 import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.util.cache.Cache;
@@ -35,11 +39,26 @@ import com.netflix.titus.common.util.cache.Caches;
 import com.netflix.titus.master.scheduler.SchedulerConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.expression.EvaluationException;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ParseException;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
 
 import static com.netflix.titus.master.MetricConstants.METRIC_SCHEDULING_SERVICE;
 
 /**
  * Evaluates system selector expressions based on an expression statement and the context.
+ * <p>
+ * Expressions are compiled once, and reused. By default they are evaluated by the JavaScript engine. If SpEL is enabled
+ * in the configuration, they are compiled with SpEL, and the JavaScript engine is used only for expressions that are
+ * not valid SpEL expressions, or which fail to evaluate as such.
+ * <p>
+ * As an expression is evaluated for each task and agent pair, its results are memoized until the next scheduling
+ * iteration starts (see {@link #prepare()}), if the expression does not refer to a task or an agent instance. For
+ * such expressions the result depends on the job and the agent instance group only, so it can be reused for all
+ * agents of the same instance group.
  */
 @Singleton
 public class SystemSelectorEvaluator {
@@ -47,15 +66,48 @@ public class SystemSelectorEvaluator {
     private static final Logger logger = LoggerFactory.getLogger(SystemSelectorEvaluator.class);
     private static final String SCRIPT_ENGINE_NAME = "nashorn";
     private static final String METRIC_SCRIPT_ENGINE_EVALUATORS = "systemSelectorEvaluator.scriptEngineEvaluators";
+    private static final String METRIC_COMPILED_EXPRESSIONS = "systemSelectorEvaluator.compiledExpressions";
+    private static final String METRIC_MEMOIZED_RESULTS = "systemSelectorEvaluator.memoizedResults";
+
+    private static final int MAX_COMPILED_EXPRESSIONS = 1_000;
+
+    private static final Pattern JOB_REFERENCE = Pattern.compile("\\b" + SystemSelectorContext.JOB + "\\b");
+    private static final Pattern INSTANCE_GROUP_REFERENCE = Pattern.compile("\\b" + SystemSelectorContext.INSTANCE_GROUP + "\\b");
+    private static final Pattern TASK_OR_INSTANCE_REFERENCE = Pattern.compile(
+            "\\b(" + SystemSelectorContext.TASK + '|' + SystemSelectorContext.INSTANCE + ")\\b"
+    );
+
+    private final SchedulerConfiguration configuration;
+    private final SpelExpressionParser spelParser;
+    private final Cache<String, CompiledExpression> compiledExpressions;
     private final Cache<Long, ScriptEngineEvaluator> scriptEngineEvaluators;
     private final ScriptEngine validatorScriptEngine;
 
+    private final ConcurrentMap<MemoizationKey, MemoizedResult> memoizedResults = new ConcurrentHashMap<>();
+    private final Counter memoizedResultHits;
+    private final Counter memoizedResultMisses;
+
     @Inject
     public SystemSelectorEvaluator(SchedulerConfiguration configuration, TitusRuntime titusRuntime) {
-        scriptEngineEvaluators = Caches.instrumentedCacheWithMaxSize(
-                configuration.getSchedulerMaxConcurrent(), METRIC_SCHEDULING_SERVICE + METRIC_SCRIPT_ENGINE_EVALUATORS, titusRuntime.getRegistry()
+        this.configuration = configuration;
+        Registry registry = titusRuntime.getRegistry();
+        this.spelParser = new SpelExpressionParser(new SpelParserConfiguration(SpelCompilerMode.MIXED, SystemSelectorEvaluator.class.getClassLoader()));
+        this.compiledExpressions = Caches.instrumentedCacheWithMaxSize(
+                MAX_COMPILED_EXPRESSIONS, METRIC_SCHEDULING_SERVICE + METRIC_COMPILED_EXPRESSIONS, registry
+        );
+        this.scriptEngineEvaluators = Caches.instrumentedCacheWithMaxSize(
+                configuration.getSchedulerMaxConcurrent(), METRIC_SCHEDULING_SERVICE + METRIC_SCRIPT_ENGINE_EVALUATORS, registry
         );
-        validatorScriptEngine = new ScriptEngineManager().getEngineByName(SCRIPT_ENGINE_NAME);
+        this.validatorScriptEngine = new ScriptEngineManager().getEngineByName(SCRIPT_ENGINE_NAME);
+        this.memoizedResultHits = registry.counter(METRIC_SCHEDULING_SERVICE + METRIC_MEMOIZED_RESULTS, "result", "hit");
+        this.memoizedResultMisses = registry.counter(METRIC_SCHEDULING_SERVICE + METRIC_MEMOIZED_RESULTS, "result", "miss");
+    }
+
+    /**
+     * Must be called before each scheduling iteration, to discard results memoized in the previous one.
+     */
+    public void prepare() {
+        memoizedResults.clear();
     }
 
     public void validate(String expression, Map<String, Object> context) {
@@ -74,14 +126,121 @@ public class SystemSelectorEvaluator {
 //        }
     }
 
-    public boolean evaluate(String expression, Map<String, Object> context) {
-        // Create a script engine per scheduler thread in order to reduce contention
-        long threadId = Thread.currentThread().getId();
-        ScriptEngineEvaluator scriptEngineEvaluator = scriptEngineEvaluators.get(threadId, t -> new ScriptEngineEvaluator());
-        if (scriptEngineEvaluator == null) {
-            throw SchedulerException.systemSelectorEvaluationError("Unable to evaluate expression: %s because scriptEngineEvaluator was null", null, expression);
+    public boolean evaluate(String expression, SystemSelectorContext context) {
+        CompiledExpression compiledExpression = compiledExpressions.get(expression, this::compile);
+        if (!compiledExpression.isMemoizable()) {
+            return compiledExpression.evaluate(context);
+        }
+
+        MemoizationKey key = new MemoizationKey(
+                compiledExpression,
+                compiledExpression.isJobReferenced() ? context.getJobId() : "",
+                compiledExpression.isInstanceGroupReferenced() ? context.getInstanceGroupId() : ""
+        );
+        // Instance group objects are immutable, so the reference identifies the instance group version.
+        Object instanceGroup = compiledExpression.isInstanceGroupReferenced() ? context.getInstanceGroup() : null;
+
+        MemoizedResult memoized = memoizedResults.get(key);
+        if (memoized != null && memoized.getInstanceGroup() == instanceGroup) {
+            memoizedResultHits.increment();
+            return memoized.getResult();
+        }
+        memoizedResultMisses.increment();
+
+        boolean result = compiledExpression.evaluate(context);
+        memoizedResults.put(key, new MemoizedResult(instanceGroup, result));
+        return result;
+    }
+
+    private CompiledExpression compile(String expression) {
+        if (configuration.isSystemSelectorSpelEnabled()) {
+            try {
+                return new SpelCompiledExpression(expression, spelParser.parseExpression(expression));
+            } catch (ParseException e) {
+                logger.info("Expression is not a valid SpEL expression, and will be evaluated by the JavaScript engine: {}", expression);
+            }
+        }
+        return new ScriptCompiledExpression(expression);
+    }
+
+    private static abstract class CompiledExpression {
+
+        protected final String expression;
+        private final boolean jobReferenced;
+        private final boolean instanceGroupReferenced;
+        private final boolean memoizable;
+
+        private CompiledExpression(String expression) {
+            this.expression = expression;
+            this.jobReferenced = JOB_REFERENCE.matcher(expression).find();
+            this.instanceGroupReferenced = INSTANCE_GROUP_REFERENCE.matcher(expression).find();
+            this.memoizable = !TASK_OR_INSTANCE_REFERENCE.matcher(expression).find();
+        }
+
+        private boolean isJobReferenced() {
+            return jobReferenced;
+        }
+
+        private boolean isInstanceGroupReferenced() {
+            return instanceGroupReferenced;
+        }
+
+        private boolean isMemoizable() {
+            return memoizable;
+        }
+
+        abstract boolean evaluate(SystemSelectorContext context);
+    }
+
+    /**
+     * Once an expression fails to evaluate as SpEL, it is evaluated by the JavaScript engine from then on, as it is
+     * most likely a JavaScript expression, which happens to be a valid SpEL expression as well.
+     */
+    private class SpelCompiledExpression extends CompiledExpression {
+
+        private final Expression spelExpression;
+        private final ScriptCompiledExpression fallbackExpression;
+
+        private volatile boolean spelFailed;
+
+        private SpelCompiledExpression(String expression, Expression spelExpression) {
+            super(expression);
+            this.spelExpression = spelExpression;
+            this.fallbackExpression = new ScriptCompiledExpression(expression);
+        }
+
+        @Override
+        boolean evaluate(SystemSelectorContext context) {
+            if (!spelFailed) {
+                try {
+                    Object result = spelExpression.getValue(context);
+                    logger.debug("Evaluated expression: {} and got result: {}", expression, result);
+                    return Boolean.TRUE.equals(result);
+                } catch (EvaluationException e) {
+                    logger.info("Unable to evaluate SpEL expression, it will be evaluated by the JavaScript engine: {}", expression, e);
+                    spelFailed = true;
+                }
+            }
+            return fallbackExpression.evaluate(context);
+        }
+    }
+
+    private class ScriptCompiledExpression extends CompiledExpression {
+
+        private ScriptCompiledExpression(String expression) {
+            super(expression);
+        }
+
+        @Override
+        boolean evaluate(SystemSelectorContext context) {
+            // Create a script engine per scheduler thread in order to reduce contention
+            long threadId = Thread.currentThread().getId();
+            ScriptEngineEvaluator scriptEngineEvaluator = scriptEngineEvaluators.get(threadId, t -> new ScriptEngineEvaluator());
+            if (scriptEngineEvaluator == null) {
+                throw SchedulerException.systemSelectorEvaluationError("Unable to evaluate expression: %s because scriptEngineEvaluator was null", null, expression);
+            }
+            return scriptEngineEvaluator.evaluate(expression, context.toMap());
         }
-        return scriptEngineEvaluator.evaluate(expression, context);
     }
 
     private class ScriptEngineEvaluator {
@@ -105,7 +264,7 @@ public class SystemSelectorEvaluator {
                 }
                 try {
                     logger.debug("Evaluating expression: {}", expression);
-                    Object result = scriptEngine.eval(expression, scriptContext);
+                    Object result = compiledScript.eval(scriptContext);
                     logger.debug("Evaluated expression: {} and got result: {}", expression, result);
                     if (result == Boolean.TRUE) {
                         return true;
@@ -130,4 +289,55 @@ public class SystemSelectorEvaluator {
             });
         }
     }
+
+    private static class MemoizationKey {
+
+        private final CompiledExpression expression;
+        private final String jobId;
+        private final String instanceGroupId;
+
+        private MemoizationKey(CompiledExpression expression, String jobId, String instanceGroupId) {
+            this.expression = expression;
+            this.jobId = jobId;
+            this.instanceGroupId = instanceGroupId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            MemoizationKey that = (MemoizationKey) o;
+            return expression == that.expression &&
+                    Objects.equals(jobId, that.jobId) &&
+                    Objects.equals(instanceGroupId, that.instanceGroupId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(expression), jobId, instanceGroupId);
+        }
+    }
+
+    private static class MemoizedResult {
+
+        private final Object instanceGroup;
+        private final boolean result;
+
+        private MemoizedResult(Object instanceGroup, boolean result) {
+            this.instanceGroup = instanceGroup;
+            this.result = result;
+        }
+
+        private Object getInstanceGroup() {
+            return instanceGroup;
+        }
+
+        private boolean getResult() {
+            return result;
+        }
+    }
 }
@@ -17,7 +17,6 @@
 package com.netflix.titus.master.scheduler.systemselector;
 
 import java.util.List;
-import java.util.Map;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -32,8 +31,6 @@ import com.netflix.titus.master.scheduler.SchedulerConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import static com.netflix.titus.master.scheduler.systemselector.SystemSelectorFunctions.createContext;
-
 /**
  *
  */
@@ -69,9 +66,9 @@ public class SystemSelectorFitnessCalculator implements VMTaskFitnessCalculator
         List<Match> matches = systemSelectorService.getShouldMatchesForEvaluation();
         double totalMatchEvaluations = 0;
         double totalMatches = 0;
+        SystemSelectorContext context = new SystemSelectorContext(taskRequest, targetVM, agentManagementService, schedulerConfiguration);
         for (Match match : matches) {
             String selectExpression = match.getSelectExpression();
-            Map<String, Object> context = createContext(taskRequest, targetVM, agentManagementService, schedulerConfiguration);
             boolean selectResult = false;
             try {
                 logger.debug("Evaluating select expression: {} for taskRequest: {} on targetVM: {}", selectExpression, taskRequest, targetVM);
@@ -35,6 +35,7 @@ import com.netflix.titus.common.util.guice.ProxyType;
 import com.netflix.titus.common.util.guice.annotation.Activator;
 import com.netflix.titus.common.util.guice.annotation.ProxyConfiguration;
 import com.netflix.titus.common.util.rx.ObservableExt;
+import com.netflix.titus.common.util.rx.eventbus.RxEventBus;
 import com.netflix.titus.master.MetricConstants;
 import com.netflix.titus.master.job.V2JobOperations;
 import com.netflix.titus.master.service.management.ApplicationSlaManagementService;
@@ -59,9 +60,8 @@ import rx.subjects.PublishSubject;
 import static com.netflix.titus.common.util.CollectionsExt.copyAndRemove;
 
 /**
- * Periodically checks for SLA violations, and a pre-configured interval.
- *
- * @TODO Improve this implementation by immediately reacting to state changes in the system.
+ * Periodically checks for SLA violations, and a pre-configured interval. Job consumptions are maintained
+ * incrementally from the V2 and V3 job events (see {@link IncrementalResourceConsumptionEvaluator}).
  */
 @Singleton
 @ProxyConfiguration(types = ProxyType.ActiveGuard)
@@ -73,7 +73,13 @@ public class DefaultResourceConsumptionService implements ResourceConsumptionSer
 
     static final long UPDATE_INTERVAL_MS = 5000;
 
+    /**
+     * How often the incrementally maintained job consumptions are verified against, and rebuilt from the job manager state.
+     */
+    static final long FULL_EVALUATION_INTERVAL_MS = 5 * 60 * 1000;
+
     private final Supplier<ConsumptionEvaluationResult> evaluator;
+    private final IncrementalResourceConsumptionEvaluator incrementalEvaluator;
     private final Registry registry;
     private final Scheduler.Worker worker;
 
@@ -88,15 +94,33 @@ public class DefaultResourceConsumptionService implements ResourceConsumptionSer
     public DefaultResourceConsumptionService(ApplicationSlaManagementService applicationSlaManagementService,
                                              V2JobOperations v2JobOperations,
                                              V3JobOperations v3JobOperations,
+                                             RxEventBus rxEventBus,
                                              CapacityManagementConfiguration config,
                                              Registry registry) {
-        this(ResourceConsumptionEvaluator.newEvaluator(applicationSlaManagementService, v2JobOperations, v3JobOperations, config), registry, Schedulers.computation());
+        this(
+                new IncrementalResourceConsumptionEvaluator(
+                        applicationSlaManagementService, v2JobOperations, v3JobOperations, rxEventBus, config,
+                        (int) (FULL_EVALUATION_INTERVAL_MS / UPDATE_INTERVAL_MS), registry
+                ),
+                registry,
+                Schedulers.computation()
+        );
+    }
+
+    private DefaultResourceConsumptionService(IncrementalResourceConsumptionEvaluator incrementalEvaluator,
+                                              Registry registry,
+                                              Scheduler scheduler) {
+        this.evaluator = incrementalEvaluator;
+        this.incrementalEvaluator = incrementalEvaluator;
+        this.registry = registry;
+        this.worker = scheduler.createWorker();
     }
 
     /* For testing */ DefaultResourceConsumptionService(Supplier<ConsumptionEvaluationResult> evaluator,
                                                         Registry registry,
                                                         Scheduler scheduler) {
         this.evaluator = evaluator;
+        this.incrementalEvaluator = null;
         this.registry = registry;
         this.worker = scheduler.createWorker();
     }
@@ -115,6 +139,9 @@ public class DefaultResourceConsumptionService implements ResourceConsumptionSer
             subscription.unsubscribe();
         }
         worker.unsubscribe();
+        if (incrementalEvaluator != null) {
+            incrementalEvaluator.shutdown();
+        }
         eventsSubject.onCompleted();
     }
 
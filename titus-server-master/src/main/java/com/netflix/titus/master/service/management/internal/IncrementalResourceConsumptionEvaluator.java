@@ -0,0 +1,208 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.service.management.internal;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
+import com.netflix.titus.api.jobmanager.service.V3JobOperations;
+import com.netflix.titus.api.model.ResourceDimension;
+import com.netflix.titus.api.model.event.JobStateChangeEvent;
+import com.netflix.titus.api.model.event.TaskStateChangeEvent;
+import com.netflix.titus.common.util.rx.eventbus.RxEventBus;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.master.MetricConstants;
+import com.netflix.titus.master.job.V2JobOperations;
+import com.netflix.titus.master.model.ResourceDimensions;
+import com.netflix.titus.master.service.management.ApplicationSlaManagementService;
+import com.netflix.titus.master.service.management.CapacityManagementConfiguration;
+import com.netflix.titus.master.service.management.internal.DefaultResourceConsumptionService.ConsumptionEvaluationResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Subscription;
+import rx.subscriptions.CompositeSubscription;
+
+/**
+ * Resource consumption evaluator, which takes job consumptions from {@link V2JobConsumptionTracker} and
+ * {@link V3JobConsumptionTracker}, instead of walking all jobs and their tasks. The V2 tracker is fed by the V2 job and
+ * task state change events from the event bus, and the V3 tracker by the job manager events. Every
+ * {@code fullEvaluationPeriod} evaluations, the tracker state is rebuilt from the job manager state. The number of
+ * (capacity group, application) pairs for which the incremental and the full results differ is reported as a drift
+ * metric.
+ */
+class IncrementalResourceConsumptionEvaluator implements Supplier<ConsumptionEvaluationResult> {
+
+    private static final Logger logger = LoggerFactory.getLogger(IncrementalResourceConsumptionEvaluator.class);
+
+    private static final String METRIC_CONSUMPTION = MetricConstants.METRIC_CAPACITY_MANAGEMENT + "consumption.";
+
+    private final ApplicationSlaManagementService applicationSlaManagementService;
+    private final V2JobOperations v2JobOperations;
+    private final V3JobOperations v3JobOperations;
+    private final RxEventBus rxEventBus;
+    private final CapacityManagementConfiguration config;
+    private final int fullEvaluationPeriod;
+
+    private final V2JobConsumptionTracker v2Tracker = new V2JobConsumptionTracker();
+    private final V3JobConsumptionTracker v3Tracker = new V3JobConsumptionTracker();
+
+    private final AtomicInteger driftGauge;
+    private final Counter driftDetectedCounter;
+
+    private volatile Subscription eventSubscription;
+    private int evaluationCount;
+
+    IncrementalResourceConsumptionEvaluator(ApplicationSlaManagementService applicationSlaManagementService,
+                                            V2JobOperations v2JobOperations,
+                                            V3JobOperations v3JobOperations,
+                                            RxEventBus rxEventBus,
+                                            CapacityManagementConfiguration config,
+                                            int fullEvaluationPeriod,
+                                            Registry registry) {
+        this.applicationSlaManagementService = applicationSlaManagementService;
+        this.v2JobOperations = v2JobOperations;
+        this.v3JobOperations = v3JobOperations;
+        this.rxEventBus = rxEventBus;
+        this.config = config;
+        this.fullEvaluationPeriod = fullEvaluationPeriod;
+        this.driftGauge = registry.gauge(METRIC_CONSUMPTION + "incrementalDrift", new AtomicInteger());
+        this.driftDetectedCounter = registry.counter(METRIC_CONSUMPTION + "incrementalDriftDetected");
+    }
+
+    void shutdown() {
+        Subscription subscription = eventSubscription;
+        if (subscription != null) {
+            subscription.unsubscribe();
+        }
+    }
+
+    @Override
+    public ConsumptionEvaluationResult get() {
+        if (eventSubscription == null) {
+            v3Tracker.startResync();
+            subscribe();
+            v2Tracker.resync(v2JobOperations.getAllJobMgrs());
+            v3Tracker.resync(v3JobOperations.getJobsAndTasks());
+        } else if (++evaluationCount % fullEvaluationPeriod == 0) {
+            List<JobConsumption> incremental = v2Tracker.resync(v2JobOperations.getAllJobMgrs());
+            List<JobConsumption> resynced = v2Tracker.getJobConsumptions();
+
+            v3Tracker.startResync();
+            incremental.addAll(v3Tracker.resync(v3JobOperations.getJobsAndTasks()));
+            resynced.addAll(v3Tracker.getJobConsumptions());
+
+            int drift = countDrift(resynced, incremental);
+            driftGauge.set(drift);
+            if (drift > 0) {
+                driftDetectedCounter.increment();
+                logger.warn("Incremental resource consumption drifted from the job manager state in {} capacity group/application pairs", drift);
+            }
+        }
+
+        List<JobConsumption> jobConsumptions = v2Tracker.getJobConsumptions();
+        jobConsumptions.addAll(v3Tracker.getJobConsumptions());
+        return new ResourceConsumptionEvaluator(applicationSlaManagementService, jobConsumptions, config).toEvaluationResult();
+    }
+
+    private void subscribe() {
+        Subscription v2TaskSubscription = rxEventBus.listen(getClass().getSimpleName(), TaskStateChangeEvent.class).subscribe(
+                event -> handleEvent(event, v2Tracker::onTaskStateChangeEvent),
+                this::onEventStreamError,
+                this::onEventStreamCompleted
+        );
+        Subscription v2JobSubscription = rxEventBus.listen(getClass().getSimpleName(), JobStateChangeEvent.class).subscribe(
+                event -> handleEvent(event, v2Tracker::onJobStateChangeEvent),
+                this::onEventStreamError,
+                this::onEventStreamCompleted
+        );
+        Subscription v3Subscription = v3JobOperations.observeJobs().subscribe(
+                event -> handleEvent(event, v3Tracker::onEvent),
+                this::onEventStreamError,
+                this::onEventStreamCompleted
+        );
+        this.eventSubscription = new CompositeSubscription(v2TaskSubscription, v2JobSubscription, v3Subscription);
+    }
+
+    private <E> void handleEvent(E event, Consumer<E> handler) {
+        try {
+            handler.accept(event);
+        } catch (Exception e) {
+            logger.warn("Cannot apply job event to the resource consumption tracker: {}", event, e);
+        }
+    }
+
+    private void onEventStreamError(Throwable error) {
+        logger.warn("Job event stream terminated with an error; resubscribing in the next evaluation", error);
+        resetSubscription();
+    }
+
+    private void onEventStreamCompleted() {
+        logger.info("Job event stream completed; resubscribing in the next evaluation");
+        resetSubscription();
+    }
+
+    private void resetSubscription() {
+        Subscription subscription = eventSubscription;
+        this.eventSubscription = null;
+        if (subscription != null) {
+            subscription.unsubscribe();
+        }
+    }
+
+    /**
+     * Compares current and max consumptions aggregated by (capacity group, application). Task state counters are not
+     * compared, as they do not affect capacity guarantees.
+     */
+    static int countDrift(List<JobConsumption> expected, List<JobConsumption> actual) {
+        Map<Pair<String, String>, Pair<ResourceDimension, ResourceDimension>> expectedByOwner = aggregateByOwner(expected);
+        Map<Pair<String, String>, Pair<ResourceDimension, ResourceDimension>> actualByOwner = aggregateByOwner(actual);
+
+        Set<Pair<String, String>> owners = new HashSet<>(expectedByOwner.keySet());
+        owners.addAll(actualByOwner.keySet());
+
+        int drift = 0;
+        for (Pair<String, String> owner : owners) {
+            if (!Objects.equals(expectedByOwner.get(owner), actualByOwner.get(owner))) {
+                drift++;
+            }
+        }
+        return drift;
+    }
+
+    private static Map<Pair<String, String>, Pair<ResourceDimension, ResourceDimension>> aggregateByOwner(List<JobConsumption> consumptions) {
+        Map<Pair<String, String>, Pair<ResourceDimension, ResourceDimension>> result = new HashMap<>();
+        for (JobConsumption consumption : consumptions) {
+            ResourceDimension current = ResourceDimensions.multiply(consumption.getTaskResources(), consumption.getRunningCount());
+            ResourceDimension max = ResourceDimensions.multiply(consumption.getTaskResources(), consumption.getMax());
+            result.merge(
+                    Pair.of(consumption.getCapacityGroup(), consumption.getAppName()),
+                    Pair.of(current, max),
+                    (a, b) -> Pair.of(ResourceDimensions.add(a.getLeft(), b.getLeft()), ResourceDimensions.add(a.getRight(), b.getRight()))
+            );
+        }
+        return result;
+    }
+}
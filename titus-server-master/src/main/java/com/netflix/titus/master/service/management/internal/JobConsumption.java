@@ -0,0 +1,203 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.service.management.internal;
+
+import java.util.List;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.netflix.titus.api.jobmanager.model.job.ContainerResources;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.api.jobmanager.model.job.ext.ServiceJobExt;
+import com.netflix.titus.api.model.ResourceDimension;
+import com.netflix.titus.api.model.v2.MachineDefinition;
+import com.netflix.titus.api.model.v2.V2JobState;
+import com.netflix.titus.api.model.v2.parameter.Parameters;
+import com.netflix.titus.api.store.v2.V2JobMetadata;
+import com.netflix.titus.api.store.v2.V2StageMetadata;
+import com.netflix.titus.api.store.v2.V2WorkerMetadata;
+import com.netflix.titus.common.util.code.CodePointTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resource consumption inputs of a single V2 or V3 job: its owner, the resources of a single task, the maximum job
+ * size, and the task counts. It is everything {@link ResourceConsumptionEvaluator} needs to know about the job, so it
+ * can be computed either from the full job state, or maintained incrementally by {@link V2JobConsumptionTracker} and
+ * {@link V3JobConsumptionTracker}.
+ */
+class JobConsumption {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobConsumption.class);
+
+    private final String appName;
+    private final String capacityGroup;
+    private final ResourceDimension taskResources;
+    private final int max;
+    private final int runningCount;
+    private final int[] taskStateCounts;
+
+    JobConsumption(String appName,
+                   String capacityGroup,
+                   ResourceDimension taskResources,
+                   int max,
+                   int runningCount,
+                   int[] taskStateCounts) {
+        this.appName = appName;
+        this.capacityGroup = capacityGroup;
+        this.taskResources = taskResources;
+        this.max = max;
+        this.runningCount = runningCount;
+        this.taskStateCounts = taskStateCounts;
+    }
+
+    String getAppName() {
+        return appName;
+    }
+
+    /**
+     * Capacity group set in the job descriptor, or null if not set.
+     */
+    String getCapacityGroup() {
+        return capacityGroup;
+    }
+
+    ResourceDimension getTaskResources() {
+        return taskResources;
+    }
+
+    int getMax() {
+        return max;
+    }
+
+    int getRunningCount() {
+        return runningCount;
+    }
+
+    /**
+     * Task counts indexed by {@link V2JobState#ordinal()}, to keep the existing consumption attributes format.
+     */
+    int getTaskStateCount(V2JobState state) {
+        return taskStateCounts[state.ordinal()];
+    }
+
+    /**
+     * Finished tasks are not counted, as the job manager removes them from its model right after they finish
+     * (see {@link V3JobConsumptionTracker}).
+     */
+    static JobConsumption of(Job<?> job, List<Task> tasks) {
+        int runningCount = 0;
+        int[] taskStateCounts = new int[V2JobState.values().length];
+        for (Task task : tasks) {
+            TaskState taskState = task.getStatus().getState();
+            if (taskState == TaskState.Finished) {
+                continue;
+            }
+            if (TaskState.isRunning(taskState)) {
+                runningCount++;
+            }
+            taskStateCounts[JobFunctions.toV2JobState(taskState).ordinal()]++;
+        }
+        return new JobConsumption(
+                job.getJobDescriptor().getApplicationName(),
+                job.getJobDescriptor().getCapacityGroup(),
+                toResourceDimension(job),
+                getMaxJobSize(job),
+                runningCount,
+                taskStateCounts
+        );
+    }
+
+    static JobConsumption of(V2JobMetadata jobMetadata) {
+        V2StageMetadata stageMetadata = jobMetadata.getStageMetadata(1);
+
+        int runningCount = 0;
+        int[] taskStateCounts = new int[V2JobState.values().length];
+        for (V2WorkerMetadata worker : stageMetadata.getAllWorkers()) {
+            if (V2JobState.isRunningState(worker.getState())) {
+                runningCount++;
+            }
+            taskStateCounts[worker.getState().ordinal()]++;
+        }
+        return new JobConsumption(
+                Parameters.getAppName(jobMetadata.getParameters()),
+                Parameters.getCapacityGroup(jobMetadata.getParameters()),
+                toResourceDimension(stageMetadata),
+                getMaxJobSize(jobMetadata, stageMetadata),
+                runningCount,
+                taskStateCounts
+        );
+    }
+
+    static ResourceDimension toResourceDimension(Job<?> job) {
+        ContainerResources containerResources = job.getJobDescriptor().getContainer().getContainerResources();
+        return new ResourceDimension(
+                containerResources.getCpu(),
+                containerResources.getGpu(),
+                containerResources.getMemoryMB(),
+                containerResources.getDiskMB(),
+                containerResources.getNetworkMbps()
+        );
+    }
+
+    @VisibleForTesting
+    static ResourceDimension toResourceDimension(V2StageMetadata stageMetadata) {
+        MachineDefinition machineDefinition = stageMetadata.getMachineDefinition();
+        double gpu;
+        try {
+            gpu = machineDefinition.getScalars().get("gpu");
+        } catch (Exception ignore) {
+            gpu = 0;
+        }
+        return new ResourceDimension(
+                machineDefinition.getCpuCores(),
+                (int) gpu,
+                (int) machineDefinition.getMemoryMB(),
+                (int) machineDefinition.getDiskMB(),
+                (int) machineDefinition.getNetworkMbps()
+        );
+    }
+
+    static int getMaxJobSize(Job<?> job) {
+        return JobFunctions.isServiceJob(job)
+                ? ((Job<ServiceJobExt>) job).getJobDescriptor().getExtensions().getCapacity().getMax()
+                : ((Job<BatchJobExt>) job).getJobDescriptor().getExtensions().getSize();
+    }
+
+    private static int getMaxJobSize(V2JobMetadata jobMetadata, V2StageMetadata stageMetadata) {
+        String jobId = jobMetadata.getJobId();
+        int max;
+        Parameters.JobType jobType = Parameters.getJobType(jobMetadata.getParameters());
+        if (jobType == Parameters.JobType.Service) {
+
+            // This is a guard, as some old jobs might have no policy defined
+            if (stageMetadata.getScalingPolicy() == null) {
+                CodePointTracker.mark("scaling policy not defined for job " + jobId);
+                logger.warn("Scaling policy for job {} not defined", jobId);
+                max = stageMetadata.getNumWorkers();
+            } else {
+                max = stageMetadata.getScalingPolicy().getMax();
+            }
+        } else {
+            max = stageMetadata.getNumWorkers();
+        }
+        return max;
+    }
+}
@@ -23,31 +23,18 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
 import java.util.function.Function;
-import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
-import com.google.common.annotations.VisibleForTesting;
-import com.netflix.titus.api.jobmanager.model.job.ContainerResources;
 import com.netflix.titus.api.jobmanager.model.job.Job;
-import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
+import com.netflix.titus.api.jobmanager.model.job.JobState;
 import com.netflix.titus.api.jobmanager.model.job.Task;
-import com.netflix.titus.api.jobmanager.model.job.TaskState;
-import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
-import com.netflix.titus.api.jobmanager.model.job.ext.ServiceJobExt;
 import com.netflix.titus.api.jobmanager.service.V3JobOperations;
 import com.netflix.titus.api.model.ApplicationSLA;
 import com.netflix.titus.api.model.ResourceDimension;
 import com.netflix.titus.api.model.Tier;
-import com.netflix.titus.api.model.v2.MachineDefinition;
 import com.netflix.titus.api.model.v2.V2JobState;
-import com.netflix.titus.api.model.v2.parameter.Parameters;
-import com.netflix.titus.api.store.v2.V2JobMetadata;
-import com.netflix.titus.api.store.v2.V2StageMetadata;
-import com.netflix.titus.api.store.v2.V2WorkerMetadata;
-import com.netflix.titus.common.util.code.CodePointTracker;
 import com.netflix.titus.common.util.tuple.Pair;
 import com.netflix.titus.master.job.V2JobMgrIntf;
 import com.netflix.titus.master.job.V2JobOperations;
@@ -58,8 +45,6 @@ import com.netflix.titus.master.service.management.CompositeResourceConsumption;
 import com.netflix.titus.master.service.management.ResourceConsumption;
 import com.netflix.titus.master.service.management.ResourceConsumption.ConsumptionLevel;
 import com.netflix.titus.master.service.management.ResourceConsumptions;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import static com.netflix.titus.common.util.CollectionsExt.copyAndRemove;
 import static com.netflix.titus.master.service.management.ApplicationSlaManagementService.DEFAULT_APPLICATION;
@@ -70,10 +55,7 @@ import static com.netflix.titus.master.service.management.ResourceConsumption.SY
  */
 class ResourceConsumptionEvaluator {
 
-    private static final Logger logger = LoggerFactory.getLogger(ResourceConsumptionEvaluator.class);
-
-    private final V2JobOperations v2JobOperations;
-    private final V3JobOperations v3JobOperations;
+    private final Collection<JobConsumption> jobConsumptions;
     private final CapacityManagementConfiguration config;
     private final Set<String> definedCapacityGroups;
     private final Map<String, ApplicationSLA> applicationSlaMap;
@@ -85,8 +67,13 @@ class ResourceConsumptionEvaluator {
                                  V2JobOperations v2JobOperations,
                                  V3JobOperations v3JobOperations,
                                  CapacityManagementConfiguration config) {
-        this.v2JobOperations = v2JobOperations;
-        this.v3JobOperations = v3JobOperations;
+        this(applicationSlaManagementService, toJobConsumptions(v2JobOperations, v3JobOperations), config);
+    }
+
+    ResourceConsumptionEvaluator(ApplicationSlaManagementService applicationSlaManagementService,
+                                 Collection<JobConsumption> jobConsumptions,
+                                 CapacityManagementConfiguration config) {
+        this.jobConsumptions = jobConsumptions;
         this.config = config;
         Collection<ApplicationSLA> applicationSLAs = applicationSlaManagementService.getApplicationSLAs();
         this.definedCapacityGroups = applicationSLAs.stream().map(ApplicationSLA::getAppName).collect(Collectors.toSet());
@@ -146,52 +133,21 @@ class ResourceConsumptionEvaluator {
         Map<String, Map<String, ResourceConsumption>> consumptionMap = new HashMap<>();
         Set<String> undefinedCapacityGroups = new HashSet<>();
 
-        // V2 engine
-        v2JobOperations.getAllJobMgrs().stream()
-                .map(V2JobMgrIntf::getJobMetadata)
-                .filter(Objects::nonNull)
-                .forEach(jobMetadata -> {
-                    V2StageMetadata stageMetadata = jobMetadata.getStageMetadata(1);
-
-                    ResourceDimension taskResources = toResourceDimension(stageMetadata);
-                    int max = getMaxJobSize(jobMetadata, stageMetadata);
-
-                    Map<String, Object> tasksStates = getWorkerStateMap(stageMetadata);
-
-                    String appName = Parameters.getAppName(jobMetadata.getParameters());
-
-                    ResourceConsumption jobConsumption = new ResourceConsumption(
-                            appName == null ? DEFAULT_APPLICATION : appName,
-                            ConsumptionLevel.Application,
-                            ResourceDimensions.multiply(taskResources, getRunningWorkers(stageMetadata.getAllWorkers()).size()),
-                            ResourceDimensions.multiply(taskResources, max),
-                            tasksStates
-                    );
-
-                    String capacityGroup = resolveCapacityGroup(undefinedCapacityGroups, jobMetadata, appName);
-                    updateConsumptionMap(appName, capacityGroup, jobConsumption, consumptionMap);
-                });
-
-        // V3 engine
-        v3JobOperations.getJobsAndTasks().forEach(jobsAndTasks -> {
-            Job job = jobsAndTasks.getLeft();
-            List<Task> tasks = jobsAndTasks.getRight();
-
-            ResourceDimension taskResources = toResourceDimension(job);
-            int max = getMaxJobSize(job);
+        jobConsumptions.forEach(consumption -> {
+            ResourceDimension taskResources = consumption.getTaskResources();
 
-            Map<String, Object> tasksStates = getWorkerStateMap(tasks);
-            String appName = job.getJobDescriptor().getApplicationName();
+            Map<String, Object> tasksStates = getWorkerStateMap(consumption);
+            String appName = consumption.getAppName();
 
             ResourceConsumption jobConsumption = new ResourceConsumption(
                     appName == null ? DEFAULT_APPLICATION : appName,
                     ConsumptionLevel.Application,
-                    ResourceDimensions.multiply(taskResources, getRunningWorkers(tasks).size()),
-                    ResourceDimensions.multiply(taskResources, max),
+                    ResourceDimensions.multiply(taskResources, consumption.getRunningCount()),
+                    ResourceDimensions.multiply(taskResources, consumption.getMax()),
                     tasksStates
             );
 
-            String capacityGroup = resolveCapacityGroup(undefinedCapacityGroups, job, appName);
+            String capacityGroup = resolveCapacityGroup(undefinedCapacityGroups, consumption.getCapacityGroup(), appName);
             updateConsumptionMap(appName, capacityGroup, jobConsumption, consumptionMap);
         });
 
@@ -220,74 +176,16 @@ class ResourceConsumptionEvaluator {
         }
     }
 
-    private int getMaxJobSize(V2JobMetadata jobMetadata, V2StageMetadata stageMetadata) {
-        String jobId = jobMetadata.getJobId();
-        int max;
-        Parameters.JobType jobType = Parameters.getJobType(jobMetadata.getParameters());
-        if (jobType == Parameters.JobType.Service) {
-
-            // This is a guard, as some old jobs might have no policy defined
-            if (stageMetadata.getScalingPolicy() == null) {
-                CodePointTracker.mark("scaling policy not defined for job " + jobId);
-                logger.warn("Scaling policy for job {} not defined", jobId);
-                max = stageMetadata.getNumWorkers();
-            } else {
-                max = stageMetadata.getScalingPolicy().getMax();
-            }
-        } else {
-            max = stageMetadata.getNumWorkers();
-        }
-        return max;
-    }
-
-    private int getMaxJobSize(Job<?> job) {
-        return JobFunctions.isServiceJob(job)
-                ? ((Job<ServiceJobExt>) job).getJobDescriptor().getExtensions().getCapacity().getMax()
-                : ((Job<BatchJobExt>) job).getJobDescriptor().getExtensions().getSize();
-    }
-
-    private Map<String, Object> getWorkerStateMap(V2StageMetadata stageMetadata) {
-        List<V2WorkerMetadata> allWorkers = new ArrayList<>(stageMetadata.getAllWorkers());
-        Map<String, Object> tasksStates = newTaskStateMap();
-        allWorkers.forEach(w -> tasksStates.put(w.getState().name(), (int) tasksStates.get(w.getState().name()) + 1));
-        return tasksStates;
-    }
-
-    private Map<String, Object> getWorkerStateMap(List<Task> tasks) {
-        Map<String, Object> tasksStates = newTaskStateMap();
-        tasks.stream().map(task -> JobFunctions.toV2JobState(task.getStatus().getState())).forEach(taskState ->
-                tasksStates.put(taskState.name(), (int) tasksStates.get(taskState.name()) + 1)
-        );
-        return tasksStates;
-    }
-
-    private Map<String, Object> newTaskStateMap() {
+    private Map<String, Object> getWorkerStateMap(JobConsumption jobConsumption) {
         Map<String, Object> tasksStates = new HashMap<>();
         for (V2JobState state : V2JobState.values()) {
-            tasksStates.put(state.name(), 0);
+            tasksStates.put(state.name(), jobConsumption.getTaskStateCount(state));
         }
         return tasksStates;
     }
 
-    private String resolveCapacityGroup(Set<String> undefinedCapacityGroups, V2JobMetadata jobMetadata, String appName) {
-        String capacityGroup;
-        capacityGroup = Parameters.getCapacityGroup(jobMetadata.getParameters());
-        if (capacityGroup == null) {
-            if (appName != null && definedCapacityGroups.contains(appName)) {
-                capacityGroup = appName;
-            }
-        }
-        if (capacityGroup == null) {
-            capacityGroup = DEFAULT_APPLICATION;
-        } else if (!definedCapacityGroups.contains(capacityGroup)) {
-            undefinedCapacityGroups.add(capacityGroup);
-            capacityGroup = DEFAULT_APPLICATION;
-        }
-        return capacityGroup;
-    }
-
-    private String resolveCapacityGroup(Set<String> undefinedCapacityGroups, Job job, String appName) {
-        String capacityGroup = job.getJobDescriptor().getCapacityGroup();
+    private String resolveCapacityGroup(Set<String> undefinedCapacityGroups, String jobCapacityGroup, String appName) {
+        String capacityGroup = jobCapacityGroup;
         if (capacityGroup == null) {
             if (appName != null && definedCapacityGroups.contains(appName)) {
                 capacityGroup = appName;
@@ -302,55 +200,38 @@ class ResourceConsumptionEvaluator {
         return capacityGroup;
     }
 
-    static Supplier<DefaultResourceConsumptionService.ConsumptionEvaluationResult> newEvaluator(ApplicationSlaManagementService applicationSlaManagementService,
-                                                                                                V2JobOperations v2JobOperations,
-                                                                                                V3JobOperations v3JobOperations,
-                                                                                                CapacityManagementConfiguration config) {
-        return () -> {
-            ResourceConsumptionEvaluator evaluator = new ResourceConsumptionEvaluator(applicationSlaManagementService, v2JobOperations, v3JobOperations, config);
-            return new DefaultResourceConsumptionService.ConsumptionEvaluationResult(
-                    evaluator.getDefinedCapacityGroups(),
-                    evaluator.getUndefinedCapacityGroups(),
-                    evaluator.getSystemConsumption()
-            );
-        };
-    }
-
-    @VisibleForTesting
-    static ResourceDimension toResourceDimension(V2StageMetadata stageMetadata) {
-        MachineDefinition machineDefinition = stageMetadata.getMachineDefinition();
-        double gpu;
-        try {
-            gpu = machineDefinition.getScalars().get("gpu");
-        } catch (Exception ignore) {
-            gpu = 0;
-        }
-        return new ResourceDimension(
-                machineDefinition.getCpuCores(),
-                (int) gpu,
-                (int) machineDefinition.getMemoryMB(),
-                (int) machineDefinition.getDiskMB(),
-                (int) machineDefinition.getNetworkMbps()
+    DefaultResourceConsumptionService.ConsumptionEvaluationResult toEvaluationResult() {
+        return new DefaultResourceConsumptionService.ConsumptionEvaluationResult(
+                definedCapacityGroups,
+                undefinedCapacityGroups,
+                systemConsumption
         );
     }
 
-    private static ResourceDimension toResourceDimension(Job<?> job) {
-        ContainerResources containerResources = job.getJobDescriptor().getContainer().getContainerResources();
-        return new ResourceDimension(
-                containerResources.getCpu(),
-                containerResources.getGpu(),
-                containerResources.getMemoryMB(),
-                containerResources.getDiskMB(),
-                containerResources.getNetworkMbps()
-        );
+    private static List<JobConsumption> toJobConsumptions(V2JobOperations v2JobOperations, V3JobOperations v3JobOperations) {
+        List<JobConsumption> result = toV2JobConsumptions(v2JobOperations.getAllJobMgrs());
+        result.addAll(toV3JobConsumptions(v3JobOperations.getJobsAndTasks()));
+        return result;
     }
 
-    private List<? extends V2WorkerMetadata> getRunningWorkers(Collection<V2WorkerMetadata> allWorkers) {
-        return allWorkers.stream().filter(t -> V2JobState.isRunningState(t.getState())).collect(Collectors.toList());
+    static List<JobConsumption> toV2JobConsumptions(Collection<V2JobMgrIntf> jobMgrs) {
+        List<JobConsumption> result = new ArrayList<>(jobMgrs.size());
+        jobMgrs.stream()
+                .map(V2JobMgrIntf::getJobMetadata)
+                .filter(jobMetadata -> jobMetadata != null && !V2JobState.isTerminalState(jobMetadata.getState()))
+                .forEach(jobMetadata -> result.add(JobConsumption.of(jobMetadata)));
+        return result;
     }
 
-    private List<Task> getRunningWorkers(List<Task> tasks) {
-        return tasks.stream().filter(t -> TaskState.isRunning(t.getStatus().getState())).collect(Collectors.toList());
+    static List<JobConsumption> toV3JobConsumptions(List<Pair<Job, List<Task>>> jobsAndTasks) {
+        List<JobConsumption> result = new ArrayList<>(jobsAndTasks.size());
+        jobsAndTasks.forEach(jobAndTasks -> {
+            Job<?> job = jobAndTasks.getLeft();
+            if (job.getStatus().getState() != JobState.Finished) {
+                result.add(JobConsumption.of(job, jobAndTasks.getRight()));
+            }
+        });
+        return result;
     }
 
     private double getBuffer(Tier tier) {
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.service.management.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.netflix.titus.api.model.event.JobStateChangeEvent;
+import com.netflix.titus.api.model.event.TaskStateChangeEvent;
+import com.netflix.titus.api.model.v2.V2JobState;
+import com.netflix.titus.api.store.v2.V2JobMetadata;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.master.job.V2JobMgrIntf;
+
+/**
+ * Maintains {@link JobConsumption} of all V2 jobs from the V2 job and task state change events published on the
+ * event bus. V2 job metadata is mutable, so an event only marks its job as changed, and the consumption of the
+ * changed jobs is recomputed from their metadata in the next {@link #getJobConsumptions()} call. Finished jobs are
+ * dropped, as the V2 engine archives them.
+ * <p>
+ * As the consumption is always recomputed from the current job metadata, the order in which events and
+ * {@link #resync(Collection)} are applied does not matter.
+ */
+class V2JobConsumptionTracker {
+
+    private final Map<String, JobConsumption> consumptions = new HashMap<>();
+    private final Map<String, V2JobMetadata> changedJobs = new HashMap<>();
+
+    /**
+     * Replaces the tracked jobs with the given ones.
+     *
+     * @return job consumptions before the resync
+     */
+    synchronized List<JobConsumption> resync(Collection<V2JobMgrIntf> jobMgrs) {
+        List<JobConsumption> previous = getJobConsumptions();
+        consumptions.clear();
+        for (V2JobMgrIntf jobMgr : jobMgrs) {
+            V2JobMetadata jobMetadata = jobMgr.getJobMetadata();
+            if (jobMetadata != null) {
+                changedJobs.put(jobMetadata.getJobId(), jobMetadata);
+            }
+        }
+        return previous;
+    }
+
+    synchronized void onTaskStateChangeEvent(TaskStateChangeEvent<?, ?> event) {
+        if (event.getSource() instanceof Pair) {
+            Object job = ((Pair<?, ?>) event.getSource()).getLeft();
+            if (job instanceof V2JobMetadata) {
+                changedJobs.put(event.getJobId(), (V2JobMetadata) job);
+            }
+        }
+    }
+
+    synchronized void onJobStateChangeEvent(JobStateChangeEvent<?> event) {
+        if (!(event.getSource() instanceof V2JobMetadata)) {
+            return;
+        }
+        if (event.getJobState() == JobStateChangeEvent.JobState.Finished) {
+            changedJobs.remove(event.getJobId());
+            consumptions.remove(event.getJobId());
+        } else {
+            changedJobs.put(event.getJobId(), (V2JobMetadata) event.getSource());
+        }
+    }
+
+    synchronized List<JobConsumption> getJobConsumptions() {
+        changedJobs.forEach((jobId, jobMetadata) -> {
+            // Task events may still come after the job finished event, so the job state is checked here as well
+            if (V2JobState.isTerminalState(jobMetadata.getState())) {
+                consumptions.remove(jobId);
+            } else {
+                consumptions.put(jobId, JobConsumption.of(jobMetadata));
+            }
+        });
+        changedJobs.clear();
+        return new ArrayList<>(consumptions.values());
+    }
+}
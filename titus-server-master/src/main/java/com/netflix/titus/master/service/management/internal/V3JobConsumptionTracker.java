@@ -0,0 +1,193 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.service.management.internal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
+import com.netflix.titus.api.jobmanager.model.job.JobState;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.event.JobManagerEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.JobUpdateEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.TaskUpdateEvent;
+import com.netflix.titus.api.model.v2.V2JobState;
+import com.netflix.titus.common.util.tuple.Pair;
+
+/**
+ * Maintains {@link JobConsumption} of all V3 jobs from the job manager event stream, so the cost of a consumption
+ * evaluation is proportional to the number of jobs, not the number of tasks. Each event is applied as a delta to the
+ * task counters of its job.
+ * <p>
+ * The job manager does not emit events when it removes tasks or jobs from its model. A task is removed right after it
+ * finishes (it is either replaced by its resubmit, or dropped), and a job is removed right after it finishes (which
+ * happens when all its tasks are gone), so the finished task and job updates are used as the removal signals.
+ * Finished tasks and jobs do not contribute to the current or max consumption, so this only affects the finished
+ * task counters, which are no longer reported for V3 jobs.
+ * <p>
+ * A snapshot of the job manager state may be outdated by the time it is applied, so {@link #startResync()} must be
+ * called before the snapshot is read. The events received from that point on are recorded, and applied again on top of
+ * the snapshot by {@link #resync(List)}. As each event carries the full task or job state, replaying events already
+ * included in the snapshot is harmless.
+ * <p>
+ * Events and evaluations come from different threads, so all access is synchronized.
+ */
+class V3JobConsumptionTracker {
+
+    private Map<String, JobEntry> jobEntries = new HashMap<>();
+
+    private List<JobManagerEvent<?>> bufferedEvents;
+
+    synchronized void startResync() {
+        this.bufferedEvents = new ArrayList<>();
+    }
+
+    /**
+     * Replaces the tracker state with the given job manager state, and the events received since {@link #startResync()}.
+     *
+     * @return job consumptions before the resync, which saw the same events as the new state
+     */
+    synchronized List<JobConsumption> resync(List<Pair<Job, List<Task>>> jobsAndTasks) {
+        List<JobConsumption> previous = getJobConsumptions();
+
+        Map<String, JobEntry> newJobEntries = new HashMap<>();
+        for (Pair<Job, List<Task>> jobAndTasks : jobsAndTasks) {
+            Job<?> job = jobAndTasks.getLeft();
+            if (!isFinished(job)) {
+                JobEntry entry = new JobEntry(job);
+                jobAndTasks.getRight().forEach(entry::updateTask);
+                newJobEntries.put(job.getId(), entry);
+            }
+        }
+        if (bufferedEvents != null) {
+            bufferedEvents.forEach(event -> apply(newJobEntries, event));
+            this.bufferedEvents = null;
+        }
+        this.jobEntries = newJobEntries;
+
+        return previous;
+    }
+
+    synchronized void onEvent(JobManagerEvent<?> event) {
+        if (bufferedEvents != null) {
+            bufferedEvents.add(event);
+        }
+        apply(jobEntries, event);
+    }
+
+    synchronized List<JobConsumption> getJobConsumptions() {
+        List<JobConsumption> result = new ArrayList<>(jobEntries.size());
+        jobEntries.values().forEach(entry -> result.add(entry.getConsumption()));
+        return result;
+    }
+
+    private static void apply(Map<String, JobEntry> jobEntries, JobManagerEvent<?> event) {
+        if (event instanceof JobUpdateEvent) {
+            Job<?> job = ((JobUpdateEvent) event).getCurrent();
+            if (isFinished(job)) {
+                jobEntries.remove(job.getId());
+            } else {
+                jobEntries.computeIfAbsent(job.getId(), id -> new JobEntry(job)).updateJob(job);
+            }
+        } else if (event instanceof TaskUpdateEvent) {
+            TaskUpdateEvent taskEvent = (TaskUpdateEvent) event;
+            Job<?> job = taskEvent.getCurrentJob();
+            jobEntries.computeIfAbsent(job.getId(), id -> new JobEntry(job)).updateTask(taskEvent.getCurrentTask());
+        }
+    }
+
+    private static boolean isFinished(Job<?> job) {
+        return job.getStatus().getState() == JobState.Finished;
+    }
+
+    private static class JobEntry {
+
+        private final Map<String, TaskState> taskStates = new HashMap<>();
+        private final int[] taskStateCounts = new int[V2JobState.values().length];
+
+        private Job<?> job;
+        private int runningCount;
+        private JobConsumption consumption;
+
+        private JobEntry(Job<?> job) {
+            this.job = job;
+        }
+
+        private void updateJob(Job<?> newJob) {
+            this.job = newJob;
+            this.consumption = null;
+        }
+
+        private void updateTask(Task task) {
+            TaskState newState = task.getStatus().getState();
+            TaskState previousState = taskStates.get(task.getId());
+            if (newState == previousState) {
+                return;
+            }
+
+            if (newState == TaskState.Finished) {
+                if (previousState != null) {
+                    taskStates.remove(task.getId());
+                    removeFromCounters(previousState);
+                    this.consumption = null;
+                }
+                return;
+            }
+
+            // Resolve the state index first, so an unexpected state leaves the counters untouched.
+            int newIndex = toStateIndex(newState);
+            if (previousState != null) {
+                removeFromCounters(previousState);
+            }
+            taskStates.put(task.getId(), newState);
+            taskStateCounts[newIndex]++;
+            if (TaskState.isRunning(newState)) {
+                runningCount++;
+            }
+            this.consumption = null;
+        }
+
+        private void removeFromCounters(TaskState taskState) {
+            taskStateCounts[toStateIndex(taskState)]--;
+            if (TaskState.isRunning(taskState)) {
+                runningCount--;
+            }
+        }
+
+        private JobConsumption getConsumption() {
+            if (consumption == null) {
+                consumption = new JobConsumption(
+                        job.getJobDescriptor().getApplicationName(),
+                        job.getJobDescriptor().getCapacityGroup(),
+                        JobConsumption.toResourceDimension(job),
+                        JobConsumption.getMaxJobSize(job),
+                        runningCount,
+                        taskStateCounts.clone()
+                );
+            }
+            return consumption;
+        }
+
+        private static int toStateIndex(TaskState taskState) {
+            return JobFunctions.toV2JobState(taskState).ordinal();
+        }
+    }
+}
@@ -58,4 +58,12 @@ public interface TaskMigrationManager {
      * @return the timeout for this manager
      */
     long getTimeoutMs();
+
+    /**
+     * @return the time (wall clock, in milliseconds) before which {@link #update(Collection)} cannot make any progress,
+     * or 0 if the manager should be updated in every iteration
+     */
+    default long getNextUpdateTime() {
+        return 0;
+    }
 }
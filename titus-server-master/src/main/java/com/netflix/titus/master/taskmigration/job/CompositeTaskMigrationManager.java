@@ -79,4 +79,12 @@ public class CompositeTaskMigrationManager implements TaskMigrationManager {
     public long getTimeoutMs() {
         return timeoutMs;
     }
+
+    @Override
+    public long getNextUpdateTime() {
+        if (currentMigrationManager == null || TaskMigrationManager.isTerminalState(currentMigrationManager.getState())) {
+            return 0;
+        }
+        return currentMigrationManager.getNextUpdateTime();
+    }
 }
@@ -103,6 +103,11 @@ public class DefaultTaskMigrationManager implements TaskMigrationManager {
         return 0;
     }
 
+    @Override
+    public long getNextUpdateTime() {
+        return lastMovedWorkerOnDisabledVM == 0 ? 0 : lastMovedWorkerOnDisabledVM + config.getMigrateIntervalMs();
+    }
+
     private void migrateV2Tasks(Collection<V2TaskMigrationDetails> taskMigrationDetailsCollection) {
         V2TaskMigrationDetails first = taskMigrationDetailsCollection.iterator().next();
         String jobId = first.getJobId();
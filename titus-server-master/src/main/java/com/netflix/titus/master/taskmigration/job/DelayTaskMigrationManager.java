@@ -56,6 +56,11 @@ public class DelayTaskMigrationManager implements TaskMigrationManager {
         return waitTimeMs;
     }
 
+    @Override
+    public long getNextUpdateTime() {
+        return createTime + waitTimeMs + 1;
+    }
+
     private boolean hasDurationElasped(long lastTime, long duration) {
         return System.currentTimeMillis() - lastTime > duration;
     }
@@ -16,8 +16,8 @@
 
 package com.netflix.titus.master.taskmigration.job;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -25,7 +25,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import javax.annotation.PreDestroy;
@@ -64,6 +67,15 @@ import rx.Scheduler;
 import rx.functions.Action0;
 import rx.schedulers.Schedulers;
 
+/**
+ * Tasks to be migrated are indexed by job, and each job is scheduled for its next migration update in a queue ordered
+ * by update time. Every run only updates the jobs that are due, and jobs that get tasks to be migrated for the first
+ * time are updated right away, without waiting for the next run. A job is next due when its migration manager can make
+ * progress again (see {@link TaskMigrationManager#getNextUpdateTime()}), but not earlier than the scheduler delay.
+ * <p>
+ * {@link #migrate(Collection)} is called with all tasks on inactive agents in every scheduling iteration, so the tasks
+ * already known are skipped with a single lookup.
+ */
 @Singleton
 public class ServiceJobTaskMigrator implements TaskMigrator {
 
@@ -75,9 +87,17 @@ public class ServiceJobTaskMigrator implements TaskMigrator {
     private final ServiceJobTaskMigratorConfig config;
     private final TaskMigrationManagerFactory managerFactory;
 
-    @VisibleForTesting
-    final Map<String, TaskMigrationDetails> taskMigrationDetailsMap;
+    /**
+     * jobId -> (taskId -> task to be migrated)
+     */
+    private final ConcurrentMap<String, ConcurrentMap<String, TaskMigrationDetails>> tasksByJob;
     private final Map<String, TaskMigrationManager> taskMigrationManagers;
+    /**
+     * jobs ordered by their next migration update time, and the update time of each job to find them in the queue
+     */
+    private final ConcurrentSkipListSet<ScheduledJob> jobUpdateQueue = new ConcurrentSkipListSet<>();
+    private final ConcurrentMap<String, Long> jobUpdateTimes = new ConcurrentHashMap<>();
+    private final AtomicBoolean immediateRunScheduled = new AtomicBoolean();
     private final Scheduler.Worker worker;
     private final Registry registry;
 
@@ -111,7 +131,7 @@ public class ServiceJobTaskMigrator implements TaskMigrator {
         this.managerFactory = managerFactory;
         this.registry = registry;
 
-        taskMigrationDetailsMap = new ConcurrentHashMap<>();
+        tasksByJob = new ConcurrentHashMap<>();
         taskMigrationManagers = new ConcurrentHashMap<>();
     }
 
@@ -142,12 +162,17 @@ public class ServiceJobTaskMigrator implements TaskMigrator {
 
     @Override
     public void migrate(Collection<TaskRequest> taskRequests) {
-        Set<String> taskIds = taskRequests.stream().map(TaskRequest::getId).collect(Collectors.toSet());
-        taskMigrationDetailsMap.values().removeIf(taskMigrationDetail -> !taskIds.contains(taskMigrationDetail.getId()));
+        int trackedTaskCount = tasksByJob.values().stream().mapToInt(Map::size).sum();
+        int knownTaskCount = 0;
+        boolean newJobs = false;
 
         for (TaskRequest taskRequest : taskRequests) {
             String taskId = taskRequest.getId();
             try {
+                if (isTracked(taskRequest)) {
+                    knownTaskCount++;
+                    continue;
+                }
                 logger.debug("Adding taskId: {} to migration map", taskId);
                 if (taskRequest instanceof ScheduledRequest) {
                     logger.debug("Adding v2 taskId: {} to migration map", taskId);
@@ -157,7 +182,7 @@ public class ServiceJobTaskMigrator implements TaskMigrator {
                     if (jobManager != null) {
                         TaskMigrationDetails taskMigrationDetails = new V2TaskMigrationDetails(taskRequest, jobManager);
                         if (!appNamesToIgnore.contains(taskMigrationDetails.getApplicationName()) && taskMigrationDetails.isService()) {
-                            taskMigrationDetailsMap.putIfAbsent(taskMigrationDetails.getId(), taskMigrationDetails);
+                            newJobs |= addTaskMigrationDetails(taskMigrationDetails);
                             logger.debug("Added v2 taskId: {} to migration map", taskId);
                         }
                     }
@@ -168,7 +193,7 @@ public class ServiceJobTaskMigrator implements TaskMigrator {
                     Task task = v3QueueableTask.getTask();
                     TaskMigrationDetails taskMigrationDetails = new V3TaskMigrationDetails(job, task, v3JobOperations);
                     if (!appNamesToIgnore.contains(taskMigrationDetails.getApplicationName()) && taskMigrationDetails.isService()) {
-                        taskMigrationDetailsMap.putIfAbsent(taskMigrationDetails.getId(), taskMigrationDetails);
+                        newJobs |= addTaskMigrationDetails(taskMigrationDetails);
                         logger.debug("Added v3 taskId: {} to migration map", taskId);
                     }
                 }
@@ -182,6 +207,56 @@ public class ServiceJobTaskMigrator implements TaskMigrator {
                 logger.warn("Unable to add taskId: {} to migration map with error:", taskId, e);
             }
         }
+
+        // Tasks no longer on inactive agents are dropped only if there are any, and jobs left with no tasks are cleaned
+        // up when their next update is due.
+        if (knownTaskCount < trackedTaskCount) {
+            Set<String> taskIds = taskRequests.stream().map(TaskRequest::getId).collect(Collectors.toSet());
+            tasksByJob.values().forEach(tasks -> tasks.keySet().retainAll(taskIds));
+        }
+
+        if (newJobs) {
+            scheduleImmediateRun();
+        }
+    }
+
+    private boolean isTracked(TaskRequest taskRequest) {
+        String jobId;
+        if (taskRequest instanceof ScheduledRequest) {
+            jobId = WorkerNaming.getJobAndWorkerId(taskRequest.getId()).jobId;
+        } else if (taskRequest instanceof V3QueueableTask) {
+            jobId = ((V3QueueableTask) taskRequest).getJob().getId();
+        } else {
+            return false;
+        }
+        Map<String, TaskMigrationDetails> jobTasks = tasksByJob.get(jobId);
+        return jobTasks != null && jobTasks.containsKey(taskRequest.getId());
+    }
+
+    /**
+     * @return true if this is the first task to be migrated for its job, in which case the job is due for an update
+     */
+    @VisibleForTesting
+    boolean addTaskMigrationDetails(TaskMigrationDetails taskMigrationDetails) {
+        String jobId = taskMigrationDetails.getJobId();
+        tasksByJob.compute(jobId, (id, tasks) -> {
+            ConcurrentMap<String, TaskMigrationDetails> jobTasks = tasks == null ? new ConcurrentHashMap<>() : tasks;
+            jobTasks.putIfAbsent(taskMigrationDetails.getId(), taskMigrationDetails);
+            return jobTasks;
+        });
+        return scheduleJobIfAbsent(jobId, scheduler.now());
+    }
+
+    /**
+     * Coalesces all requests for an immediate run into one, on the same worker as the periodic runs.
+     */
+    private void scheduleImmediateRun() {
+        if (action != null && config.isServiceTaskMigratorEnabled() && immediateRunScheduled.compareAndSet(false, true)) {
+            worker.schedule(() -> {
+                immediateRunScheduled.set(false);
+                updateDueJobs();
+            });
+        }
     }
 
     protected Observable<Void> run() {
@@ -191,30 +266,7 @@ public class ServiceJobTaskMigrator implements TaskMigrator {
                 final long start = registry.clock().wallTime();
                 try {
                     updateAppNamesToIgnore();
-                    taskMigrationDetailsMap.values().removeIf(taskMigrationDetail -> !taskMigrationDetail.isActive());
-                    taskMigrationManagers.values().removeIf(taskMigrationManager -> TaskMigrationManager.isTerminalState(taskMigrationManager.getState()));
-
-                    Map<String, List<TaskMigrationDetails>> tasksPerServiceJob = taskMigrationDetailsMap.values().stream()
-                            .collect(Collectors.groupingBy(TaskMigrationDetails::getJobId));
-
-                    tasksPerServiceJob.forEach((jobId, taskMigrationDetailsList) -> {
-                        TaskMigrationDetails first = taskMigrationDetailsList.get(0);
-                        taskMigrationManagers.computeIfAbsent(jobId, k -> managerFactory.newTaskMigrationManager(first));
-                    });
-
-                    taskMigrationManagers.forEach((jobId, taskMigrationManager) -> {
-                        List<TaskMigrationDetails> taskMigrationDetailsList = tasksPerServiceJob.getOrDefault(jobId, Collections.emptyList());
-                        logger.debug("Updating migration manager for jobId: {} with task size: {}", jobId, taskMigrationDetailsList.size());
-                        updateMigrationManager(taskMigrationManager, taskMigrationDetailsList);
-                    });
-                } catch (JobManagerException e) {
-                    if (e.getErrorCode() == JobManagerException.ErrorCode.JobNotFound || e.getErrorCode() == JobManagerException.ErrorCode.TaskNotFound) {
-                        logger.info("Job/task already terminated. Migration not needed: {}", e.getMessage());
-                    } else {
-                        logger.error("Unable to execute the run iteration with error: ", e);
-                    }
-                } catch (Exception e) {
-                    logger.error("Unable to execute the run iteration with error: ", e);
+                    updateDueJobs();
                 } finally {
                     updateMetricMeters();
                     final long end = registry.clock().wallTime();
@@ -228,6 +280,87 @@ public class ServiceJobTaskMigrator implements TaskMigrator {
         }
     }
 
+    /**
+     * Updates the migration managers of all jobs due for an update, and schedules their next update.
+     */
+    private void updateDueJobs() {
+        long now = scheduler.now();
+        for (ScheduledJob next = jobUpdateQueue.pollFirst(); next != null; next = jobUpdateQueue.pollFirst()) {
+            if (next.updateTime > now) {
+                jobUpdateQueue.add(next);
+                break;
+            }
+            if (!jobUpdateTimes.remove(next.jobId, next.updateTime)) {
+                continue; // rescheduled concurrently
+            }
+            try {
+                if (updateJob(next.jobId)) {
+                    scheduleJobIfAbsent(next.jobId, now + getNextUpdateDelayMs(next.jobId));
+                }
+            } catch (JobManagerException e) {
+                if (e.getErrorCode() == JobManagerException.ErrorCode.JobNotFound || e.getErrorCode() == JobManagerException.ErrorCode.TaskNotFound) {
+                    logger.info("Job/task already terminated. Migration not needed: {}", e.getMessage());
+                } else {
+                    logger.error("Unable to update the migration of jobId: {} with error: ", next.jobId, e);
+                    scheduleJobIfAbsent(next.jobId, now + config.getSchedulerDelayMs());
+                }
+            } catch (Exception e) {
+                logger.error("Unable to update the migration of jobId: {} with error: ", next.jobId, e);
+                scheduleJobIfAbsent(next.jobId, now + config.getSchedulerDelayMs());
+            }
+        }
+    }
+
+    /**
+     * @return true if the job needs more updates
+     */
+    private boolean updateJob(String jobId) {
+        ConcurrentMap<String, TaskMigrationDetails> jobTasks = tasksByJob.getOrDefault(jobId, new ConcurrentHashMap<>());
+        jobTasks.values().removeIf(taskMigrationDetail -> !taskMigrationDetail.isActive());
+        List<TaskMigrationDetails> taskMigrationDetailsList = new ArrayList<>(jobTasks.values());
+
+        TaskMigrationManager taskMigrationManager = taskMigrationDetailsList.isEmpty()
+                ? taskMigrationManagers.get(jobId)
+                : taskMigrationManagers.computeIfAbsent(jobId, k -> managerFactory.newTaskMigrationManager(taskMigrationDetailsList.get(0)));
+        if (taskMigrationManager != null) {
+            logger.debug("Updating migration manager for jobId: {} with task size: {}", jobId, taskMigrationDetailsList.size());
+            updateMigrationManager(taskMigrationManager, taskMigrationDetailsList);
+            if (TaskMigrationManager.isTerminalState(taskMigrationManager.getState())) {
+                taskMigrationManagers.remove(jobId, taskMigrationManager);
+            }
+        }
+
+        if (taskMigrationDetailsList.isEmpty()) {
+            tasksByJob.computeIfPresent(jobId, (id, tasks) -> tasks.isEmpty() ? null : tasks);
+            return tasksByJob.containsKey(jobId) || taskMigrationManagers.containsKey(jobId);
+        }
+        return true;
+    }
+
+    /**
+     * Migration managers track their progress with the wall clock, so their next update time is converted to a delay.
+     */
+    private long getNextUpdateDelayMs(String jobId) {
+        TaskMigrationManager taskMigrationManager = taskMigrationManagers.get(jobId);
+        long managerDelayMs = taskMigrationManager == null
+                ? 0
+                : taskMigrationManager.getNextUpdateTime() - System.currentTimeMillis();
+        return Math.max(config.getSchedulerDelayMs(), managerDelayMs);
+    }
+
+    /**
+     * @return true if the job was scheduled, false if it was already scheduled
+     */
+    private boolean scheduleJobIfAbsent(String jobId, long updateTime) {
+        boolean[] scheduled = new boolean[1];
+        jobUpdateTimes.computeIfAbsent(jobId, id -> {
+            jobUpdateQueue.add(new ScheduledJob(updateTime, jobId));
+            scheduled[0] = true;
+            return updateTime;
+        });
+        return scheduled[0];
+    }
+
     private void updateMigrationManager(TaskMigrationManager taskMigrationManager,
                                         List<TaskMigrationDetails> taskMigrationDetailsList) {
         try {
@@ -255,15 +388,10 @@ public class ServiceJobTaskMigrator implements TaskMigrator {
     private void updateMetricMeters() {
         Map<String, Integer> tasksToBeMigratedPerJob = new HashMap<>();
         Map<String, String> jobToApplicationNameMap = new HashMap<>();
-        taskMigrationDetailsMap.forEach((id, migrationDetails) ->
-                {
-                    tasksToBeMigratedPerJob.put(
-                            migrationDetails.getJobId(),
-                            tasksToBeMigratedPerJob.getOrDefault(migrationDetails.getJobId(), 0) + 1
-                    );
-                    jobToApplicationNameMap.put(migrationDetails.getJobId(), migrationDetails.getApplicationName());
-                }
-        );
+        tasksByJob.forEach((jobId, tasks) -> tasks.values().stream().findFirst().ifPresent(migrationDetails -> {
+            tasksToBeMigratedPerJob.put(jobId, tasks.size());
+            jobToApplicationNameMap.put(jobId, migrationDetails.getApplicationName());
+        }));
 
         Set<String> jobCountersToClear = CollectionsExt.copyAndRemove(jobsToBeMigratedCounters.keySet(), tasksToBeMigratedPerJob.keySet());
         jobCountersToClear.forEach(jobId -> jobsToBeMigratedCounters.remove(jobId).set(0));
@@ -290,4 +418,20 @@ public class ServiceJobTaskMigrator implements TaskMigrator {
     private void updateAppNamesToIgnore() {
         appNamesToIgnore = new HashSet<>(StringExt.splitByComma(config.getAppNamesToIgnore()));
     }
+
+    private static class ScheduledJob implements Comparable<ScheduledJob> {
+        private final long updateTime;
+        private final String jobId;
+
+        private ScheduledJob(long updateTime, String jobId) {
+            this.updateTime = updateTime;
+            this.jobId = jobId;
+        }
+
+        @Override
+        public int compareTo(ScheduledJob other) {
+            int byTime = Long.compare(updateTime, other.updateTime);
+            return byTime != 0 ? byTime : jobId.compareTo(other.jobId);
+        }
+    }
 }
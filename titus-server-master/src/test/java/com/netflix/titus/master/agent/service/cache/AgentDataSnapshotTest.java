@@ -0,0 +1,119 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.agent.service.cache;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import com.netflix.titus.api.agent.model.AgentInstance;
+import com.netflix.titus.api.agent.model.AgentInstanceGroup;
+import com.netflix.titus.api.model.Tier;
+import com.netflix.titus.common.aws.AwsInstanceType;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.netflix.titus.common.util.CollectionsExt.asSet;
+import static com.netflix.titus.testkit.model.agent.AgentGenerator.agentInstances;
+import static com.netflix.titus.testkit.model.agent.AgentGenerator.agentServerGroups;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AgentDataSnapshotTest {
+
+    private static final int INSTANCES_PER_GROUP = 3;
+
+    private AgentInstanceGroup group1;
+    private AgentInstanceGroup group2;
+    private List<AgentInstance> group1Instances;
+    private List<AgentInstance> group2Instances;
+
+    private AgentDataSnapshot snapshot;
+
+    @Before
+    public void setUp() {
+        List<AgentInstanceGroup> groups = agentServerGroups(Tier.Flex, INSTANCES_PER_GROUP, AwsInstanceType.M4_4XLarge).toList(2);
+        group1 = groups.get(0);
+        group2 = groups.get(1);
+        group1Instances = agentInstances(group1).toList(INSTANCES_PER_GROUP);
+        group2Instances = agentInstances(group2).toList(INSTANCES_PER_GROUP);
+
+        List<AgentInstance> allInstances = new ArrayList<>(group1Instances);
+        allInstances.addAll(group2Instances);
+        snapshot = AgentDataSnapshot.initWithStaleDataSnapshot(groups, allInstances);
+    }
+
+    @Test
+    public void testInitialSnapshot() {
+        assertThat(snapshot.getInstanceGroups()).containsExactlyInAnyOrder(group1, group2);
+        assertThat(snapshot.getInstanceGroupIds()).containsExactlyInAnyOrder(group1.getId(), group2.getId());
+        assertThat(snapshot.getInstances(group1.getId())).containsExactlyInAnyOrderElementsOf(group1Instances);
+        assertThat(snapshot.getInstance(group2Instances.get(0).getId())).isEqualTo(group2Instances.get(0));
+    }
+
+    @Test
+    public void testUpdateAgentInstanceKeepsOtherInstancesOfTheGroup() {
+        AgentInstance updated = group1Instances.get(0).toBuilder().withHostname("updatedHost").build();
+        AgentDataSnapshot newSnapshot = snapshot.updateAgentInstance(updated);
+
+        assertThat(newSnapshot.getInstance(updated.getId())).isEqualTo(updated);
+        assertThat(newSnapshot.getInstances(group1.getId())).hasSize(INSTANCES_PER_GROUP).contains(updated);
+
+        // The previous snapshot and the untouched instance group are not affected
+        assertThat(snapshot.getInstance(updated.getId())).isEqualTo(group1Instances.get(0));
+        assertThat(newSnapshot.getInstances(group2.getId())).isSameAs(snapshot.getInstances(group2.getId()));
+    }
+
+    @Test
+    public void testUpdateInstanceGroupOnly() {
+        AgentInstanceGroup updated = group1.toBuilder().withDesired(10).build();
+        AgentDataSnapshot newSnapshot = snapshot.updateInstanceGroup(updated, snapshot.getInstances(group1.getId()));
+
+        assertThat(newSnapshot.getInstanceGroup(group1.getId())).isEqualTo(updated);
+        assertThat(newSnapshot.getInstances(group1.getId())).isSameAs(snapshot.getInstances(group1.getId()));
+    }
+
+    @Test
+    public void testUpdateInstanceGroupWithNewInstanceSet() {
+        AgentInstance kept = group1Instances.get(0);
+        AgentInstance removed = group1Instances.get(1);
+        AgentDataSnapshot newSnapshot = snapshot.updateInstanceGroup(group1, asSet(kept));
+
+        assertThat(newSnapshot.getInstances(group1.getId())).containsExactly(kept);
+        assertThat(newSnapshot.getInstance(kept.getId())).isEqualTo(kept);
+        assertThat(newSnapshot.getInstance(removed.getId())).isNull();
+    }
+
+    @Test
+    public void testRemoveInstances() {
+        AgentInstance removed = group1Instances.get(0);
+        AgentDataSnapshot newSnapshot = snapshot.removeInstances(group1.getId(), asSet(removed.getId(), "unknownId"));
+
+        assertThat(newSnapshot.getInstances(group1.getId())).hasSize(INSTANCES_PER_GROUP - 1).doesNotContain(removed);
+        assertThat(newSnapshot.getInstance(removed.getId())).isNull();
+    }
+
+    @Test
+    public void testRemoveInstanceGroup() {
+        AgentDataSnapshot newSnapshot = snapshot.removeInstanceGroup(group1.getId());
+
+        assertThat(newSnapshot.getInstanceGroups()).containsExactly(group2);
+        assertThat(newSnapshot.getInstanceGroupIds()).containsExactly(group2.getId());
+        assertThat(newSnapshot.getInstances(group1.getId())).isNull();
+        group1Instances.forEach(instance -> assertThat(newSnapshot.getInstance(instance.getId())).isNull());
+        assertThat(new HashSet<>(newSnapshot.getInstances(group2.getId()))).isEqualTo(new HashSet<>(group2Instances));
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.endpoint.v3.grpc.gateway;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.netflix.titus.api.jobmanager.model.job.BatchJobTask;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.TaskStatus;
+import com.netflix.titus.api.jobmanager.model.job.event.JobManagerEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.TaskUpdateEvent;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.api.jobmanager.service.V3JobOperations;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.grpc.protogen.JobChangeNotification;
+import com.netflix.titus.grpc.protogen.JobChangeNotification.NotificationCase;
+import com.netflix.titus.master.endpoint.grpc.GrpcEndpointConfiguration;
+import com.netflix.titus.runtime.endpoint.common.EmptyLogStorageInfo;
+import org.junit.Before;
+import org.junit.Test;
+import rx.observers.AssertableSubscriber;
+import rx.schedulers.Schedulers;
+import rx.subjects.PublishSubject;
+
+import static com.netflix.titus.testkit.model.job.JobDescriptorGenerator.oneTaskBatchJobDescriptor;
+import static com.netflix.titus.testkit.model.job.JobGenerator.batchJobs;
+import static com.netflix.titus.testkit.model.job.JobGenerator.batchTasks;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class JobChangeNotificationPublisherTest {
+
+    private static final int BUFFER_SIZE = 2;
+
+    private final V3JobOperations jobOperations = mock(V3JobOperations.class);
+
+    private final GrpcEndpointConfiguration configuration = mock(GrpcEndpointConfiguration.class);
+
+    private final PublishSubject<JobManagerEvent<?>> eventSubject = PublishSubject.create();
+
+    private final Job<BatchJobExt> job = batchJobs(oneTaskBatchJobDescriptor()).getValue();
+
+    private final BatchJobTask task = withState(batchTasks(job).getValue(), TaskState.Accepted, 1_000);
+
+    private JobChangeNotificationPublisher publisher;
+
+    @Before
+    public void setUp() {
+        when(configuration.getObserveJobsSubscriberBufferSize()).thenReturn(BUFFER_SIZE);
+        when(jobOperations.observeJobs()).thenReturn(eventSubject);
+        when(jobOperations.getJobs()).thenReturn(Collections.singletonList(job));
+        when(jobOperations.getTasks()).thenReturn(Collections.singletonList(task));
+
+        publisher = new JobChangeNotificationPublisher(jobOperations, EmptyLogStorageInfo.INSTANCE, configuration, TitusRuntimes.test(), Schedulers.immediate());
+    }
+
+    @Test
+    public void testSnapshotIsSharedAndUpdatedIncrementally() {
+        AssertableSubscriber<JobChangeNotification> first = publisher.observeJobs().test();
+        first.assertValueCount(3);
+        assertThat(first.getOnNextEvents().get(0).getNotificationCase()).isEqualTo(NotificationCase.JOBUPDATE);
+        assertThat(first.getOnNextEvents().get(1).getNotificationCase()).isEqualTo(NotificationCase.TASKUPDATE);
+        assertThat(first.getOnNextEvents().get(2).getNotificationCase()).isEqualTo(NotificationCase.SNAPSHOTEND);
+
+        BatchJobTask startedTask = withState(task, TaskState.Started, 2_000);
+        eventSubject.onNext(TaskUpdateEvent.taskChange(job, startedTask, task));
+        first.assertValueCount(4);
+
+        // Second subscriber gets the updated snapshot, and the job manager is not queried again.
+        AssertableSubscriber<JobChangeNotification> second = publisher.observeJobs().test();
+        second.assertValueCount(3);
+        assertThat(second.getOnNextEvents().get(1)).isSameAs(first.getOnNextEvents().get(3));
+        assertThat(second.getOnNextEvents().get(1).getTaskUpdate().getTask().getStatus().getState())
+                .isEqualTo(com.netflix.titus.grpc.protogen.TaskStatus.TaskState.Started);
+
+        verify(jobOperations, times(1)).observeJobs();
+        verify(jobOperations, times(1)).getTasks();
+        assertThat(publisher.getSubscriberCount()).isEqualTo(2);
+
+        first.unsubscribe();
+        second.unsubscribe();
+        assertThat(publisher.getSubscriberCount()).isZero();
+    }
+
+    @Test
+    public void testStaleEventsAreDiscarded() {
+        AssertableSubscriber<JobChangeNotification> subscriber = publisher.observeJobs().test();
+
+        eventSubject.onNext(TaskUpdateEvent.taskChange(job, withState(task, TaskState.Launched, 500), task));
+        subscriber.assertValueCount(3);
+    }
+
+    @Test
+    public void testFinishedTasksStayInSnapshotUntilRemovedFromModel() {
+        AssertableSubscriber<JobChangeNotification> subscriber = publisher.observeJobs().test();
+        assertThat(publisher.getSnapshotSize()).isEqualTo(2);
+
+        BatchJobTask finishedTask = withState(task, TaskState.Finished, 2_000);
+        eventSubject.onNext(TaskUpdateEvent.taskChange(job, finishedTask, task));
+        assertThat(publisher.getSnapshotSize()).isEqualTo(2);
+
+        // Late event, older than the finished state
+        eventSubject.onNext(TaskUpdateEvent.taskChange(job, withState(task, TaskState.Started, 1_500), task));
+        subscriber.assertValueCount(4);
+
+        // Still in the job manager model
+        when(jobOperations.findTaskById(task.getId())).thenReturn(Optional.of(Pair.of(job, finishedTask)));
+        publisher.observeJobs().test().assertValueCount(3);
+        assertThat(publisher.getSnapshotSize()).isEqualTo(2);
+
+        // Removed from the job manager model
+        when(jobOperations.findTaskById(task.getId())).thenReturn(Optional.empty());
+        publisher.observeJobs().test().assertValueCount(2);
+        assertThat(publisher.getSnapshotSize()).isEqualTo(1);
+    }
+
+    @Test
+    public void testEventsReceivedWhileSnapshotIsLoadedAreApplied() {
+        BatchJobTask startedTask = withState(task, TaskState.Started, 2_000);
+        when(jobOperations.getTasks()).thenAnswer(invocation -> {
+            eventSubject.onNext(TaskUpdateEvent.taskChange(job, startedTask, task));
+            return Collections.singletonList(task);
+        });
+
+        AssertableSubscriber<JobChangeNotification> subscriber = publisher.observeJobs().test();
+        subscriber.assertValueCount(3);
+        assertThat(subscriber.getOnNextEvents().get(1).getTaskUpdate().getTask().getStatus().getState())
+                .isEqualTo(com.netflix.titus.grpc.protogen.TaskStatus.TaskState.Started);
+    }
+
+    @Test
+    public void testEventStreamIsReleasedWhenLastSubscriberLeaves() {
+        AssertableSubscriber<JobChangeNotification> subscriber = publisher.observeJobs().test();
+        assertThat(eventSubject.hasObservers()).isTrue();
+
+        subscriber.unsubscribe();
+        assertThat(eventSubject.hasObservers()).isFalse();
+        assertThat(publisher.getSnapshotSize()).isZero();
+
+        publisher.observeJobs().test().assertValueCount(3);
+        assertThat(eventSubject.hasObservers()).isTrue();
+        verify(jobOperations, times(2)).observeJobs();
+    }
+
+    @Test
+    public void testSlowSubscriberIsEvicted() {
+        AssertableSubscriber<JobChangeNotification> slowSubscriber = publisher.observeJobs().test(0);
+        AssertableSubscriber<JobChangeNotification> fastSubscriber = publisher.observeJobs().test();
+
+        for (int i = 0; i <= BUFFER_SIZE; i++) {
+            eventSubject.onNext(TaskUpdateEvent.taskChange(job, withState(task, TaskState.Started, 2_000 + i), task));
+        }
+
+        slowSubscriber.assertError(IllegalStateException.class);
+        fastSubscriber.assertNoErrors();
+        fastSubscriber.assertValueCount(3 + BUFFER_SIZE + 1);
+        assertThat(publisher.getSubscriberCount()).isEqualTo(1);
+
+        eventSubject.onNext(TaskUpdateEvent.taskChange(job, withState(task, TaskState.Started, 3_000), task));
+        fastSubscriber.assertValueCount(3 + BUFFER_SIZE + 2);
+    }
+
+    @Test
+    public void testFailingSubscriberIsEvicted() {
+        AtomicInteger received = new AtomicInteger();
+        publisher.observeJobs().subscribe(notification -> {
+            if (received.incrementAndGet() > 3) {
+                throw new RuntimeException("Simulated client error");
+            }
+        });
+        AssertableSubscriber<JobChangeNotification> otherSubscriber = publisher.observeJobs().test();
+
+        eventSubject.onNext(TaskUpdateEvent.taskChange(job, withState(task, TaskState.Started, 2_000), task));
+        assertThat(publisher.getSubscriberCount()).isEqualTo(1);
+
+        eventSubject.onNext(TaskUpdateEvent.taskChange(job, withState(task, TaskState.Started, 3_000), task));
+        otherSubscriber.assertNoErrors();
+        otherSubscriber.assertValueCount(5);
+        assertThat(received.get()).isEqualTo(4);
+        assertThat(eventSubject.hasObservers()).isTrue();
+    }
+
+    @Test
+    public void testNotificationsAreDeliveredOnRequest() {
+        AssertableSubscriber<JobChangeNotification> subscriber = publisher.observeJobs().test(1);
+        subscriber.assertValueCount(1);
+
+        eventSubject.onNext(TaskUpdateEvent.taskChange(job, withState(task, TaskState.Started, 2_000), task));
+        subscriber.assertValueCount(1);
+
+        subscriber.requestMore(3);
+        subscriber.assertValueCount(4);
+        assertThat(subscriber.getOnNextEvents().get(3).getTaskUpdate().getTask().getStatus().getState())
+                .isEqualTo(com.netflix.titus.grpc.protogen.TaskStatus.TaskState.Started);
+    }
+
+    @Test
+    public void testEventStreamErrorTerminatesSubscribersAndResetsPublisher() {
+        AssertableSubscriber<JobChangeNotification> subscriber = publisher.observeJobs().test();
+
+        eventSubject.onError(new RuntimeException("Simulated event stream error"));
+        subscriber.assertError(RuntimeException.class);
+        assertThat(publisher.getSubscriberCount()).isZero();
+
+        PublishSubject<JobManagerEvent<?>> newEventSubject = PublishSubject.create();
+        when(jobOperations.observeJobs()).thenReturn(newEventSubject);
+
+        publisher.observeJobs().test().assertValueCount(3);
+        assertThat(newEventSubject.hasObservers()).isTrue();
+    }
+
+    private static BatchJobTask withState(BatchJobTask task, TaskState state, long timestamp) {
+        return task.toBuilder()
+                .withStatus(TaskStatus.newBuilder().withState(state).withTimestamp(timestamp).build())
+                .build();
+    }
+}
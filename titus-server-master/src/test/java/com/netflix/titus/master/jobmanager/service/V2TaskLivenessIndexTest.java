@@ -0,0 +1,111 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.model.event.TaskStateChangeEvent;
+import com.netflix.titus.api.model.v2.V2JobState;
+import com.netflix.titus.api.store.v2.V2JobMetadata;
+import com.netflix.titus.api.store.v2.V2WorkerMetadata;
+import com.netflix.titus.common.util.histogram.Histogram;
+import com.netflix.titus.common.util.histogram.HistogramDescriptor;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.master.job.V2JobMgrIntf;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.netflix.titus.master.service.management.ApplicationSlaManagementService.DEFAULT_APPLICATION;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class V2TaskLivenessIndexTest {
+
+    private static final long ONE_MINUTE_MS = TimeUnit.MINUTES.toMillis(1);
+    private static final long ONE_HOUR_MS = TimeUnit.HOURS.toMillis(1);
+
+    private static final HistogramDescriptor HISTOGRAM_DESCRIPTOR = HistogramDescriptor.histogramOf(ONE_MINUTE_MS, ONE_HOUR_MS);
+
+    private static final long NOW = TimeUnit.DAYS.toMillis(100);
+
+    private final V2TaskLivenessIndex index = new V2TaskLivenessIndex(HISTOGRAM_DESCRIPTOR);
+
+    private final V2JobMetadata job = mock(V2JobMetadata.class);
+    private final V2WorkerMetadata worker = mock(V2WorkerMetadata.class);
+
+    @Before
+    public void setUp() {
+        when(job.getJobId()).thenReturn("Titus-1");
+        when(job.getParameters()).thenReturn(Collections.emptyList());
+
+        when(worker.getJobId()).thenReturn("Titus-1");
+        when(worker.getWorkerIndex()).thenReturn(0);
+        when(worker.getWorkerNumber()).thenReturn(1);
+        when(worker.getAcceptedAt()).thenReturn(NOW - 10 * ONE_MINUTE_MS);
+        when(worker.getStartedAt()).thenReturn(NOW - 30_000);
+    }
+
+    @Test
+    public void testTaskStateChangeMovesTaskBetweenCounters() {
+        index.onEvent(newEvent(V2JobState.Accepted));
+        assertThat(counters(buildHistograms(), TaskState.Accepted)).containsExactly(0L, 1L, 0L);
+
+        index.onEvent(newEvent(V2JobState.Started));
+        Map<String, Map<String, Histogram.Builder>> histograms = buildHistograms();
+        assertThat(histograms.get(DEFAULT_APPLICATION)).doesNotContainKey(TaskState.Accepted.name());
+        assertThat(counters(histograms, TaskState.Started)).containsExactly(1L, 0L, 0L);
+
+        index.onEvent(newEvent(V2JobState.Completed));
+        assertThat(buildHistograms().get(DEFAULT_APPLICATION)).isEmpty();
+    }
+
+    @Test
+    public void testEventsReceivedDuringResyncAreAppliedOnTopOfSnapshot() {
+        when(worker.getState()).thenReturn(V2JobState.Started);
+        V2JobMgrIntf jobMgr = mock(V2JobMgrIntf.class);
+        when(jobMgr.getJobMetadata()).thenReturn(job);
+        doReturn(Collections.singletonList(worker)).when(jobMgr).getWorkers();
+
+        index.startResync();
+        index.onEvent(newEvent(V2JobState.Failed));
+        index.resync(Collections.singletonList(jobMgr));
+
+        assertThat(buildHistograms().get(DEFAULT_APPLICATION)).isEmpty();
+    }
+
+    private TaskStateChangeEvent<Pair<V2JobMetadata, V2WorkerMetadata>, V2JobState> newEvent(V2JobState state) {
+        return new TaskStateChangeEvent<>("Titus-1", "Titus-1-worker-0-1", state, NOW, Pair.of(job, worker));
+    }
+
+    private Map<String, Map<String, Histogram.Builder>> buildHistograms() {
+        Map<String, Map<String, Histogram.Builder>> histograms = new HashMap<>();
+        histograms.put(DEFAULT_APPLICATION, new HashMap<>());
+        index.addTo(histograms, HISTOGRAM_DESCRIPTOR, NOW);
+        return histograms;
+    }
+
+    private List<Long> counters(Map<String, Map<String, Histogram.Builder>> histograms, TaskState state) {
+        return histograms.get(DEFAULT_APPLICATION).get(state.name()).build().getCounters();
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.ServiceJobTask;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.TaskStatus;
+import com.netflix.titus.api.jobmanager.model.job.event.TaskUpdateEvent;
+import com.netflix.titus.api.jobmanager.model.job.ext.ServiceJobExt;
+import com.netflix.titus.common.util.histogram.Histogram;
+import com.netflix.titus.common.util.histogram.HistogramDescriptor;
+import com.netflix.titus.common.util.tuple.Pair;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.netflix.titus.api.jobmanager.model.job.JobFunctions.changeServiceJobCapacity;
+import static com.netflix.titus.api.jobmanager.model.job.JobFunctions.changeTaskStatus;
+import static com.netflix.titus.master.service.management.ApplicationSlaManagementService.DEFAULT_APPLICATION;
+import static com.netflix.titus.testkit.model.job.JobDescriptorGenerator.oneTaskServiceJobDescriptor;
+import static com.netflix.titus.testkit.model.job.JobGenerator.serviceJobs;
+import static com.netflix.titus.testkit.model.job.JobGenerator.serviceTasks;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class V3TaskLivenessIndexTest {
+
+    private static final long ONE_MINUTE_MS = TimeUnit.MINUTES.toMillis(1);
+    private static final long ONE_HOUR_MS = TimeUnit.HOURS.toMillis(1);
+
+    private static final HistogramDescriptor HISTOGRAM_DESCRIPTOR = HistogramDescriptor.histogramOf(ONE_MINUTE_MS, ONE_HOUR_MS);
+
+    private static final long NOW = TimeUnit.DAYS.toMillis(100);
+
+    private final V3TaskLivenessIndex index = new V3TaskLivenessIndex(HISTOGRAM_DESCRIPTOR);
+
+    private Job<ServiceJobExt> job;
+    private List<ServiceJobTask> tasks;
+    private String capacityGroup;
+
+    @Before
+    public void setUp() {
+        job = serviceJobs(changeServiceJobCapacity(oneTaskServiceJobDescriptor(), 3)).getValue();
+        tasks = serviceTasks(job).toList(3);
+        capacityGroup = job.getJobDescriptor().getCapacityGroup();
+    }
+
+    @Test
+    public void testTasksAreGroupedByStateAndTimeInState() {
+        index.resync(Collections.singletonList(Pair.<Job, List<Task>>of(job, asList(
+                withState(tasks.get(0), TaskState.Started, NOW - 30_000),
+                withState(tasks.get(1), TaskState.Started, NOW - 2 * ONE_HOUR_MS),
+                withState(tasks.get(2), TaskState.Accepted, NOW - 10 * ONE_MINUTE_MS)
+        ))));
+
+        Map<String, Map<String, Histogram.Builder>> histograms = buildHistograms();
+        assertThat(counters(histograms, TaskState.Started)).containsExactly(1L, 0L, 1L);
+        assertThat(counters(histograms, TaskState.Accepted)).containsExactly(0L, 1L, 0L);
+    }
+
+    @Test
+    public void testTaskStateChangeMovesTaskBetweenCounters() {
+        Task accepted = withState(tasks.get(0), TaskState.Accepted, NOW - 10 * ONE_MINUTE_MS);
+        index.onEvent(TaskUpdateEvent.newTask(job, accepted));
+
+        Task started = withState(accepted, TaskState.Started, NOW - 30_000);
+        index.onEvent(TaskUpdateEvent.taskChange(job, started, accepted));
+
+        Map<String, Map<String, Histogram.Builder>> histograms = buildHistograms();
+        assertThat(histograms.get(capacityGroup)).doesNotContainKey(TaskState.Accepted.name());
+        assertThat(counters(histograms, TaskState.Started)).containsExactly(1L, 0L, 0L);
+
+        index.onEvent(TaskUpdateEvent.taskChange(job, withState(started, TaskState.Finished, NOW), started));
+        assertThat(buildHistograms().get(capacityGroup)).isEmpty();
+    }
+
+    @Test
+    public void testTaskAgesWithTheClock() {
+        index.onEvent(TaskUpdateEvent.newTask(job, withState(tasks.get(0), TaskState.Started, NOW - 30_000)));
+        assertThat(counters(buildHistograms(NOW), TaskState.Started)).containsExactly(1L, 0L, 0L);
+        assertThat(counters(buildHistograms(NOW + ONE_MINUTE_MS), TaskState.Started)).containsExactly(0L, 1L, 0L);
+
+        // Beyond the last histogram bound, the task is kept in the overflow counter, and can still be removed.
+        assertThat(counters(buildHistograms(NOW + 2 * ONE_HOUR_MS), TaskState.Started)).containsExactly(0L, 0L, 1L);
+
+        Task started = withState(tasks.get(0), TaskState.Started, NOW - 30_000);
+        index.onEvent(TaskUpdateEvent.taskChange(job, withState(started, TaskState.KillInitiated, NOW + 2 * ONE_HOUR_MS), started));
+        Map<String, Map<String, Histogram.Builder>> histograms = buildHistograms(NOW + 2 * ONE_HOUR_MS);
+        assertThat(histograms.get(capacityGroup)).doesNotContainKey(TaskState.Started.name());
+        assertThat(counters(histograms, TaskState.KillInitiated)).containsExactly(1L, 0L, 0L);
+    }
+
+    @Test
+    public void testEventsReceivedDuringResyncAreAppliedOnTopOfSnapshot() {
+        Task started = withState(tasks.get(0), TaskState.Started, NOW - 30_000);
+
+        index.startResync();
+        index.onEvent(TaskUpdateEvent.taskChange(job, withState(started, TaskState.Finished, NOW), started));
+        index.onEvent(TaskUpdateEvent.newTask(job, withState(tasks.get(1), TaskState.Accepted, NOW - 10 * ONE_MINUTE_MS)));
+
+        // The snapshot was read before the events above were emitted.
+        index.resync(Collections.singletonList(Pair.<Job, List<Task>>of(job, Collections.singletonList(started))));
+
+        Map<String, Map<String, Histogram.Builder>> histograms = buildHistograms();
+        assertThat(histograms.get(capacityGroup)).doesNotContainKey(TaskState.Started.name());
+        assertThat(counters(histograms, TaskState.Accepted)).containsExactly(0L, 1L, 0L);
+    }
+
+    @Test
+    public void testUnknownCapacityGroupIsMappedToDefault() {
+        index.onEvent(TaskUpdateEvent.newTask(job, withState(tasks.get(0), TaskState.Started, NOW)));
+
+        Map<String, Map<String, Histogram.Builder>> histograms = new HashMap<>();
+        histograms.put(DEFAULT_APPLICATION, new HashMap<>());
+        index.addTo(histograms, HISTOGRAM_DESCRIPTOR, NOW);
+
+        assertThat(histograms).containsOnlyKeys(DEFAULT_APPLICATION);
+        assertThat(histograms.get(DEFAULT_APPLICATION).get(TaskState.Started.name()).build().getCounters()).containsExactly(1L, 0L, 0L);
+    }
+
+    private Map<String, Map<String, Histogram.Builder>> buildHistograms() {
+        return buildHistograms(NOW);
+    }
+
+    private Map<String, Map<String, Histogram.Builder>> buildHistograms(long now) {
+        Map<String, Map<String, Histogram.Builder>> histograms = new HashMap<>();
+        histograms.put(capacityGroup, new HashMap<>());
+        index.addTo(histograms, HISTOGRAM_DESCRIPTOR, now);
+        return histograms;
+    }
+
+    private List<Long> counters(Map<String, Map<String, Histogram.Builder>> histograms, TaskState state) {
+        return histograms.get(capacityGroup).get(state.name()).build().getCounters();
+    }
+
+    private Task withState(Task task, TaskState state, long timestamp) {
+        return changeTaskStatus(task, TaskStatus.newBuilder().withState(state).withTimestamp(timestamp).build());
+    }
+}
@@ -68,6 +68,21 @@ public class BatchJobSchedulingTest {
         );
     }
 
+    /**
+     * Record placements of all job tasks in a single bulk update.
+     */
+    @Test
+    public void testBulkTaskPlacementRecording() {
+        JobDescriptor<BatchJobExt> twoTaskJob = changeBatchJobSize(oneTaskBatchJobDescriptor(), 2);
+        jobsScenarioBuilder.scheduleJob(twoTaskJob, jobScenario -> jobScenario
+                .expectJobEvent()
+                .advance()
+                .inActiveTasks((taskIdx, resubmit) -> ScenarioTemplates.acceptTask(taskIdx, resubmit))
+                .triggerBulkSchedulerLaunchEvent()
+                .inActiveTasks((taskIdx, resubmit) -> ScenarioTemplates.triggerMesosLaunchEvent(taskIdx, resubmit))
+        );
+    }
+
     /**
      * Check that containers terminating with exit code 0 are not restarted.
      */
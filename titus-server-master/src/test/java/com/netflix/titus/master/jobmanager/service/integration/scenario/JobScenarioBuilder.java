@@ -434,6 +434,34 @@ public class JobScenarioBuilder<E extends JobDescriptor.JobDescriptorExt> {
         return this;
     }
 
+    /**
+     * Records placements of all active tasks in a single bulk update, the same way the scheduler does it at the end
+     * of a scheduling iteration.
+     */
+    public JobScenarioBuilder<E> triggerBulkSchedulerLaunchEvent() {
+        List<Pair<String, Function<Task, Task>>> placements = jobOperations.getTasks(jobId).stream()
+                .map(task -> Pair.<String, Function<Task, Task>>of(task.getId(), JobManagerUtil.newTaskLaunchConfigurationUpdater(
+                        "zone",
+                        vmService.buildLease(task.getId()),
+                        vmService.buildConsumeResult(task.getId()),
+                        Optional.empty(),
+                        vmService.buildAttributesMap(task.getId())
+                )))
+                .collect(Collectors.toList());
+
+        List<Pair<String, Optional<Throwable>>> results = new ArrayList<>();
+        AtomicReference<Throwable> failed = new AtomicReference<>();
+        jobOperations.recordTaskPlacements(placements).subscribe(results::add, failed::set);
+        advance();
+        if (failed.get() != null) {
+            ExceptionExt.rethrow(failed.get());
+        }
+        assertThat(results).hasSize(placements.size());
+        results.forEach(result -> assertThat(result.getRight()).describedAs("Placement of task %s failed", result.getLeft()).isEmpty());
+
+        return this;
+    }
+
     public JobScenarioBuilder<E> triggerFailingSchedulerLaunchEvent(int taskIdx, int resubmit, Consumer<Throwable> assertFun) {
         Task task = findTaskInActiveState(taskIdx, resubmit);
 
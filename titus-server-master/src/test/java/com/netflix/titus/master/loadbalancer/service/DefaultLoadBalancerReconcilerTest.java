@@ -47,7 +47,10 @@ import rx.schedulers.Schedulers;
 import rx.schedulers.TestScheduler;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class DefaultLoadBalancerReconcilerTest {
@@ -289,6 +292,115 @@ public class DefaultLoadBalancerReconcilerTest {
         assertThat(store.getAssociations()).isEmpty();
     }
 
+    @Test
+    public void unchangedLoadBalancersAreOnlyReconciledWhenAgedOut() {
+        final long maxAgeMs = 5 * delayMs;
+        when(configuration.getReconciliationMaxAgeMs()).thenReturn(maxAgeMs);
+
+        final List<Task> tasks = LoadBalancerTests.buildTasksStarted(5, jobId);
+        final JobLoadBalancer jobLoadBalancer = new JobLoadBalancer(jobId, loadBalancerId);
+        final JobLoadBalancerState association = new JobLoadBalancerState(jobLoadBalancer, JobLoadBalancer.State.Associated);
+        when(v3JobOperations.getTasks(jobId)).thenReturn(tasks);
+        when(connector.getRegisteredIps(loadBalancerId)).thenReturn(Single.just(CollectionsExt.asSet(LoadBalancerTests.ipAddresses(tasks))));
+        when(store.getAssociations()).thenReturn(Collections.singletonList(association));
+
+        final AssertableSubscriber<TargetStateBatchable> subscriber = reconciler.events().test();
+
+        testScheduler.advanceTimeBy(delayMs, TimeUnit.MILLISECONDS);
+        verify(connector, times(1)).getRegisteredIps(loadBalancerId);
+
+        testScheduler.advanceTimeBy(maxAgeMs - delayMs, TimeUnit.MILLISECONDS);
+        verify(connector, times(1)).getRegisteredIps(loadBalancerId);
+
+        testScheduler.advanceTimeBy(delayMs, TimeUnit.MILLISECONDS);
+        verify(connector, times(2)).getRegisteredIps(loadBalancerId);
+        subscriber.assertNoTerminalEvent().assertNoValues();
+    }
+
+    @Test
+    public void loadBalancersAreReconciledWhenCooldownExpires() {
+        when(configuration.getReconciliationMaxAgeMs()).thenReturn(100 * delayMs);
+
+        final List<Task> tasks = LoadBalancerTests.buildTasksStarted(5, jobId);
+        final JobLoadBalancer jobLoadBalancer = new JobLoadBalancer(jobId, loadBalancerId);
+        final JobLoadBalancerState association = new JobLoadBalancerState(jobLoadBalancer, JobLoadBalancer.State.Associated);
+        when(v3JobOperations.getTasks(jobId)).thenReturn(tasks);
+        when(connector.getRegisteredIps(loadBalancerId)).thenReturn(Single.just(CollectionsExt.asSet(LoadBalancerTests.ipAddresses(tasks))));
+        when(store.getAssociations()).thenReturn(Collections.singletonList(association));
+
+        final AssertableSubscriber<TargetStateBatchable> subscriber = reconciler.events().test();
+
+        testScheduler.advanceTimeBy(delayMs, TimeUnit.MILLISECONDS);
+        verify(connector, times(1)).getRegisteredIps(loadBalancerId);
+
+        final Task task = tasks.get(0);
+        final String ipAddress = task.getTaskContext().get(TaskAttributes.TASK_ATTRIBUTES_CONTAINER_IP);
+        reconciler.activateCooldownFor(new LoadBalancerTarget(jobLoadBalancer, task.getId(), ipAddress), 2 * delayMs, TimeUnit.MILLISECONDS);
+
+        // not reconciled again until the cooldown expires
+        testScheduler.advanceTimeBy(delayMs, TimeUnit.MILLISECONDS);
+        verify(connector, times(1)).getRegisteredIps(loadBalancerId);
+
+        testScheduler.advanceTimeBy(delayMs, TimeUnit.MILLISECONDS);
+        verify(connector, times(2)).getRegisteredIps(loadBalancerId);
+
+        testScheduler.advanceTimeBy(delayMs, TimeUnit.MILLISECONDS);
+        verify(connector, times(2)).getRegisteredIps(loadBalancerId);
+        subscriber.assertNoTerminalEvent().assertNoValues();
+    }
+
+    @Test
+    public void associationChangesMarkLoadBalancersForReconciliation() {
+        when(configuration.getReconciliationMaxAgeMs()).thenReturn(100 * delayMs);
+
+        final String otherJobId = UUID.randomUUID().toString();
+        final JobLoadBalancerState association = new JobLoadBalancerState(new JobLoadBalancer(jobId, loadBalancerId), JobLoadBalancer.State.Associated);
+        final JobLoadBalancerState otherAssociation = new JobLoadBalancerState(new JobLoadBalancer(otherJobId, loadBalancerId), JobLoadBalancer.State.Associated);
+        when(v3JobOperations.getTasks(jobId)).thenReturn(Collections.emptyList());
+        when(v3JobOperations.getTasks(otherJobId)).thenReturn(Collections.emptyList());
+        when(connector.getRegisteredIps(loadBalancerId)).thenReturn(Single.just(Collections.emptySet()));
+        when(store.getAssociations()).thenReturn(Collections.singletonList(association));
+
+        final AssertableSubscriber<TargetStateBatchable> subscriber = reconciler.events().test();
+
+        testScheduler.advanceTimeBy(delayMs, TimeUnit.MILLISECONDS);
+        testScheduler.advanceTimeBy(delayMs, TimeUnit.MILLISECONDS);
+        verify(connector, times(1)).getRegisteredIps(loadBalancerId);
+
+        when(store.getAssociations()).thenReturn(Arrays.asList(association, otherAssociation));
+        testScheduler.advanceTimeBy(delayMs, TimeUnit.MILLISECONDS);
+        verify(connector, times(2)).getRegisteredIps(loadBalancerId);
+        subscriber.assertNoTerminalEvent().assertNoValues();
+    }
+
+    @Test
+    public void loadBalancersOverAccountBudgetAreSkipped() {
+        when(configuration.getReconciliationRateLimitBurstPerAccount()).thenReturn(1L);
+        when(configuration.getReconciliationRateLimitRefillPerSecPerAccount()).thenReturn(1L);
+
+        final String firstLoadBalancerId = "arn:aws:elasticloadbalancing:us-east-1:123456789012:targetgroup/first/1";
+        final String secondLoadBalancerId = "arn:aws:elasticloadbalancing:us-east-1:123456789012:targetgroup/second/2";
+        when(v3JobOperations.getTasks(jobId)).thenReturn(Collections.emptyList());
+        when(connector.getRegisteredIps(anyString())).thenReturn(Single.just(Collections.emptySet()));
+        when(store.getAssociations()).thenReturn(Arrays.asList(
+                new JobLoadBalancerState(new JobLoadBalancer(jobId, firstLoadBalancerId), JobLoadBalancer.State.Associated),
+                new JobLoadBalancerState(new JobLoadBalancer(jobId, secondLoadBalancerId), JobLoadBalancer.State.Associated)
+        ));
+
+        final AssertableSubscriber<TargetStateBatchable> subscriber = reconciler.events().test();
+
+        testScheduler.advanceTimeBy(delayMs, TimeUnit.MILLISECONDS);
+        verify(connector, times(1)).getRegisteredIps(anyString());
+        subscriber.assertNoTerminalEvent();
+    }
+
+    @Test
+    public void accountIsExtractedFromArn() {
+        assertThat(DefaultLoadBalancerReconciler.accountOf("arn:aws:elasticloadbalancing:us-east-1:123456789012:targetgroup/tg/1"))
+                .isEqualTo("123456789012");
+        assertThat(DefaultLoadBalancerReconciler.accountOf("some-load-balancer")).isEqualTo("default");
+    }
+
     private LoadBalancerConfiguration mockConfigWithDelay(long delayMs) {
         final LoadBalancerConfiguration configuration = mock(LoadBalancerConfiguration.class);
         when(configuration.getReconciliationDelayMs()).thenReturn(delayMs);
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.loadbalancer.service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.TaskStatus;
+import com.netflix.titus.api.jobmanager.model.job.event.JobManagerEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.TaskUpdateEvent;
+import com.netflix.titus.api.jobmanager.service.V3JobOperations;
+import com.netflix.titus.api.loadbalancer.model.JobLoadBalancer;
+import com.netflix.titus.api.loadbalancer.model.LoadBalancerTarget;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.testkit.model.job.JobDescriptorGenerator;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import rx.schedulers.Schedulers;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class LoadBalancerTargetTrackerTest {
+
+    private final TestScheduler testScheduler = Schedulers.test();
+    private final TitusRuntime titusRuntime = TitusRuntimes.test(testScheduler);
+    private final V3JobOperations v3JobOperations = mock(V3JobOperations.class);
+    private final PublishSubject<JobManagerEvent<?>> jobEvents = PublishSubject.create();
+
+    private final Job<?> job = JobGenerator.serviceJobs(JobDescriptorGenerator.oneTaskServiceJobDescriptor()).getValue();
+    private final JobLoadBalancer jobLoadBalancer = new JobLoadBalancer(job.getId(), UUID.randomUUID().toString());
+
+    private LoadBalancerTargetTracker tracker;
+
+    @Before
+    public void setUp() {
+        testScheduler.advanceTimeBy(1, TimeUnit.HOURS);
+        when(v3JobOperations.observeJobs()).thenReturn(jobEvents);
+        tracker = new LoadBalancerTargetTracker(v3JobOperations, titusRuntime);
+    }
+
+    @After
+    public void tearDown() {
+        tracker.shutdown();
+    }
+
+    @Test
+    public void jobModelIsScannedUntilEventsAreFlowing() {
+        final List<Task> tasks = startedTasks(2);
+        when(v3JobOperations.getTasks(job.getId())).thenReturn(tasks);
+
+        assertThat(tracker.targetsForJob(jobLoadBalancer)).hasSize(2);
+        tracker.activate();
+        assertThat(tracker.targetsForJob(jobLoadBalancer)).hasSize(2);
+        verify(v3JobOperations, times(2)).getTasks(job.getId());
+
+        // any event proves the subscription is in place
+        jobEvents.onNext(TaskUpdateEvent.newTask(job, withState(tasks.get(0), TaskState.Started, 1)));
+        assertThat(tracker.targetsForJob(jobLoadBalancer)).hasSize(2);
+        assertThat(tracker.targetsForJob(jobLoadBalancer)).hasSize(2);
+        verify(v3JobOperations, times(3)).getTasks(job.getId());
+    }
+
+    @Test
+    public void targetsAreUpdatedFromEvents() {
+        final List<Task> tasks = startedTasks(2);
+        when(v3JobOperations.getTasks(job.getId())).thenReturn(tasks);
+        startTracking();
+
+        final Task newTask = withState(LoadBalancerTests.buildTasksStarted(1, job.getId()).get(0), TaskState.Started, 1);
+        jobEvents.onNext(TaskUpdateEvent.newTask(job, newTask));
+        assertThat(tracker.targetsForJob(jobLoadBalancer)).extracting(LoadBalancerTarget::getTaskId)
+                .containsExactlyInAnyOrder(tasks.get(0).getId(), tasks.get(1).getId(), newTask.getId());
+
+        final Task finished = withState(tasks.get(0), TaskState.Finished, 2);
+        jobEvents.onNext(TaskUpdateEvent.taskChange(job, finished, tasks.get(0)));
+        assertThat(tracker.targetsForJob(jobLoadBalancer)).extracting(LoadBalancerTarget::getTaskId)
+                .containsExactlyInAnyOrder(tasks.get(1).getId(), newTask.getId());
+
+        verify(v3JobOperations, times(1)).getTasks(job.getId());
+    }
+
+    @Test
+    public void eventsOlderThanTheJobSnapshotAreIgnored() {
+        final List<Task> tasks = startedTasks(1);
+        when(v3JobOperations.getTasks(job.getId())).thenReturn(tasks);
+        startTracking();
+
+        // a task that finished before the job was loaded, and whose earlier events are only delivered now
+        final Task gone = withState(LoadBalancerTests.buildTasksStarted(1, job.getId()).get(0), TaskState.Started, -1);
+        jobEvents.onNext(TaskUpdateEvent.newTask(job, gone));
+
+        assertThat(tracker.targetsForJob(jobLoadBalancer)).extracting(LoadBalancerTarget::getTaskId)
+                .containsExactly(tasks.get(0).getId());
+    }
+
+    @Test
+    public void jobsNotAssociatedAnymoreAreNotTracked() {
+        when(v3JobOperations.getTasks(job.getId())).thenReturn(startedTasks(1));
+        startTracking();
+
+        tracker.retainJobs(Collections.emptySet());
+        assertThat(tracker.targetsForJob(jobLoadBalancer)).hasSize(1);
+        verify(v3JobOperations, times(2)).getTasks(job.getId());
+    }
+
+    private void startTracking() {
+        tracker.activate();
+        jobEvents.onNext(TaskUpdateEvent.newTask(job, withState(LoadBalancerTests.buildTasksStarted(1, UUID.randomUUID().toString()).get(0), TaskState.Started, 0)));
+        assertThat(tracker.targetsForJob(jobLoadBalancer)).isNotEmpty();
+    }
+
+    /**
+     * Tasks as read from the job model, started a while ago.
+     */
+    private List<Task> startedTasks(int count) {
+        return LoadBalancerTests.buildTasksStarted(count, job.getId()).stream()
+                .map(task -> withState(task, TaskState.Started, -10))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @param offsetMs status timestamp relative to the current time
+     */
+    private Task withState(Task task, TaskState state, long offsetMs) {
+        return JobFunctions.changeTaskStatus(task, TaskStatus.newBuilder()
+                .withState(state)
+                .withTimestamp(testScheduler.now() + offsetMs)
+                .build()
+        );
+    }
+}
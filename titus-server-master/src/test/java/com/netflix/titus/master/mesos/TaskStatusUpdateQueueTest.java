@@ -0,0 +1,86 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.mesos;
+
+import java.util.List;
+
+import com.netflix.spectator.api.DefaultRegistry;
+import org.apache.mesos.Protos;
+import org.apache.mesos.Protos.TaskState;
+import org.apache.mesos.Protos.TaskStatus;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TaskStatusUpdateQueueTest {
+
+    private final TaskStatusUpdateQueue queue = new TaskStatusUpdateQueue(2, new DefaultRegistry());
+
+    @Test
+    public void testUpdatesAreCoalescedPerTask() throws Exception {
+        queue.offer(newStatus("task1", TaskState.TASK_STARTING, false));
+        queue.offer(newStatus("task2", TaskState.TASK_RUNNING, false));
+        queue.offer(newStatus("task1", TaskState.TASK_RUNNING, false));
+
+        List<TaskStatus> batch = queue.takeBatch(10);
+        assertThat(batch).hasSize(2);
+        assertThat(batch.get(0).getTaskId().getValue()).isEqualTo("task1");
+        assertThat(batch.get(0).getState()).isEqualTo(TaskState.TASK_RUNNING);
+        assertThat(batch.get(1).getTaskId().getValue()).isEqualTo("task2");
+    }
+
+    @Test
+    public void testTaskLostDoesNotReplacePendingTerminalState() throws Exception {
+        queue.offer(newStatus("task1", TaskState.TASK_FINISHED, false));
+        queue.offer(newStatus("task1", TaskState.TASK_LOST, true));
+
+        assertThat(queue.takeBatch(10)).extracting(TaskStatus::getState).containsExactly(TaskState.TASK_FINISHED);
+    }
+
+    @Test
+    public void testNonTerminalUpdateDoesNotReplacePendingTerminalState() throws Exception {
+        queue.offer(newStatus("task1", TaskState.TASK_FINISHED, false));
+        queue.offer(newStatus("task1", TaskState.TASK_RUNNING, true));
+
+        assertThat(queue.takeBatch(10)).extracting(TaskStatus::getState).containsExactly(TaskState.TASK_FINISHED);
+    }
+
+    @Test
+    public void testOnlyReconcilerUpdatesAreDroppedWhenFull() throws Exception {
+        queue.offer(newStatus("task1", TaskState.TASK_RUNNING, false));
+        queue.offer(newStatus("task2", TaskState.TASK_RUNNING, false));
+
+        assertThat(queue.offer(newStatus("task3", TaskState.TASK_RUNNING, true))).isFalse();
+        assertThat(queue.offer(newStatus("task4", TaskState.TASK_FAILED, false))).isTrue();
+        // Updates of already queued tasks are still accepted
+        assertThat(queue.offer(newStatus("task1", TaskState.TASK_RUNNING, true))).isTrue();
+
+        assertThat(queue.takeBatch(2)).hasSize(2);
+        assertThat(queue.takeBatch(2)).extracting(status -> status.getTaskId().getValue()).containsExactly("task4");
+        assertThat(queue.size()).isZero();
+    }
+
+    private TaskStatus newStatus(String taskId, TaskState state, boolean reconciliation) {
+        TaskStatus.Builder builder = TaskStatus.newBuilder()
+                .setTaskId(Protos.TaskID.newBuilder().setValue(taskId).build())
+                .setState(state);
+        if (reconciliation) {
+            builder.setReason(TaskStatus.Reason.REASON_RECONCILIATION);
+        }
+        return builder.build();
+    }
+}
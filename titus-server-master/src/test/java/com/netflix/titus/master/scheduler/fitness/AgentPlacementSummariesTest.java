@@ -0,0 +1,163 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.scheduler.fitness;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.netflix.fenzo.TaskAssignmentResult;
+import com.netflix.fenzo.TaskRequest;
+import com.netflix.fenzo.VirtualMachineCurrentState;
+import com.netflix.titus.api.jobmanager.model.job.BatchJobTask;
+import com.netflix.titus.api.jobmanager.model.job.Image;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.JobDescriptor;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.api.jobmanager.model.job.ext.ServiceJobExt;
+import com.netflix.titus.api.model.Tier;
+import com.netflix.titus.master.jobmanager.service.common.V3QueueableTask;
+import com.netflix.titus.master.scheduler.constraint.ConstraintEvaluatorTransformer;
+import com.netflix.titus.master.scheduler.constraint.SystemHardConstraint;
+import com.netflix.titus.master.scheduler.constraint.SystemSoftConstraint;
+import com.netflix.titus.master.scheduler.resourcecache.AgentResourceCacheFunctions;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.netflix.titus.api.jobmanager.model.job.JobFunctions.changeBatchJobSize;
+import static com.netflix.titus.testkit.model.job.JobDescriptorGenerator.oneTaskBatchJobDescriptor;
+import static com.netflix.titus.testkit.model.job.JobDescriptorGenerator.oneTaskServiceJobDescriptor;
+import static com.netflix.titus.testkit.model.job.JobGenerator.batchJobs;
+import static com.netflix.titus.testkit.model.job.JobGenerator.batchTasks;
+import static com.netflix.titus.testkit.model.job.JobGenerator.serviceJobs;
+import static com.netflix.titus.testkit.model.job.JobGenerator.serviceTasks;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AgentPlacementSummariesTest {
+
+    private final ConstraintEvaluatorTransformer constraintEvaluatorTransformer = mock(ConstraintEvaluatorTransformer.class);
+    private final SystemSoftConstraint systemSoftConstraint = mock(SystemSoftConstraint.class);
+    private final SystemHardConstraint systemHardConstraint = mock(SystemHardConstraint.class);
+
+    private final VirtualMachineCurrentState targetVM = mock(VirtualMachineCurrentState.class);
+
+    private final List<TaskRequest> runningTasks = new ArrayList<>();
+    private final List<TaskAssignmentResult> assignedTasks = new ArrayList<>();
+
+    private final AgentPlacementSummaries summaries = new AgentPlacementSummaries();
+
+    private V3QueueableTask batchTask1;
+    private V3QueueableTask batchTask2;
+    private V3QueueableTask serviceTask;
+
+    @Before
+    public void setUp() {
+        Job<BatchJobExt> batchJob = batchJobs(changeBatchJobSize(oneTaskBatchJobDescriptor(), 2)).getValue();
+        List<BatchJobTask> batchJobTasks = batchTasks(batchJob).toList(2);
+        batchTask1 = newQueueableTask(batchJob, batchJobTasks.get(0));
+        batchTask2 = newQueueableTask(batchJob, batchJobTasks.get(1));
+
+        JobDescriptor<ServiceJobExt> serviceJobDescriptor = oneTaskServiceJobDescriptor().but(jd ->
+                jd.getContainer().toBuilder().withImage(Image.newBuilder().withName("otherImage").withTag("latest").build())
+        );
+        Job<ServiceJobExt> serviceJob = serviceJobs(serviceJobDescriptor).getValue();
+        serviceTask = newQueueableTask(serviceJob, serviceTasks(serviceJob).getValue());
+
+        when(targetVM.getHostname()).thenReturn("host1");
+        when(targetVM.getRunningTasks()).thenReturn(runningTasks);
+        when(targetVM.getTasksCurrentlyAssigned()).thenReturn(assignedTasks);
+    }
+
+    @Test
+    public void testEmptyAgent() {
+        AgentPlacementSummary summary = summaries.get(targetVM);
+        assertThat(summary.getTotalTaskCount()).isZero();
+        assertThat(summary.getImageCount(batchTask1.getImage())).isZero();
+        assertThat(summary.getSecurityGroupCount(batchTask1.getJoinedSecurityGroupIds())).isZero();
+    }
+
+    @Test
+    public void testSummaryOfRunningAndAssignedTasks() {
+        runningTasks.add(batchTask1);
+        runningTasks.add(batchTask2);
+        assignedTasks.add(newAssignment(serviceTask));
+
+        AgentPlacementSummary summary = summaries.get(targetVM);
+        assertThat(summary.getTotalTaskCount()).isEqualTo(3);
+        assertThat(summary.getBatchTaskCount()).isEqualTo(2);
+        assertThat(summary.getServiceTaskCount()).isEqualTo(1);
+        assertThat(summary.getAssignedTaskCount()).isEqualTo(1);
+        assertThat(summary.getImageCount(batchTask1.getImage())).isEqualTo(2);
+        assertThat(summary.getImageCount(serviceTask.getImage())).isEqualTo(1);
+
+        long launchingRunningTasks = runningTasks.stream().filter(FitnessCalculatorFunctions::isTaskLaunching).count();
+        assertThat(summary.getLaunchingTaskCount()).isEqualTo(launchingRunningTasks + 1);
+    }
+
+    @Test
+    public void testSummaryIsReusedUntilNewTaskIsAssigned() {
+        runningTasks.add(batchTask1);
+        AgentPlacementSummary first = summaries.get(targetVM);
+        assertThat(summaries.get(targetVM)).isSameAs(first);
+
+        assignedTasks.add(newAssignment(batchTask2));
+        AgentPlacementSummary second = summaries.get(targetVM);
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getImageCount(batchTask1.getImage())).isEqualTo(2);
+        assertThat(first.getImageCount(batchTask1.getImage())).isEqualTo(1);
+    }
+
+    @Test
+    public void testRunningTasksAreRecomputedInNextIteration() {
+        runningTasks.add(batchTask1);
+        assertThat(summaries.get(targetVM).getTotalTaskCount()).isEqualTo(1);
+
+        runningTasks.add(batchTask2);
+        assertThat(summaries.get(targetVM).getTotalTaskCount()).isEqualTo(1);
+
+        summaries.prepare();
+        assertThat(summaries.get(targetVM).getTotalTaskCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testPrecomputedPlacementKeysAreUsed() {
+        assertThat(AgentResourceCacheFunctions.getImage(serviceTask)).isSameAs(serviceTask.getImage());
+        assertThat(FitnessCalculatorFunctions.getJoinedSecurityGroupIds(serviceTask)).isSameAs(serviceTask.getJoinedSecurityGroupIds());
+    }
+
+    private V3QueueableTask newQueueableTask(Job<?> job, Task task) {
+        return new V3QueueableTask(
+                Tier.Flex,
+                "default",
+                job,
+                task,
+                Collections::emptySet,
+                constraintEvaluatorTransformer,
+                systemSoftConstraint,
+                systemHardConstraint
+        );
+    }
+
+    private TaskAssignmentResult newAssignment(TaskRequest request) {
+        TaskAssignmentResult assignment = mock(TaskAssignmentResult.class);
+        when(assignment.getRequest()).thenReturn(request);
+        return assignment;
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.scheduler.systemselector;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.netflix.fenzo.VirtualMachineCurrentState;
+import com.netflix.fenzo.VirtualMachineLease;
+import com.netflix.spectator.api.Registry;
+import com.netflix.titus.api.agent.model.AgentInstance;
+import com.netflix.titus.api.agent.model.AgentInstanceGroup;
+import com.netflix.titus.api.agent.service.AgentManagementService;
+import com.netflix.titus.api.jobmanager.model.job.BatchJobTask;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.api.model.Tier;
+import com.netflix.titus.api.scheduler.service.SchedulerException;
+import com.netflix.titus.common.aws.AwsInstanceType;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.master.jobmanager.service.common.V3QueueableTask;
+import com.netflix.titus.master.scheduler.SchedulerConfiguration;
+import org.apache.mesos.Protos;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.netflix.titus.master.MetricConstants.METRIC_SCHEDULING_SERVICE;
+import static com.netflix.titus.testkit.model.agent.AgentGenerator.agentInstances;
+import static com.netflix.titus.testkit.model.agent.AgentGenerator.agentServerGroups;
+import static com.netflix.titus.testkit.model.job.JobDescriptorGenerator.oneTaskBatchJobDescriptor;
+import static com.netflix.titus.testkit.model.job.JobGenerator.batchJobs;
+import static com.netflix.titus.testkit.model.job.JobGenerator.batchTasks;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SystemSelectorEvaluatorTest {
+
+    private static final String INSTANCE_GROUP_ATTRIBUTE = "asg";
+    private static final String INSTANCE_ATTRIBUTE = "id";
+
+    private final TitusRuntime titusRuntime = TitusRuntimes.internal();
+    private final Registry registry = titusRuntime.getRegistry();
+
+    private final SchedulerConfiguration configuration = mock(SchedulerConfiguration.class);
+    private final AgentManagementService agentManagementService = mock(AgentManagementService.class);
+
+    private final Job<BatchJobExt> job = batchJobs(oneTaskBatchJobDescriptor()).getValue();
+    private final BatchJobTask task = batchTasks(job).getValue();
+    private final AgentInstanceGroup instanceGroup = agentServerGroups(Tier.Flex, 2, AwsInstanceType.M4_4XLarge).getValue();
+    private final AgentInstance instance = agentInstances(instanceGroup).getValue();
+
+    private SystemSelectorEvaluator evaluator;
+
+    @Before
+    public void setUp() {
+        when(configuration.getSchedulerMaxConcurrent()).thenReturn(1);
+        when(configuration.isSystemSelectorSpelEnabled()).thenReturn(true);
+        when(configuration.getInstanceGroupAttributeName()).thenReturn(INSTANCE_GROUP_ATTRIBUTE);
+        when(configuration.getInstanceAttributeName()).thenReturn(INSTANCE_ATTRIBUTE);
+
+        when(agentManagementService.getInstanceGroup(instanceGroup.getId())).thenReturn(instanceGroup);
+        when(agentManagementService.getAgentInstance(instance.getId())).thenReturn(instance);
+
+        evaluator = new SystemSelectorEvaluator(configuration, titusRuntime);
+    }
+
+    @Test
+    public void testSpelExpression() {
+        String appName = job.getJobDescriptor().getApplicationName();
+        assertThat(evaluator.evaluate("job.jobDescriptor.applicationName == '" + appName + "'", newContext())).isTrue();
+        assertThat(evaluator.evaluate("job.jobDescriptor.applicationName == 'other'", newContext())).isFalse();
+        assertThat(evaluator.evaluate("instance.id == '" + instance.getId() + "'", newContext())).isTrue();
+    }
+
+    @Test
+    public void testJavaScriptExpressionFallback() {
+        String appName = job.getJobDescriptor().getApplicationName();
+        assertThat(evaluator.evaluate("job.jobDescriptor.applicationName === '" + appName + "'", newContext())).isTrue();
+        assertThat(evaluator.evaluate("job.jobDescriptor.applicationName === 'other'", newContext())).isFalse();
+    }
+
+    @Test
+    public void testJavaScriptOnlyEvaluationWhenSpelDisabled() {
+        when(configuration.isSystemSelectorSpelEnabled()).thenReturn(false);
+        String appName = job.getJobDescriptor().getApplicationName();
+        assertThat(evaluator.evaluate("job.jobDescriptor.applicationName == '" + appName + "'", newContext())).isTrue();
+    }
+
+    @Test
+    public void testJavaScriptOnlyExpressionWhichIsValidSpel() {
+        // 'length' of a string is a property in JavaScript only, so SpEL evaluation fails
+        assertThat(evaluator.evaluate("job.jobDescriptor.applicationName.length > 0", newContext())).isTrue();
+        assertThat(evaluator.evaluate("job.jobDescriptor.applicationName.length > 0", newContext())).isTrue();
+    }
+
+    @Test
+    public void testEvaluationError() {
+        assertThatThrownBy(() -> evaluator.evaluate("job.noSuchProperty.value == 'x'", newContext()))
+                .isInstanceOf(SchedulerException.class);
+    }
+
+    @Test
+    public void testResultIsMemoizedPerInstanceGroupUntilNextIteration() {
+        String expression = "instanceGroup.instanceType == '" + instanceGroup.getInstanceType() + "'";
+
+        assertThat(evaluator.evaluate(expression, newContext())).isTrue();
+        assertThat(evaluator.evaluate(expression, newContext())).isTrue();
+        assertMemoizedResults(1, 1);
+
+        // New iteration
+        evaluator.prepare();
+        assertThat(evaluator.evaluate(expression, newContext())).isTrue();
+        assertMemoizedResults(1, 2);
+    }
+
+    @Test
+    public void testMemoizedResultIsDiscardedWhenInstanceGroupChanges() {
+        String expression = "instanceGroup.instanceType == '" + instanceGroup.getInstanceType() + "'";
+        assertThat(evaluator.evaluate(expression, newContext())).isTrue();
+
+        AgentInstanceGroup updated = instanceGroup.toBuilder().withInstanceType("r4.8xlarge").build();
+        when(agentManagementService.getInstanceGroup(instanceGroup.getId())).thenReturn(updated);
+        assertThat(evaluator.evaluate(expression, newContext())).isFalse();
+        assertMemoizedResults(0, 2);
+    }
+
+    @Test
+    public void testTaskAndInstanceExpressionsAreNotMemoized() {
+        assertThat(evaluator.evaluate("task.id == '" + task.getId() + "'", newContext())).isTrue();
+        assertThat(evaluator.evaluate("task.id == '" + task.getId() + "'", newContext())).isTrue();
+        assertThat(evaluator.evaluate("instance.id == '" + instance.getId() + "'", newContext())).isTrue();
+        assertMemoizedResults(0, 0);
+    }
+
+    private void assertMemoizedResults(long hits, long misses) {
+        String name = METRIC_SCHEDULING_SERVICE + "systemSelectorEvaluator.memoizedResults";
+        assertThat(registry.counter(name, "result", "hit").count()).isEqualTo(hits);
+        assertThat(registry.counter(name, "result", "miss").count()).isEqualTo(misses);
+    }
+
+    private SystemSelectorContext newContext() {
+        V3QueueableTask taskRequest = mock(V3QueueableTask.class);
+        when(taskRequest.getId()).thenReturn(task.getId());
+        when(taskRequest.getJob()).thenReturn(job);
+        when(taskRequest.getTask()).thenReturn(task);
+
+        Map<String, Protos.Attribute> attributes = new HashMap<>();
+        attributes.put(INSTANCE_GROUP_ATTRIBUTE, textAttribute(INSTANCE_GROUP_ATTRIBUTE, instanceGroup.getId()));
+        attributes.put(INSTANCE_ATTRIBUTE, textAttribute(INSTANCE_ATTRIBUTE, instance.getId()));
+
+        VirtualMachineLease lease = mock(VirtualMachineLease.class);
+        when(lease.getAttributeMap()).thenReturn(attributes);
+        VirtualMachineCurrentState targetVM = mock(VirtualMachineCurrentState.class);
+        when(targetVM.getCurrAvailableResources()).thenReturn(lease);
+
+        return new SystemSelectorContext(taskRequest, targetVM, agentManagementService, configuration);
+    }
+
+    private static Protos.Attribute textAttribute(String name, String value) {
+        return Protos.Attribute.newBuilder()
+                .setName(name)
+                .setType(Protos.Value.Type.TEXT)
+                .setText(Protos.Value.Text.newBuilder().setValue(value))
+                .build();
+    }
+}
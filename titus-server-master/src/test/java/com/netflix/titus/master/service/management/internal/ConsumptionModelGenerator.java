@@ -198,7 +198,7 @@ class ConsumptionModelGenerator {
     }
 
     static ResourceDimension singleWorkerConsumptionOf(V2JobMetadata jobMetadata) {
-        return ResourceConsumptionEvaluator.toResourceDimension(jobMetadata.getStageMetadata(1));
+        return JobConsumption.toResourceDimension(jobMetadata.getStageMetadata(1));
     }
 
     static <E extends ResourceConsumptionEvent> Optional<E> findEvent(List<ResourceConsumptionEvent> events, Class<E> eventClass, String capacityGroup) {
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.service.management.internal;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.netflix.titus.api.model.event.JobStateChangeEvent;
+import com.netflix.titus.api.model.event.TaskStateChangeEvent;
+import com.netflix.titus.api.model.v2.V2JobState;
+import com.netflix.titus.api.model.v2.parameter.Parameters;
+import com.netflix.titus.api.store.v2.V2JobMetadata;
+import com.netflix.titus.api.store.v2.V2WorkerMetadata;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.master.job.V2JobMgrIntf;
+import com.netflix.titus.testkit.model.runtime.RuntimeModelGenerator;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class V2JobConsumptionTrackerTest {
+
+    private final RuntimeModelGenerator runtimeModelGenerator = new RuntimeModelGenerator(getClass().getSimpleName());
+
+    private final V2JobConsumptionTracker tracker = new V2JobConsumptionTracker();
+
+    private V2JobMetadata job;
+
+    @Before
+    public void setUp() {
+        job = runtimeModelGenerator.newJobMetadata(Parameters.JobType.Service, "testJob", ConsumptionModelGenerator.CRITICAL_SLA_1.getAppName());
+        runtimeModelGenerator.scheduleJob(job.getJobId());
+    }
+
+    @Test
+    public void testJobIsReevaluatedOnTaskStateChange() {
+        tracker.onJobStateChangeEvent(new JobStateChangeEvent<>(job.getJobId(), JobStateChangeEvent.JobState.Created, 0, job));
+        assertThat(tracker.getJobConsumptions().get(0).getRunningCount()).isZero();
+
+        runtimeModelGenerator.moveWorkerToState(job.getJobId(), 0, V2JobState.Started);
+        assertThat(tracker.getJobConsumptions().get(0).getRunningCount()).isZero();
+
+        V2WorkerMetadata worker = runtimeModelGenerator.getAllWorkers(job.getJobId()).get(0);
+        tracker.onTaskStateChangeEvent(new TaskStateChangeEvent<>(job.getJobId(), "taskId", worker.getState(), 0, Pair.of(job, worker)));
+        JobConsumption consumption = tracker.getJobConsumptions().get(0);
+        assertThat(consumption.getRunningCount()).isEqualTo(1);
+        assertThat(consumption.getTaskStateCount(V2JobState.Started)).isEqualTo(1);
+        assertThat(consumption.getCapacityGroup()).isEqualTo(ConsumptionModelGenerator.CRITICAL_SLA_1.getAppName());
+    }
+
+    @Test
+    public void testFinishedJobIsRemoved() {
+        tracker.onJobStateChangeEvent(new JobStateChangeEvent<>(job.getJobId(), JobStateChangeEvent.JobState.Created, 0, job));
+        assertThat(tracker.getJobConsumptions()).hasSize(1);
+
+        tracker.onJobStateChangeEvent(new JobStateChangeEvent<>(job.getJobId(), JobStateChangeEvent.JobState.Finished, 0, job));
+        assertThat(tracker.getJobConsumptions()).isEmpty();
+    }
+
+    @Test
+    public void testResyncReplacesTrackedJobs() {
+        V2JobMetadata otherJob = runtimeModelGenerator.newJobMetadata(Parameters.JobType.Service, "otherJob");
+        tracker.onJobStateChangeEvent(new JobStateChangeEvent<>(otherJob.getJobId(), JobStateChangeEvent.JobState.Created, 0, otherJob));
+
+        V2JobMgrIntf jobMgr = mock(V2JobMgrIntf.class);
+        when(jobMgr.getJobMetadata()).thenReturn(job);
+        List<JobConsumption> previous = tracker.resync(Collections.singletonList(jobMgr));
+        assertThat(previous).hasSize(1);
+
+        List<JobConsumption> resynced = tracker.getJobConsumptions();
+        assertThat(resynced).hasSize(1);
+        assertThat(resynced.get(0).getAppName()).isEqualTo("testJob");
+    }
+}
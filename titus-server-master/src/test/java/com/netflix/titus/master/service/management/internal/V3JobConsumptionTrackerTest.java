@@ -0,0 +1,190 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.service.management.internal;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.netflix.titus.api.jobmanager.model.job.BatchJobTask;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
+import com.netflix.titus.api.jobmanager.model.job.JobState;
+import com.netflix.titus.api.jobmanager.model.job.ServiceJobTask;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.event.JobUpdateEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.TaskUpdateEvent;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.api.jobmanager.model.job.ext.ServiceJobExt;
+import com.netflix.titus.api.jobmanager.service.V3JobOperations;
+import com.netflix.titus.api.model.v2.V2JobState;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.master.job.V2JobOperations;
+import com.netflix.titus.master.service.management.ApplicationSlaManagementService;
+import com.netflix.titus.master.service.management.BeanCapacityManagementConfiguration;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.netflix.titus.api.jobmanager.model.job.JobFunctions.changeServiceJobCapacity;
+import static com.netflix.titus.testkit.model.job.JobDescriptorGenerator.oneTaskBatchJobDescriptor;
+import static com.netflix.titus.testkit.model.job.JobDescriptorGenerator.oneTaskServiceJobDescriptor;
+import static com.netflix.titus.testkit.model.job.JobGenerator.batchJobs;
+import static com.netflix.titus.testkit.model.job.JobGenerator.batchTasks;
+import static com.netflix.titus.testkit.model.job.JobGenerator.serviceJobs;
+import static com.netflix.titus.testkit.model.job.JobGenerator.serviceTasks;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class V3JobConsumptionTrackerTest {
+
+    private final V3JobConsumptionTracker tracker = new V3JobConsumptionTracker();
+
+    private final V3JobOperations v3JobOperations = mock(V3JobOperations.class);
+
+    private Job<ServiceJobExt> job;
+    private List<ServiceJobTask> tasks;
+
+    @Before
+    public void setUp() {
+        job = serviceJobs(changeServiceJobCapacity(oneTaskServiceJobDescriptor(), 3)).getValue();
+        tasks = serviceTasks(job).toList(3);
+    }
+
+    @Test
+    public void testTaskStateChangesAreAppliedAsDeltas() {
+        tracker.onEvent(JobUpdateEvent.newJob(job));
+        tasks.forEach(task -> tracker.onEvent(TaskUpdateEvent.newTask(job, task)));
+        assertThat(tracker.getJobConsumptions().get(0).getRunningCount()).isZero();
+
+        Task started = changeState(tasks.get(0), TaskState.Started);
+        tracker.onEvent(TaskUpdateEvent.taskChange(job, started, tasks.get(0)));
+        JobConsumption consumption = tracker.getJobConsumptions().get(0);
+        assertThat(consumption.getRunningCount()).isEqualTo(1);
+        assertThat(consumption.getTaskStateCount(V2JobState.Started)).isEqualTo(1);
+        assertThat(consumption.getTaskStateCount(V2JobState.Accepted)).isEqualTo(2);
+
+        // Finished task is removed from the job manager model
+        Task finished = changeState(started, TaskState.Finished);
+        tracker.onEvent(TaskUpdateEvent.taskChange(job, finished, started));
+        consumption = tracker.getJobConsumptions().get(0);
+        assertThat(consumption.getRunningCount()).isZero();
+        assertThat(consumption.getTaskStateCount(V2JobState.Started)).isZero();
+        assertThat(consumption.getTaskStateCount(V2JobState.Completed)).isZero();
+        assertThat(consumption.getTaskStateCount(V2JobState.Accepted)).isEqualTo(2);
+    }
+
+    @Test
+    public void testJobCapacityChangeAndJobFinish() {
+        tracker.onEvent(JobUpdateEvent.newJob(job));
+        assertThat(tracker.getJobConsumptions().get(0).getMax()).isEqualTo(3);
+
+        Job<ServiceJobExt> resized = JobFunctions.changeServiceJobCapacity(job, job.getJobDescriptor().getExtensions().getCapacity().toBuilder().withMax(10).build());
+        tracker.onEvent(JobUpdateEvent.jobChange(resized, job));
+        assertThat(tracker.getJobConsumptions().get(0).getMax()).isEqualTo(10);
+
+        // Finished job is removed from the job manager model
+        Job finished = JobFunctions.changeJobStatus(resized, JobState.Finished, "test");
+        tracker.onEvent(JobUpdateEvent.jobChange(finished, resized));
+        assertThat(tracker.getJobConsumptions()).isEmpty();
+    }
+
+    @Test
+    public void testIncrementalConsumptionMatchesFullEvaluation() {
+        // Active service job with a finished task
+        List<Task> serviceJobTasks = asList(
+                changeState(tasks.get(0), TaskState.Started),
+                changeState(tasks.get(1), TaskState.Finished),
+                tasks.get(2)
+        );
+
+        // Finished batch job, still in the job manager model
+        Job<BatchJobExt> batchJob = batchJobs(oneTaskBatchJobDescriptor()).getValue();
+        BatchJobTask batchTask = batchTasks(batchJob).getValue();
+        Job finishedBatchJob = JobFunctions.changeJobStatus(batchJob, JobState.Finished, "test");
+        Task finishedBatchTask = changeState(batchTask, TaskState.Finished);
+
+        List<Pair<Job, List<Task>>> jobsAndTasks = asList(
+                Pair.<Job, List<Task>>of(job, serviceJobTasks),
+                Pair.<Job, List<Task>>of(finishedBatchJob, Collections.singletonList(finishedBatchTask))
+        );
+        when(v3JobOperations.getJobsAndTasks()).thenReturn(jobsAndTasks);
+
+        // Replay the model changes as job manager events
+        tracker.onEvent(JobUpdateEvent.newJob(job));
+        tasks.forEach(task -> tracker.onEvent(TaskUpdateEvent.newTask(job, task)));
+        tracker.onEvent(TaskUpdateEvent.taskChange(job, serviceJobTasks.get(0), tasks.get(0)));
+        tracker.onEvent(TaskUpdateEvent.taskChange(job, serviceJobTasks.get(1), tasks.get(1)));
+        tracker.onEvent(JobUpdateEvent.newJob(batchJob));
+        tracker.onEvent(TaskUpdateEvent.newTask(batchJob, batchTask));
+        tracker.onEvent(TaskUpdateEvent.taskChange(batchJob, finishedBatchTask, batchTask));
+        tracker.onEvent(JobUpdateEvent.jobChange(finishedBatchJob, batchJob));
+
+        ApplicationSlaManagementService applicationSlaManagementService = mock(ApplicationSlaManagementService.class);
+        when(applicationSlaManagementService.getApplicationSLAs()).thenReturn(asList(ConsumptionModelGenerator.DEFAULT_SLA, ConsumptionModelGenerator.CRITICAL_SLA_1));
+        V2JobOperations v2JobOperations = mock(V2JobOperations.class);
+        BeanCapacityManagementConfiguration config = BeanCapacityManagementConfiguration.newBuilder().build();
+
+        ResourceConsumptionEvaluator fullEvaluator = new ResourceConsumptionEvaluator(applicationSlaManagementService, v2JobOperations, v3JobOperations, config);
+        ResourceConsumptionEvaluator incrementalEvaluator = new ResourceConsumptionEvaluator(applicationSlaManagementService, tracker.getJobConsumptions(), config);
+
+        assertThat(incrementalEvaluator.getSystemConsumption()).isEqualTo(fullEvaluator.getSystemConsumption());
+        assertThat(incrementalEvaluator.getUndefinedCapacityGroups()).isEqualTo(fullEvaluator.getUndefinedCapacityGroups());
+    }
+
+    @Test
+    public void testResyncAndDriftDetection() {
+        Task started = changeState(tasks.get(0), TaskState.Started);
+        List<Pair<Job, List<Task>>> jobsAndTasks = Collections.singletonList(Pair.<Job, List<Task>>of(job, Collections.singletonList(started)));
+
+        tracker.onEvent(JobUpdateEvent.newJob(job));
+
+        tracker.startResync();
+        List<JobConsumption> incremental = tracker.resync(jobsAndTasks);
+        List<JobConsumption> resynced = tracker.getJobConsumptions();
+        assertThat(resynced.get(0).getRunningCount()).isEqualTo(1);
+
+        assertThat(IncrementalResourceConsumptionEvaluator.countDrift(resynced, incremental)).isEqualTo(1);
+        assertThat(IncrementalResourceConsumptionEvaluator.countDrift(resynced, ResourceConsumptionEvaluator.toV3JobConsumptions(jobsAndTasks))).isZero();
+    }
+
+    @Test
+    public void testEventsReceivedDuringResyncAreAppliedOnTopOfSnapshot() {
+        Task started = changeState(tasks.get(0), TaskState.Started);
+        tracker.onEvent(JobUpdateEvent.newJob(job));
+        tracker.onEvent(TaskUpdateEvent.newTask(job, tasks.get(0)));
+
+        // Snapshot read before the task started
+        tracker.startResync();
+        List<Pair<Job, List<Task>>> snapshot = Collections.singletonList(Pair.<Job, List<Task>>of(job, Collections.singletonList(tasks.get(0))));
+        tracker.onEvent(TaskUpdateEvent.taskChange(job, started, tasks.get(0)));
+        List<JobConsumption> incremental = tracker.resync(snapshot);
+
+        List<JobConsumption> resynced = tracker.getJobConsumptions();
+        assertThat(resynced.get(0).getRunningCount()).isEqualTo(1);
+        assertThat(IncrementalResourceConsumptionEvaluator.countDrift(resynced, incremental)).isZero();
+
+        // Events after the resync are applied to the new state only
+        tracker.onEvent(TaskUpdateEvent.taskChange(job, changeState(started, TaskState.Finished), started));
+        assertThat(tracker.getJobConsumptions().get(0).getRunningCount()).isZero();
+    }
+
+    private Task changeState(Task task, TaskState taskState) {
+        return JobFunctions.changeTaskStatus(task, taskState, "test", "test");
+    }
+}
@@ -67,7 +67,7 @@ public class ServiceJobTaskMigratorTest {
         TaskMigrationDetails serviceJobThreeTask = generateTaskMigrationDetails("Titus-3-worker-0-1", "Titus-3");
 
         List<TaskMigrationDetails> migrationDetailsList = Lists.newArrayList(serviceJobOneTaskOne, serviceJobOneTaskTwo, serviceJobTwoTask, serviceJobThreeTask);
-        migrationDetailsList.forEach(i -> serviceJobTaskMigrator.taskMigrationDetailsMap.put(i.getId(), i));
+        migrationDetailsList.forEach(serviceJobTaskMigrator::addTaskMigrationDetails);
 
         when(migrationManager.getState()).thenReturn(TaskMigrationManager.State.Running);
 
@@ -78,6 +78,52 @@ public class ServiceJobTaskMigratorTest {
         verify(migrationManager, times(3)).update(any());
     }
 
+    @Test
+    public void testJobsAreUpdatedWhenDue() throws Exception {
+        when(migratorConfig.isServiceTaskMigratorEnabled()).thenReturn(true);
+        when(migratorConfig.getSchedulerDelayMs()).thenReturn(1000L);
+        when(migratorConfig.getSchedulerTimeoutMs()).thenReturn(300000L);
+        when(migrationManager.getState()).thenReturn(TaskMigrationManager.State.Running);
+        when(managerFactory.newTaskMigrationManager(any(V2TaskMigrationDetails.class))).thenReturn(migrationManager);
+
+        serviceJobTaskMigrator.addTaskMigrationDetails(generateTaskMigrationDetails("Titus-1-worker-0-1", "Titus-1"));
+        serviceJobTaskMigrator.enterActiveMode();
+        scheduler.advanceTimeBy(0L, TimeUnit.MILLISECONDS);
+        verify(migrationManager, times(1)).update(any());
+
+        // A job added between runs is updated by the next run
+        scheduler.advanceTimeBy(500L, TimeUnit.MILLISECONDS);
+        serviceJobTaskMigrator.addTaskMigrationDetails(generateTaskMigrationDetails("Titus-2-worker-0-1", "Titus-2"));
+        scheduler.advanceTimeBy(500L, TimeUnit.MILLISECONDS);
+        verify(migrationManager, times(3)).update(any());
+
+        // Both jobs are next due at 2000ms
+        scheduler.advanceTimeBy(1000L, TimeUnit.MILLISECONDS);
+        verify(migrationManager, times(5)).update(any());
+    }
+
+    @Test
+    public void testJobIsNotUpdatedBeforeItsManagerCanMakeProgress() throws Exception {
+        when(migratorConfig.isServiceTaskMigratorEnabled()).thenReturn(true);
+        when(migratorConfig.getSchedulerDelayMs()).thenReturn(1000L);
+        when(migratorConfig.getSchedulerTimeoutMs()).thenReturn(300000L);
+        when(migrationManager.getState()).thenReturn(TaskMigrationManager.State.Running);
+        when(migrationManager.getNextUpdateTime()).thenReturn(System.currentTimeMillis() + 5000L);
+        when(managerFactory.newTaskMigrationManager(any(V2TaskMigrationDetails.class))).thenReturn(migrationManager);
+
+        serviceJobTaskMigrator.addTaskMigrationDetails(generateTaskMigrationDetails("Titus-1-worker-0-1", "Titus-1"));
+        serviceJobTaskMigrator.enterActiveMode();
+        scheduler.advanceTimeBy(0L, TimeUnit.MILLISECONDS);
+        verify(migrationManager, times(1)).update(any());
+
+        // The periodic runs skip the job until the next update time of its manager
+        scheduler.advanceTimeBy(4000L, TimeUnit.MILLISECONDS);
+        verify(migrationManager, times(1)).update(any());
+
+        scheduler.advanceTimeBy(2000L, TimeUnit.MILLISECONDS);
+        verify(migrationManager, times(2)).update(any());
+    }
+
     @Test
     public void testMigrateServiceJobSchedulerTimeout() throws Exception {
 
@@ -88,7 +134,7 @@ public class ServiceJobTaskMigratorTest {
         TaskMigrationDetails serviceJobOneTask = generateTaskMigrationDetails("Titus-1-worker-0-1", "Titus-1");
 
         List<TaskMigrationDetails> migrationDetailsList = Collections.singletonList(serviceJobOneTask);
-        migrationDetailsList.forEach(i -> serviceJobTaskMigrator.taskMigrationDetailsMap.put(i.getId(), i));
+        migrationDetailsList.forEach(serviceJobTaskMigrator::addTaskMigrationDetails);
 
         when(migrationManager.getState()).thenReturn(TaskMigrationManager.State.Running);
 
@@ -50,6 +50,7 @@ public class JobQueryCriteria<TASK_STATE, JOB_TYPE extends Enum<JOB_TYPE>> {
     private final Optional<String> jobGroupSequence;
     private final boolean needsMigration;
     private final int limit;
+    private final Set<String> fields;
 
     private JobQueryCriteria(Set<String> jobIds,
                              Set<String> taskIds,
@@ -69,7 +70,8 @@ public class JobQueryCriteria<TASK_STATE, JOB_TYPE extends Enum<JOB_TYPE>> {
                              String jobGroupDetail,
                              String jobGroupSequence,
                              boolean needsMigration,
-                             int limit) {
+                             int limit,
+                             Set<String> fields) {
         this.jobIds = nonNull(jobIds);
         this.taskIds = nonNull(taskIds);
         this.includeArchived = includeArchived;
@@ -89,6 +91,7 @@ public class JobQueryCriteria<TASK_STATE, JOB_TYPE extends Enum<JOB_TYPE>> {
         this.jobGroupSequence = Optional.ofNullable(jobGroupSequence);
         this.needsMigration = needsMigration;
         this.limit = limit;
+        this.fields = nonNull(fields);
     }
 
     public static <TASK_STATE, JOB_TYPE extends Enum<JOB_TYPE>> Builder<TASK_STATE, JOB_TYPE> newBuilder() {
@@ -171,6 +174,13 @@ public class JobQueryCriteria<TASK_STATE, JOB_TYPE extends Enum<JOB_TYPE>> {
         return limit;
     }
 
+    /**
+     * Names of the fields to be returned to a client. If empty, all fields are returned.
+     */
+    public Set<String> getFields() {
+        return fields;
+    }
+
     public Builder<TASK_STATE, JOB_TYPE> toBuilder() {
         Builder<TASK_STATE, JOB_TYPE> builder = new Builder<>();
         return builder
@@ -189,7 +199,8 @@ public class JobQueryCriteria<TASK_STATE, JOB_TYPE extends Enum<JOB_TYPE>> {
                 .withJobGroupStack(this.jobGroupStack.orElse(null))
                 .withJobGroupSequence(this.jobGroupSequence.orElse(null))
                 .withNeedsMigration(needsMigration)
-                .withLimit(this.limit);
+                .withLimit(this.limit)
+                .withFields(this.fields);
     }
 
     public boolean isEmpty() {
@@ -234,6 +245,9 @@ public class JobQueryCriteria<TASK_STATE, JOB_TYPE extends Enum<JOB_TYPE>> {
         if (limit != that.limit) {
             return false;
         }
+        if (!fields.equals(that.fields)) {
+            return false;
+        }
         if (jobIds != null ? !jobIds.equals(that.jobIds) : that.jobIds != null) {
             return false;
         }
@@ -300,6 +314,7 @@ public class JobQueryCriteria<TASK_STATE, JOB_TYPE extends Enum<JOB_TYPE>> {
         result = 31 * result + (jobGroupSequence != null ? jobGroupSequence.hashCode() : 0);
         result = 31 * result + (needsMigration ? 1 : 0);
         result = 31 * result + limit;
+        result = 31 * result + fields.hashCode();
         return result;
     }
 
@@ -325,6 +340,7 @@ public class JobQueryCriteria<TASK_STATE, JOB_TYPE extends Enum<JOB_TYPE>> {
                 ", jobGroupSequence=" + jobGroupSequence +
                 ", needsMigration=" + needsMigration +
                 ", limit=" + limit +
+                ", fields=" + fields +
                 '}';
     }
 
@@ -348,6 +364,7 @@ public class JobQueryCriteria<TASK_STATE, JOB_TYPE extends Enum<JOB_TYPE>> {
         private String jobGroupSequence;
         private boolean needsMigration;
         private int limit;
+        private Set<String> fields;
 
         private Builder() {
         }
@@ -447,6 +464,11 @@ public class JobQueryCriteria<TASK_STATE, JOB_TYPE extends Enum<JOB_TYPE>> {
             return this;
         }
 
+        public Builder<TASK_STATE, JOB_TYPE> withFields(Set<String> fields) {
+            this.fields = fields;
+            return this;
+        }
+
         public Builder<TASK_STATE, JOB_TYPE> but() {
             return JobQueryCriteria.<TASK_STATE, JOB_TYPE>newBuilder()
                     .withJobIds(jobIds)
@@ -460,13 +482,14 @@ public class JobQueryCriteria<TASK_STATE, JOB_TYPE extends Enum<JOB_TYPE>> {
                     .withAppName(appName)
                     .withJobType(jobType)
                     .withNeedsMigration(needsMigration)
-                    .withLimit(limit);
+                    .withLimit(limit)
+                    .withFields(fields);
         }
 
         public JobQueryCriteria<TASK_STATE, JOB_TYPE> build() {
             return new JobQueryCriteria<>(jobIds, taskIds, includeArchived, jobState, taskStates, taskStateReasons, owner, labels,
                     labelsAndOp, imageName, imageTag, appName, capacityGroup, jobType, jobGroupStack, jobGroupDetail, jobGroupSequence,
-                    needsMigration, limit);
+                    needsMigration, limit, fields);
         }
     }
 }
@@ -126,21 +126,20 @@ public class CommonGrpcModelConverters {
     }
 
     public static JobQueryCriteria<TaskStatus.TaskState, JobSpecCase> toJobQueryCriteria(JobQuery jobQuery) {
-        if (jobQuery.getFilteringCriteriaCount() == 0) {
-            return JobQueryCriteria.<TaskStatus.TaskState, JobSpecCase>newBuilder().build();
-        }
-        return toJobQueryCriteria(jobQuery.getFilteringCriteriaMap());
+        return toJobQueryCriteria(jobQuery.getFilteringCriteriaMap(), jobQuery.getFieldsList());
     }
 
     public static JobQueryCriteria<TaskStatus.TaskState, JobSpecCase> toJobQueryCriteria(TaskQuery taskQuery) {
-        if (taskQuery.getFilteringCriteriaCount() == 0) {
-            return JobQueryCriteria.<TaskStatus.TaskState, JobSpecCase>newBuilder().build();
-        }
-        return toJobQueryCriteria(taskQuery.getFilteringCriteriaMap());
+        return toJobQueryCriteria(taskQuery.getFilteringCriteriaMap(), taskQuery.getFieldsList());
     }
 
-    private static JobQueryCriteria<TaskStatus.TaskState, JobSpecCase> toJobQueryCriteria(Map<String, String> criteriaMap) {
+    private static JobQueryCriteria<TaskStatus.TaskState, JobSpecCase> toJobQueryCriteria(Map<String, String> criteriaMap, List<String> fields) {
         JobQueryCriteria.Builder<TaskStatus.TaskState, JobSpecCase> criteriaBuilder = JobQueryCriteria.newBuilder();
+        criteriaBuilder.withFields(new HashSet<>(fields));
+
+        if (criteriaMap.isEmpty()) {
+            return criteriaBuilder.build();
+        }
 
         Set<String> unknown = copyAndRemove(criteriaMap.keySet(), CRITERIA_JOB_FIELDS);
         if (!unknown.isEmpty()) {
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.runtime.endpoint.v3.grpc;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.netflix.titus.common.util.PropertiesExt;
+
+/**
+ * Set of top level fields of a GRPC entity that a client asked for. The GRPC model converters consult it, to avoid
+ * building sub-messages that would be discarded afterwards. Nested field names (for example 'jobDescriptor.owner')
+ * select their top level field in full, so a projection must still be followed by
+ * {@link com.netflix.titus.common.util.ProtobufCopy} to get the exact field set.
+ * <p>
+ * Projections are immutable, and cached per distinct field set, as clients tend to use a small number of them.
+ */
+public final class GrpcFieldProjection {
+
+    public static final GrpcFieldProjection ALL = new GrpcFieldProjection(Collections.emptySet());
+
+    private static final int MAX_CACHED_PROJECTIONS = 1_000;
+
+    private static final Cache<Set<String>, GrpcFieldProjection> CACHE = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_PROJECTIONS)
+            .build();
+
+    private final Set<String> topLevelFields;
+
+    private GrpcFieldProjection(Set<String> topLevelFields) {
+        this.topLevelFields = topLevelFields;
+    }
+
+    public boolean isAll() {
+        return topLevelFields.isEmpty();
+    }
+
+    public boolean includes(String topLevelField) {
+        return topLevelFields.isEmpty() || topLevelFields.contains(topLevelField);
+    }
+
+    @Override
+    public String toString() {
+        return "GrpcFieldProjection{" +
+                "topLevelFields=" + (isAll() ? "ALL" : topLevelFields) +
+                '}';
+    }
+
+    /**
+     * Returns a projection for the given field names, extended with the mandatory ones. If no field names are
+     * given, all fields are included.
+     */
+    public static GrpcFieldProjection of(Set<String> fields, Set<String> mandatoryFields) {
+        if (fields.isEmpty()) {
+            return ALL;
+        }
+        Set<String> key = new HashSet<>(fields);
+        key.addAll(mandatoryFields);
+        GrpcFieldProjection projection = CACHE.getIfPresent(key);
+        if (projection == null) {
+            projection = new GrpcFieldProjection(Collections.unmodifiableSet(PropertiesExt.splitNames(key, 1).keySet()));
+            CACHE.put(key, projection);
+        }
+        return projection;
+    }
+}
@@ -77,6 +77,23 @@ import static com.netflix.titus.common.util.StringExt.nonNull;
 
 public final class V3GrpcModelConverters {
 
+    /*
+     * Top level field names of the GRPC job and task entities, as used in the query field projections.
+     */
+
+    public static final String JOB_FIELD_ID = "id";
+    public static final String JOB_FIELD_JOB_DESCRIPTOR = "jobDescriptor";
+    public static final String JOB_FIELD_STATUS = "status";
+    public static final String JOB_FIELD_STATUS_HISTORY = "statusHistory";
+
+    public static final String TASK_FIELD_ID = "id";
+    public static final String TASK_FIELD_JOB_ID = "jobId";
+    public static final String TASK_FIELD_TASK_CONTEXT = "taskContext";
+    public static final String TASK_FIELD_STATUS = "status";
+    public static final String TASK_FIELD_STATUS_HISTORY = "statusHistory";
+    public static final String TASK_FIELD_LOG_LOCATION = "logLocation";
+    public static final String TASK_FIELD_MIGRATION_DETAILS = "migrationDetails";
+
     private V3GrpcModelConverters() {
     }
 
@@ -561,15 +578,64 @@ public final class V3GrpcModelConverters {
     }
 
     public static com.netflix.titus.grpc.protogen.Job toGrpcJob(Job<?> coreJob) {
-        return com.netflix.titus.grpc.protogen.Job.newBuilder()
-                .setId(coreJob.getId())
-                .setJobDescriptor(toGrpcJobDescriptor(coreJob.getJobDescriptor()))
-                .setStatus(toGrpcJobStatus(coreJob.getStatus()))
-                .addAllStatusHistory(toGrpcJobStatusHistory(coreJob.getStatusHistory()))
-                .build();
+        return toGrpcJob(coreJob, GrpcFieldProjection.ALL);
+    }
+
+    /**
+     * Converts a job, building only the top level fields included in the projection.
+     */
+    public static com.netflix.titus.grpc.protogen.Job toGrpcJob(Job<?> coreJob, GrpcFieldProjection projection) {
+        com.netflix.titus.grpc.protogen.Job.Builder jobBuilder = com.netflix.titus.grpc.protogen.Job.newBuilder();
+        if (projection.includes(JOB_FIELD_ID)) {
+            jobBuilder.setId(coreJob.getId());
+        }
+        if (projection.includes(JOB_FIELD_JOB_DESCRIPTOR)) {
+            jobBuilder.setJobDescriptor(toGrpcJobDescriptor(coreJob.getJobDescriptor()));
+        }
+        if (projection.includes(JOB_FIELD_STATUS)) {
+            jobBuilder.setStatus(toGrpcJobStatus(coreJob.getStatus()));
+        }
+        if (projection.includes(JOB_FIELD_STATUS_HISTORY)) {
+            jobBuilder.addAllStatusHistory(toGrpcJobStatusHistory(coreJob.getStatusHistory()));
+        }
+        return jobBuilder.build();
     }
 
     public static com.netflix.titus.grpc.protogen.Task toGrpcTask(Task coreTask, LogStorageInfo<Task> logStorageInfo) {
+        return toGrpcTask(coreTask, logStorageInfo, GrpcFieldProjection.ALL);
+    }
+
+    /**
+     * Converts a task, building only the top level fields included in the projection.
+     */
+    public static com.netflix.titus.grpc.protogen.Task toGrpcTask(Task coreTask, LogStorageInfo<Task> logStorageInfo, GrpcFieldProjection projection) {
+        com.netflix.titus.grpc.protogen.Task.Builder taskBuilder = com.netflix.titus.grpc.protogen.Task.newBuilder();
+        if (projection.includes(TASK_FIELD_ID)) {
+            taskBuilder.setId(coreTask.getId());
+        }
+        if (projection.includes(TASK_FIELD_JOB_ID)) {
+            taskBuilder.setJobId(coreTask.getJobId());
+        }
+        if (projection.includes(TASK_FIELD_STATUS)) {
+            taskBuilder.setStatus(toGrpcTaskStatus(coreTask.getStatus()));
+        }
+        if (projection.includes(TASK_FIELD_STATUS_HISTORY)) {
+            taskBuilder.addAllStatusHistory(toGrpcTaskStatusHistory(coreTask.getStatusHistory()));
+        }
+        if (projection.includes(TASK_FIELD_TASK_CONTEXT)) {
+            taskBuilder.putAllTaskContext(toGrpcTaskContext(coreTask));
+        }
+        if (projection.includes(TASK_FIELD_LOG_LOCATION)) {
+            taskBuilder.setLogLocation(toGrpcLogLocation(coreTask, logStorageInfo));
+        }
+        if (coreTask instanceof ServiceJobTask && projection.includes(TASK_FIELD_MIGRATION_DETAILS)) {
+            ServiceJobTask serviceTask = (ServiceJobTask) coreTask;
+            taskBuilder.setMigrationDetails(toGrpcMigrationDetails(serviceTask.getMigrationDetails()));
+        }
+        return taskBuilder.build();
+    }
+
+    private static Map<String, String> toGrpcTaskContext(Task coreTask) {
         Map<String, String> taskContext = new HashMap<>(coreTask.getTaskContext());
         taskContext.put(TASK_ATTRIBUTES_TASK_ORIGINAL_ID, coreTask.getOriginalId());
         taskContext.put(TASK_ATTRIBUTES_RESUBMIT_NUMBER, Integer.toString(coreTask.getResubmitNumber()));
@@ -580,21 +646,7 @@ public final class V3GrpcModelConverters {
             BatchJobTask batchTask = (BatchJobTask) coreTask;
             taskContext.put(TASK_ATTRIBUTES_TASK_INDEX, Integer.toString(batchTask.getIndex()));
         }
-
-        com.netflix.titus.grpc.protogen.Task.Builder taskBuilder = com.netflix.titus.grpc.protogen.Task.newBuilder()
-                .setId(coreTask.getId())
-                .setJobId(coreTask.getJobId())
-                .setStatus(toGrpcTaskStatus(coreTask.getStatus()))
-                .addAllStatusHistory(toGrpcTaskStatusHistory(coreTask.getStatusHistory()))
-                .putAllTaskContext(taskContext)
-                .setLogLocation(toGrpcLogLocation(coreTask, logStorageInfo));
-
-        if (coreTask instanceof ServiceJobTask) {
-            ServiceJobTask serviceTask = (ServiceJobTask) coreTask;
-            taskBuilder.setMigrationDetails(toGrpcMigrationDetails(serviceTask.getMigrationDetails()));
-        }
-
-        return taskBuilder.build();
+        return taskContext;
     }
 
     public static <TASK> LogLocation toGrpcLogLocation(TASK task, LogStorageInfo<TASK> logStorageInfo) {
@@ -21,6 +21,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -32,6 +33,8 @@ import com.netflix.titus.grpc.protogen.TaskStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static com.netflix.titus.common.util.CollectionsExt.asSet;
+
 /**
  * A collection of functions for dealing with the pagination cursors.
  */
@@ -39,6 +42,16 @@ public final class JobManagerCursors {
 
     private static final Logger logger = LoggerFactory.getLogger(JobManagerCursors.class);
 
+    /**
+     * Job fields from which the cursor position is computed. They must be present in entities being paginated.
+     */
+    public static final Set<String> JOB_CURSOR_FIELDS = asSet("id", "status", "statusHistory");
+
+    /**
+     * Task fields from which the cursor position is computed. They must be present in entities being paginated.
+     */
+    public static final Set<String> TASK_CURSOR_FIELDS = asSet("id", "status", "statusHistory");
+
     private static final Pattern CURSOR_RE = Pattern.compile("(.*)@(\\d+)");
 
     private JobManagerCursors() {
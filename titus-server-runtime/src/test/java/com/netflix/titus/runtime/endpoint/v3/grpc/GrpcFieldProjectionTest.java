@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.runtime.endpoint.v3.grpc;
+
+import java.util.Collections;
+import java.util.Set;
+
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.ServiceJobTask;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.ext.ServiceJobExt;
+import com.netflix.titus.common.util.ProtobufCopy;
+import com.netflix.titus.runtime.endpoint.common.EmptyLogStorageInfo;
+import com.netflix.titus.runtime.endpoint.common.LogStorageInfo;
+import org.junit.Test;
+
+import static com.netflix.titus.common.util.CollectionsExt.asSet;
+import static com.netflix.titus.testkit.model.job.JobDescriptorGenerator.oneTaskServiceJobDescriptor;
+import static com.netflix.titus.testkit.model.job.JobGenerator.serviceJobs;
+import static com.netflix.titus.testkit.model.job.JobGenerator.serviceTasks;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GrpcFieldProjectionTest {
+
+    private static final Set<String> MANDATORY_FIELDS = asSet("id");
+
+    private static final LogStorageInfo<Task> LOG_STORAGE_INFO = EmptyLogStorageInfo.INSTANCE;
+
+    private final Job<ServiceJobExt> job = serviceJobs(oneTaskServiceJobDescriptor()).getValue();
+
+    private final ServiceJobTask task = serviceTasks(job).getValue();
+
+    @Test
+    public void testEmptyFieldSetIncludesAllFields() {
+        GrpcFieldProjection projection = GrpcFieldProjection.of(Collections.emptySet(), MANDATORY_FIELDS);
+        assertThat(projection).isSameAs(GrpcFieldProjection.ALL);
+        assertThat(V3GrpcModelConverters.toGrpcTask(task, LOG_STORAGE_INFO, projection))
+                .isEqualTo(V3GrpcModelConverters.toGrpcTask(task, LOG_STORAGE_INFO));
+    }
+
+    @Test
+    public void testProjectionsAreCachedPerFieldSet() {
+        GrpcFieldProjection first = GrpcFieldProjection.of(asSet("status", "jobId"), MANDATORY_FIELDS);
+        GrpcFieldProjection second = GrpcFieldProjection.of(asSet("jobId", "status", "id"), MANDATORY_FIELDS);
+        assertThat(first).isSameAs(second);
+        assertThat(first.includes("id")).isTrue();
+        assertThat(first.includes("taskContext")).isFalse();
+    }
+
+    @Test
+    public void testProjectedJobConversionMatchesCopyOfFullConversion() {
+        Set<String> fields = asSet("id", "status", "jobDescriptor.owner");
+        GrpcFieldProjection projection = GrpcFieldProjection.of(fields, MANDATORY_FIELDS);
+
+        com.netflix.titus.grpc.protogen.Job projected = V3GrpcModelConverters.toGrpcJob(job, projection);
+        assertThat(projected.hasJobDescriptor()).isTrue();
+        assertThat(projected.getStatusHistoryList()).isEmpty();
+
+        com.netflix.titus.grpc.protogen.Job full = V3GrpcModelConverters.toGrpcJob(job);
+        assertThat(ProtobufCopy.copy(projected, fields)).isEqualTo(ProtobufCopy.copy(full, fields));
+    }
+
+    @Test
+    public void testProjectedTaskConversionMatchesCopyOfFullConversion() {
+        Set<String> fields = asSet("id", "status", "taskContext.task.originalId");
+        GrpcFieldProjection projection = GrpcFieldProjection.of(fields, MANDATORY_FIELDS);
+
+        com.netflix.titus.grpc.protogen.Task projected = V3GrpcModelConverters.toGrpcTask(task, LOG_STORAGE_INFO, projection);
+        assertThat(projected.hasLogLocation()).isFalse();
+        assertThat(projected.hasMigrationDetails()).isFalse();
+        assertThat(projected.getJobId()).isEmpty();
+
+        com.netflix.titus.grpc.protogen.Task full = V3GrpcModelConverters.toGrpcTask(task, LOG_STORAGE_INFO);
+        assertThat(ProtobufCopy.copy(projected, fields)).isEqualTo(ProtobufCopy.copy(full, fields));
+    }
+}